@@ -27,6 +27,7 @@
 package com.salesforce.dataloader.action;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -96,6 +97,9 @@ abstract class AbstractAction implements IAction {
     /** flushes any remaining records to or from the dao */
     protected abstract void flush() throws OperationException, DataAccessObjectException;
 
+    /** subclasses should record the outcome of an operation here, called after all output is closed */
+    protected void finishOperation() throws OperationException {}
+
     /** subclasses should do operation specific initialization here */
     protected abstract void initOperation() throws DataAccessObjectInitializationException, OperationException,
     MappingInitializationException, DataAccessObjectException;
@@ -146,6 +150,13 @@ abstract class AbstractAction implements IAction {
             } catch (Exception e){
                 exceptions.add(e);
             }
+            try {
+                if (exceptions.size() == 0 && !getMonitor().isCanceled()) {
+                    finishOperation();
+                }
+            } catch (Exception e){
+                exceptions.add(e);
+            }
             try {
                 if (this.errorWriter != null) {
                     getMonitor().setNumberRowsWithError(this.errorWriter.getCurrentRowNumber());
@@ -281,11 +292,16 @@ abstract class AbstractAction implements IAction {
     public void openSuccessWriter(List<String> headers) throws LoadException {
         headers = new LinkedList<String>(headers);
         Config config = this.controller.getConfig();
+        final String successLevel = config.getString(Config.OUTPUT_SUCCESS_LEVEL);
 
-        // add the ID column if not there already
-        if (config.isBulkV2APIEnabled()
+        if (Config.OUTPUT_SUCCESS_LEVEL_IDS.equalsIgnoreCase(successLevel)
+                || Config.OUTPUT_SUCCESS_LEVEL_COUNTS.equalsIgnoreCase(successLevel)) {
+            // compact success file, the error file keeps all columns
+            headers = new LinkedList<String>(Arrays.asList(Config.ID_COLUMN_NAME, Config.ROW_NUMBER_COLUMN_NAME));
+        } else if (config.isBulkV2APIEnabled()
         	&& !config.getString(Config.OPERATION).equals(OperationInfo.extract.name())
         	&& !config.getString(Config.OPERATION).equals(OperationInfo.extract_all.name())) {
+            // add the ID column if not there already
             if (headers.size() == 0 || !Config.ID_COLUMN_NAME.equals(headers.get(0))) {
                 headers.add(0, Config.ID_COLUMN_NAME);
             }
@@ -26,6 +26,7 @@
 
 package com.salesforce.dataloader.action;
 
+import java.io.IOException;
 import java.util.*;
 
 import org.apache.logging.log4j.Logger;
@@ -33,6 +34,7 @@ import org.apache.logging.log4j.Logger;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.action.visitor.IQueryVisitor;
 import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.LastRun;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.*;
@@ -86,7 +88,7 @@ abstract public class AbstractExtractAction extends AbstractAction {
     }
 
     private List<String> getDaoColumnsFromMapper() {
-        ((SOQLMapper)getController().getMapper()).initSoqlMapping(getConfig().getString(Config.EXTRACT_SOQL));
+        ((SOQLMapper)getController().getMapper()).initSoqlMapping(getExtractionSoql());
         return ((SOQLMapper)getController().getMapper()).getDaoColumnsForSoql();
     }
 
@@ -136,6 +138,7 @@ abstract public class AbstractExtractAction extends AbstractAction {
 
     @Override
     protected void initOperation() throws DataAccessObjectInitializationException, OperationException {
+        checkDeltaWatermark();
         ((SOQLMapper)getController().getMapper()).clearMap();
         if (getController().getConfig().getBoolean(Config.LIMIT_OUTPUT_TO_QUERY_FIELDS)) {
             final List<String> daoColumns = getDaoColumnsFromMapper();
@@ -143,11 +146,75 @@ abstract public class AbstractExtractAction extends AbstractAction {
         } else {
             // check for syntactical correctness and presence of nested soql.
             // nested soql is currently not supported.
-            ((SOQLMapper)getController().getMapper()).parseSoql(getConfig().getString(Config.EXTRACT_SOQL));
+            ((SOQLMapper)getController().getMapper()).parseSoql(getExtractionSoql());
         }
     }
 
     @Override
     protected void flush() {}
 
+    /**
+     * @return the configured extraction soql, narrowed to the rows changed since the last extract
+     * if a delta extract field is configured
+     */
+    public String getExtractionSoql() {
+        final String soql = getConfig().getString(Config.EXTRACT_SOQL);
+        final String deltaField = getConfig().getString(Config.EXTRACT_DELTA_FIELD);
+        if (deltaField == null || deltaField.isBlank() || soql == null || soql.isBlank()) {
+            return soql;
+        }
+        int overlapSeconds;
+        try {
+            overlapSeconds = getConfig().getInt(Config.EXTRACT_DELTA_OVERLAP_SECONDS);
+        } catch (ParameterLoadException e) {
+            getLogger().warn("Invalid value for " + Config.EXTRACT_DELTA_OVERLAP_SECONDS + ", using 0");
+            overlapSeconds = 0;
+        }
+        return ExtractWatermark.getDeltaSoql(soql, deltaField.trim(),
+                getConfig().getString(LastRun.LAST_EXTRACT_WATERMARK), overlapSeconds,
+                getConfig().getOperationInfo() == OperationInfo.extract_all);
+    }
+
+    /**
+     * Fails a delta extract whose saved watermark cannot be read instead of extracting all rows.
+     */
+    private void checkDeltaWatermark() throws ExtractException {
+        final String deltaField = getConfig().getString(Config.EXTRACT_DELTA_FIELD);
+        if (deltaField == null || deltaField.isBlank()) {
+            return;
+        }
+        final String lastWatermark = getConfig().getString(LastRun.LAST_EXTRACT_WATERMARK);
+        try {
+            ExtractWatermark.parseSavedWatermark(lastWatermark);
+        } catch (IllegalArgumentException e) {
+            final String errMsg = Messages.getMessage(AbstractExtractAction.class, "errorInvalidWatermark",
+                    lastWatermark, LastRun.LAST_EXTRACT_WATERMARK);
+            getLogger().error(errMsg);
+            throw new ExtractException(errMsg);
+        }
+    }
+
+    /**
+     * Saves the watermark of a delta extract once all of its output has been written. The watermark
+     * is not raised past rows that could not be written.
+     */
+    @Override
+    protected void finishOperation() throws OperationException {
+        final String highWatermark = getVisitor().getHighWatermark();
+        if (highWatermark == null) {
+            final String deltaField = getConfig().getString(Config.EXTRACT_DELTA_FIELD);
+            if (deltaField != null && !deltaField.isBlank() && getVisitor().getNumberErrors() > 0) {
+                getLogger().warn("Not saving the delta extract watermark, rows without a watermark value were not written");
+            }
+            return;
+        }
+        getLogger().info("Saving delta extract watermark " + highWatermark);
+        getConfig().setValue(LastRun.LAST_EXTRACT_WATERMARK, highWatermark);
+        try {
+            getConfig().saveLastRun();
+        } catch (IOException e) {
+            throw new ExtractException(e);
+        }
+    }
+
 }
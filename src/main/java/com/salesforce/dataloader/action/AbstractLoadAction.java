@@ -50,6 +50,8 @@ import java.util.List;
  * @since 6.0
  */
 abstract class AbstractLoadAction extends AbstractAction {
+
+    private int totalRows = 0;
     
     protected AbstractLoadAction(Controller controller, ILoaderProgress monitor)
             throws DataAccessObjectInitializationException {
@@ -81,6 +83,7 @@ abstract class AbstractLoadAction extends AbstractAction {
         final int daoRowNumBase = getDao().getCurrentRowNumber();
         final List<Row> daoRowList = getDao().readRowList(loadBatchSize);
         if (daoRowList == null || daoRowList.size() == 0) return false;
+        refreshTotalRows();
         int daoRowCount = 0;
 
         for (final Row daoRow : daoRowList) {
@@ -95,9 +98,28 @@ abstract class AbstractLoadAction extends AbstractAction {
         return true;
     }
 
+    /**
+     * Passes on a total that became known while reading, or one that turned out to be too low.
+     */
+    private void refreshTotalRows() throws DataAccessObjectException {
+        int currentTotal = getDao().getTotalRows();
+        if (currentTotal > 0 && currentTotal < getDao().getCurrentRowNumber()) {
+            // an estimate, there are at least as many rows as have been read
+            currentTotal = getDao().getCurrentRowNumber();
+        }
+        if (currentTotal != this.totalRows) {
+            this.totalRows = currentTotal;
+            getVisitor().setTotalRows(currentTotal);
+        }
+    }
+
     @Override
     protected void flush() throws OperationException, DataAccessObjectException {
-        getVisitor().flushRemaining();
+        try {
+            getVisitor().flushRemaining();
+        } finally {
+            getVisitor().finishLoad();
+        }
     }
 
     @Override
@@ -105,7 +127,9 @@ abstract class AbstractLoadAction extends AbstractAction {
         // ensure all field mappings are valid before data load
         ((LoadMapper)this.getController().getMapper()).verifyMappingsAreValid();
         // start the Progress Monitor
-        getMonitor().beginTask(getMessage("loading", getConfig().getString(Config.OPERATION)), getDao().getTotalRows());
+        this.totalRows = getDao().getTotalRows();
+        getMonitor().beginTask(getMessage("loading", getConfig().getString(Config.OPERATION)), this.totalRows);
+        getVisitor().findLastRowsByExternalId(getDao());
         // set the starting row
         DAORowUtil.get().skipRowToStartOffset(getConfig(), getDao(), getMonitor(), !getConfig().isBulkAPIEnabled());
     }
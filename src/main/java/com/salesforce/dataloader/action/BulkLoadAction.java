@@ -32,8 +32,12 @@ import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.action.visitor.BulkLoadVisitor;
 import com.salesforce.dataloader.action.visitor.DAOLoadVisitor;
 import com.salesforce.dataloader.controller.Controller;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.salesforce.dataloader.mapping.LoadMapper;
+import com.sforce.ws.ConnectionException;
 
 /**
  * @author Jesper Joergensen, Colin Jarvis
@@ -41,6 +45,8 @@ import com.salesforce.dataloader.mapping.LoadMapper;
  */
 class BulkLoadAction extends AbstractLoadAction {
 
+    private boolean passthroughChecked = false;
+
     public BulkLoadAction(Controller controller, ILoaderProgress monitor)
             throws DataAccessObjectInitializationException {
         super(controller, monitor);
@@ -50,6 +56,24 @@ class BulkLoadAction extends AbstractLoadAction {
     protected DAOLoadVisitor createVisitor() {
         return new BulkLoadVisitor(getController(), getMonitor(), getSuccessWriter(), getErrorWriter());
     }
+
+    @Override
+    public BulkLoadVisitor getVisitor() {
+        return (BulkLoadVisitor)super.getVisitor();
+    }
+
+    @Override
+    protected boolean visit() throws DataAccessObjectException, ParameterLoadException, OperationException,
+    ConnectionException {
+        if (!this.passthroughChecked) {
+            this.passthroughChecked = true;
+            // all records are uploaded at once if the CSV file can be passed through
+            if (getVisitor().loadPassthrough()) {
+                return false;
+            }
+        }
+        return super.visit();
+    }
     
     @Override
     protected List<String> getStatusColumns() {
@@ -59,9 +83,11 @@ class BulkLoadAction extends AbstractLoadAction {
             // Success and error results in Bulk V2 upload operations contain all of the mapped columns
             // in the order in which they were uploaded.
             // Header of the error results file contains mapped DAO columns, not all DAO columns.
-            // Header of the success results file is saved as-is from the downloaded success file. It
-            // contains server-side field names along with a column answering "yes" or "no" to the header
-            // field "created?" and another column labeled "sf__id" listing id of the sobject.
+            // Header of the success results file is saved as-is from the downloaded success file when
+            // nothing else is written to it. It contains server-side field names along with a column
+            // answering "yes" or "no" to the header field "created?" and another column labeled "sf__id"
+            // listing id of the sobject. When rows skipped as unchanged are written to the success file
+            // or fingerprints are saved, the results are mapped onto these columns instead.
             LoadMapper mapper = (LoadMapper)this.getController().getMapper();
             return mapper.getMappedDaoColumns();
         } else {
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+import com.salesforce.dataloader.mapping.SOQLRewriter;
+
+/**
+ * Tracks the highest value of the watermark field written by a delta extract, and narrows the
+ * extraction soql to the rows changed since the watermark of the previous extract. The watermark
+ * is held back to the rows that could not be written so that the next extract returns them again.
+ */
+public class ExtractWatermark {
+
+    static final String IS_DELETED_FIELD = "IsDeleted";
+    private static final DateTimeFormatter SOQL_DATETIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ssX");
+    private static final DateTimeFormatter OFFSET_DATETIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+    private Instant highWatermark;
+    private Instant lowestFailed;
+    private boolean failedWithoutValue;
+
+    /**
+     * Rewrites the soql of a delta extract.
+     * 
+     * @param soql configured extraction soql
+     * @param fieldName datetime field tracking changes, such as SystemModstamp or LastModifiedDate
+     * @param lastWatermark watermark saved by the previous extract, or null to extract all rows
+     * @param overlapSeconds how far before the last watermark to start, to pick up rows committed late
+     * @param includeDeleted true if the query includes deleted rows, in which case IsDeleted is selected
+     * @return soql selecting the watermark field, with a range predicate on it
+     * @throws IllegalArgumentException if the last watermark is not a datetime
+     */
+    public static String getDeltaSoql(String soql, String fieldName, String lastWatermark, int overlapSeconds,
+            boolean includeDeleted) {
+        // the watermark can only be raised if the field is returned
+        soql = SOQLRewriter.addSelectField(soql, fieldName);
+        if (includeDeleted) {
+            soql = SOQLRewriter.addSelectField(soql, IS_DELETED_FIELD);
+        }
+        final Instant lastInstant = parseSavedWatermark(lastWatermark);
+        if (lastInstant == null) {
+            return soql;
+        }
+        final Instant start = lastInstant.minusSeconds(Math.max(0, overlapSeconds)).truncatedTo(ChronoUnit.SECONDS);
+        return SOQLRewriter.addFilterCondition(soql, fieldName + " >= " + format(start));
+    }
+
+    /**
+     * Raises the watermark to the given field value if it is higher.
+     */
+    public void update(Object fieldValue) {
+        final Instant value = parse(fieldValue == null ? null : fieldValue.toString());
+        if (value != null && (this.highWatermark == null || value.isAfter(this.highWatermark))) {
+            this.highWatermark = value;
+        }
+    }
+
+    /**
+     * Holds the watermark back to the field value of a row that could not be written.
+     */
+    public void rowFailed(Object fieldValue) {
+        final Instant value = parse(fieldValue == null ? null : fieldValue.toString());
+        if (value == null) {
+            this.failedWithoutValue = true;
+        } else if (this.lowestFailed == null || value.isBefore(this.lowestFailed)) {
+            this.lowestFailed = value;
+        }
+    }
+
+    /**
+     * @return the highest field value written, lowered to the lowest value of a row that failed since
+     * the next extract starts at the watermark, or null if no value has been seen or a failed row
+     * has no value
+     */
+    public String getHighWatermark() {
+        if (this.highWatermark == null || this.failedWithoutValue) {
+            return null;
+        }
+        if (this.lowestFailed != null && this.lowestFailed.isBefore(this.highWatermark)) {
+            return this.lowestFailed.toString();
+        }
+        return this.highWatermark.toString();
+    }
+
+    static String format(Instant instant) {
+        return SOQL_DATETIME_FORMAT.format(OffsetDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+
+    /**
+     * @return the saved watermark, or null if none was saved
+     * @throws IllegalArgumentException if a watermark was saved but is not a datetime
+     */
+    public static Instant parseSavedWatermark(String value) {
+        final Instant instant = parse(value);
+        if (instant == null && value != null && !value.trim().isEmpty()) {
+            throw new IllegalArgumentException("Invalid delta extract watermark: " + value);
+        }
+        return instant;
+    }
+
+    static Instant parse(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        value = value.trim();
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            // not in ISO-8601 instant format, try the format used by the dataloader config
+        }
+        try {
+            return OffsetDateTime.parse(value, OFFSET_DATETIME_FORMAT).toInstant();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
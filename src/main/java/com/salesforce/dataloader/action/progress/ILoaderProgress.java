@@ -29,6 +29,7 @@ package com.salesforce.dataloader.action.progress;
 public interface ILoaderProgress {
 
     void beginTask(String name, int totalWork);
+    void setTotalWork(int totalWork);
     void doneError(String message);
     void doneSuccess(String message);
     void worked(int worked);
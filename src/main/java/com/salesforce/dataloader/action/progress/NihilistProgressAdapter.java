@@ -62,6 +62,13 @@ public class NihilistProgressAdapter implements ILoaderProgress {
         this.totalWork = totalWork;
     }
     
+    /**
+     * Replaces the total given to beginTask, which was estimated or not known yet.
+     */
+    public void setTotalWork(int totalWork) {
+        this.totalWork = totalWork;
+    }
+
     public void doneError(String msg) {
         success = false;
         message = msg;
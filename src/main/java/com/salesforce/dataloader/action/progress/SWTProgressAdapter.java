@@ -41,6 +41,7 @@ public class SWTProgressAdapter extends NihilistProgressAdapter {
 
     private IProgressMonitor monitor = null;
     private final Controller controller;
+    private String taskName = "";
 
     public SWTProgressAdapter(IProgressMonitor monitor_, Controller controller) {
         super();
@@ -54,8 +55,26 @@ public class SWTProgressAdapter extends NihilistProgressAdapter {
     @Override
     public void beginTask(String name, int totalWork) {
         super.beginTask(name, totalWork);
+        this.taskName = name;
         monitor.beginTask(name, totalWork);
     }
+
+    /**
+     * The monitor cannot change the total of a task, so the task is started again with the new
+     * total and the work done so far.
+     */
+    @Override
+    public void setTotalWork(int totalWork) {
+        if (totalWork == getTotalWork()) {
+            return;
+        }
+        super.setTotalWork(totalWork);
+        monitor.beginTask(this.taskName, totalWork);
+        monitor.worked(getNumWorked());
+        if (!getSubTasks().isEmpty()) {
+            monitor.subTask(getSubTasks().get(getSubTasks().size() - 1));
+        }
+    }
     
     /*
      * (non-Javadoc)
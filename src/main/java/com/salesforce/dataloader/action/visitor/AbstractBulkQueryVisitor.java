@@ -26,12 +26,17 @@
 
 package com.salesforce.dataloader.action.visitor;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
 import java.util.List;
 
 import com.salesforce.dataloader.action.AbstractExtractAction;
@@ -39,11 +44,14 @@ import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.dao.csv.CSVFileWriter;
+import com.salesforce.dataloader.dao.csv.CSVRecordScanner;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.exception.OperationException;
 import com.salesforce.dataloader.mapping.SOQLMapper;
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.util.AppUtil;
 import com.sforce.async.CSVReader;
 
 /**
@@ -54,6 +62,8 @@ import com.sforce.async.CSVReader;
  */
 abstract public class AbstractBulkQueryVisitor extends AbstractQueryVisitor {
 
+    private static final int PASSTHROUGH_BUFFER_SIZE = 64 * 1024;
+
     public AbstractBulkQueryVisitor(AbstractExtractAction action, Controller controller, ILoaderProgress monitor, DataWriter queryWriter,
             DataWriter successWriter, DataWriter errorWriter) {
         super(action, controller, monitor, queryWriter, successWriter, errorWriter);
@@ -85,23 +95,7 @@ abstract public class AbstractBulkQueryVisitor extends AbstractQueryVisitor {
                 //stream from csv file
                 resultStream = new FileInputStream(new File(bufferingFilePath));
             }
-            try {
-                final CSVReader rdr = new CSVReader(resultStream, Config.BULK_API_ENCODING);
-                rdr.setMaxCharsInFile(Integer.MAX_VALUE);
-                rdr.setMaxRowsInFile(Integer.MAX_VALUE);
-                List<String> headers;
-                headers = rdr.nextRecord();
-                List<String> csvRow;
-                boolean isFirstRowInBatch = true;
-                while ((csvRow = rdr.nextRecord()) != null) {
-                    final StringBuilder id = new StringBuilder();
-                    final Row daoRow = getDaoRow(headers, csvRow, id, isFirstRowInBatch);
-                    addResultRow(daoRow, id.toString());
-                    isFirstRowInBatch = false;
-                }
-            } finally {
-                resultStream.close();
-            }
+            writeExtractionForResultStream(resultStream);
         } finally {
             if (bufferingFile != null) {
                 bufferingFile.delete();
@@ -109,6 +103,95 @@ abstract public class AbstractBulkQueryVisitor extends AbstractQueryVisitor {
         }
     }
 
+    /**
+     * Parses the query results in the stream and writes them out. Closes the stream.
+     */
+    protected void writeExtractionForResultStream(InputStream resultStream) throws IOException, DataAccessObjectException {
+        final CSVFileWriter passthroughWriter = getPassthroughWriter();
+        if (passthroughWriter != null) {
+            resultStream = new BufferedInputStream(resultStream, PASSTHROUGH_BUFFER_SIZE);
+            final byte[] header = readHeaderRecord(resultStream);
+            if (isPassthroughHeader(header, passthroughWriter)) {
+                // results map one to one to the output columns, copy the records as they are
+                flushResults();
+                addRowsWritten(passthroughWriter.writeRawRecords(resultStream));
+                return;
+            }
+            resultStream = new SequenceInputStream(new ByteArrayInputStream(header), resultStream);
+        }
+        try {
+            final CSVReader rdr = new CSVReader(resultStream, Config.BULK_API_ENCODING);
+            rdr.setMaxCharsInFile(Integer.MAX_VALUE);
+            rdr.setMaxRowsInFile(Integer.MAX_VALUE);
+            List<String> headers;
+            headers = rdr.nextRecord();
+            List<String> csvRow;
+            boolean isFirstRowInBatch = true;
+            while ((csvRow = rdr.nextRecord()) != null) {
+                final StringBuilder id = new StringBuilder();
+                final Row daoRow = getDaoRow(headers, csvRow, id, isFirstRowInBatch);
+                addResultRow(daoRow, id.toString());
+                isFirstRowInBatch = false;
+            }
+        } finally {
+            resultStream.close();
+        }
+    }
+
+    /**
+     * @return the query writer if results can be copied to it without being parsed, null otherwise
+     */
+    private CSVFileWriter getPassthroughWriter() {
+        if (!getConfig().getBoolean(Config.BULK_QUERY_RESULTS_PASSTHROUGH)
+                // status output and delta extracts need the values of each row
+                || getConfig().getBoolean(Config.ENABLE_EXTRACT_STATUS_OUTPUT)
+                || !getConfig().getString(Config.EXTRACT_DELTA_FIELD).isBlank()
+                || !getMapper().getConstantsMap().isEmpty()
+                || !(getQueryWriter() instanceof CSVFileWriter)) {
+            return null;
+        }
+        final CSVFileWriter writer = (CSVFileWriter)getQueryWriter();
+        return writer.acceptsRawRecords(AppUtil.COMMA.charAt(0), Charset.forName(Config.BULK_API_ENCODING)) ?
+                writer : null;
+    }
+
+    private static byte[] readHeaderRecord(InputStream resultStream) throws IOException {
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        final CSVRecordScanner scanner = new CSVRecordScanner();
+        final byte[] b = new byte[1];
+        int c;
+        while ((c = resultStream.read()) != -1) {
+            b[0] = (byte)c;
+            header.write(c);
+            if (scanner.scan(b, 0, 1) >= 0) {
+                break;
+            }
+        }
+        return header.toByteArray();
+    }
+
+    private boolean isPassthroughHeader(byte[] header, CSVFileWriter writer) throws IOException {
+        final List<String> columns = writer.getColumnNames();
+        if (header.length == 0 || columns == null || columns.isEmpty()) {
+            return false;
+        }
+        final CSVReader rdr = new CSVReader(new ByteArrayInputStream(header), Config.BULK_API_ENCODING);
+        final List<String> headers = rdr.nextRecord();
+        if (headers == null || headers.size() != columns.size()) {
+            return false;
+        }
+        for (int i = 0; i < headers.size(); i++) {
+            String daoColumn = getMapper().getMapping(headers.get(i));
+            if (daoColumn == null) {
+                daoColumn = headers.get(i);
+            }
+            if (!daoColumn.equalsIgnoreCase(columns.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private Row getDaoRow(List<String> queryResultHeaders, List<String> csvRow, 
             StringBuilder id, boolean isFirstRowInBatch) throws DataAccessObjectInitializationException {
         if (isFirstRowInBatch 
@@ -27,11 +27,14 @@
 package com.salesforce.dataloader.action.visitor;
 
 import com.salesforce.dataloader.action.AbstractExtractAction;
+import com.salesforce.dataloader.action.ExtractWatermark;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.dao.TransactionalDataWriter;
+import com.salesforce.dataloader.exception.DataAccessBatchException;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.exception.ExtractException;
@@ -46,6 +49,7 @@ import com.sforce.ws.ConnectionException;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Superclass for all query visitors
@@ -55,10 +59,15 @@ import java.util.List;
  */
 abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVisitor {
 
-    private final DataWriter queryWriter;
+    private DataWriter queryWriter;
     private final String soql;
+    private final String deltaField;
+    private final ExtractWatermark watermark;
     private final List<Row> batchRows;
     private final List<String> batchIds;
+    // rows written to a transactional query writer that are reported once they are committed
+    private final List<Row> uncommittedRows;
+    private final List<String> uncommittedIds;
     private final int batchSize;
     protected final AbstractExtractAction action;
 
@@ -66,9 +75,14 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
             DataWriter successWriter, DataWriter errorWriter) {
         super(controller, monitor, successWriter, errorWriter);
         this.queryWriter = queryWriter;
-        this.soql = getConfig().getString(Config.EXTRACT_SOQL);
+        this.soql = action.getExtractionSoql();
+        final String deltaField = getConfig().getString(Config.EXTRACT_DELTA_FIELD);
+        this.deltaField = deltaField == null || deltaField.isBlank() ? null : deltaField.trim();
+        this.watermark = new ExtractWatermark();
         this.batchRows = new LinkedList<Row>();
         this.batchIds = new LinkedList<String>();
+        this.uncommittedRows = new LinkedList<Row>();
+        this.uncommittedIds = new LinkedList<String>();
         this.batchSize = getWriteBatchSize();
         this.action = action;
     }
@@ -98,7 +112,8 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
     protected abstract void writeExtraction() throws AsyncApiException, ExtractException, DataAccessObjectException,
     ConnectionException;
 
-    protected abstract int executeQuery(String soql) throws ConnectionException, AsyncApiException, OperationException;
+    protected abstract int executeQuery(String soql) throws ConnectionException, AsyncApiException, OperationException,
+    DataAccessObjectException;
 
     @Override
     protected boolean writeStatus() {
@@ -109,10 +124,18 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
         return this.soql;
     }
 
-    private DataWriter getQueryWriter() {
+    protected DataWriter getQueryWriter() {
         return this.queryWriter;
     }
 
+    /**
+     * Writes out pending result rows to the current query writer before switching to the given one.
+     */
+    protected void setQueryWriter(DataWriter queryWriter) throws DataAccessObjectException {
+        flushResults();
+        this.queryWriter = queryWriter;
+    }
+
     protected void addResultRow(Row row, String id) throws DataAccessObjectException {
         this.batchRows.add(row);
         this.batchIds.add(id);
@@ -121,14 +144,25 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
         }
     }
 
-    private void flushResults() throws DataAccessObjectException {
+    protected void flushResults() throws DataAccessObjectException {
         if (!this.batchRows.isEmpty()) {
             writeBatch();
         }
+        reportCommittedRows(true);
+    }
+
+    /**
+     * Accounts for rows written to the query writer without going through {@link #addResultRow(Row, String)}.
+     */
+    protected void addRowsWritten(long count) {
+        setSuccesses(getNumberSuccesses() + count);
+        getProgressMonitor().worked((int)count);
+        getProgressMonitor().setSubTask(getRateCalculator().calculateSubTask(getNumberOfRows(), getNumberErrors()));
     }
 
     private void writeBatch() throws DataAccessObjectException {
         if (getProgressMonitor().isCanceled()) return;
+        boolean writeFailed = false;
         try {
             if (getQueryWriter().writeRowList(this.batchRows)) {
                 writeSuccesses();
@@ -140,25 +174,127 @@ abstract class AbstractQueryVisitor extends AbstractVisitor implements IQueryVis
             getProgressMonitor().setSubTask(getRateCalculator().calculateSubTask(getNumberOfRows(), getNumberErrors()));
         } catch (final DataAccessObjectInitializationException ex) {
             throw ex;
+        } catch (final DataAccessBatchException ex) {
+            // the rows that failed were left out, the others were written
+            writeFailed = true;
+            writePartialBatch(ex.getRowErrors());
         } catch (final DataAccessObjectException ex) {
+            writeFailed = true;
             writeErrors(Messages.getMessage(getClass(), "statusErrorNotWrittenException",
                     getConfig().getString(Config.DAO_NAME), ex.getMessage()));
         } finally {
             this.batchRows.clear();
             this.batchIds.clear();
         }
+        // a failed write may have rolled back the rows written since the last commit
+        reportCommittedRows(writeFailed);
+    }
+
+    /**
+     * Writes a row to the success file, or holds it back until it is committed if the query writer
+     * commits rows in transactions spanning several batches.
+     */
+    private void rowWritten(Row row, String id, String msg) throws DataAccessObjectException {
+        if (getQueryWriter() instanceof TransactionalDataWriter) {
+            this.uncommittedRows.add(row);
+            this.uncommittedIds.add(id);
+        } else {
+            updateWatermark(row);
+            writeSuccess(row, id, msg);
+        }
+    }
+
+    /**
+     * Reports the rows held back until they are committed once the query writer has committed them.
+     * 
+     * @param commitNow true to commit the rows that are not committed yet instead of waiting for
+     * the query writer to commit them
+     */
+    private void reportCommittedRows(boolean commitNow) throws DataAccessObjectException {
+        if (this.uncommittedRows.isEmpty()) return;
+        final TransactionalDataWriter writer = (TransactionalDataWriter)getQueryWriter();
+        String errorMessage = null;
+        if (writer.hasUncommittedRows()) {
+            if (!commitNow) return;
+            try {
+                writer.commit();
+            } catch (final DataAccessObjectInitializationException ex) {
+                throw ex;
+            } catch (final DataAccessObjectException ex) {
+                errorMessage = Messages.getMessage(getClass(), "statusErrorNotWrittenException",
+                        getConfig().getString(Config.DAO_NAME), ex.getMessage());
+            }
+        }
+        final String msg = Messages.getMessage(getClass(), "statusItemQueried");
+        final Iterator<String> ids = this.uncommittedIds.iterator();
+        for (final Row row : this.uncommittedRows) {
+            final String id = ids.next();
+            if (errorMessage == null) {
+                updateWatermark(row);
+                writeSuccess(row, id, msg);
+            } else {
+                holdWatermark(row);
+                writeError(row, errorMessage);
+            }
+        }
+        this.uncommittedRows.clear();
+        this.uncommittedIds.clear();
+        getProgressMonitor().setSubTask(getRateCalculator().calculateSubTask(getNumberOfRows(), getNumberErrors()));
+    }
+
+    private void writePartialBatch(Map<Integer, String> rowErrors) throws DataAccessObjectException {
+        final String msg = Messages.getMessage(getClass(), "statusItemQueried");
+        final Iterator<String> ids = this.batchIds.iterator();
+        int index = 0;
+        for (final Row row : this.batchRows) {
+            final String id = ids.next();
+            final String rowError = rowErrors.get(index++);
+            if (rowError == null) {
+                rowWritten(row, id, msg);
+            } else {
+                holdWatermark(row);
+                writeError(row, Messages.getMessage(getClass(), "statusErrorNotWrittenException",
+                        getConfig().getString(Config.DAO_NAME), rowError));
+            }
+        }
+        getProgressMonitor().worked(this.batchRows.size());
+        getProgressMonitor().setSubTask(getRateCalculator().calculateSubTask(getNumberOfRows(), getNumberErrors()));
+    }
+
+    private void updateWatermark(Row row) {
+        if (this.deltaField == null) return;
+        this.watermark.update(row.get(getDeltaColumn()));
+    }
+
+    /**
+     * Keeps the watermark at or below a row that was not written so that the next delta extract returns it.
+     */
+    private void holdWatermark(Row row) {
+        if (this.deltaField == null) return;
+        this.watermark.rowFailed(row.get(getDeltaColumn()));
+    }
+
+    private String getDeltaColumn() {
+        final String column = getMapper().getMapping(this.deltaField, false);
+        return column == null ? this.deltaField : column;
+    }
+
+    @Override
+    public String getHighWatermark() {
+        return this.watermark.getHighWatermark();
     }
 
     private void writeSuccesses() throws DataAccessObjectException {
         final String msg = Messages.getMessage(getClass(), "statusItemQueried");
         final Iterator<String> ids = this.batchIds.iterator();
         for (final Row row : this.batchRows) {
-            writeSuccess(row, ids.next(), msg);
+            rowWritten(row, ids.next(), msg);
         }
     }
 
     private void writeErrors(String errorMessage) throws DataAccessObjectException {
         for (final Row row : this.batchRows) {
+            holdWatermark(row);
             writeError(row, errorMessage);
         }
     }
@@ -52,6 +52,7 @@ public abstract class AbstractVisitor implements IVisitor {
     private long errors;
     private long successes;
     private final LoadRateCalculator rateCalculator;
+    private final String successOutputLevel;
 
     public AbstractVisitor(Controller controller, ILoaderProgress monitor, DataWriter successWriter,
             DataWriter errorWriter) {
@@ -61,6 +62,7 @@ public abstract class AbstractVisitor implements IVisitor {
         this.successWriter = successWriter;
         this.errorWriter = errorWriter;
         this.rateCalculator = new LoadRateCalculator();
+        this.successOutputLevel = controller.getConfig().getString(Config.OUTPUT_SUCCESS_LEVEL);
     }
 
     protected abstract boolean writeStatus();
@@ -127,15 +129,28 @@ public abstract class AbstractVisitor implements IVisitor {
     	return this.successWriter;
     }
 
+    /**
+     * Writes a row to the success file at the configured level of detail: the full row, only the
+     * id and row number, or nothing at all when only counts are needed.
+     */
     protected void writeSuccess(Row row, String id, String message) throws DataAccessObjectException {
         if (writeStatus()) {
-            if (id != null && id.length() > 0) {
-                row.put(Config.ID_COLUMN_NAME, id);
+            if (Config.OUTPUT_SUCCESS_LEVEL_IDS.equalsIgnoreCase(this.successOutputLevel)) {
+                final Row idRow = new Row(2);
+                idRow.put(Config.ID_COLUMN_NAME, id);
+                // rows that were not read from a data source are numbered in the order they are written
+                idRow.put(Config.ROW_NUMBER_COLUMN_NAME, row != null && row.getRowNumber() > 0
+                        ? row.getRowNumber() : getNumberOfRows() + 1);
+                this.successWriter.writeRow(idRow);
+            } else if (!Config.OUTPUT_SUCCESS_LEVEL_COUNTS.equalsIgnoreCase(this.successOutputLevel)) {
+                if (id != null && id.length() > 0) {
+                    row.put(Config.ID_COLUMN_NAME, id);
+                }
+                if (message != null && message.length() > 0) {
+                    row.put(Config.STATUS_COLUMN_NAME, message);
+                }
+                this.successWriter.writeRow(row);
             }
-            if (message != null && message.length() > 0) {
-                row.put(Config.STATUS_COLUMN_NAME, message);
-            }
-            this.successWriter.writeRow(row);
         }
         addSuccess();
     }
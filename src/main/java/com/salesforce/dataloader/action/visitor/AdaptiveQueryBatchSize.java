@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+/**
+ * Picks the batch size of the next queryMore call from the latency and size of the
+ * pages received so far.
+ * 
+ * Pages that arrive quickly grow the batch size to cut the number of round trips, slow
+ * pages shrink it so that fetching the next page keeps overlapping with processing the
+ * current one. The server returns fewer records than requested when records are large,
+ * in which case the batch size follows the number of records actually returned.
+ */
+class AdaptiveQueryBatchSize {
+    static final int MIN_BATCH_SIZE = 200;
+    static final int MAX_BATCH_SIZE = 2000;
+    static final long FAST_PAGE_LATENCY_MS = 500;
+    static final long SLOW_PAGE_LATENCY_MS = 3000;
+
+    private int batchSize;
+
+    AdaptiveQueryBatchSize(int initialBatchSize) {
+        this.batchSize = clamp(initialBatchSize);
+    }
+
+    int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Adjusts the batch size after a page is received.
+     * 
+     * @param requestedBatchSize batch size the page was requested with
+     * @param recordsReturned number of records in the page
+     * @param latencyMs time it took to receive the page
+     * @param isLastPage true if there are no more pages
+     * @return batch size for the next page
+     */
+    int pageReceived(int requestedBatchSize, int recordsReturned, long latencyMs, boolean isLastPage) {
+        if (isLastPage) {
+            return this.batchSize;
+        }
+        if (recordsReturned < requestedBatchSize) {
+            // the server capped the page because of the record size
+            this.batchSize = clamp(recordsReturned);
+        } else if (latencyMs > SLOW_PAGE_LATENCY_MS) {
+            this.batchSize = clamp(requestedBatchSize / 2);
+        } else if (latencyMs < FAST_PAGE_LATENCY_MS) {
+            this.batchSize = clamp(requestedBatchSize * 2);
+        }
+        return this.batchSize;
+    }
+
+    private static int clamp(int batchSize) {
+        return Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, batchSize));
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+/**
+ * Picks the time until the next status check of a bulk job from the progress seen so far.
+ * 
+ * The first checks come quickly so that short jobs are seen complete without delay. The
+ * interval then doubles after each check, which keeps the number of checks of long or queued
+ * jobs low. Once records are being processed, the processing rate predicts when the expected
+ * records are done, and the next check is not scheduled later than that.
+ */
+class AdaptiveStatusCheckInterval {
+    static final int BACKOFF_FACTOR = 2;
+
+    private final long minInterval;
+    private final long maxInterval;
+    private long interval;
+    private long lastRecordsProcessed = -1;
+    private long lastCheckTime;
+    private double recordsPerMs = 0;
+
+    /**
+     * @param minInterval interval before the first check, in milliseconds
+     * @param maxInterval longest interval between checks, in milliseconds
+     */
+    AdaptiveStatusCheckInterval(long minInterval, long maxInterval) {
+        this.minInterval = Math.max(1, minInterval);
+        this.maxInterval = Math.max(this.minInterval, maxInterval);
+        this.interval = this.minInterval;
+    }
+
+    long getInterval() {
+        return this.interval;
+    }
+
+    /**
+     * Adjusts the interval after a status check.
+     * 
+     * @param recordsProcessed number of records processed so far
+     * @param expectedRecords number of records to wait for, 0 or less if not known
+     * @param checkTime time of the check in milliseconds
+     * @return interval until the next check
+     */
+    long statusReceived(long recordsProcessed, long expectedRecords, long checkTime) {
+        if (this.lastRecordsProcessed >= 0 && recordsProcessed > this.lastRecordsProcessed
+                && checkTime > this.lastCheckTime) {
+            final double rate = (recordsProcessed - this.lastRecordsProcessed)
+                    / (double)(checkTime - this.lastCheckTime);
+            // smooth the rate, the server processes records in bursts
+            this.recordsPerMs = this.recordsPerMs > 0 ? (this.recordsPerMs + rate) / 2 : rate;
+        }
+        long next = this.interval * BACKOFF_FACTOR;
+        if (expectedRecords > 0 && recordsProcessed >= expectedRecords) {
+            // all records are processed, the job is about to complete
+            next = this.minInterval;
+        } else if (this.recordsPerMs > 0 && expectedRecords > recordsProcessed) {
+            final long predicted = (long)Math.ceil((expectedRecords - recordsProcessed) / this.recordsPerMs);
+            next = Math.min(next, predicted);
+        }
+        this.interval = Math.max(this.minInterval, Math.min(this.maxInterval, next));
+        this.lastRecordsProcessed = recordsProcessed;
+        this.lastCheckTime = checkTime;
+        return this.interval;
+    }
+}
@@ -35,6 +35,7 @@ import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 
 import org.apache.logging.log4j.Logger;
@@ -68,11 +69,18 @@ class BulkApiVisitorUtil {
 
     private JobInfo jobInfo;
     private int recordsProcessed;
+    // records added to the job so far
+    private long jobRecords;
 
     private final Map<String, InputStream> attachments = new HashMap<String, InputStream>();
+    // file contents are shared by FileContentCache for rows referencing identical content,
+    // so an identity lookup is enough to add the content only once to a batch
+    private final Map<byte[], String> attachmentNamesByContent = new IdentityHashMap<byte[], String>();
     private int attachmentNum;
 
-    private final long checkStatusInterval;
+    private final long minCheckStatusInterval;
+    private final long maxCheckStatusInterval;
+    private final AdaptiveStatusCheckInterval checkStatusInterval;
     private long lastStatusUpdate;
 
     private final ILoaderProgress monitor;
@@ -107,18 +115,28 @@ class BulkApiVisitorUtil {
         }
 
         try {
-            // getLong will return 0 if no value is provided
-            long checkStatusInt = ctl.getConfig().getLong(Config.BULK_API_CHECK_STATUS_INTERVAL);
-            this.checkStatusInterval = checkStatusInt > 0 ? checkStatusInt
-                    : Config.DEFAULT_BULK_API_CHECK_STATUS_INTERVAL;
+            if (ctl.getConfig().getBoolean(Config.BULK_API_ADAPTIVE_CHECK_STATUS)) {
+                long minInterval = ctl.getConfig().getLong(Config.BULK_API_MIN_CHECK_STATUS_INTERVAL);
+                long maxInterval = ctl.getConfig().getLong(Config.BULK_API_MAX_CHECK_STATUS_INTERVAL);
+                this.minCheckStatusInterval = minInterval > 0 ? minInterval
+                        : Config.DEFAULT_BULK_API_MIN_CHECK_STATUS_INTERVAL;
+                this.maxCheckStatusInterval = maxInterval > 0 ? maxInterval
+                        : Config.DEFAULT_BULK_API_MAX_CHECK_STATUS_INTERVAL;
+            } else {
+                // getLong will return 0 if no value is provided
+                long checkStatusInt = ctl.getConfig().getLong(Config.BULK_API_CHECK_STATUS_INTERVAL);
+                this.minCheckStatusInterval = checkStatusInt > 0 ? checkStatusInt
+                        : Config.DEFAULT_BULK_API_CHECK_STATUS_INTERVAL;
+                this.maxCheckStatusInterval = this.minCheckStatusInterval;
+            }
+            this.checkStatusInterval = newCheckStatusInterval();
         } catch (ParameterLoadException e) {
             throw new RuntimeException("Failed to initialize check status interval", e);
         }
         
-        /*
-         * ======== Start code block to support PK chunking
-         *
-        this.enablePKchunking = ctl.getConfig().getBoolean(Config.ENABLE_BULK_QUERY_PK_CHUNKING);
+        // Bulk V2 query jobs are chunked by the server without being asked to
+        this.enablePKchunking = !isBulkV2QueryJob()
+                && ctl.getConfig().getBoolean(Config.ENABLE_BULK_QUERY_PK_CHUNKING);
         if (this.enablePKchunking) {
             try {
                 int chunkSize = ctl.getConfig().getInt(Config.BULK_QUERY_PK_CHUNK_SIZE);
@@ -134,9 +152,6 @@ class BulkApiVisitorUtil {
                 queryChunkStartRow = "";
             } 
         }
-        /*
-         * ======== End code block to support PK chunking
-         */
         this.monitor = monitor;
         this.rateCalc = rateCalc;
         this.updateProgress = updateProgress;
@@ -150,14 +165,18 @@ class BulkApiVisitorUtil {
         return this.jobInfo.getId();
     }
     
-    public String getStagingFileInOutputStatusDir(String prefix, String suffix) {
+    /**
+     * Creates an empty file with a name that no other staging file has, even when several jobs
+     * run at the same time.
+     */
+    public String getStagingFileInOutputStatusDir(String prefix, String suffix) throws IOException {
         Date currentTime = new Date();
         SimpleDateFormat format = new SimpleDateFormat("MMddyyhhmmssSSS"); //$NON-NLS-1$
         String timestamp = format.format(currentTime);
     	String statusOutputDir = config.getString(Config.OUTPUT_STATUS_DIR);
 
-        File stagingFile = new File(statusOutputDir, prefix + timestamp + suffix);
-        return stagingFile.getAbsolutePath(); //$NON-NLS-1$ //$NON-NLS-2$
+        File stagingFile = File.createTempFile(prefix + timestamp + "_", suffix, new File(statusOutputDir)); //$NON-NLS-1$
+        return stagingFile.getAbsolutePath();
 
     }
     
@@ -170,6 +189,14 @@ class BulkApiVisitorUtil {
     }
 
     void createJob() throws AsyncApiException {
+        createJob(this.config.getString(Config.EXTRACT_SOQL));
+    }
+
+    /**
+     * Creates the job. For a Bulk V2 query job, the given soql is run instead of the
+     * configured extraction soql.
+     */
+    void createJob(String bulkV2QuerySoql) throws AsyncApiException {
         JobInfo job = new JobInfo();
         final OperationEnum op = this.config.getOperationInfo().getBulkOperationEnum();
         job.setOperation(op);
@@ -201,10 +228,14 @@ class BulkApiVisitorUtil {
             }
         }
         if (isBulkV2QueryJob()) {
-            job.setObject(this.config.getString(Config.EXTRACT_SOQL));
+            job.setObject(bulkV2QuerySoql);
             logger.info("going to create BulkV2 query job");
         }
         job = this.client.createJob(job);
+        if (this.enablePKchunking && (op == OperationEnum.query || op == OperationEnum.queryAll)) {
+            // the connection is shared, do not chunk jobs created after this one
+            this.client.addHeader("Sforce-Enable-PKChunking", "false");
+        }
         logger.info(Messages.getMessage(getClass(), "logJobCreated", job.getId()));
         this.jobInfo = job;
     }
@@ -218,8 +249,12 @@ class BulkApiVisitorUtil {
     }
 
     String addAttachment(byte[] fileContents) {
-        final String name = "attachment_" + FILE_NUM_FMT.format(this.attachmentNum++);
-        this.attachments.put(name, new ByteArrayInputStream(fileContents));
+        String name = this.attachmentNamesByContent.get(fileContents);
+        if (name == null) {
+            name = "attachment_" + FILE_NUM_FMT.format(this.attachmentNum++);
+            this.attachments.put(name, new ByteArrayInputStream(fileContents));
+            this.attachmentNamesByContent.put(fileContents, name);
+        }
         return "#" + name;
     }
     
@@ -247,6 +282,7 @@ class BulkApiVisitorUtil {
         
         // Done creating a batch. Clear attachments map in preparation for the next batch
         this.attachments.clear();
+        this.attachmentNamesByContent.clear();
         this.attachmentNum = 0;
         return batch;
     }
@@ -264,6 +300,20 @@ class BulkApiVisitorUtil {
 		}
     }
 
+    /**
+     * Counts records added to the job, which the job is expected to process.
+     */
+    void addJobRecords(long count) {
+        this.jobRecords += count;
+    }
+
+    /**
+     * @return the stream buffering the content of a Bulk V2 load job until it is uploaded
+     */
+    OutputStream getBulkV2LoadUploadStream() {
+        return this.bulkV2LoadUploadWriter;
+    }
+
     void uploadJobContent() throws AsyncApiException {
     	try {
 			this.bulkV2LoadUploadWriter.flush();
@@ -282,32 +332,13 @@ class BulkApiVisitorUtil {
     	}
 
         if (this.monitor.isCanceled()) return 0;
-        final long timeRemaining = this.checkStatusInterval - (System.currentTimeMillis() - this.lastStatusUpdate);
-        int retryCount = 0;
-        int maxAttemptsCount = 0;
-        
-        try {
-            // limit the number of max retries in case limit is exceeded
-            maxAttemptsCount = 1 + Math.min(Config.MAX_RETRIES_LIMIT, this.config.getInt(Config.MAX_RETRIES));
-        } catch (ParameterLoadException e) {
-            maxAttemptsCount = 1 + Config.DEFAULT_MAX_RETRIES;
-        }
+        final long timeRemaining = this.checkStatusInterval.getInterval()
+                - (System.currentTimeMillis() - this.lastStatusUpdate);
         if (timeRemaining <= 0) {
-            while (retryCount++ < maxAttemptsCount) {
-                try {
-                    this.jobInfo = this.client.getJobStatus(getJobId(), this.jobInfo.getOperation() == OperationEnum.query);
-                    updateJobStatus();
-                    return this.checkStatusInterval;
-                } catch (AsyncApiException ex) {
-                    if (retryCount < maxAttemptsCount) {
-                        try {
-                            Thread.sleep(this.checkStatusInterval);
-                        } catch (final InterruptedException e) {}
-                    } else {
-                        throw ex;
-                    }
-                }          
-            }
+            // the connection retries the status request when it fails for a transient reason
+            this.jobInfo = this.client.getJobStatus(getJobId(), this.jobInfo.getOperation() == OperationEnum.query);
+            updateJobStatus();
+            return this.checkStatusInterval.getInterval();
         }
         monitor.setNumberBatchesTotal(jobInfo.getNumberBatchesTotal());
         return timeRemaining;
@@ -336,6 +367,11 @@ class BulkApiVisitorUtil {
         }
     }
     
+    private boolean isQueryJob() {
+        final OperationEnum op = this.config.getOperationInfo().getBulkOperationEnum();
+        return op == OperationEnum.query || op == OperationEnum.queryAll;
+    }
+
     private boolean isBulkV2QueryJob() {
         final OperationEnum op = this.config.getOperationInfo().getBulkOperationEnum();
         return (op == OperationEnum.query || op == OperationEnum.queryAll)
@@ -348,28 +384,73 @@ class BulkApiVisitorUtil {
         && this.config.isBulkV2APIEnabled();
     }
 
-    private boolean isJobCompleted() {
+    boolean isJobCompleted() {
         if (isBulkV2QueryJob() || isBulkV2LoadJob()) {
-            return this.jobInfo.getState() == JobStateEnum.JobComplete;
+            final JobStateEnum state = this.jobInfo.getState();
+            return state == JobStateEnum.JobComplete || state == JobStateEnum.Aborted
+                    || state == JobStateEnum.Failed;
         } else { // bulk v1 flavor
             return this.jobInfo.getNumberBatchesQueued() == 0 
                     && this.jobInfo.getNumberBatchesInProgress() == 0;
         }
     }
 
+    boolean isPKChunkingEnabled() {
+        return this.enablePKchunking;
+    }
+
+    /**
+     * @return a new interval between status checks, for a poller of its own
+     */
+    AdaptiveStatusCheckInterval newCheckStatusInterval() {
+        return new AdaptiveStatusCheckInterval(this.minCheckStatusInterval, this.maxCheckStatusInterval);
+    }
+
     boolean hasJob() {
         return this.jobInfo != null;
     }
     
     void awaitCompletionAndCloseJob() throws AsyncApiException {
+        checkStatus();
+        awaitJobCompletion();
+        closeJob();
+    }
+
+    /**
+     * Gets the status of the job now, for callers that wait for the job to complete themselves
+     * with {@link #periodicCheckStatus()}.
+     */
+    void checkStatus() throws AsyncApiException {
         this.jobInfo = this.client.getJobStatus(getJobId(), this.jobInfo.getOperation() == OperationEnum.query);
         updateJobStatus();
-        awaitJobCompletion();
+    }
+
+    /**
+     * Closes a Bulk V1 job that has completed.
+     */
+    void closeJob() throws AsyncApiException {
         if (!isBulkV2QueryJob() && !isBulkV2LoadJob()) {
         	this.jobInfo = this.client.closeJob(getJobId(), this.jobInfo.getOperation() == OperationEnum.query);
         }
     }
 
+    /**
+     * Aborts the job, so that the server stops processing it.
+     */
+    void abortJob() throws AsyncApiException {
+        if (hasJob()) {
+            this.jobInfo = this.client.abortJob(getJobId(), isQueryJob());
+            logger.info(Messages.getMessage(getClass(), "logJobAborted", getJobId()));
+        }
+    }
+
+    /**
+     * @return the number of records processed by the job at the last status check
+     */
+    int getRecordsProcessedSoFar() {
+        return this.recordsProcessed;
+    }
+
     private void updateJobStatus() {
         if (updateProgress) {
             this.monitor.worked(this.jobInfo.getNumberRecordsProcessed() - this.recordsProcessed);
@@ -378,6 +459,9 @@ class BulkApiVisitorUtil {
         }
         this.recordsProcessed = this.jobInfo.getNumberRecordsProcessed();
         this.lastStatusUpdate = System.currentTimeMillis();
+        // only loads know how many records the job has to process
+        final long expectedRecords = this.updateProgress && !isQueryJob() ? this.jobRecords : 0;
+        this.checkStatusInterval.statusReceived(this.recordsProcessed, expectedRecords, this.lastStatusUpdate);
         logger.info(Messages.getMessage(getClass(), "logJobStatus", this.jobInfo.getNumberBatchesQueued(),
                 this.jobInfo.getNumberBatchesInProgress(), this.jobInfo.getNumberBatchesCompleted(),
                 this.jobInfo.getNumberBatchesFailed()));
@@ -402,19 +486,21 @@ class BulkApiVisitorUtil {
                     throw new ExtractException("Batch failed: " + batchInfo.getStateMessage());
                 }
             }
+        } else if (this.jobInfo.getState() == JobStateEnum.Aborted || this.jobInfo.getState() == JobStateEnum.Failed) {
+            throw new ExtractException("Job " + getJobId() + " did not complete: " + this.jobInfo.getState());
         }
         return this.jobInfo.getNumberRecordsProcessed();
     }
     
-    void getBulkV2LoadSuccessResults(String filename) throws AsyncApiException {
-    	this.controller.getBulkV2Client().getClient().saveIngestSuccessResults(this.getJobId(), filename);
+    InputStream getBulkV2LoadSuccessResults() throws AsyncApiException {
+    	return this.controller.getBulkV2Client().getClient().getIngestSuccessResultsStream(this.getJobId());
     }
     
-    void getBulkV2LoadErrorResults(String filename) throws AsyncApiException {
-    	this.controller.getBulkV2Client().getClient().saveIngestFailureResults(this.getJobId(), filename);
+    InputStream getBulkV2LoadErrorResults() throws AsyncApiException {
+    	return this.controller.getBulkV2Client().getClient().getIngestFailedResultsStream(this.getJobId());
     }
     
-    void getBulkV2LoadUnprocessedRecords(String filename) throws AsyncApiException {
-    	this.controller.getBulkV2Client().getClient().saveIngestUnprocessedRecords(this.getJobId(), filename);
+    InputStream getBulkV2LoadUnprocessedRecords() throws AsyncApiException {
+    	return this.controller.getBulkV2Client().getClient().getIngestUnprocessedRecordsStream(this.getJobId());
     }
 }
@@ -76,4 +76,13 @@ public class BulkClientConnection {
         }
         return null;
     }
+
+    public JobInfo abortJob(String jobId, boolean isQuery) throws AsyncApiException {
+        if (this.bulkV1Connection != null) {
+            return this.bulkV1Connection.abortJob(jobId);
+        } else if (this.bulkV2Connection != null) {
+            return this.bulkV2Connection.abortJob(jobId, isQuery);
+        }
+        return null;
+    }
 }
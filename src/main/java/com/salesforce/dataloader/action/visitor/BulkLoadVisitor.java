@@ -29,12 +29,17 @@ package com.salesforce.dataloader.action.visitor;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PrintStream;
-import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.OpenOption;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -59,6 +64,7 @@ import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.DataReader;
 import com.salesforce.dataloader.dao.DataWriter;
 import com.salesforce.dataloader.dao.csv.CSVFileReader;
+import com.salesforce.dataloader.dao.csv.CSVRecordScanner;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.exception.LoadException;
@@ -69,6 +75,7 @@ import com.salesforce.dataloader.model.NADateOnlyCalendarValue;
 import com.salesforce.dataloader.model.NATextValue;
 import com.salesforce.dataloader.model.Row;
 import com.salesforce.dataloader.util.DAORowUtil;
+import com.sforce.soap.partner.Field;
 import com.sforce.async.AsyncApiException;
 import com.sforce.async.AsyncExceptionCode;
 import com.sforce.async.BatchInfo;
@@ -93,6 +100,7 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
     private final boolean isDelete;
     private static final DateFormat DATE_FMT;
     private int batchCountForJob = 0;
+    private static final int RESULTS_BUFFER_SIZE = 64 * 1024;
 
     static {
         DATE_FMT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
@@ -149,6 +157,88 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         }
     }
 
+    /**
+     * Uploads the records of the CSV file into a Bulk V2 job without converting them when
+     * passthrough is enabled and the load allows it. Only the header row is rewritten to the
+     * mapped field names.
+     * 
+     * @return true if the records were uploaded, false if rows have to be visited one by one
+     */
+    public boolean loadPassthrough() throws DataAccessObjectException, OperationException {
+        final String header = getPassthroughHeader();
+        if (header == null) {
+            return false;
+        }
+        final CSVFileReader csvReader = (CSVFileReader)getController().getDao();
+        try {
+            final OutputStream out = this.jobUtil.getBulkV2LoadUploadStream();
+            out.write(header.getBytes(StandardCharsets.UTF_8));
+            out.write('\n');
+            final long recordCount = csvReader.transferRecords(out);
+            if (recordCount > 0) {
+                this.jobUtil.addJobRecords(recordCount);
+                this.jobUtil.createJob();
+                this.jobUtil.periodicCheckStatus();
+            }
+            logger.info(Messages.getMessage(getClass(), "passthroughUploaded", recordCount));
+        } catch (final AsyncApiException e) {
+            handleException(e);
+        } catch (final IOException e) {
+            handleException(e);
+        }
+        return true;
+    }
+
+    /**
+     * @return the header row to upload, or null if the CSV file cannot be uploaded as it is
+     */
+    private String getPassthroughHeader() throws DataAccessObjectException, LoadException {
+        final Config config = getConfig();
+        final DataReader dao = (DataReader)getController().getDao();
+        if (!config.getBoolean(Config.BULKV2_LOAD_PASSTHROUGH) || !config.isBulkV2APIEnabled()
+                || !(dao instanceof CSVFileReader) || !((CSVFileReader)dao).canTransferRecords()
+                || dao.getCurrentRowNumber() > 0 || !getMapper().getConstantsMap().isEmpty()
+                // unchanged rows, invalid rows and duplicate external ids are detected row by row
+                || getFingerprints() != null || config.getBoolean(Config.LOAD_PREFLIGHT_VALIDATION)
+                || getDuplicateExternalIds() != null) {
+            return null;
+        }
+        final Map<String, Field> fieldsByName = new HashMap<String, Field>();
+        for (Field field : getController().getFieldTypes().getFields()) {
+            fieldsByName.put(field.getName().toLowerCase(), field);
+        }
+        final List<String> sfdcColumns = new ArrayList<String>();
+        for (final String userColumn : dao.getColumnNames()) {
+            final String sfdcColumn = getMapper().getMapping(userColumn);
+            // every column has to map to exactly one field since values are not separated
+            if (sfdcColumn == null || sfdcColumn.isBlank() || sfdcColumn.contains(",")) {
+                logger.info("Column " + userColumn + " does not map to a single field, converting rows");
+                return null;
+            }
+            final Field field = fieldsByName.get(sfdcColumn.strip().toLowerCase());
+            if (field != null && !isPassthroughField(field)) {
+                logger.info("Values of field " + field.getName() + " need conversion, converting rows");
+                return null;
+            }
+            sfdcColumns.add(sfdcColumn.strip().replace(':', '.'));
+        }
+        if (this.isDelete && (sfdcColumns.size() != 1 || !"id".equalsIgnoreCase(sfdcColumns.get(0)))) {
+            throw new LoadException(Messages.getMessage(getClass(), "deleteCsvError"));
+        }
+        return String.join(",", sfdcColumns);
+    }
+
+    private boolean isPassthroughField(Field field) {
+        switch (field.getType()) {
+        case base64:
+            return false;
+        case phone:
+            return !getConfig().getBoolean(Config.FORMAT_PHONE_FIELDS);
+        default:
+            return !field.getHtmlFormatted() || !getConfig().getBoolean(Config.LOAD_PRESERVE_WHITESPACE_IN_RICH_TEXT);
+        }
+    }
+
     /**
      * Throws a load exception
      */
@@ -346,6 +436,7 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         }
         os.reset();
         BatchInfo bi = this.jobUtil.createBatch(new ByteArrayInputStream(request, 0, request.length));
+        this.jobUtil.addJobRecords(numRecords);
         this.allBatchesInOrder.add(new BatchData(bi.getId(), numRecords));
     }
 
@@ -367,68 +458,129 @@ public class BulkLoadVisitor extends DAOLoadVisitor {
         }
     }
     
-    private long transferCSVContent(String fromFileName, String toFileName) throws OperationException {
-        RandomAccessFile fromFile, toFile;
-        long contentRowCount = 0;
-		try {
-			fromFile = new RandomAccessFile(fromFileName, "rw");
-			toFile = new RandomAccessFile(toFileName, "rw");
-			//first line is the header row                                  
-			fromFile.readLine();
-			toFile.readLine();
-
-			// go to end of to file
-			while (toFile.readLine() != null) {
-				contentRowCount++;
-			}
-			String contentRow = null;
-			while ((contentRow = fromFile.readLine()) != null) {
-				contentRow += System.lineSeparator();
-				toFile.write(contentRow.getBytes());
-				contentRowCount++;
-			}
-			toFile.close();
-			
-			// truncate the fromFile
-			fromFile.setLength(0);
-			fromFile.close();
-			return contentRowCount;
-		} catch (FileNotFoundException e) {
-			throw new OperationException(e.getMessage());
-		} catch (IOException e) {
-			throw new OperationException(e.getMessage());
-		}          
+    /**
+     * Copies CSV results from the server to the file, counting the records while copying.
+     * 
+     * @param append if true, the header row of the results is skipped and the records are
+     * appended to the file
+     * @return the number of records copied, not including the header row
+     */
+    private long transferCSVContent(InputStream results, String toFileName, boolean append) throws OperationException {
+        final OpenOption[] options = append
+                ? new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND}
+                : new OpenOption[] {StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING};
+        try (InputStream in = results; FileChannel toFile = FileChannel.open(Paths.get(toFileName), options)) {
+            final CSVRecordScanner scanner = new CSVRecordScanner();
+            final byte[] buffer = new byte[RESULTS_BUFFER_SIZE];
+            boolean inHeader = append;
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                int offset = 0;
+                final int headerEnd = scanner.scan(buffer, 0, bytesRead);
+                if (inHeader) {
+                    if (headerEnd < 0) {
+                        continue;
+                    }
+                    inHeader = false;
+                    offset = headerEnd;
+                }
+                final ByteBuffer bytes = ByteBuffer.wrap(buffer, offset, bytesRead - offset);
+                while (bytes.hasRemaining()) {
+                    toFile.write(bytes);
+                }
+            }
+            long recordCount = scanner.getRecordCount();
+            if (!scanner.isAtRecordStart()) {
+                // terminate the last record
+                toFile.write(ByteBuffer.wrap(new byte[] {'\n'}));
+                recordCount++;
+            }
+            // the header row is not a result
+            return Math.max(recordCount - 1, 0);
+        } catch (IOException e) {
+            throw new OperationException(e.getMessage());
+        }
+    }
+
+    /**
+     * @return the number of records in the CSV results, not including the header row
+     */
+    private long countCSVRecords(InputStream results) throws OperationException {
+        try (InputStream in = results) {
+            final CSVRecordScanner scanner = new CSVRecordScanner();
+            final byte[] buffer = new byte[RESULTS_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = in.read(buffer)) != -1) {
+                scanner.scan(buffer, 0, bytesRead);
+            }
+            final long recordCount = scanner.getRecordCount() + (scanner.isAtRecordStart() ? 0 : 1);
+            return Math.max(recordCount - 1, 0);
+        } catch (IOException e) {
+            throw new OperationException(e.getMessage());
+        }
     }
 
     private void getBulkV2LoadJobResults() throws AsyncApiException, OperationException, DataAccessObjectException {
-    	this.getSuccessWriter().close();
     	this.getErrorWriter().close();
     	
     	Config config = this.getConfig();
-    	String successWriterFile = config.getString(Config.OUTPUT_SUCCESS);
     	String errorWriterFile = config.getString(Config.OUTPUT_ERROR);
     	// TODO for unprocessed records. Also uncomment in Controller.java to set the right value
     	// for Config.OUTPUT_UNPROCESSED_RECORDS
     	// String unprocessedRecordsWriterFile = config.getString(Config.OUTPUT_UNPROCESSED_RECORDS);
 
-        File tmpFile = new File(this.jobUtil.getStagingFileInOutputStatusDir("temp", ".csv"));
-        String tmpFileName = tmpFile.getAbsolutePath(); //$NON-NLS-1$ //$NON-NLS-2$
+    	final String successLevel = config.getString(Config.OUTPUT_SUCCESS_LEVEL);
+    	final LoadFingerprintTracker fingerprints = getFingerprints();
+    	if (fingerprints == null && getNumberSuccesses() == 0
+    	        && Config.OUTPUT_SUCCESS_LEVEL_COUNTS.equalsIgnoreCase(successLevel)) {
+    	    this.getSuccessWriter().close();
+    	    this.setSuccesses(countCSVRecords(this.jobUtil.getBulkV2LoadSuccessResults()));
+    	} else if (fingerprints == null && getNumberSuccesses() == 0
+    	        && !Config.OUTPUT_SUCCESS_LEVEL_IDS.equalsIgnoreCase(successLevel)) {
+    	    // nothing was written to the success file, the results are copied as they are
+    	    this.getSuccessWriter().close();
+    	    this.setSuccesses(transferCSVContent(this.jobUtil.getBulkV2LoadSuccessResults(),
+    	            config.getString(Config.OUTPUT_SUCCESS), false));
+    	} else {
+    	    // rows skipped as unchanged are already in the success file, the results follow them
+    	    final BulkV2SuccessResultsWriter successResultsWriter = new BulkV2SuccessResultsWriter(getSuccessWriter(),
+    	            successLevel, getDaoColumnsByField());
+    	    try {
+    	        long successCount = successResultsWriter.write(this.jobUtil.getBulkV2LoadSuccessResults(), fingerprints);
+    	        this.setSuccesses(getNumberSuccesses() + successCount);
+    	    } catch (IOException e) {
+    	        throw new OperationException(e.getMessage());
+    	    } finally {
+    	        this.getSuccessWriter().close();
+    	    }
+    	}
 
-    	this.jobUtil.getBulkV2LoadSuccessResults(successWriterFile);
-    	CSVFileReader csvReader = new CSVFileReader(new File(successWriterFile), config, true, false);
-    	this.setSuccesses(csvReader.getTotalRows());
-
-    	this.jobUtil.getBulkV2LoadErrorResults(tmpFileName);
     	// Append error results to the errors found by data loader before uploading and stored
     	// in errorWriterFile.
-    	long rowCount = transferCSVContent(tmpFileName, errorWriterFile);
-    	this.setErrors(rowCount);
+    	long rowCount = transferCSVContent(this.jobUtil.getBulkV2LoadErrorResults(), errorWriterFile, true);
+    	this.setErrors(getNumberErrors() + rowCount);
 
         // TODO for unprocessed records
-    	// this.jobUtil.getBulkV2LoadUnprocessedRecords(tmpFileName);
-    	// transferCSVContent(tmpFileName, unprocessedRecordsWriterFile);
+    	// transferCSVContent(this.jobUtil.getBulkV2LoadUnprocessedRecords(), unprocessedRecordsWriterFile, true);
+    }
 
-    	tmpFile.delete();
+    /**
+     * @return columns of the data source by the lower case name of the field they are uploaded to
+     */
+    private Map<String, List<String>> getDaoColumnsByField() {
+        final Map<String, List<String>> daoColumnsByField = new HashMap<String, List<String>>();
+        for (final String daoColumn : getController().getDao().getColumnNames()) {
+            final String sfdcColList = getMapper().getMapping(daoColumn);
+            if (sfdcColList == null || sfdcColList.isBlank()) {
+                continue;
+            }
+            for (String sfdcColumn : sfdcColList.split(",")) {
+                // the upload header uses '.' for relationship fields
+                final String field = sfdcColumn.strip().replace(':', '.').toLowerCase();
+                daoColumnsByField.computeIfAbsent(field, k -> new ArrayList<String>()).add(daoColumn);
+            }
+        }
+        return daoColumnsByField;
     }
 
     private void getResults() throws AsyncApiException, OperationException, DataAccessObjectException {
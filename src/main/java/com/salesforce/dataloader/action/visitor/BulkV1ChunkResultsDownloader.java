@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.NamedThreadFactory;
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+import com.sforce.async.BatchInfo;
+import com.sforce.async.BatchStateEnum;
+import com.sforce.async.BulkConnection;
+
+/**
+ * Downloads the results of a PK chunked Bulk V1 query job while the job is still running.
+ * 
+ * The batch list of the job is polled at an interval adapted to the rate at which chunk
+ * batches complete, and the results of each chunk batch are downloaded as soon as the batch completes. Up to maxParallelDownloads
+ * batches are downloaded at the same time. Results are written to temp files so that memory
+ * use does not depend on the size of the chunks. Downloaded batches are handed out for processing
+ * as they are ready with {@link #awaitDownloadedBatch(long)}, while the job runs. Downloads do not
+ * run more than maxParallelDownloads batches ahead of the batches handed out, and the file of
+ * each result is deleted once its stream is closed, so temp disk use is bounded by a few chunks
+ * rather than by the size of the extract.
+ */
+class BulkV1ChunkResultsDownloader implements Closeable {
+    private static final Logger logger = LogManager.getLogger(BulkV1ChunkResultsDownloader.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BulkConnection connection;
+    private final String jobId;
+    private final ExecutorService downloadExecutor;
+    private final ScheduledExecutorService pollExecutor;
+    private final AdaptiveStatusCheckInterval pollInterval;
+    private final File spoolDir;
+    private final int maxBatchesAhead;
+    private final Map<String, Future<List<File>>> downloadsByBatchId = new HashMap<String, Future<List<File>>>();
+    // completed batches waiting for the downloads ahead of the processing to be handed out
+    private final Map<String, BatchInfo> queuedBatchesById = new LinkedHashMap<String, BatchInfo>();
+    private final Set<String> handedOutBatchIds = new HashSet<String>();
+    // batches whose download is over and that were not handed out yet, in the order they finished
+    private final Map<String, BatchInfo> downloadedBatchesById = new LinkedHashMap<String, BatchInfo>();
+    private volatile boolean closed = false;
+
+    BulkV1ChunkResultsDownloader(BulkConnection connection, String jobId, int maxParallelDownloads,
+            AdaptiveStatusCheckInterval pollInterval) {
+        this(connection, jobId, maxParallelDownloads, pollInterval, null);
+    }
+
+    /**
+     * @param spoolDir directory of the downloaded results, the default temp directory if null
+     */
+    BulkV1ChunkResultsDownloader(BulkConnection connection, String jobId, int maxParallelDownloads,
+            AdaptiveStatusCheckInterval pollInterval, File spoolDir) {
+        this.connection = connection;
+        this.jobId = jobId;
+        this.spoolDir = spoolDir;
+        this.maxBatchesAhead = maxParallelDownloads;
+        this.downloadExecutor = Executors.newFixedThreadPool(maxParallelDownloads,
+                new NamedThreadFactory("bulkV1ChunkResultsDownload"));
+        this.pollExecutor = Executors.newSingleThreadScheduledExecutor(
+                new NamedThreadFactory("bulkV1ChunkStatusPoll"));
+        this.pollInterval = pollInterval;
+        this.pollExecutor.schedule(this::pollBatches, pollInterval.getInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Starts downloading the results of the completed batch, or queues it if the downloads are
+     * already as far ahead of the processing as they may be.
+     */
+    synchronized void startDownload(final BatchInfo batch) {
+        if (this.closed || this.downloadsByBatchId.containsKey(batch.getId())
+                || this.queuedBatchesById.containsKey(batch.getId())) {
+            return;
+        }
+        if (getBatchesAhead() < this.maxBatchesAhead) {
+            submitDownload(batch);
+        } else {
+            this.queuedBatchesById.put(batch.getId(), batch);
+        }
+    }
+
+    private void submitDownload(final BatchInfo batch) {
+        this.downloadsByBatchId.put(batch.getId(), this.downloadExecutor.submit(() -> {
+            try {
+                return download(batch);
+            } finally {
+                downloadFinished(batch);
+            }
+        }));
+    }
+
+    private synchronized void downloadFinished(BatchInfo batch) {
+        if (!this.closed && !this.handedOutBatchIds.contains(batch.getId())) {
+            this.downloadedBatchesById.put(batch.getId(), batch);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Waits for the download of a batch to be over, so that its results can be processed while
+     * the job is still running. The results of the batch are then taken with
+     * {@link #getResultStreams(BatchInfo)}, which throws if the download failed.
+     * 
+     * @return a batch that was downloaded and not handed out yet, or null if there is none
+     * within the timeout
+     */
+    synchronized BatchInfo awaitDownloadedBatch(long timeoutMillis) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        long remaining = timeoutMillis;
+        while (!this.closed && this.downloadedBatchesById.isEmpty() && remaining > 0) {
+            wait(remaining);
+            remaining = deadline - System.currentTimeMillis();
+        }
+        final Iterator<BatchInfo> downloadedBatches = this.downloadedBatchesById.values().iterator();
+        if (this.closed || !downloadedBatches.hasNext()) {
+            return null;
+        }
+        final BatchInfo batch = downloadedBatches.next();
+        downloadedBatches.remove();
+        return batch;
+    }
+
+    /**
+     * @return number of batches being downloaded or downloaded but not handed out yet
+     */
+    private int getBatchesAhead() {
+        return this.downloadsByBatchId.size() - this.handedOutBatchIds.size();
+    }
+
+    private synchronized void handedOut(BatchInfo batch) {
+        if (!this.handedOutBatchIds.add(batch.getId())) {
+            return;
+        }
+        this.downloadedBatchesById.remove(batch.getId());
+        final Iterator<BatchInfo> queuedBatches = this.queuedBatchesById.values().iterator();
+        while (!this.closed && queuedBatches.hasNext() && getBatchesAhead() < this.maxBatchesAhead) {
+            submitDownload(queuedBatches.next());
+            queuedBatches.remove();
+        }
+    }
+
+    /**
+     * @return streams over the results of the batch, in the order returned by the server. The caller
+     * must close each stream to delete the downloaded file.
+     */
+    List<InputStream> getResultStreams(BatchInfo batch) throws AsyncApiException, IOException {
+        final Future<List<File>> download;
+        synchronized (this) {
+            if (!this.downloadsByBatchId.containsKey(batch.getId())) {
+                // the batch is needed now, start it even if the downloads are ahead
+                this.queuedBatchesById.remove(batch.getId());
+                submitDownload(batch);
+            }
+            download = this.downloadsByBatchId.get(batch.getId());
+        }
+        final List<File> resultFiles;
+        try {
+            resultFiles = download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AsyncApiException("Interrupted while downloading results of batch " + batch.getId(),
+                    AsyncExceptionCode.ClientInputError, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AsyncApiException) {
+                throw (AsyncApiException)cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new AsyncApiException("Failed to get results of batch " + batch.getId(),
+                    AsyncExceptionCode.ClientInputError, cause);
+        } finally {
+            handedOut(batch);
+        }
+        final List<InputStream> resultStreams = new ArrayList<InputStream>();
+        for (final File resultFile : resultFiles) {
+            resultStreams.add(new FilterInputStream(new FileInputStream(resultFile)) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        resultFile.delete();
+                    }
+                }
+            });
+        }
+        return resultStreams;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            this.queuedBatchesById.clear();
+            this.downloadedBatchesById.clear();
+            notifyAll();
+        }
+        this.pollExecutor.shutdownNow();
+        this.downloadExecutor.shutdownNow();
+        try {
+            // let downloads finishing now complete so that their files are deleted below
+            this.downloadExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (Future<List<File>> download : this.downloadsByBatchId.values()) {
+                if (download.isDone() && !download.isCancelled()) {
+                    try {
+                        // includes the files of streams handed out but not closed
+                        for (File resultFile : download.get()) {
+                            resultFile.delete();
+                        }
+                    } catch (InterruptedException | ExecutionException e) {
+                        // results were not downloaded, nothing to clean up
+                    }
+                }
+            }
+            this.downloadsByBatchId.clear();
+        }
+    }
+
+    private void pollBatches() {
+        try {
+            boolean allBatchesDone = true;
+            int completedBatches = 0;
+            for (BatchInfo batch : this.connection.getBatchInfoList(this.jobId).getBatchInfo()) {
+                if (batch.getState() == BatchStateEnum.Completed) {
+                    startDownload(batch);
+                    completedBatches++;
+                } else if (batch.getState() == BatchStateEnum.Queued
+                        || batch.getState() == BatchStateEnum.InProgress) {
+                    allBatchesDone = false;
+                }
+            }
+            if (allBatchesDone) {
+                this.pollExecutor.shutdown();
+                return;
+            }
+            // check again around the time the next chunk is expected to complete
+            this.pollInterval.statusReceived(completedBatches, completedBatches + 1, System.currentTimeMillis());
+        } catch (AsyncApiException e) {
+            // the visitor picks up batches missed here once the job completes
+            logger.warn("Unable to get batches of job " + this.jobId + ": " + e.getExceptionMessage());
+        }
+        try {
+            this.pollExecutor.schedule(this::pollBatches, this.pollInterval.getInterval(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // the downloader was closed
+        }
+    }
+
+    private List<File> download(BatchInfo batch) throws AsyncApiException, IOException {
+        final List<File> resultFiles = new ArrayList<File>();
+        try {
+            for (String resultId : this.connection.getQueryResultList(this.jobId, batch.getId()).getResult()) {
+                if (this.closed) {
+                    break;
+                }
+                File resultFile = File.createTempFile("sdl", ".csv", this.spoolDir);
+                resultFiles.add(resultFile);
+                logger.debug("Downloading result " + resultId + " of batch " + batch.getId() + " to "
+                        + resultFile.getAbsolutePath());
+                try (InputStream in = this.connection.getQueryResultStream(this.jobId, batch.getId(), resultId);
+                        OutputStream out = new FileOutputStream(resultFile)) {
+                    byte[] buffer = new byte[BUFFER_SIZE];
+                    int bytesRead;
+                    while ((bytesRead = in.read(buffer)) != -1) {
+                        out.write(buffer, 0, bytesRead);
+                    }
+                }
+            }
+        } catch (AsyncApiException | IOException | RuntimeException e) {
+            for (File resultFile : resultFiles) {
+                resultFile.delete();
+            }
+            throw e;
+        }
+        if (this.closed) {
+            for (File resultFile : resultFiles) {
+                resultFile.delete();
+            }
+        }
+        return resultFiles;
+    }
+}
@@ -25,16 +25,24 @@
  */
 package com.salesforce.dataloader.action.visitor;
 
+import java.io.InputStream;
+
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import com.salesforce.dataloader.client.RetryPolicy;
 import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+import com.sforce.async.BatchInfoList;
 import com.sforce.async.BulkConnection;
+import com.sforce.async.JobInfo;
+import com.sforce.async.QueryResultList;
 import com.sforce.ws.ConnectorConfig;
 
 public class BulkV1Connection extends BulkConnection {
     private static final String SFORCE_CALL_OPTIONS_HEADER = "Sforce-Call-Options";
     private static Logger logger = LogManager.getLogger(BulkV1Connection.class);
+    private RetryPolicy retryPolicy = RetryPolicy.NO_RETRIES;
 
     public BulkV1Connection(ConnectorConfig config) throws AsyncApiException {
         super(config);
@@ -49,4 +57,57 @@ public class BulkV1Connection extends BulkConnection {
             logger.debug("Sforce-Call-Options : " + headerValue);
         }
     }
-}
\ No newline at end of file
+
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
+    @Override
+    public JobInfo createJob(JobInfo job) throws AsyncApiException {
+        return this.retryPolicy.execute("createJob", false, () -> super.createJob(job));
+    }
+
+    @Override
+    public JobInfo getJobStatus(String jobId) throws AsyncApiException {
+        return this.retryPolicy.execute("getJobStatus", BulkV1Connection::isRetryableRead,
+                () -> super.getJobStatus(jobId));
+    }
+
+    @Override
+    public JobInfo closeJob(String jobId) throws AsyncApiException {
+        return this.retryPolicy.execute("closeJob", true, () -> super.closeJob(jobId));
+    }
+
+    @Override
+    public BatchInfoList getBatchInfoList(String jobId) throws AsyncApiException {
+        return this.retryPolicy.execute("getBatchInfoList", BulkV1Connection::isRetryableRead,
+                () -> super.getBatchInfoList(jobId));
+    }
+
+    @Override
+    public InputStream getBatchResultStream(String jobId, String batchId) throws AsyncApiException {
+        return this.retryPolicy.execute("getBatchResultStream", BulkV1Connection::isRetryableRead,
+                () -> super.getBatchResultStream(jobId, batchId));
+    }
+
+    @Override
+    public QueryResultList getQueryResultList(String jobId, String batchId) throws AsyncApiException {
+        return this.retryPolicy.execute("getQueryResultList", BulkV1Connection::isRetryableRead,
+                () -> super.getQueryResultList(jobId, batchId));
+    }
+
+    @Override
+    public InputStream getQueryResultStream(String jobId, String batchId, String resultId) throws AsyncApiException {
+        return this.retryPolicy.execute("getQueryResultStream", BulkV1Connection::isRetryableRead,
+                () -> super.getQueryResultStream(jobId, batchId, resultId));
+    }
+
+    /*
+     * WSC reads these results without the transport and reports a failure to connect or to read the
+     * server's answer, such as an error page instead of an error message, as ClientInputError.
+     */
+    private static boolean isRetryableRead(Throwable t) {
+        return RetryPolicy.isTransient(t, true) || (t instanceof AsyncApiException
+                && ((AsyncApiException)t).getExceptionCode() == AsyncExceptionCode.ClientInputError);
+    }
+}
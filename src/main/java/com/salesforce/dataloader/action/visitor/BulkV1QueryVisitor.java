@@ -31,6 +31,9 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 import com.salesforce.dataloader.action.AbstractExtractAction;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
@@ -40,6 +43,7 @@ import com.salesforce.dataloader.dao.DataWriter;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.ExtractException;
 import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
 import com.sforce.async.AsyncApiException;
 import com.sforce.async.BatchInfo;
 import com.sforce.async.BatchStateEnum;
@@ -54,6 +58,9 @@ import com.sforce.async.QueryResultList;
 public class BulkV1QueryVisitor extends AbstractBulkQueryVisitor {
 
     private BatchInfo[] batches;
+    private BulkV1ChunkResultsDownloader chunkResultsDownloader;
+    // chunk batches written while the job was running
+    private final Set<String> writtenBatchIds = new HashSet<String>();
 
     public BulkV1QueryVisitor(AbstractExtractAction action, Controller controller, ILoaderProgress monitor, DataWriter queryWriter,
             DataWriter successWriter, DataWriter errorWriter) {
@@ -61,7 +68,7 @@ public class BulkV1QueryVisitor extends AbstractBulkQueryVisitor {
     }
 
     @Override
-    protected int executeQuery(String soql) throws AsyncApiException, OperationException {
+    protected int executeQuery(String soql) throws AsyncApiException, OperationException, DataAccessObjectException {
         final BulkApiVisitorUtil jobUtil = new BulkApiVisitorUtil(getController(), getProgressMonitor(),
                 getRateCalculator(), false);
         jobUtil.createJob();
@@ -70,19 +77,132 @@ public class BulkV1QueryVisitor extends AbstractBulkQueryVisitor {
         } catch (final UnsupportedEncodingException e) {
             throw new ExtractException(e);
         }
-        jobUtil.awaitCompletionAndCloseJob();
-        if (!this.getConfig().isBulkV2APIEnabled()) {
-            this.batches = jobUtil.getBatches().getBatchInfo();
+        if (jobUtil.isPKChunkingEnabled()) {
+            // download results of completed chunks while the rest of the job is running
+            this.chunkResultsDownloader = new BulkV1ChunkResultsDownloader(getController().getBulkV1Client().getClient(),
+                    jobUtil.getJobId(), getMaxParallelChunkDownloads(), jobUtil.newCheckStatusInterval());
+        }
+        boolean hasResults = false;
+        try {
+            if (this.chunkResultsDownloader != null) {
+                awaitCompletionWritingChunks(jobUtil);
+            } else {
+                jobUtil.awaitCompletionAndCloseJob();
+            }
+            if (!this.getConfig().isBulkV2APIEnabled()) {
+                this.batches = jobUtil.getBatches().getBatchInfo();
+            }
+            int recordsProcessed = jobUtil.getRecordsProcessed();
+            hasResults = recordsProcessed > 0 && !getProgressMonitor().isCanceled();
+            return recordsProcessed;
+        } finally {
+            if (!hasResults) {
+                closeChunkResultsDownloader();
+            }
+        }
+    }
+
+    /**
+     * Waits for the job to complete, writing out the results of the chunk batches downloaded in
+     * the meantime.
+     */
+    private void awaitCompletionWritingChunks(BulkApiVisitorUtil jobUtil)
+            throws AsyncApiException, ExtractException, DataAccessObjectException {
+        jobUtil.checkStatus();
+        long waitTime = jobUtil.periodicCheckStatus();
+        while (!jobUtil.isJobCompleted()) {
+            if (getProgressMonitor().isCanceled()) return;
+            final BatchInfo batch;
+            try {
+                batch = this.chunkResultsDownloader.awaitDownloadedBatch(waitTime);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ExtractException(e);
+            }
+            if (batch != null) {
+                if (this.writtenBatchIds.isEmpty()) {
+                    // the number of records is known once the job completes
+                    super.startWriteExtraction(Math.max(1, jobUtil.getRecordsProcessedSoFar()));
+                }
+                this.writtenBatchIds.add(batch.getId());
+                writeExtractionForDownloadedBatch(batch);
+            }
+            waitTime = jobUtil.periodicCheckStatus();
+        }
+        jobUtil.closeJob();
+    }
+
+    @Override
+    protected void startWriteExtraction(int size) {
+        if (this.writtenBatchIds.isEmpty()) {
+            super.startWriteExtraction(size);
+        } else {
+            getRateCalculator().setTotalRecords(size);
+            getProgressMonitor().setTotalWork(size);
         }
-        return jobUtil.getRecordsProcessed();
     }
 
     @Override
     protected void writeExtraction() throws AsyncApiException, ExtractException, DataAccessObjectException {
-        for (BatchInfo b : this.batches) {
-            writeExtractionForBatch(b);
+        try {
+            for (BatchInfo b : this.batches) {
+                // the original batch of a PK chunked job is not processed, its chunks are
+                if (b.getState() == BatchStateEnum.NotProcessed) continue;
+                if (this.writtenBatchIds.contains(b.getId())) continue;
+                if (this.chunkResultsDownloader != null) {
+                    writeExtractionForDownloadedBatch(b);
+                } else {
+                    writeExtractionForBatch(b);
+                }
+            }
+        } finally {
+            closeChunkResultsDownloader();
         }
     }
+
+    private void writeExtractionForDownloadedBatch(BatchInfo batch)
+            throws AsyncApiException, ExtractException, DataAccessObjectException {
+        if (batch.getState() == BatchStateEnum.Failed)
+            throw new ExtractException("Batch failed: " + batch.getStateMessage());
+        try {
+            final List<InputStream> resultStreams = this.chunkResultsDownloader.getResultStreams(batch);
+            try {
+                for (final InputStream resultStream : resultStreams) {
+                    if (getProgressMonitor().isCanceled()) {
+                        break;
+                    }
+                    writeExtractionForResultStream(resultStream);
+                }
+            } finally {
+                // delete the downloaded results not written out
+                for (final InputStream resultStream : resultStreams) {
+                    resultStream.close();
+                }
+            }
+        } catch (final IOException e) {
+            throw new ExtractException(e);
+        }
+    }
+
+    private void closeChunkResultsDownloader() {
+        if (this.chunkResultsDownloader != null) {
+            this.chunkResultsDownloader.close();
+            this.chunkResultsDownloader = null;
+        }
+    }
+
+    private int getMaxParallelChunkDownloads() {
+        try {
+            int maxParallelDownloads = getConfig().getInt(Config.BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS);
+            if (maxParallelDownloads > 0) {
+                return Math.min(maxParallelDownloads, Config.MAX_BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS);
+            }
+        } catch (ParameterLoadException e) {
+            getLogger().warn("Invalid value for " + Config.BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS);
+        }
+        return Config.DEFAULT_BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS;
+    }
+
     private void writeExtractionForBatch(BatchInfo batch) throws AsyncApiException, ExtractException, DataAccessObjectException {
         if (batch.getState() == BatchStateEnum.Failed)
             throw new ExtractException("Batch failed: " + batch.getStateMessage());
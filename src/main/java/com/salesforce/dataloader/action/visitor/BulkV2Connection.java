@@ -135,7 +135,6 @@ import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -164,6 +163,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.salesforce.dataloader.client.HttpTransportInterface;
+import com.salesforce.dataloader.client.RetryPolicy;
+import com.salesforce.dataloader.exception.ServiceUnavailableException;
 import com.sforce.async.AsyncApiException;
 import com.sforce.async.AsyncExceptionCode;
 import com.sforce.async.ContentType;
@@ -214,6 +215,7 @@ public class BulkV2Connection  {
     private int numberOfRecordsInQueryResult = 0;
     private ConnectorConfig config;
     private HashMap<String, String> headers = new HashMap<String, String>();
+    private RetryPolicy retryPolicy = RetryPolicy.NO_RETRIES;
     private static Logger logger = LogManager.getLogger(BulkV2Connection.class);
 
     public static final TypeMapper typeMapper = new TypeMapper(null, null, false);
@@ -228,6 +230,10 @@ public class BulkV2Connection  {
         this.authHeaderValue = AUTH_HEADER_VALUE_PREFIX + getConfig().getSessionId();
     }
     
+    public void setRetryPolicy(RetryPolicy retryPolicy) {
+        this.retryPolicy = retryPolicy;
+    }
+
     public JobInfo createJob(JobInfo job) throws AsyncApiException {
         ContentType type = job.getContentType();
         if (type != null && type != ContentType.CSV) {
@@ -282,15 +288,37 @@ public class BulkV2Connection  {
     }        
 
     public InputStream getQueryResultStream(String jobId, String locator) throws AsyncApiException {
+        QueryResultPage page = getQueryResultPage(jobId, locator, 0);
+        this.queryLocator = page.getLocator();
+        this.numberOfRecordsInQueryResult = page.getNumberOfRecords();
+        return page.getResultStream();
+    }
+    
+    /**
+     * Gets a page of query results along with the locator of the next page. Unlike 
+     * getQueryResultStream(), it does not update the state of the connection and
+     * can be invoked concurrently to download several pages in parallel.
+     * 
+     * @param maxRecords maximum number of records in the page. Server decides the page size if 0.
+     */
+    QueryResultPage getQueryResultPage(String jobId, String locator, int maxRecords) throws AsyncApiException {
     	String urlString =  constructRequestURL(jobId, true) + "results/";
+    	String paramSeparator = "?";
         if (locator != null && !locator.isEmpty() && !"null".equalsIgnoreCase(locator)) {
-        	urlString += "?locator=" + locator;
+        	urlString += paramSeparator + "locator=" + locator;
+        	paramSeparator = "&";
         }
-        try {
-            return doGetQueryResultStream(new URL(urlString), getHeaders(JSON_CONTENT_TYPE, CSV_CONTENT_TYPE));
-        } catch (IOException e) {
-            throw new AsyncApiException("Failed to get query results for job " + jobId, AsyncExceptionCode.ClientInputError, e);
+        if (maxRecords > 0) {
+            urlString += paramSeparator + "maxRecords=" + maxRecords;
         }
+        final String resultsURLString = urlString;
+        return this.retryPolicy.execute("GET " + resultsURLString, true, () -> {
+            try {
+                return doGetQueryResultPage(new URL(resultsURLString), getHeaders(JSON_CONTENT_TYPE, CSV_CONTENT_TYPE));
+            } catch (IOException e) {
+                throw new AsyncApiException("Failed to get query results for job " + jobId, AsyncExceptionCode.ClientInputError, e);
+            }
+        });
     }
     
     public String getQueryLocator() {
@@ -317,27 +345,33 @@ public class BulkV2Connection  {
     		throw new AsyncApiException(csvFileName + " size exceeds the max file size accepted by Bulk V2 (150 MB)", AsyncExceptionCode.ClientInputError);
     	}
     	
-        String urlString = constructRequestURL(jobId, false) + "batches/";
-        HashMap<String, String> headers = getHeaders(CSV_CONTENT_TYPE, JSON_CONTENT_TYPE);
-        try {
-        	HttpTransportInterface transport = (HttpTransportInterface)getConfig().createTransport();
-            transport.connect(urlString, headers, true, HttpTransportInterface.SupportedHttpMethodType.PUT, new FileInputStream(csvFile), CSV_CONTENT_TYPE);
-
-            // Following is needed to actually send the request to the server
-            InputStream serverResponseStream = transport.getContent();
-            if (!transport.isSuccessful()) {
-	            parseAndThrowException(serverResponseStream, ContentType.JSON);
+        final String uploadURLString = constructRequestURL(jobId, false) + "batches/";
+        final HashMap<String, String> uploadHeaders = getHeaders(CSV_CONTENT_TYPE, JSON_CONTENT_TYPE);
+        this.retryPolicy.execute("PUT " + uploadURLString, false, () -> {
+            try {
+                HttpTransportInterface transport = (HttpTransportInterface)getConfig().createTransport();
+                transport.connect(uploadURLString, uploadHeaders, true, HttpTransportInterface.SupportedHttpMethodType.PUT, csvFile, CSV_CONTENT_TYPE);
+
+                // Following is needed to actually send the request to the server
+                final long uploadStart = System.currentTimeMillis();
+                try (InputStream serverResponseStream = transport.getContent()) {
+                    if (!transport.isSuccessful()) {
+                        parseAndThrowException(serverResponseStream, ContentType.JSON);
+                    }
+                }
+                final long uploadMillis = Math.max(1, System.currentTimeMillis() - uploadStart);
+                logger.info("Uploaded " + csvFile.length() + " bytes for job " + jobId + " in " + uploadMillis + " ms ("
+                        + (csvFile.length() * 1000 / 1024 / uploadMillis) + " KB/s), sent "
+                        + transport.getRequestBytesSent() + " bytes");
+                return null;
+            } catch (IOException e) {
+                throw new AsyncApiException("Failed to send contents of " + csvFileName + " to server for job " + jobId, AsyncExceptionCode.ClientInputError, e);
+            } catch (ConnectionException e) {
+                throw new AsyncApiException("Failed to send contents of " + csvFileName + " to server for job " + jobId, AsyncExceptionCode.ClientInputError, e);
             }
-        }catch (IOException e) {
-            throw new AsyncApiException("Failed to send contents of " + csvFileName + " to server for job " + jobId, AsyncExceptionCode.ClientInputError, e);
-        } catch (ConnectionException e) {
-            throw new AsyncApiException("Failed to send contents of " + csvFileName + " to server for job " + jobId, AsyncExceptionCode.ClientInputError, e);
-        }
+        });
         
         // Mark upload as completed
-        urlString = constructRequestURL(jobId, false);
-        headers = getHeaders(JSON_CONTENT_TYPE, JSON_CONTENT_TYPE);
-
     	setJobState(jobId, false, JobStateEnum.UploadComplete, "Failed to mark completion of the upload");
     	return getIngestJobStatus(jobId);
     }
@@ -430,12 +464,26 @@ public class BulkV2Connection  {
     		HashMap<Object, Object> requestBodyMap,
     		boolean processServerResponse,
     		String exceptionMessageString) throws AsyncApiException 
+    {
+        // a new job must not be created twice, other job requests can be sent again
+        return this.retryPolicy.execute(requestMethod + " " + urlString, requestMethod != HttpMethod.POST,
+                () -> sendJobRequestToServer(urlString, headers, requestMethod, responseContentType,
+                        requestBodyMap, processServerResponse, exceptionMessageString));
+    }
+
+    private JobInfo sendJobRequestToServer(String urlString, 
+    		HashMap<String, String> headers,
+    		HttpMethod requestMethod,
+    		ContentType responseContentType,
+    		HashMap<Object, Object> requestBodyMap,
+    		boolean processServerResponse,
+    		String exceptionMessageString) throws AsyncApiException 
     {
     	if (headers == null) {
             headers = getHeaders(JSON_CONTENT_TYPE, JSON_CONTENT_TYPE);
     	}
+	    InputStream in = null;
 		try {
-	        InputStream in;
 	        boolean successfulRequest = true;
 	        if (requestMethod == HttpMethod.GET) {
 	        	if (requestBodyMap != null && !requestBodyMap.isEmpty()) {
@@ -493,6 +541,15 @@ public class BulkV2Connection  {
 	        throw new AsyncApiException(exceptionMessageString, AsyncExceptionCode.ClientInputError, e);
 	    } catch (PullParserException e) {
 	        throw new AsyncApiException(exceptionMessageString, AsyncExceptionCode.ClientInputError, e);
+		} finally {
+		    // releases the connection of the response
+		    if (in != null) {
+		        try {
+		            in.close();
+		        } catch (IOException e) {
+		            // do nothing
+		        }
+		    }
 		}
 	}
     
@@ -566,7 +623,17 @@ public class BulkV2Connection  {
             in = connection.getInputStream();
         } catch (IOException e) {
             success = false;
+            // rethrows the failure when the server did not respond
+            final int statusCode = connection.getResponseCode();
+            if (statusCode == HttpURLConnection.HTTP_UNAVAILABLE || statusCode == 429) {
+                connection.disconnect();
+                throw new ServiceUnavailableException(statusCode + " " + connection.getResponseMessage(), statusCode,
+                        RetryPolicy.parseRetryAfterMillis(connection.getHeaderField("Retry-After")));
+            }
             in = connection.getErrorStream();
+            if (in == null) {
+                throw e;
+            }
         }
 
         String encoding = connection.getHeaderField("Content-Encoding");
@@ -633,12 +700,12 @@ public class BulkV2Connection  {
      * private, extract (aka query) methods 
      * 
      **********************************/
-    private InputStream doGetQueryResultStream(URL resultsURL, HashMap<String, String> headers) throws IOException, AsyncApiException {
+    private QueryResultPage doGetQueryResultPage(URL resultsURL, HashMap<String, String> headers) throws IOException, AsyncApiException {
         HttpURLConnection httpConnection = openHttpConnection(resultsURL, headers);
         InputStream is = doHttpGet(httpConnection, resultsURL);
-        this.queryLocator = httpConnection.getHeaderField("Sforce-Locator");
-        this.numberOfRecordsInQueryResult = Integer.valueOf(httpConnection.getHeaderField("Sforce-NumberOfRecords"));
-        return is;
+        return new QueryResultPage(is,
+                httpConnection.getHeaderField("Sforce-Locator"),
+                Integer.valueOf(httpConnection.getHeaderField("Sforce-NumberOfRecords")));
     }
     
     /**********************************
@@ -650,13 +717,15 @@ public class BulkV2Connection  {
 
     private InputStream doGetIngestResultsStream(String jobId, String resultsType) throws AsyncApiException {
         String resultsURLString = constructRequestURL(jobId, false) + resultsType;
-        try {
-        	URL resultsURL = new URL(resultsURLString);
-            HttpURLConnection httpConnection = openHttpConnection(resultsURL, getHeaders(JSON_CONTENT_TYPE, CSV_CONTENT_TYPE));
-            return doHttpGet(httpConnection, resultsURL);
-        } catch (IOException e) {
-            throw new AsyncApiException("Failed to get " + resultsType + " for job id " + jobId, AsyncExceptionCode.ClientInputError, e);
-        }
+        return this.retryPolicy.execute("GET " + resultsURLString, true, () -> {
+            try {
+                URL resultsURL = new URL(resultsURLString);
+                HttpURLConnection httpConnection = openHttpConnection(resultsURL, getHeaders(JSON_CONTENT_TYPE, CSV_CONTENT_TYPE));
+                return doHttpGet(httpConnection, resultsURL);
+            } catch (IOException e) {
+                throw new AsyncApiException("Failed to get " + resultsType + " for job id " + jobId, AsyncExceptionCode.ClientInputError, e);
+            }
+        });
     }
     
     private void doSaveIngestResults(String jobId, String filename, String resultsType) throws AsyncApiException {
@@ -681,6 +750,31 @@ public class BulkV2Connection  {
     }
 }
 
+class QueryResultPage {
+    private final InputStream resultStream;
+    private final String locator;
+    private final int numberOfRecords;
+
+    QueryResultPage(InputStream resultStream, String locator, int numberOfRecords) {
+        this.resultStream = resultStream;
+        this.locator = locator;
+        this.numberOfRecords = numberOfRecords;
+    }
+
+    InputStream getResultStream() {
+        return this.resultStream;
+    }
+
+    // "null" if this is the last page of query results
+    String getLocator() {
+        return this.locator;
+    }
+
+    int getNumberOfRecords() {
+        return this.numberOfRecords;
+    }
+}
+
 class BulkV2Error implements Serializable {
     private static final long serialVersionUID = 3L;
     public String errorCode = "";
@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+import org.apache.commons.io.output.DeferredFileOutputStream;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.NamedThreadFactory;
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+
+/**
+ * Downloads pages of Bulk V2 query results ahead of the page being processed.
+ * 
+ * The locator of the next page is returned in the response headers of the current page.
+ * Request for the next page is sent as soon as the headers of the current page are
+ * received, and the downloads of up to maxParallelFetches pages overlap with each other
+ * and with the processing of already downloaded pages. Each page is buffered in memory
+ * up to inMemoryThreshold bytes and spilled to a temp file beyond that.
+ */
+class BulkV2QueryResultsPrefetcher implements Closeable {
+    private static final Logger logger = LogManager.getLogger(BulkV2QueryResultsPrefetcher.class);
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final BulkV2Connection connection;
+    private final String jobId;
+    private final int maxRecordsPerPage;
+    private final int inMemoryThreshold;
+    private final ExecutorService fetchExecutor;
+    // bounds the number of pages being downloaded or downloaded but not yet processed
+    private final Semaphore pagePermits;
+    private final BlockingQueue<Future<DownloadedPage>> pagesInOrder = new LinkedBlockingQueue<Future<DownloadedPage>>();
+    private volatile boolean closed = false;
+    private boolean lastPageReturned = false;
+
+    private static class DownloadedPage {
+        final DeferredFileOutputStream content;
+        final boolean isLastPage;
+
+        DownloadedPage(DeferredFileOutputStream content, boolean isLastPage) {
+            this.content = content;
+            this.isLastPage = isLastPage;
+        }
+
+        void delete() {
+            File spillFile = this.content.getFile();
+            if (spillFile != null && spillFile.exists()) {
+                spillFile.delete();
+            }
+        }
+    }
+
+    BulkV2QueryResultsPrefetcher(BulkV2Connection connection, String jobId, int maxRecordsPerPage,
+            int maxParallelFetches, int inMemoryThreshold) {
+        this.connection = connection;
+        this.jobId = jobId;
+        this.maxRecordsPerPage = maxRecordsPerPage;
+        this.inMemoryThreshold = inMemoryThreshold;
+        this.pagePermits = new Semaphore(maxParallelFetches);
+        // one extra thread for the fetch waiting for a permit
+        this.fetchExecutor = Executors.newFixedThreadPool(maxParallelFetches + 1,
+                new NamedThreadFactory("bulkV2QueryResultsFetch"));
+        submitFetch("");
+    }
+
+    /**
+     * @return stream of the next page of query results, or null if all pages have been returned.
+     * The caller must close the stream to release the page buffer.
+     */
+    InputStream nextPage() throws AsyncApiException, IOException {
+        if (this.lastPageReturned) {
+            return null;
+        }
+        final DownloadedPage page;
+        try {
+            page = this.pagesInOrder.take().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AsyncApiException("Interrupted while downloading query results for job " + this.jobId,
+                    AsyncExceptionCode.ClientInputError, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AsyncApiException) {
+                throw (AsyncApiException)cause;
+            } else if (cause instanceof IOException) {
+                throw (IOException)cause;
+            }
+            throw new AsyncApiException("Failed to get query results for job " + this.jobId,
+                    AsyncExceptionCode.ClientInputError, cause);
+        }
+        this.lastPageReturned = page.isLastPage;
+        return new FilterInputStream(page.content.toInputStream()) {
+            private boolean released = false;
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    if (!this.released) {
+                        this.released = true;
+                        page.delete();
+                        pagePermits.release();
+                    }
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.fetchExecutor.shutdownNow();
+        for (Future<DownloadedPage> pendingPage : this.pagesInOrder) {
+            if (pendingPage.isDone() && !pendingPage.isCancelled()) {
+                try {
+                    pendingPage.get().delete();
+                } catch (InterruptedException | ExecutionException e) {
+                    // page was not downloaded, nothing to clean up
+                }
+            }
+        }
+        this.pagesInOrder.clear();
+    }
+
+    private void submitFetch(final String locator) {
+        if (this.closed) {
+            return;
+        }
+        this.pagesInOrder.add(this.fetchExecutor.submit(() -> fetchPage(locator)));
+    }
+
+    private DownloadedPage fetchPage(String locator) throws AsyncApiException, IOException, InterruptedException {
+        this.pagePermits.acquire();
+        boolean downloaded = false;
+        try {
+            QueryResultPage page = this.connection.getQueryResultPage(this.jobId, locator, this.maxRecordsPerPage);
+            final boolean isLastPage = page.getLocator() == null || "null".equalsIgnoreCase(page.getLocator());
+            if (!isLastPage) {
+                // start downloading the next page while the body of this page is being downloaded
+                submitFetch(page.getLocator());
+            }
+            logger.debug("Downloading " + page.getNumberOfRecords() + " query results of job " + this.jobId);
+            DeferredFileOutputStream content = DeferredFileOutputStream.builder()
+                    .setThreshold(this.inMemoryThreshold)
+                    .setPrefix("sdl")
+                    .setSuffix(".csv")
+                    .get();
+            DownloadedPage downloadedPage = new DownloadedPage(content, isLastPage);
+            try (InputStream in = page.getResultStream()) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int bytesRead;
+                while ((bytesRead = in.read(buffer)) != -1) {
+                    content.write(buffer, 0, bytesRead);
+                }
+            } finally {
+                content.close();
+            }
+            if (this.closed) {
+                downloadedPage.delete();
+            } else {
+                downloaded = true;
+            }
+            return downloadedPage;
+        } finally {
+            if (!downloaded) {
+                this.pagePermits.release();
+            }
+        }
+    }
+}
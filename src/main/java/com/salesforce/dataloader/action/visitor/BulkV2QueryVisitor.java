@@ -26,17 +26,39 @@
 
 package com.salesforce.dataloader.action.visitor;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import com.salesforce.dataloader.action.AbstractExtractAction;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.client.PartnerClient;
 import com.salesforce.dataloader.controller.Controller;
 import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.dao.csv.CSVFileWriter;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
 import com.salesforce.dataloader.exception.ExtractException;
 import com.salesforce.dataloader.exception.OperationException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
+import com.salesforce.dataloader.mapping.SOQLRewriter;
+import com.salesforce.dataloader.util.NamedThreadFactory;
 import com.sforce.async.AsyncApiException;
+import com.sforce.async.OperationEnum;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.soap.partner.sobject.SObject;
+import com.sforce.ws.ConnectionException;
 
 
 /**
@@ -47,7 +69,8 @@ import com.sforce.async.AsyncApiException;
  */
 public class BulkV2QueryVisitor extends AbstractBulkQueryVisitor {
 
-    private String jobId;
+    private final List<String> jobIds = new ArrayList<String>();
+    private final Set<String> writtenJobIds = new HashSet<String>();
 
     public BulkV2QueryVisitor(AbstractExtractAction action, Controller controller, ILoaderProgress monitor, DataWriter queryWriter,
             DataWriter successWriter, DataWriter errorWriter) {
@@ -55,24 +78,188 @@ public class BulkV2QueryVisitor extends AbstractBulkQueryVisitor {
     }
 
     @Override
-    protected int executeQuery(String soql) throws AsyncApiException, OperationException {
+    protected int executeQuery(String soql)
+            throws AsyncApiException, OperationException, ConnectionException, DataAccessObjectException {
+        int numPartitions = Math.min(getIntConfigValue(Config.BULKV2_QUERY_ID_RANGE_PARTITIONS, 1),
+                Config.MAX_BULKV2_QUERY_ID_RANGE_PARTITIONS);
+        if (numPartitions > 1) {
+            if (SOQLRewriter.isIdRangePartitionable(soql)) {
+                return executePartitionedQuery(soql, numPartitions);
+            }
+            getLogger().info("Query has GROUP BY, ORDER BY, LIMIT or OFFSET clause, running it as a single job");
+        }
         final BulkApiVisitorUtil jobUtil = new BulkApiVisitorUtil(getController(), getProgressMonitor(),
                 getRateCalculator(), false);
-        jobUtil.createJob();
-        this.jobId = jobUtil.getJobId();
+        jobUtil.createJob(soql);
+        this.jobIds.add(jobUtil.getJobId());
         jobUtil.awaitCompletionAndCloseJob();
         return jobUtil.getRecordsProcessed();
     }
 
+    /**
+     * Splits the query into Id ranges and runs a query job for each range concurrently. The
+     * results of each range are written as soon as its job completes.
+     */
+    private int executePartitionedQuery(String soql, int numPartitions)
+            throws AsyncApiException, OperationException, ConnectionException, DataAccessObjectException {
+        final String minId = getBoundaryId(soql, true);
+        if (minId == null) {
+            return 0;
+        }
+        final String maxId = getBoundaryId(soql, false);
+        final List<String> partitionQueries = SOQLRewriter.getIdRangeQueries(soql, minId, maxId, numPartitions);
+        getLogger().info("Running query as " + partitionQueries.size() + " Id range partitions");
+
+        final AtomicReferenceArray<BulkApiVisitorUtil> partitionJobs =
+                new AtomicReferenceArray<BulkApiVisitorUtil>(partitionQueries.size());
+        final boolean[] partitionDone = new boolean[partitionQueries.size()];
+        ExecutorService executor = Executors.newFixedThreadPool(partitionQueries.size(),
+                new NamedThreadFactory("bulkV2QueryPartition"));
+        try {
+            CompletionService<Integer> completedPartitions = new ExecutorCompletionService<Integer>(executor);
+            for (int i = 0; i < partitionQueries.size(); i++) {
+                final int partition = i;
+                final String partitionQuery = partitionQueries.get(i);
+                completedPartitions.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws AsyncApiException {
+                        BulkApiVisitorUtil jobUtil = new BulkApiVisitorUtil(getController(), getProgressMonitor(),
+                                getRateCalculator(), false);
+                        jobUtil.createJob(partitionQuery);
+                        partitionJobs.set(partition, jobUtil);
+                        jobUtil.awaitCompletionAndCloseJob();
+                        return partition;
+                    }
+                });
+            }
+            final boolean filePerPartition = getConfig().getBoolean(Config.BULKV2_QUERY_OUTPUT_FILE_PER_PARTITION)
+                    && getQueryWriter() instanceof CSVFileWriter;
+            int recordsProcessed = 0;
+            for (int i = 0; i < partitionQueries.size(); i++) {
+                final int partition = completedPartitions.take().get();
+                partitionDone[partition] = true;
+                if (getProgressMonitor().isCanceled()) break;
+                final BulkApiVisitorUtil jobUtil = partitionJobs.get(partition);
+                recordsProcessed += jobUtil.getRecordsProcessed();
+                if (this.writtenJobIds.isEmpty()) {
+                    // the number of records is known once every partition completes
+                    super.startWriteExtraction(Math.max(1, recordsProcessed));
+                }
+                this.jobIds.add(jobUtil.getJobId());
+                this.writtenJobIds.add(jobUtil.getJobId());
+                if (filePerPartition && partition > 0) {
+                    writeExtractionToPartitionFile(jobUtil.getJobId(), partition + 1);
+                } else {
+                    writeExtraction(jobUtil.getJobId());
+                }
+            }
+            return recordsProcessed;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ExtractException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof AsyncApiException) {
+                throw (AsyncApiException)e.getCause();
+            }
+            throw new ExtractException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+            abortPartitionJobs(partitionJobs, partitionDone);
+        }
+    }
+
+    /**
+     * Aborts the jobs of the partitions that have not completed, so that they do not keep
+     * running on the server after the extraction has stopped.
+     */
+    private void abortPartitionJobs(AtomicReferenceArray<BulkApiVisitorUtil> partitionJobs,
+            boolean[] partitionDone) {
+        for (int i = 0; i < partitionDone.length; i++) {
+            final BulkApiVisitorUtil jobUtil = partitionJobs.get(i);
+            if (partitionDone[i] || jobUtil == null) continue;
+            try {
+                jobUtil.abortJob();
+            } catch (AsyncApiException e) {
+                getLogger().warn("Unable to abort query job " + jobUtil.getJobId() + ": "
+                        + e.getExceptionMessage());
+            }
+        }
+    }
+
+    private String getBoundaryId(String soql, boolean lowest) throws ConnectionException {
+        final String boundaryQuery = SOQLRewriter.getIdBoundaryQuery(soql, lowest);
+        final PartnerClient partnerClient = getController().getPartnerClient();
+        final QueryResult qr = getConfig().getOperationInfo().getBulkOperationEnum() == OperationEnum.queryAll ?
+                partnerClient.queryAll(boundaryQuery) : partnerClient.query(boundaryQuery);
+        final SObject[] records = qr.getRecords();
+        return records == null || records.length == 0 ? null : records[0].getId();
+    }
+
+    @Override
+    protected void startWriteExtraction(int size) {
+        if (this.writtenJobIds.isEmpty()) {
+            super.startWriteExtraction(size);
+        } else {
+            getRateCalculator().setTotalRecords(size);
+            getProgressMonitor().setTotalWork(size);
+        }
+    }
+
     @Override
     protected void writeExtraction() throws AsyncApiException, ExtractException, DataAccessObjectException {
+        for (String jobId : this.jobIds) {
+            if (getProgressMonitor().isCanceled()) return;
+            if (this.writtenJobIds.contains(jobId)) continue;
+            writeExtraction(jobId);
+        }
+    }
+
+    /**
+     * Writes the results of a partition other than the first one to a file of its own next to
+     * the configured file.
+     */
+    private void writeExtractionToPartitionFile(String jobId, int partitionNum)
+            throws AsyncApiException, ExtractException, DataAccessObjectException {
+        final CSVFileWriter queryWriter = (CSVFileWriter)getQueryWriter();
+        final String delimiter = getConfig().getString(Config.CSV_DELIMITER_FOR_QUERY_RESULTS);
+        final CSVFileWriter partitionWriter = new CSVFileWriter(
+                getPartitionFileName(queryWriter.getFileName(), partitionNum), getConfig(), delimiter);
+        partitionWriter.open();
+        if (queryWriter.getColumnNames() != null && !queryWriter.getColumnNames().isEmpty()) {
+            partitionWriter.setColumnNames(new ArrayList<String>(queryWriter.getColumnNames()));
+        }
+        try {
+            setQueryWriter(partitionWriter);
+            writeExtraction(jobId);
+        } finally {
+            setQueryWriter(queryWriter);
+            partitionWriter.close();
+        }
+    }
+
+    private static String getPartitionFileName(String fileName, int partitionNum) {
+        final int extIdx = fileName.lastIndexOf('.');
+        if (extIdx <= fileName.lastIndexOf(File.separatorChar)) {
+            return fileName + "_" + partitionNum;
+        }
+        return fileName.substring(0, extIdx) + "_" + partitionNum + fileName.substring(extIdx);
+    }
+
+    private void writeExtraction(String jobId) throws AsyncApiException, ExtractException, DataAccessObjectException {
         BulkV2Connection v2Conn = getController().getBulkV2Client().getClient();
+        int maxParallelFetches = getIntConfigValue(Config.BULKV2_QUERY_MAX_PARALLEL_RESULT_FETCHES,
+                Config.DEFAULT_BULKV2_QUERY_MAX_PARALLEL_RESULT_FETCHES);
+        if (maxParallelFetches > 0) {
+            writeExtractionWithPrefetch(v2Conn, jobId,
+                    Math.min(maxParallelFetches, Config.MAX_BULKV2_QUERY_MAX_PARALLEL_RESULT_FETCHES));
+            return;
+        }
         try {
-            InputStream serverResultStream = v2Conn.getQueryResultStream(this.jobId, "");
+            InputStream serverResultStream = v2Conn.getQueryResultStream(jobId, "");
             writeExtractionForServerStream(serverResultStream);
             String locator = v2Conn.getQueryLocator();
             while (!"null".equalsIgnoreCase(locator)) {
-                serverResultStream = v2Conn.getQueryResultStream(this.jobId, locator);
+                serverResultStream = v2Conn.getQueryResultStream(jobId, locator);
                 writeExtractionForServerStream(serverResultStream);
                 locator = v2Conn.getQueryLocator();
             }
@@ -80,4 +267,34 @@ public class BulkV2QueryVisitor extends AbstractBulkQueryVisitor {
             throw new ExtractException(e);
         }
     }
+
+    private void writeExtractionWithPrefetch(BulkV2Connection v2Conn, String jobId, int maxParallelFetches)
+            throws AsyncApiException, ExtractException, DataAccessObjectException {
+        int maxRecordsPerPage = getIntConfigValue(Config.BULKV2_QUERY_MAX_RECORDS_PER_PAGE, 0);
+        // spill every page to a temp file if asked to buffer unprocessed results
+        int inMemoryThreshold = getConfig().getBoolean(Config.BUFFER_UNPROCESSED_BULK_QUERY_RESULTS) ?
+                0 : Config.BULKV2_QUERY_RESULTS_PAGE_IN_MEMORY_BYTES;
+        try (BulkV2QueryResultsPrefetcher prefetcher = new BulkV2QueryResultsPrefetcher(v2Conn, jobId,
+                maxRecordsPerPage, maxParallelFetches, inMemoryThreshold)) {
+            InputStream resultStream;
+            while ((resultStream = prefetcher.nextPage()) != null) {
+                if (getProgressMonitor().isCanceled()) {
+                    resultStream.close();
+                    return;
+                }
+                writeExtractionForResultStream(resultStream);
+            }
+        } catch (final IOException e) {
+            throw new ExtractException(e);
+        }
+    }
+
+    private int getIntConfigValue(String name, int defaultValue) {
+        try {
+            return getConfig().getInt(name);
+        } catch (ParameterLoadException e) {
+            getLogger().warn("Invalid value for " + name + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
 }
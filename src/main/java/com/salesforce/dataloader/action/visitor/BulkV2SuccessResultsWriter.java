@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.model.Row;
+import com.sforce.async.CSVReader;
+
+/**
+ * Writes the success results of a Bulk V2 load job through the success writer. The server
+ * returns sf__Id, sf__Created and the uploaded fields, so each record is mapped onto the columns
+ * of the success file. That way the results line up with the rows written before the job ran,
+ * such as rows skipped as unchanged.
+ */
+class BulkV2SuccessResultsWriter {
+
+    private static final Logger logger = LogManager.getLogger(BulkV2SuccessResultsWriter.class);
+
+    private final DataWriter successWriter;
+    private final String successLevel;
+    private final Map<String, List<String>> daoColumnsByField;
+
+    /**
+     * @param daoColumnsByField columns of the data source mapped to each uploaded field, keyed by
+     * the lower case field name as it appears in the results
+     */
+    BulkV2SuccessResultsWriter(DataWriter successWriter, String successLevel,
+            Map<String, List<String>> daoColumnsByField) {
+        this.successWriter = successWriter;
+        this.successLevel = successLevel;
+        this.daoColumnsByField = daoColumnsByField;
+    }
+
+    /**
+     * @param fingerprints tracker to record the keys of the loaded rows in, or null
+     * @return the number of records in the results
+     */
+    long write(InputStream results, LoadFingerprintTracker fingerprints)
+            throws IOException, DataAccessObjectException {
+        try (InputStream in = results) {
+            final CSVReader resultsReader = new CSVReader(in, Config.BULK_API_ENCODING);
+            resultsReader.setMaxCharsInFile(Integer.MAX_VALUE);
+            resultsReader.setMaxRowsInFile(Integer.MAX_VALUE);
+            final List<String> header = resultsReader.nextRecord();
+            if (header == null) {
+                return 0;
+            }
+            int keyIdx = -1;
+            if (fingerprints != null) {
+                final String keyColumn = "Id".equalsIgnoreCase(fingerprints.getKeyField())
+                        ? Config.ID_COLUMN_NAME_IN_BULKV2 : fingerprints.getKeyField();
+                keyIdx = indexOf(header, keyColumn);
+                if (keyIdx < 0) {
+                    logger.warn("Column " + keyColumn + " not found in the results, fingerprints are not saved");
+                }
+            }
+            final boolean writeRows = !Config.OUTPUT_SUCCESS_LEVEL_COUNTS.equalsIgnoreCase(this.successLevel);
+            long recordCount = 0;
+            List<String> record;
+            while ((record = resultsReader.nextRecord()) != null) {
+                recordCount++;
+                if (keyIdx >= 0 && record.size() > keyIdx) {
+                    fingerprints.loaded(record.get(keyIdx));
+                }
+                if (writeRows) {
+                    this.successWriter.writeRow(toRow(header, record, recordCount));
+                }
+            }
+            return recordCount;
+        }
+    }
+
+    /**
+     * @param resultRowNumber position of the record in the results, starting at 1
+     */
+    private Row toRow(List<String> header, List<String> record, long resultRowNumber) {
+        if (Config.OUTPUT_SUCCESS_LEVEL_IDS.equalsIgnoreCase(this.successLevel)) {
+            final Row idRow = new Row(2);
+            final int idIdx = indexOf(header, Config.ID_COLUMN_NAME_IN_BULKV2);
+            idRow.put(Config.ID_COLUMN_NAME, idIdx >= 0 && idIdx < record.size() ? record.get(idIdx) : null);
+            // the results do not say which input row a record came from, so records are numbered
+            // in the order the server returned them
+            idRow.put(Config.ROW_NUMBER_COLUMN_NAME, resultRowNumber);
+            return idRow;
+        }
+        final Row row = new Row(header.size());
+        for (int i = 0; i < header.size() && i < record.size(); i++) {
+            final String column = header.get(i);
+            if (Config.ID_COLUMN_NAME_IN_BULKV2.equalsIgnoreCase(column)) {
+                row.put(Config.ID_COLUMN_NAME, record.get(i));
+                continue;
+            }
+            row.put(column, record.get(i));
+            for (String daoColumn : this.daoColumnsByField.getOrDefault(column.toLowerCase(),
+                    Collections.<String>emptyList())) {
+                row.put(daoColumn, record.get(i));
+            }
+        }
+        return row;
+    }
+
+    private static int indexOf(List<String> header, String column) {
+        for (int i = 0; i < header.size(); i++) {
+            if (column.equalsIgnoreCase(header.get(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -26,6 +26,8 @@
 
 package com.salesforce.dataloader.action.visitor;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
 import java.util.*;
 
@@ -40,6 +42,7 @@ import org.apache.logging.log4j.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import com.salesforce.dataloader.action.OperationInfo;
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
 import com.salesforce.dataloader.client.SessionInfo;
 import com.salesforce.dataloader.config.Config;
@@ -84,6 +87,12 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
     // - https://www.geeksforgeeks.org/how-to-validate-html-tag-using-regular-expression/#
     public static final String DEFAULT_RICHTEXT_REGEX = "<(?=[a-zA-Z/])(\"[^\"]*\"|'[^']*'|[^'\">])*>";
     private String richTextRegex = DEFAULT_RICHTEXT_REGEX;
+    private LoadFingerprintTracker fingerprints = null;
+    private boolean fingerprintsInitialized = false;
+    private DuplicateExternalIdDetector duplicateExternalIds = null;
+    private boolean duplicateExternalIdsInitialized = false;
+    private boolean collapseDuplicateExternalIds = false;
+    private final PreflightRowValidator preflightValidator;
     
     protected DAOLoadVisitor(Controller controller, ILoaderProgress monitor, DataWriter successWriter,
             DataWriter errorWriter) {
@@ -104,6 +113,9 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         if (newRichTextRegex != null && !newRichTextRegex.isBlank()) {
             this.richTextRegex = newRichTextRegex;
         }
+        this.preflightValidator = getConfig().getBoolean(Config.LOAD_PREFLIGHT_VALIDATION)
+                && PreflightRowValidator.isValidatedOperation(getConfig().getOperationInfo())
+                ? new PreflightRowValidator(controller.getFieldTypes(), getConfig()) : null;
         this.initLoadRateCalculator();
     }
     
@@ -126,16 +138,23 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
     ConnectionException {
         // the result are sforce fields mapped to data
         Row sforceDataRow = getMapper().mapData(row);
+        if (isDuplicateExternalId(row, sforceDataRow) || isUnchangedSinceLastLoad(row, sforceDataRow)) {
+            // not sent to the server, results are skipped like for rows that failed to convert
+            if (!controller.getConfig().getBoolean(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO)) {
+                this.processedDAORowCounter++;
+            }
+            return false;
+        }
         try {
-            convertBulkAPINulls(sforceDataRow);
-            DynaBean dynaBean = SforceDynaBean.convertToDynaBean(dynaClass, sforceDataRow);
-            Map<String, String> fieldMap = BeanUtils.describe(dynaBean);
-            for (String fName : fieldMap.keySet()) {
-                if (fieldMap.get(fName) != null) {
-                    // see if any entity foreign key references are embedded here
-                    Object value = this.getFieldValue(fName, dynaBean.get(fName));
-                    dynaBean.set(fName, value);
+            DynaBean dynaBean = convertRow(sforceDataRow);
+            final String preflightError = this.preflightValidator == null ? null : this.preflightValidator.validate(dynaBean);
+            if (preflightError != null) {
+                // fails locally instead of using an API request
+                conversionFailed(row, preflightError);
+                if (!controller.getConfig().getBoolean(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO)) {
+                    this.processedDAORowCounter++;
                 }
+                return false;
             }
             if (controller.getConfig().getBoolean(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO)
                     || !controller.getConfig().getBoolean(Config.BULK_API_ENABLED)) {
@@ -143,6 +162,9 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
                 this.daoRowList.add(row);
             }
             dynaArray.add(dynaBean);
+            if (this.duplicateExternalIds != null && !this.collapseDuplicateExternalIds) {
+                this.duplicateExternalIds.record(sforceDataRow, row.getRowNumber());
+            }
             this.batchRowToDAORowList.add(this.processedDAORowCounter);
             this.processedDAORowCounter++;
         } catch (ConversionException | IllegalAccessException conve) {
@@ -155,6 +177,8 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
                 this.processedDAORowCounter++;
             }
             return false;
+        } catch (IOException e) {
+            handleException(e);
         } catch (InvocationTargetException e) {
             // TODO Auto-generated catch block
             e.printStackTrace();
@@ -170,6 +194,208 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         return true;
     }
     
+    /**
+     * Converts the values of a row mapped to field names to the types of the fields.
+     */
+    private DynaBean convertRow(Row sforceDataRow) throws ConversionException, LoadException,
+            IllegalAccessException, InvocationTargetException, NoSuchMethodException {
+        convertBulkAPINulls(sforceDataRow);
+        DynaBean dynaBean = SforceDynaBean.convertToDynaBean(dynaClass, sforceDataRow);
+        Map<String, String> fieldMap = BeanUtils.describe(dynaBean);
+        for (String fName : fieldMap.keySet()) {
+            if (fieldMap.get(fName) != null) {
+                // see if any entity foreign key references are embedded here
+                Object value = this.getFieldValue(fName, dynaBean.get(fName));
+                dynaBean.set(fName, value);
+            }
+        }
+        return dynaBean;
+    }
+
+    /**
+     * @return true if the row converts and passes pre-flight validation, so that it is sent to the server
+     */
+    private boolean isLoadable(Row sforceDataRow) {
+        try {
+            // conversion changes the values of the row
+            final DynaBean dynaBean = convertRow(new Row(sforceDataRow));
+            return this.preflightValidator == null || this.preflightValidator.getError(dynaBean) == null;
+        } catch (ConversionException | LoadException | ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    private boolean isDuplicateExternalId(Row row, Row sforceDataRow) throws DataAccessObjectException,
+            OperationException {
+        final DuplicateExternalIdDetector detector = getDuplicateExternalIds();
+        if (detector == null || row.getRowNumber() <= 0) {
+            return false;
+        }
+        final int recordedRow = detector.getRecordedRow(sforceDataRow);
+        if (recordedRow == 0) {
+            return false;
+        }
+        final String[] args = new String[] {detector.getExternalIdField(), detector.getExternalId(sforceDataRow),
+                String.valueOf(recordedRow)};
+        if (this.collapseDuplicateExternalIds) {
+            try {
+                // the last row is recognized by its values, its number may differ on this read
+                if (detector.takeLast(sforceDataRow)) {
+                    return false;
+                }
+            } catch (IOException e) {
+                handleException(e);
+            }
+            // the values of the last row with the external id are loaded instead
+            super.writeSuccess(row, null, Messages.getFormattedString("DAOLoadVisitor.statusItemSuperseded", args));
+        } else {
+            if (recordedRow == row.getRowNumber()) {
+                return false;
+            }
+            conversionFailed(row, Messages.getFormattedString("DAOLoadVisitor.errorDuplicateExternalId", args));
+        }
+        return true;
+    }
+
+    /**
+     * @return detector of rows with the same external id, or null if duplicate external ids of an
+     * upsert are allowed
+     */
+    protected DuplicateExternalIdDetector getDuplicateExternalIds() throws LoadException {
+        if (this.duplicateExternalIdsInitialized) {
+            return this.duplicateExternalIds;
+        }
+        this.duplicateExternalIdsInitialized = true;
+        final String mode = getConfig().getString(Config.LOAD_DUPLICATE_EXTERNAL_IDS);
+        this.collapseDuplicateExternalIds = Config.LOAD_DUPLICATE_EXTERNAL_IDS_LAST_WINS.equalsIgnoreCase(mode);
+        if (getConfig().getOperationInfo() != OperationInfo.upsert
+                || (!this.collapseDuplicateExternalIds && !Config.LOAD_DUPLICATE_EXTERNAL_IDS_REJECT.equalsIgnoreCase(mode))) {
+            return null;
+        }
+        final String externalIdField = getConfig().getString(Config.EXTERNAL_ID_FIELD);
+        final Field field = getController().getPartnerClient().getField(externalIdField);
+        try {
+            this.duplicateExternalIds = new DuplicateExternalIdDetector(externalIdField,
+                    field != null && field.isCaseSensitive());
+        } catch (IOException e) {
+            handleException(e);
+        }
+        return this.duplicateExternalIds;
+    }
+
+    /**
+     * Reads all rows of the data source to find the last row of each external id value when
+     * duplicate external ids of an upsert are collapsed, then reopens the data source. Only rows
+     * that convert and pass pre-flight validation can be the last row, so that a row that fails
+     * locally does not supersede the rows before it.
+     */
+    public void findLastRowsByExternalId(DataReader dataReader) throws DataAccessObjectException, LoadException {
+        final DuplicateExternalIdDetector detector = getDuplicateExternalIds();
+        if (detector == null || !this.collapseDuplicateExternalIds) {
+            return;
+        }
+        logger.info(Messages.getFormattedString("DAOLoadVisitor.findingLastRows", detector.getExternalIdField()));
+        try {
+            for (Row row = dataReader.readRow(); DAORowUtil.isValidRow(row); row = dataReader.readRow()) {
+                final Row sforceDataRow = getMapper().mapData(row);
+                if (isLoadable(sforceDataRow)) {
+                    detector.recordLast(sforceDataRow, row.getRowNumber());
+                }
+            }
+        } catch (IOException e) {
+            handleException(e);
+        } finally {
+            dataReader.close();
+            dataReader.open();
+        }
+    }
+
+    private boolean isUnchangedSinceLastLoad(Row row, Row sforceDataRow) throws DataAccessObjectException,
+            LoadException {
+        final LoadFingerprintTracker tracker = getFingerprints();
+        if (tracker == null) {
+            return false;
+        }
+        try {
+            if (!tracker.isUnchanged(sforceDataRow)) {
+                return false;
+            }
+        } catch (IOException e) {
+            handleException(e);
+        }
+        final String id = "Id".equalsIgnoreCase(tracker.getKeyField()) ? tracker.getKey(sforceDataRow) : null;
+        super.writeSuccess(row, id, Messages.getString("DAOLoadVisitor.statusItemUnchanged"));
+        return true;
+    }
+
+    /**
+     * @return tracker of the rows loaded before, or null if no fingerprint file is configured for
+     * an update or upsert
+     */
+    protected LoadFingerprintTracker getFingerprints() throws LoadException {
+        if (this.fingerprintsInitialized) {
+            return this.fingerprints;
+        }
+        this.fingerprintsInitialized = true;
+        final String fileName = getConfig().getString(Config.LOAD_FINGERPRINT_FILE);
+        final OperationInfo operation = getConfig().getOperationInfo();
+        if (fileName == null || fileName.isBlank()
+                || (operation != OperationInfo.update && operation != OperationInfo.upsert)) {
+            return null;
+        }
+        final String keyField = operation == OperationInfo.upsert
+                ? getConfig().getString(Config.EXTERNAL_ID_FIELD) : "Id";
+        try {
+            this.fingerprints = new LoadFingerprintTracker(new File(fileName), keyField);
+        } catch (IOException e) {
+            handleException(Messages.getFormattedString("DAOLoadVisitor.errorFingerprintFile",
+                    new String[] {fileName, e.getMessage()}), e);
+        }
+        return this.fingerprints;
+    }
+
+    /**
+     * Saves the fingerprints of the rows loaded successfully, reports the rows that failed
+     * pre-flight validation and deletes the temporary external id store.
+     */
+    public void finishLoad() throws LoadException {
+        if (this.preflightValidator != null && this.preflightValidator.getRejectedRows() > 0) {
+            logger.info(Messages.getFormattedString("DAOLoadVisitor.preflightSummary", new String[] {
+                    String.valueOf(this.preflightValidator.getRejectedRows()),
+                    String.valueOf(this.preflightValidator.getSavedRequests())}));
+        }
+        if (this.duplicateExternalIds != null) {
+            try {
+                this.duplicateExternalIds.close();
+            } catch (IOException e) {
+                logger.warn(e.getMessage(), e);
+            } finally {
+                this.duplicateExternalIds = null;
+            }
+        }
+        if (this.fingerprints != null) {
+            try {
+                this.fingerprints.close();
+            } catch (IOException e) {
+                handleException(e);
+            } finally {
+                this.fingerprints = null;
+            }
+        }
+    }
+
+    @Override
+    protected void writeSuccess(Row row, String id, String message) throws DataAccessObjectException {
+        super.writeSuccess(row, id, message);
+        if (this.fingerprints != null && row != null) {
+            try {
+                this.fingerprints.loaded(getMapper().mapData(row));
+            } catch (IOException e) {
+                throw new DataAccessObjectException(e);
+            }
+        }
+    }
+
     protected boolean maxBatchBytesReached(List<DynaBean> dynaArray) {
         return false;
     }
@@ -226,6 +452,15 @@ public abstract class DAOLoadVisitor extends AbstractVisitor implements DAORowVi
         return true;
     }
 
+    /**
+     * Updates the progress with the total number of rows when the total given at the start was an
+     * estimate or was still being counted.
+     */
+    public void setTotalRows(int totalRows) {
+        getRateCalculator().setTotalRecords(totalRows);
+        getProgressMonitor().setTotalWork(totalRows);
+    }
+
     private void initLoadRateCalculator() {
         try {
             DataReader dao = (DataReader)getController().getDao();
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.Locale;
+
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.util.FingerprintStore;
+
+/**
+ * Finds upsert rows with the same external id value. The row number recorded for each value is
+ * kept by the hash of the value in a temporary {@link FingerprintStore}, which is memory mapped so
+ * that large files do not need to fit in the heap.
+ */
+class DuplicateExternalIdDetector implements Closeable {
+
+    // replaces the fingerprint of a last row once that row has been read again
+    private static final long LAST_ROW_TAKEN = 1;
+
+    private final String externalIdField;
+    private final boolean caseSensitive;
+    private final File storeFile;
+    private final FingerprintStore rowNumbers;
+    private File lastRowsFile = null;
+    private FingerprintStore lastRows = null;
+
+    DuplicateExternalIdDetector(String externalIdField, boolean caseSensitive) throws IOException {
+        this.externalIdField = externalIdField;
+        this.caseSensitive = caseSensitive;
+        this.storeFile = File.createTempFile("sdlExternalIds", ".tmp");
+        this.storeFile.deleteOnExit();
+        // the temporary file is empty, the store has to initialize it
+        this.storeFile.delete();
+        this.rowNumbers = new FingerprintStore(this.storeFile);
+    }
+
+    String getExternalIdField() {
+        return this.externalIdField;
+    }
+
+    /**
+     * @param sforceDataRow row with values mapped to field names
+     * @return the external id value of the row, or null if it has none
+     */
+    String getExternalId(Row sforceDataRow) {
+        final Object value = sforceDataRow.get(this.externalIdField);
+        return value == null || value.toString().isBlank() ? null : value.toString();
+    }
+
+    /**
+     * @return number of the row recorded for the external id value of the row, or 0 if there is none
+     */
+    int getRecordedRow(Row sforceDataRow) {
+        final String externalId = getExternalId(sforceDataRow);
+        return externalId == null ? 0 : (int)this.rowNumbers.get(hash(externalId));
+    }
+
+    /**
+     * Records the row number for the external id value of the row, replacing the one recorded before.
+     */
+    void record(Row sforceDataRow, int rowNumber) throws IOException {
+        final String externalId = getExternalId(sforceDataRow);
+        if (externalId != null && rowNumber > 0) {
+            this.rowNumbers.put(hash(externalId), rowNumber);
+        }
+    }
+
+    /**
+     * Records the row as the last one with its external id value. The values of the row are
+     * recorded too, since the rows may not be numbered the same way when they are read again.
+     */
+    void recordLast(Row sforceDataRow, int rowNumber) throws IOException {
+        final String externalId = getExternalId(sforceDataRow);
+        if (externalId == null || rowNumber <= 0) {
+            return;
+        }
+        record(sforceDataRow, rowNumber);
+        if (this.lastRows == null) {
+            this.lastRowsFile = File.createTempFile("sdlLastRows", ".tmp");
+            this.lastRowsFile.deleteOnExit();
+            // the temporary file is empty, the store has to initialize it
+            this.lastRowsFile.delete();
+            this.lastRows = new FingerprintStore(this.lastRowsFile);
+        }
+        this.lastRows.put(hash(externalId), FingerprintStore.fingerprint(sforceDataRow));
+    }
+
+    /**
+     * @return true if the row has the values recorded by {@link #recordLast(Row, int)} for its
+     * external id and no row with those values was taken before
+     */
+    boolean takeLast(Row sforceDataRow) throws IOException {
+        final String externalId = getExternalId(sforceDataRow);
+        if (externalId == null || this.lastRows == null) {
+            return false;
+        }
+        final long key = hash(externalId);
+        if (this.lastRows.get(key) != FingerprintStore.fingerprint(sforceDataRow)) {
+            return false;
+        }
+        // later rows with the same values are duplicates of this one
+        this.lastRows.put(key, LAST_ROW_TAKEN);
+        return true;
+    }
+
+    private long hash(String externalId) {
+        // external ids match regardless of case unless the field is case sensitive
+        return FingerprintStore.hash(this.caseSensitive ? externalId : externalId.toLowerCase(Locale.ROOT));
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.rowNumbers.close();
+            if (this.lastRows != null) {
+                this.lastRows.close();
+            }
+        } finally {
+            this.storeFile.delete();
+            if (this.lastRowsFile != null) {
+                this.lastRowsFile.delete();
+            }
+        }
+    }
+}
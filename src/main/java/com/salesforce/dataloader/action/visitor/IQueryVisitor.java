@@ -39,4 +39,9 @@ public interface IQueryVisitor extends IVisitor {
 
     void visit() throws OperationException, DataAccessObjectException;
 
+    /**
+     * @return highest value of the delta extract field written out, or null if there is none
+     */
+    String getHighWatermark();
+
 }
\ No newline at end of file
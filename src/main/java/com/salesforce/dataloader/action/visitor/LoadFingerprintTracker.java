@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.util.FingerprintStore;
+
+/**
+ * Detects rows that have not changed since they were last loaded successfully. The fingerprints
+ * of the mapped values of each row are kept by key in a {@link FingerprintStore}. A changed row's
+ * fingerprint is held in a temporary store until the server confirms that the row was loaded.
+ */
+class LoadFingerprintTracker implements Closeable {
+
+    private final String keyField;
+    private final FingerprintStore store;
+    private final File pendingFile;
+    private final FingerprintStore pending;
+
+    LoadFingerprintTracker(File storeFile, String keyField) throws IOException {
+        this.keyField = keyField;
+        this.store = new FingerprintStore(storeFile);
+        this.pendingFile = File.createTempFile("sdlFingerprints", ".tmp");
+        this.pendingFile.deleteOnExit();
+        // the temporary file is empty, the store has to initialize it
+        this.pendingFile.delete();
+        this.pending = new FingerprintStore(this.pendingFile);
+    }
+
+    /**
+     * @return name of the field identifying the rows, the external id field or Id
+     */
+    String getKeyField() {
+        return this.keyField;
+    }
+
+    /**
+     * @param sforceDataRow row with values mapped to field names
+     * @return true if the row was loaded before with the same values, otherwise its fingerprint is
+     * held until {@link #loaded(String)} is called for its key
+     */
+    boolean isUnchanged(Row sforceDataRow) throws IOException {
+        final String key = getKey(sforceDataRow);
+        if (key == null) {
+            return false;
+        }
+        final long keyHash = FingerprintStore.hash(key);
+        final long fingerprint = FingerprintStore.fingerprint(sforceDataRow);
+        if (this.store.get(keyHash) == fingerprint) {
+            return true;
+        }
+        this.pending.put(keyHash, fingerprint);
+        return false;
+    }
+
+    /**
+     * Records the held fingerprint of a row loaded successfully.
+     */
+    void loaded(Row sforceDataRow) throws IOException {
+        loaded(getKey(sforceDataRow));
+    }
+
+    void loaded(String key) throws IOException {
+        if (key == null || key.isBlank()) {
+            return;
+        }
+        final long keyHash = FingerprintStore.hash(key);
+        final long fingerprint = this.pending.get(keyHash);
+        if (fingerprint != 0) {
+            this.store.put(keyHash, fingerprint);
+        }
+    }
+
+    String getKey(Row sforceDataRow) {
+        final Object key = sforceDataRow.get(this.keyField);
+        return key == null || key.toString().isBlank() ? null : key.toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            this.store.close();
+        } finally {
+            this.pending.close();
+            this.pendingFile.delete();
+        }
+    }
+}
@@ -34,6 +34,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import com.salesforce.dataloader.action.progress.ILoaderProgress;
+import com.salesforce.dataloader.client.PartnerClient;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.controller.Controller;
@@ -78,22 +79,24 @@ public class PartnerQueryVisitor extends AbstractQueryVisitor {
 
     @Override
     protected void writeExtraction() throws DataAccessObjectException, ConnectionException {
-        while (this.qr.getRecords() != null) {
-            // form a map, because we aren't guaranteed to get back all the fields
-            final SObject[] sfdcResults = this.qr.getRecords();
-            if (sfdcResults == null) {
-                getLogger().error(Messages.getMessage(getClass(), "errorNoResults"));
-                return;
-            }
-            for (int i = 0; i < sfdcResults.length; i++) {
-                // add row to batch
-                addResultRow(getDaoRow(sfdcResults[i], i==0), sfdcResults[i].getId());
-            }
-            if (this.qr.getDone()) {
-                break;
+        final PartnerClient client = getController().getPartnerClient();
+        final AdaptiveQueryBatchSize adaptiveBatchSize = getConfig().getBoolean(Config.EXTRACT_REQUEST_SIZE_ADAPTIVE) ?
+                new AdaptiveQueryBatchSize(client.getConfiguredQueryBatchSize()) : null;
+        try (QueryMorePrefetcher prefetcher = new QueryMorePrefetcher(client, this.qr, adaptiveBatchSize)) {
+            // the next page is requested while this page is being written
+            while ((this.qr = prefetcher.nextPage()) != null) {
+                // form a map, because we aren't guaranteed to get back all the fields
+                final SObject[] sfdcResults = this.qr.getRecords();
+                if (sfdcResults == null) {
+                    getLogger().error(Messages.getMessage(getClass(), "errorNoResults"));
+                    return;
+                }
+                for (int i = 0; i < sfdcResults.length; i++) {
+                    // add row to batch
+                    addResultRow(getDaoRow(sfdcResults[i], i==0), sfdcResults[i].getId());
+                }
+                if (getProgressMonitor().isCanceled()) return;
             }
-            if (getProgressMonitor().isCanceled()) return;
-            this.qr = getController().getPartnerClient().queryMore(this.qr.getQueryLocator());
         }
     }
 
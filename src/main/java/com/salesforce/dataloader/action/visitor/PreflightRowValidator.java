@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.apache.commons.beanutils.DynaBean;
+
+import com.salesforce.dataloader.action.OperationInfo;
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.model.NACalendarValue;
+import com.salesforce.dataloader.model.NADateOnlyCalendarValue;
+import com.salesforce.dataloader.model.NATextValue;
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+import com.sforce.soap.partner.IPicklistEntry;
+
+/**
+ * Checks converted rows against the describe metadata of the object before they are sent, so that
+ * rows the server would reject fail locally without using API requests or batch capacity. Checks
+ * string lengths, field access, required fields on insert, restricted picklist values and the
+ * number of integer digits of numbers.
+ */
+class PreflightRowValidator {
+
+    // Bulk API 2.0 processes the records of a job in batches of this size
+    private static final int BULKV2_RECORDS_PER_BATCH = 10000;
+
+    private final Field[] fields;
+    private final OperationInfo operation;
+    private final boolean checkLength;
+    private final Map<String, Set<String>> restrictedPicklistValues = new TreeMap<String, Set<String>>();
+    private final int rowsPerRequest;
+    private long rejectedRows = 0;
+
+    PreflightRowValidator(DescribeSObjectResult describe, Config config) {
+        // the SOAP API truncates long values when asked to
+        this(describe.getFields(), config.getOperationInfo(),
+                config.isBulkAPIEnabled() || !config.getBoolean(Config.TRUNCATE_FIELDS),
+                config.isBulkV2APIEnabled() ? BULKV2_RECORDS_PER_BATCH : config.getLoadBatchSize());
+    }
+
+    PreflightRowValidator(Field[] fields, OperationInfo operation, boolean checkLength, int rowsPerRequest) {
+        this.fields = fields;
+        this.operation = operation;
+        this.checkLength = checkLength;
+        this.rowsPerRequest = rowsPerRequest;
+        for (Field field : this.fields) {
+            if (field.isRestrictedPicklist() && field.getPicklistValues() != null) {
+                final Set<String> values = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+                for (IPicklistEntry entry : field.getPicklistValues()) {
+                    if (entry.isActive()) {
+                        values.add(entry.getValue());
+                    }
+                }
+                this.restrictedPicklistValues.put(field.getName(), values);
+            }
+        }
+    }
+
+    /**
+     * @return true if rows of the operation set field values that can be checked
+     */
+    static boolean isValidatedOperation(OperationInfo operation) {
+        return operation == OperationInfo.insert || operation == OperationInfo.update
+                || operation == OperationInfo.upsert;
+    }
+
+    /**
+     * @return the reason why the server would reject the row, or null if the row passes the checks
+     */
+    String validate(DynaBean row) {
+        final String error = getError(row);
+        if (error != null) {
+            this.rejectedRows++;
+        }
+        return error;
+    }
+
+    /**
+     * Checks the row like {@link #validate(DynaBean)} without counting it as rejected.
+     */
+    String getError(DynaBean row) {
+        final List<String> missingFields = new ArrayList<String>();
+        for (Field field : this.fields) {
+            final Object value = row.get(field.getName());
+            final String error;
+            if (value == null || (value instanceof String && ((String)value).isEmpty())) {
+                if (isRequiredOnInsert(field)) {
+                    missingFields.add(field.getName());
+                }
+                continue;
+            } else if (value instanceof NATextValue || value instanceof NACalendarValue
+                    || value instanceof NADateOnlyCalendarValue) {
+                // sets the field to null, the server decides
+                continue;
+            }
+            if (!isWritable(field)) {
+                error = getMessage("fieldNotWritable", field.getName());
+            } else if (value instanceof String) {
+                error = validateString(field, (String)value);
+            } else if (value instanceof Number) {
+                error = validateNumber(field, (Number)value);
+            } else {
+                error = null;
+            }
+            if (error != null) {
+                return error;
+            }
+        }
+        if (!missingFields.isEmpty()) {
+            return getMessage("requiredFieldMissing", String.join(", ", missingFields));
+        }
+        return null;
+    }
+
+    /**
+     * @return number of rows that failed validation
+     */
+    long getRejectedRows() {
+        return this.rejectedRows;
+    }
+
+    /**
+     * @return approximate number of API requests, or Bulk batches, that rejected rows did not use
+     */
+    long getSavedRequests() {
+        return (this.rejectedRows + this.rowsPerRequest - 1) / this.rowsPerRequest;
+    }
+
+    private boolean isRequiredOnInsert(Field field) {
+        return this.operation == OperationInfo.insert
+                && field.isCreateable() && !field.isNillable() && !field.isDefaultedOnCreate()
+                // references can be set through a related object's external id
+                && field.getType() != FieldType.reference && field.getType() != FieldType._boolean;
+    }
+
+    private boolean isWritable(Field field) {
+        if ("Id".equalsIgnoreCase(field.getName())) {
+            return true;
+        }
+        switch (this.operation) {
+        case insert:
+            return field.isCreateable();
+        case update:
+            return field.isUpdateable();
+        default:
+            return field.isCreateable() || field.isUpdateable();
+        }
+    }
+
+    private String validateString(Field field, String value) {
+        if (this.checkLength && field.getLength() > 0 && isTextType(field.getType())
+                && value.codePointCount(0, value.length()) > field.getLength()) {
+            return getMessage("stringTooLong", field.getName(), value.codePointCount(0, value.length()),
+                    field.getLength());
+        }
+        final Set<String> allowedValues = this.restrictedPicklistValues.get(field.getName());
+        if (allowedValues != null) {
+            final String[] values = field.getType() == FieldType.multipicklist ? value.split(";") : new String[] {value};
+            for (String picklistValue : values) {
+                if (!allowedValues.contains(picklistValue.strip())) {
+                    return getMessage("badRestrictedPicklistValue", field.getName(), picklistValue);
+                }
+            }
+        }
+        return null;
+    }
+
+    private String validateNumber(Field field, Number value) {
+        final int maxIntegerDigits;
+        switch (field.getType()) {
+        case _int:
+            maxIntegerDigits = field.getDigits();
+            break;
+        case _double:
+        case currency:
+        case percent:
+            maxIntegerDigits = field.getPrecision() - field.getScale();
+            break;
+        default:
+            return null;
+        }
+        final BigDecimal decimal = new BigDecimal(value.toString());
+        final int integerDigits = Math.max(decimal.precision() - decimal.scale(), 0);
+        if (maxIntegerDigits > 0 && integerDigits > maxIntegerDigits) {
+            return getMessage("numberOutsideValidRange", field.getName(), value, maxIntegerDigits);
+        }
+        return null;
+    }
+
+    private static boolean isTextType(FieldType type) {
+        switch (type) {
+        case string:
+        case textarea:
+        case phone:
+        case email:
+        case url:
+        case picklist:
+        case multipicklist:
+        case combobox:
+        case encryptedstring:
+            return true;
+        default:
+            return false;
+        }
+    }
+
+    private String getMessage(String key, Object... args) {
+        return Messages.getMessage(getClass(), key, args);
+    }
+}
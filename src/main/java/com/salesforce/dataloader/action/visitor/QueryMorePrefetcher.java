@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.Closeable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.client.PartnerClient;
+import com.salesforce.dataloader.util.NamedThreadFactory;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.ws.ConnectionException;
+
+/**
+ * Requests the next page of SOAP query results while the current page is being processed.
+ * 
+ * At most one queryMore call is in flight. It is sent on a background thread as soon as the
+ * current page is handed out, so pages are returned in order and no more than two pages are
+ * held in memory at a time.
+ */
+class QueryMorePrefetcher implements Closeable {
+    private static final Logger logger = LogManager.getLogger(QueryMorePrefetcher.class);
+
+    private final PartnerClient client;
+    private final AdaptiveQueryBatchSize adaptiveBatchSize;
+    private final ExecutorService fetchExecutor;
+    private QueryResult firstPage;
+    private Future<QueryResult> nextPage;
+    // guards the batch size of the shared client against fetches still running after close
+    private final Object batchSizeLock = new Object();
+    private boolean closed = false;
+
+    /**
+     * @param adaptiveBatchSize picks the batch size of each queryMore call, or null to keep the
+     * configured batch size
+     */
+    QueryMorePrefetcher(PartnerClient client, QueryResult firstPage, AdaptiveQueryBatchSize adaptiveBatchSize) {
+        this.client = client;
+        this.firstPage = firstPage;
+        this.adaptiveBatchSize = adaptiveBatchSize;
+        this.fetchExecutor = Executors.newSingleThreadExecutor(new NamedThreadFactory("queryMorePrefetch"));
+    }
+
+    /**
+     * @return the next page of query results, or null if all pages have been returned
+     */
+    QueryResult nextPage() throws ConnectionException {
+        final QueryResult page;
+        if (this.firstPage != null) {
+            page = this.firstPage;
+            this.firstPage = null;
+        } else if (this.nextPage != null) {
+            page = waitForNextPage();
+        } else {
+            return null;
+        }
+        this.nextPage = null;
+        if (!page.isDone()) {
+            final String locator = page.getQueryLocator();
+            this.nextPage = this.fetchExecutor.submit(() -> queryMore(locator));
+        }
+        return page;
+    }
+
+    @Override
+    public void close() {
+        this.fetchExecutor.shutdownNow();
+        if (this.adaptiveBatchSize != null) {
+            synchronized (this.batchSizeLock) {
+                this.closed = true;
+                this.client.resetQueryBatchSize();
+            }
+        }
+    }
+
+    private QueryResult waitForNextPage() throws ConnectionException {
+        try {
+            return this.nextPage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException("Interrupted while waiting for query results", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ConnectionException) {
+                throw (ConnectionException)cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+            throw new ConnectionException("Failed to get query results", cause);
+        }
+    }
+
+    private QueryResult queryMore(String locator) throws ConnectionException {
+        if (this.adaptiveBatchSize == null) {
+            return this.client.queryMore(locator);
+        }
+        final int batchSize = this.adaptiveBatchSize.getBatchSize();
+        synchronized (this.batchSizeLock) {
+            if (this.closed) {
+                throw new ConnectionException("Query results prefetcher is closed");
+            }
+            this.client.setQueryBatchSize(batchSize);
+        }
+        final long start = System.currentTimeMillis();
+        final QueryResult page = this.client.queryMore(locator);
+        final int recordsReturned = page.getRecords() == null ? 0 : page.getRecords().length;
+        final int nextBatchSize = this.adaptiveBatchSize.pageReceived(batchSize, recordsReturned,
+                System.currentTimeMillis() - start, page.isDone());
+        if (nextBatchSize != batchSize) {
+            logger.debug("Changing query batch size from " + batchSize + " to " + nextBatchSize);
+        }
+        return page;
+    }
+}
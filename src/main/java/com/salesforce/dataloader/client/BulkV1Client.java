@@ -61,6 +61,7 @@ public class BulkV1Client extends ClientBase<BulkV1Connection> {
         try {
             // Set up a connection object with the given config
             this.client = new BulkV1Connection(cc);
+            this.client.setRetryPolicy(this.controller.getRetryPolicy());
         } catch (AsyncApiException e) {
             logger.error(Messages.getMessage(getClass(), "loginError", cc.getAuthEndpoint(), e.getExceptionMessage()),
                     e);
@@ -53,6 +53,7 @@ public class BulkV2Client extends ClientBase<BulkV2Connection> {
         try {
             // Set up a connection object with the given config
             this.client = new BulkV2Connection(cc);
+            this.client.setRetryPolicy(this.controller.getRetryPolicy());
 
         } catch (AsyncApiException e) {
             logger.error(Messages.getMessage(getClass(), "loginError", cc.getAuthEndpoint(), e.getExceptionMessage()),
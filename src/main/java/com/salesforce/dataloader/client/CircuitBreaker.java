@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+/**
+ * Stops all callers from sending requests for a while once the server keeps failing. Every caller that records a
+ * failure while the breaker is open, or the first one after it closes again, opens it for another pause.
+ */
+public class CircuitBreaker {
+
+    private final int failureThreshold;
+    private final long pauseMillis;
+    private int consecutiveFailures = 0;
+    private long openUntil = 0;
+
+    /**
+     * @param failureThreshold number of consecutive failures that open the breaker, the breaker never opens if 0
+     *                         or less
+     * @param pauseMillis      how long the breaker stays open
+     */
+    public CircuitBreaker(int failureThreshold, long pauseMillis) {
+        this.failureThreshold = failureThreshold;
+        this.pauseMillis = Math.max(0, pauseMillis);
+    }
+
+    public synchronized void recordSuccess() {
+        this.consecutiveFailures = 0;
+    }
+
+    /**
+     * @return true if this failure opened the breaker
+     */
+    public synchronized boolean recordFailure() {
+        if (this.failureThreshold <= 0) {
+            return false;
+        }
+        this.consecutiveFailures++;
+        if (this.consecutiveFailures < this.failureThreshold) {
+            return false;
+        }
+        // keep the count so that the next failure after the pause opens the breaker again
+        this.consecutiveFailures = this.failureThreshold - 1;
+        this.openUntil = System.currentTimeMillis() + this.pauseMillis;
+        return true;
+    }
+
+    public synchronized boolean isOpen() {
+        return getRemainingPauseMillis() > 0;
+    }
+
+    public synchronized long getRemainingPauseMillis() {
+        return Math.max(0, this.openUntil - System.currentTimeMillis());
+    }
+
+    /**
+     * Blocks while the breaker is open.
+     */
+    public void awaitClosed() throws InterruptedException {
+        long remaining;
+        while ((remaining = getRemainingPauseMillis()) > 0) {
+            Thread.sleep(remaining);
+        }
+    }
+}
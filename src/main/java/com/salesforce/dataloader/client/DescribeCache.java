@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import javax.xml.namespace.QName;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.util.NamedThreadFactory;
+import com.sforce.soap.partner.DescribeGlobalResult;
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.ws.ConnectionException;
+import com.sforce.ws.bind.TypeMapper;
+import com.sforce.ws.bind.XMLizable;
+import com.sforce.ws.parser.PullParserException;
+import com.sforce.ws.parser.XmlInputStream;
+import com.sforce.ws.parser.XmlOutputStream;
+import com.sforce.ws.wsdl.Constants;
+
+/**
+ * Keeps sobject describes on disk so that later processes working with the same org, user and API
+ * version do not have to describe the objects again. Describes are kept per user because they only
+ * show the fields and permissions the user has access to. Describes are stored in the XML form of
+ * the partner API, one file per sobject plus one for the describeGlobal result, and are used until
+ * they are older than the time to live.
+ */
+class DescribeCache {
+    private static final Logger logger = LogManager.getLogger(DescribeCache.class);
+    // bump when the layout or the format of the files changes
+    private static final String FORMAT_VERSION = "v2";
+    private static final String FILE_EXTENSION = ".xml";
+    // sobject names start with a letter, so this file is never taken for an sobject describe
+    private static final String DESCRIBE_GLOBAL_FILE = "_describeGlobal" + FILE_EXTENSION;
+    private static final String PARTNER_NS = "urn:partner.soap.sforce.com";
+    private static final QName RESULT_ELEMENT = new QName(PARTNER_NS, "result");
+    private static final Pattern ENTITY_NAME = Pattern.compile("\\w+");
+
+    private final Path dir;
+    private final String orgId;
+    private final String userId;
+    private final String apiVersion;
+    private final long ttlMillis;
+
+    /**
+     * @param rootDir directory holding the describes of all orgs, users and API versions
+     */
+    DescribeCache(File rootDir, String orgId, String userId, String apiVersion, long ttlMillis) {
+        this.dir = rootDir.toPath().resolve(FORMAT_VERSION).resolve(orgId).resolve(userId).resolve(apiVersion);
+        this.orgId = orgId;
+        this.userId = userId;
+        this.apiVersion = apiVersion;
+        this.ttlMillis = ttlMillis;
+    }
+
+    boolean isFor(String orgId, String userId, String apiVersion) {
+        return this.orgId.equals(orgId) && this.userId.equals(userId) && this.apiVersion.equals(apiVersion);
+    }
+
+    /**
+     * Reads the describes that have not expired yet, several files at a time.
+     * 
+     * @return the describes by sobject name
+     */
+    Map<String, DescribeSObjectResult> loadAll(int threads) {
+        final Map<String, DescribeSObjectResult> describes = new HashMap<String, DescribeSObjectResult>();
+        final File[] files = this.dir.toFile().listFiles((d, name) -> name.endsWith(FILE_EXTENSION)
+                && !DESCRIBE_GLOBAL_FILE.equals(name));
+        if (files == null || files.length == 0) {
+            return describes;
+        }
+        final long oldest = System.currentTimeMillis() - this.ttlMillis;
+        final List<Path> freshFiles = new ArrayList<Path>();
+        for (final File file : files) {
+            if (file.lastModified() >= oldest) {
+                freshFiles.add(file.toPath());
+            }
+        }
+        if (freshFiles.isEmpty()) {
+            return describes;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, freshFiles.size()),
+                new NamedThreadFactory("describeCacheLoad"));
+        try {
+            final List<Future<DescribeSObjectResult>> results = new ArrayList<Future<DescribeSObjectResult>>();
+            for (final Path file : freshFiles) {
+                results.add(executor.submit(() -> read(file, new DescribeSObjectResult())));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                try {
+                    final DescribeSObjectResult result = results.get(i).get();
+                    describes.put(result.getName(), result);
+                } catch (ExecutionException e) {
+                    logger.warn("Ignoring unreadable describe " + freshFiles.get(i) + ": " + e.getCause().getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.debug("Loaded " + describes.size() + " describes from " + this.dir);
+        return describes;
+    }
+
+    /**
+     * Saves the describe, replacing the one saved earlier for the same sobject.
+     */
+    void put(DescribeSObjectResult result) {
+        final String name = result.getName();
+        if (name == null || !ENTITY_NAME.matcher(name).matches()) {
+            return;
+        }
+        save(name + FILE_EXTENSION, result);
+    }
+
+    /**
+     * @return the describeGlobal result saved earlier, or null if there is none or it has expired
+     */
+    DescribeGlobalResult getDescribeGlobal() {
+        final File file = this.dir.resolve(DESCRIBE_GLOBAL_FILE).toFile();
+        if (!file.isFile() || file.lastModified() < System.currentTimeMillis() - this.ttlMillis) {
+            return null;
+        }
+        try {
+            return read(file.toPath(), new DescribeGlobalResult());
+        } catch (IOException | ConnectionException e) {
+            logger.warn("Ignoring unreadable describe " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Saves the describeGlobal result, replacing the one saved earlier.
+     */
+    void putDescribeGlobal(DescribeGlobalResult result) {
+        save(DESCRIBE_GLOBAL_FILE, result);
+    }
+
+    private void save(String fileName, XMLizable result) {
+        try {
+            Files.createDirectories(this.dir);
+            final Path file = this.dir.resolve(fileName);
+            final Path tempFile = Files.createTempFile(this.dir, fileName, ".tmp");
+            try {
+                try (OutputStream out = Files.newOutputStream(tempFile)) {
+                    write(result, out);
+                }
+                try {
+                    Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        } catch (IOException e) {
+            logger.warn("Unable to save describe " + fileName + " to " + this.dir + ": " + e.getMessage());
+        }
+    }
+
+    private static void write(XMLizable result, OutputStream out) throws IOException {
+        final XmlOutputStream xml = new XmlOutputStream(out, false);
+        xml.startDocument();
+        xml.setPrefix("xsd", Constants.SCHEMA_NS);
+        xml.setPrefix("xsi", Constants.SCHEMA_INSTANCE_NS);
+        xml.setPrefix("", PARTNER_NS);
+        result.write(RESULT_ELEMENT, xml, new TypeMapper());
+        xml.endDocument();
+        xml.flush();
+    }
+
+    private static <T extends XMLizable> T read(Path file, T result) throws IOException, ConnectionException {
+        try (InputStream in = Files.newInputStream(file)) {
+            final XmlInputStream xml = new XmlInputStream();
+            xml.setInput(in, "UTF-8");
+            result.load(xml, new TypeMapper());
+            return result;
+        } catch (PullParserException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+}
@@ -29,10 +29,15 @@ import java.io.*;
 import java.net.*;
 import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
 import org.apache.http.*;
 import org.apache.http.auth.*;
 import org.apache.http.client.CredentialsProvider;
@@ -44,11 +49,23 @@ import org.apache.http.client.methods.HttpPatch;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.client.methods.HttpPut;
 import org.apache.http.client.protocol.HttpClientContext;
-import org.apache.http.entity.BufferedHttpEntity;
+import org.apache.http.config.ConnectionConfig;
+import org.apache.http.config.Registry;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.HttpConnectionFactory;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.AbstractHttpEntity;
 import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
+import org.apache.http.entity.FileEntity;
+import org.apache.http.entity.HttpEntityWrapper;
 import org.apache.http.entity.InputStreamEntity;
 
+import com.salesforce.dataloader.exception.ServiceUnavailableException;
 import com.sforce.ws.ConnectorConfig;
 import com.sforce.ws.tools.VersionInfo;
 import com.sforce.ws.transport.*;
@@ -56,6 +73,9 @@ import com.sforce.ws.transport.*;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.BasicHttpClientConnectionManager;
+import org.apache.http.impl.conn.ManagedHttpClientConnectionFactory;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 /**
  * This class implements the Transport interface for WSC with HttpClient in order to properly work
@@ -67,14 +87,57 @@ import org.apache.http.impl.client.HttpClientBuilder;
  */
 public class HttpClientTransport implements HttpTransportInterface {
 
-    private static ConnectorConfig currentConfig = null;
+    private static final int VALIDATE_AFTER_INACTIVITY_MS = 2000;
+    private static final int IN_MEMORY_RESPONSE_SIZE = 64 * 1024;
+    // one socket factory for all pools so that TLS sessions are resumed across them
+    private static final Registry<ConnectionSocketFactory> SOCKET_FACTORIES = RegistryBuilder
+            .<ConnectionSocketFactory>create()
+            .register("http", PlainConnectionSocketFactory.getSocketFactory())
+            .register("https", SSLConnectionSocketFactory.getSystemSocketFactory())
+            .build();
+    private static final HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection> CONNECTION_FACTORY =
+            new HttpConnectionFactory<HttpRoute, ManagedHttpClientConnection>() {
+        @Override
+        public ManagedHttpClientConnection create(HttpRoute route, ConnectionConfig config) {
+            connectionsOpened.incrementAndGet();
+            return ManagedHttpClientConnectionFactory.INSTANCE.create(route, config);
+        }
+    };
+    private static final int MAX_POOLED_CLIENTS = 8;
+    // pooled clients are kept per proxy setup, the least recently used one is closed when there are too many
+    private static final Map<String, CloseableHttpClient> pooledHttpClients =
+            new LinkedHashMap<String, CloseableHttpClient>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CloseableHttpClient> eldest) {
+            if (size() <= MAX_POOLED_CLIENTS) {
+                return false;
+            }
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(HttpClientTransport::closeConnections,
+                "HttpClientTransport-shutdown"));
+    }
+
+    private ConnectorConfig currentConfig = null;
     private boolean successful;
     private HttpEntityEnclosingRequestBase httpMethod;
     private OutputStream output;
     private ByteArrayOutputStream entityByteOut;
-    private static CloseableHttpClient currentHttpClient = null;
-    private static boolean reuseConnection = true;
-    private static long serverInvocationCount = 0;
+    private CountingOutputStream requestContentCounter;
+    private static volatile boolean reuseConnection = true;
+    private static volatile int maxConnectionsPerRoute = 10;
+    private static volatile int idleConnectionTimeoutSecs = 30;
+    private static volatile long responseSpillThresholdBytes = 0;
+    private static volatile boolean compressUploads = false;
+    private static final AtomicLong serverInvocationCount = new AtomicLong();
+    private static final AtomicLong requestsSent = new AtomicLong();
+    private static final AtomicLong connectionsOpened = new AtomicLong();
 
     public HttpClientTransport() {
     }
@@ -84,15 +147,7 @@ public class HttpClientTransport implements HttpTransportInterface {
     }
 
     @Override
-    public synchronized void setConfig(ConnectorConfig newConfig) {
-        if (!areEquivalentConfigs(currentConfig, newConfig) && currentHttpClient != null) {
-            try {
-                currentHttpClient.close();
-            } catch (IOException ex) {
-                // do nothing
-            }
-            currentHttpClient = null;
-        }
+    public void setConfig(ConnectorConfig newConfig) {
         currentConfig = newConfig;
     }
     
@@ -110,140 +165,183 @@ public class HttpClientTransport implements HttpTransportInterface {
 
         return connect(url, header);
     }
-        
-    private boolean areEquivalentConfigs(ConnectorConfig config1, ConnectorConfig config2) {
-        if (config1 == null && config2 == null) {
-            return true;
-        } else if (config1 == null || config2 == null) {
-            // one of the configs is null, other isn't. They can't be equal.
-            return false;
-        } else if (config1.equals(config2)) {
-            return true;
-        }
-        
-        InetSocketAddress socketAddress1 = (InetSocketAddress)config1.getProxy().address();
-        InetSocketAddress socketAddress2 = (InetSocketAddress)config2.getProxy().address();
 
-        if (socketAddress1 == null && socketAddress2 == null) {
-            return true;
-        } else if (socketAddress1 == null || socketAddress2 == null) {
-            return false;
-        } else {
-            String field1, field2;
-            field1 = config1.getProxyUsername() == null ? "" : config1.getProxyUsername();
-            field2 = config2.getProxyUsername() == null ? "" : config2.getProxyUsername();      
-            if (field1.compareTo(field2) != 0) {
-                return false;
-            }
-            
-            field1 = config1.getProxyPassword() == null ? "" : config1.getProxyPassword();
-            field2 = config2.getProxyPassword() == null ? "" : config2.getProxyPassword();
-            if (field1.compareTo(field2) != 0) {
-                return false;
-            }
-    
-            field1 = config1.getNtlmDomain() == null ? "" : config1.getNtlmDomain();
-            field2 = config2.getNtlmDomain() == null ? "" : config2.getNtlmDomain();
-            if (field1.compareTo(field2) != 0) {
-                return false;
-            }
-    
-            field1 = socketAddress1.getHostName() == null ? "" : socketAddress1.getHostName();
-            field2 = socketAddress2.getHostName() == null ? "" : socketAddress2.getHostName();
-            if (field1.compareTo(field2) != 0) {
-                return false;
-            }
-            
-            int intField1 = socketAddress1.getPort();
-            int intField2 = socketAddress2.getPort();
-            if (intField1 != intField2) {
-                return false;
+    private static CloseableHttpClient getPooledHttpClient(ConnectorConfig config) throws UnknownHostException {
+        synchronized (pooledHttpClients) {
+            final String key = getPoolKey(config);
+            CloseableHttpClient httpClient = pooledHttpClients.get(key);
+            if (httpClient == null) {
+                PoolingHttpClientConnectionManager connectionManager =
+                        new PoolingHttpClientConnectionManager(SOCKET_FACTORIES, CONNECTION_FACTORY);
+                connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+                // the login and instance servers are the routes in use
+                connectionManager.setMaxTotal(2 * maxConnectionsPerRoute);
+                connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY_MS);
+                HttpClientBuilder httpClientBuilder = createHttpClientBuilder(config)
+                        .setConnectionManager(connectionManager)
+                        .evictExpiredConnections()
+                        .evictIdleConnections(idleConnectionTimeoutSecs, TimeUnit.SECONDS);
+                httpClient = httpClientBuilder.build();
+                pooledHttpClients.put(key, httpClient);
             }
+            return httpClient;
         }
-        return true;
     }
-    
-    private static synchronized void initializeHttpClient() throws UnknownHostException {
-        if (!isReuseConnection()) {
-            closeConnections();
-            currentHttpClient = null;
+
+    /**
+     * Returns the key of the pool for the config. Only the proxy settings go into the client of a pool,
+     * configs that share them share the pool.
+     */
+    private static String getPoolKey(ConnectorConfig config) {
+        StringBuilder key = new StringBuilder();
+        key.append(config.getProxy().address()).append('|')
+            .append(config.getProxyUsername()).append('|')
+            .append(config.getProxyPassword() == null ? 0 : config.getProxyPassword().hashCode()).append('|')
+            .append(config.getNtlmDomain());
+        return key.toString();
+    }
+
+    private static void closeQuietly(CloseableHttpClient httpClient) {
+        try {
+            httpClient.close();
+        } catch (IOException ex) {
+            // do nothing
         }
-        if (currentHttpClient == null) {
-            HttpClientBuilder httpClientBuilder = HttpClientBuilder.create().useSystemProperties();
-            
-            if (currentConfig.getProxy().address() != null) {
-                String proxyUser = currentConfig.getProxyUsername() == null ? "" : currentConfig.getProxyUsername();
-                String proxyPassword = currentConfig.getProxyPassword() == null ? "" : currentConfig.getProxyPassword();
-
-                Credentials credentials;
-
-                if (currentConfig.getNtlmDomain() != null && !currentConfig.getNtlmDomain().equals("")) {
-                    String computerName = InetAddress.getLocalHost().getCanonicalHostName();
-                    credentials = new NTCredentials(proxyUser, proxyPassword, computerName, currentConfig.getNtlmDomain());
-                } else {
-                    credentials = new UsernamePasswordCredentials(proxyUser, proxyPassword);
-                }
+    }
+
+    private static HttpClientBuilder createHttpClientBuilder(ConnectorConfig config) throws UnknownHostException {
+        HttpClientBuilder httpClientBuilder = HttpClientBuilder.create().useSystemProperties();
+        
+        if (config.getProxy().address() != null) {
+            String proxyUser = config.getProxyUsername() == null ? "" : config.getProxyUsername();
+            String proxyPassword = config.getProxyPassword() == null ? "" : config.getProxyPassword();
 
-                InetSocketAddress proxyAddress = (InetSocketAddress) currentConfig.getProxy().address();
-                HttpHost proxyHost = new HttpHost(proxyAddress.getHostName(), proxyAddress.getPort(), "http");
-                httpClientBuilder.setProxy(proxyHost);
+            Credentials credentials;
 
-                CredentialsProvider credentialsprovider = new BasicCredentialsProvider();
-                AuthScope scope = new AuthScope(proxyAddress.getHostName(), proxyAddress.getPort(), null, null);
-                credentialsprovider.setCredentials(scope, credentials);
-                httpClientBuilder.setDefaultCredentialsProvider(credentialsprovider);
+            if (config.getNtlmDomain() != null && !config.getNtlmDomain().equals("")) {
+                String computerName = InetAddress.getLocalHost().getCanonicalHostName();
+                credentials = new NTCredentials(proxyUser, proxyPassword, computerName, config.getNtlmDomain());
+            } else {
+                credentials = new UsernamePasswordCredentials(proxyUser, proxyPassword);
             }
 
-            currentHttpClient = httpClientBuilder.build();
+            InetSocketAddress proxyAddress = (InetSocketAddress) config.getProxy().address();
+            HttpHost proxyHost = new HttpHost(proxyAddress.getHostName(), proxyAddress.getPort(), "http");
+            httpClientBuilder.setProxy(proxyHost);
+
+            CredentialsProvider credentialsprovider = new BasicCredentialsProvider();
+            AuthScope scope = new AuthScope(proxyAddress.getHostName(), proxyAddress.getPort(), null, null);
+            credentialsprovider.setCredentials(scope, credentials);
+            httpClientBuilder.setDefaultCredentialsProvider(credentialsprovider);
         }
+        return httpClientBuilder;
     }
     
     @Override
     public synchronized InputStream getContent() throws IOException {
-        serverInvocationCount++;
-        initializeHttpClient();
+        serverInvocationCount.incrementAndGet();
+        final boolean reuse = isReuseConnection();
+        final CloseableHttpClient httpClient = reuse ? getPooledHttpClient(currentConfig)
+                : createHttpClientBuilder(currentConfig).setConnectionManager(
+                        new BasicHttpClientConnectionManager(SOCKET_FACTORIES, CONNECTION_FACTORY)).build();
     	if (this.httpMethod.getEntity() == null) {
 	        byte[] entityBytes = entityByteOut.toByteArray();
 	        HttpEntity entity = new ByteArrayEntity(entityBytes);
 	    	currentConfig.setUseChunkedPost(false);
 	    	this.httpMethod.setEntity(entity);
     	}
-        InputStream input;
+        CloseableHttpResponse response = null;
+        ResponseInputStream content = null;
         try {
             HttpClientContext context = HttpClientContext.create();
-            RequestConfig config = RequestConfig.custom().setExpectContinueEnabled(currentConfig.useChunkedPost()).build();
+            RequestConfig config = RequestConfig.custom().setExpectContinueEnabled(currentConfig.useChunkedPost())
+                    // do not wait forever for a pooled connection that a caller did not release
+                    .setConnectionRequestTimeout(currentConfig.getConnectionTimeout())
+                    .build();
             context.setRequestConfig(config);
     
             if (currentConfig.getNtlmDomain() != null && !currentConfig.getNtlmDomain().equals("")) {
                 // need to send a HEAD request to trigger NTLM authentication
-                try (CloseableHttpResponse ignored = currentHttpClient.execute(new HttpHead("http://salesforce.com"))) {
+                requestsSent.incrementAndGet();
+                try (CloseableHttpResponse ignored = httpClient.execute(new HttpHead("http://salesforce.com"))) {
                 }
             }
     
-            try (CloseableHttpResponse response = currentHttpClient.execute(this.httpMethod, context)) {
-                successful = true;
-                if (response.getStatusLine().getStatusCode() > 399) {
-                    successful = false;
-                    if (response.getStatusLine().getStatusCode() == 407) {
-                        throw new RuntimeException(response.getStatusLine().getStatusCode() + " " + response.getStatusLine().getReasonPhrase());
-                    }
+            requestsSent.incrementAndGet();
+            response = httpClient.execute(this.httpMethod, context);
+            successful = true;
+            if (response.getStatusLine().getStatusCode() > 399) {
+                successful = false;
+                if (response.getStatusLine().getStatusCode() == 407) {
+                    throw new RuntimeException(response.getStatusLine().getStatusCode() + " " + response.getStatusLine().getReasonPhrase());
                 }
-                // copy input stream data into a new input stream because releasing the connection will close the input stream
-                ByteArrayOutputStream bOut = new ByteArrayOutputStream();
-                try (InputStream inStream = response.getEntity().getContent()) {
-                    IOUtils.copy(inStream, bOut);
-                    input = new ByteArrayInputStream(bOut.toByteArray());
-                    if (response.containsHeader("Content-Encoding") && response.getHeaders("Content-Encoding")[0].getValue().equals("gzip")) {
-                        input = new GZIPInputStream(input);
-                    }
+                if (response.getStatusLine().getStatusCode() == HttpStatus.SC_SERVICE_UNAVAILABLE
+                        || response.getStatusLine().getStatusCode() == HttpStatus.SC_TOO_MANY_REQUESTS) {
+                    final Header retryAfter = response.getFirstHeader(HttpHeaders.RETRY_AFTER);
+                    throw new ServiceUnavailableException(response.getStatusLine().getStatusCode() + " "
+                            + response.getStatusLine().getReasonPhrase(), response.getStatusLine().getStatusCode(),
+                            RetryPolicy.parseRetryAfterMillis(retryAfter == null ? null : retryAfter.getValue()));
                 }
             }
+            InputStream input = response.getEntity() == null ? new ByteArrayInputStream(new byte[0])
+                    : response.getEntity().getContent();
+            if (response.containsHeader("Content-Encoding") && response.getHeaders("Content-Encoding")[0].getValue().equals("gzip")) {
+                input = new GZIPInputStream(input);
+            }
+            // from here on closing the content releases the connection
+            content = new ResponseInputStream(input, response, reuse ? null : httpClient);
+            return bufferContent(content);
+        } finally {
+            if (content == null) {
+                if (response != null) {
+                    response.close();
+                }
+                if (!reuse) {
+                    httpClient.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the start of the response so that the connection is released at once when the whole response fits in
+     * memory. Larger responses are streamed from the connection, or spilled to a temporary file when a spill
+     * threshold is set, and the connection is released when the returned stream is closed.
+     */
+    private static InputStream bufferContent(InputStream input) throws IOException {
+        final long threshold = responseSpillThresholdBytes;
+        final int bufferSize = (int)Math.min(threshold > 0 ? threshold : IN_MEMORY_RESPONSE_SIZE, Integer.MAX_VALUE - 8);
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.min(bufferSize, IN_MEMORY_RESPONSE_SIZE));
+        boolean streaming = false;
+        try {
+            final long buffered = IOUtils.copyLarge(input, buffer, 0, bufferSize);
+            final int next = buffered < bufferSize ? -1 : input.read();
+            if (next < 0) {
+                return new ByteArrayInputStream(buffer.toByteArray());
+            }
+            buffer.write(next);
+            if (threshold <= 0) {
+                streaming = true;
+                return new SequenceInputStream(new ByteArrayInputStream(buffer.toByteArray()), input);
+            }
+            final File spillFile = File.createTempFile("sdl", ".response");
+            spillFile.deleteOnExit();
+            try (OutputStream spill = new BufferedOutputStream(new FileOutputStream(spillFile))) {
+                buffer.writeTo(spill);
+                IOUtils.copyLarge(input, spill);
+            }
+            return new BufferedInputStream(new FileInputStream(spillFile) {
+                @Override
+                public void close() throws IOException {
+                    super.close();
+                    spillFile.delete();
+                }
+            });
         } finally {
-            if (isReuseConnection()) {
-                closeConnections();
+            if (!streaming) {
+                input.close();
             }
         }
-        return input;
     }
 
     @Override
@@ -274,39 +372,57 @@ public class HttpClientTransport implements HttpTransportInterface {
 		doConnect(endpoint, httpHeaders, enableCompression, httpMethod, contentInputStream, contentEncoding);
 	}
 
+    @Override
+    public void connect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression,
+            SupportedHttpMethodType httpMethod, File contentFile, String contentType) throws IOException {
+        createHttpMethod(endpoint, httpHeaders, httpMethod);
+        ContentType type = contentType == null ? ContentType.DEFAULT_TEXT : ContentType.create(contentType);
+        if (enableCompression && isCompressUploads()) {
+            setRequestEntity(new ParallelGzipEntity(new FileInputStream(contentFile), type,
+                    Runtime.getRuntime().availableProcessors()));
+        } else {
+            setRequestEntity(new FileEntity(contentFile, type));
+        }
+    }
+
+    @Override
+    public long getRequestBytesSent() {
+        final CountingOutputStream counter = requestContentCounter;
+        return counter == null ? 0 : counter.getByteCount();
+    }
+
 	public static long getServerInvocationCount() {
-	    return serverInvocationCount;
+	    return serverInvocationCount.get();
 	}
 	
 	public static void resetServerInvocationCount() {
-	    serverInvocationCount = 0;
+	    serverInvocationCount.set(0);
 	}
-	
-    private OutputStream doConnect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression, SupportedHttpMethodType httpMethodType, InputStream requestInputStream, String contentTypeStr) throws IOException {
-    	switch (httpMethodType) {
-    		case PATCH :
-    			this.httpMethod = new HttpPatch(endpoint);
-    			break;
-    		case PUT :
-    			this.httpMethod = new HttpPut(endpoint);
-    			break;
-    		default:
-    			this.httpMethod = new HttpPost(endpoint);
-    	}
-        for (String name : httpHeaders.keySet()) {
-            this.httpMethod.addHeader(name, httpHeaders.get(name));
-        }
 
-        this.httpMethod.addHeader("User-Agent", VersionInfo.info());
+    /**
+     * @return the number of connections opened to the server or proxy
+     */
+    public static long getConnectionsOpened() {
+        return connectionsOpened.get();
+    }
+
+    /**
+     * @return the number of requests sent on a connection that was kept open from an earlier request
+     */
+    public static long getConnectionsReused() {
+        return Math.max(0, requestsSent.get() - connectionsOpened.get());
+    }
+
+    private OutputStream doConnect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression, SupportedHttpMethodType httpMethodType, InputStream requestInputStream, String contentTypeStr) throws IOException {
+        createHttpMethod(endpoint, httpHeaders, httpMethodType);
         
         if (requestInputStream != null) {
         	ContentType contentType = ContentType.DEFAULT_TEXT;
         	if (contentTypeStr != null) {
         		contentType = ContentType.create(contentTypeStr);
         	}
-        	BufferedHttpEntity entity = new BufferedHttpEntity(new InputStreamEntity(requestInputStream, contentType));
-        	currentConfig.setUseChunkedPost(true);
-        	this.httpMethod.setEntity(entity);
+        	// streamed in chunks as it is read instead of being buffered in memory first
+        	setRequestEntity(new InputStreamEntity(requestInputStream, contentType));
         	return null;
         }
 
@@ -338,14 +454,70 @@ public class HttpClientTransport implements HttpTransportInterface {
         return output;
     }
     
-    public static void closeConnections() {
-        if (currentHttpClient != null) {
+    private void createHttpMethod(String endpoint, HashMap<String, String> httpHeaders,
+            SupportedHttpMethodType httpMethodType) {
+    	switch (httpMethodType) {
+    		case PATCH :
+    			this.httpMethod = new HttpPatch(endpoint);
+    			break;
+    		case PUT :
+    			this.httpMethod = new HttpPut(endpoint);
+    			break;
+    		default:
+    			this.httpMethod = new HttpPost(endpoint);
+    	}
+        for (String name : httpHeaders.keySet()) {
+            this.httpMethod.addHeader(name, httpHeaders.get(name));
+        }
+
+        this.httpMethod.addHeader("User-Agent", VersionInfo.info());
+    }
+
+    private void setRequestEntity(AbstractHttpEntity entity) {
+        requestContentCounter = null;
+        // expect 100-continue so that content that cannot be sent twice is not sent to a server refusing it
+        currentConfig.setUseChunkedPost(true);
+        this.httpMethod.setEntity(new HttpEntityWrapper(entity) {
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                requestContentCounter = new CountingOutputStream(out);
+                super.writeTo(requestContentCounter);
+            }
+        });
+    }
+
+    /**
+     * Response content that releases the connection of the response when it is closed.
+     */
+    private static class ResponseInputStream extends FilterInputStream {
+        private final CloseableHttpResponse response;
+        private final CloseableHttpClient httpClient;
+
+        ResponseInputStream(InputStream in, CloseableHttpResponse response, CloseableHttpClient httpClient) {
+            super(in);
+            this.response = response;
+            this.httpClient = httpClient;
+        }
+
+        @Override
+        public void close() throws IOException {
             try {
-                currentHttpClient.close();
-            } catch (IOException ex) {
-                // do nothing
+                super.close();
+            } finally {
+                response.close();
+                if (httpClient != null) {
+                    httpClient.close();
+                }
             }
-            currentHttpClient = null;
+        }
+    }
+
+    public static void closeConnections() {
+        synchronized (pooledHttpClients) {
+            for (CloseableHttpClient httpClient : pooledHttpClients.values()) {
+                closeQuietly(httpClient);
+            }
+            pooledHttpClients.clear();
         }
     }
     
@@ -356,4 +528,37 @@ public class HttpClientTransport implements HttpTransportInterface {
     public static boolean isReuseConnection() {
     	return reuseConnection;
     }
+
+    /**
+     * Sets whether file content sent with compression enabled is gzipped.
+     */
+    public static void setCompressUploads(boolean compress) {
+        compressUploads = compress;
+    }
+
+    public static boolean isCompressUploads() {
+        return compressUploads;
+    }
+
+    /**
+     * Sets the size above which responses are downloaded to a temporary file instead of being streamed from
+     * the connection. Responses are streamed when it is 0.
+     */
+    public static void setResponseSpillThresholdBytes(long thresholdBytes) {
+        responseSpillThresholdBytes = Math.max(0, thresholdBytes);
+    }
+
+    /**
+     * Sets the size of the connection pools created from now on.
+     */
+    public static void setMaxConnectionsPerRoute(int maxConnections) {
+        maxConnectionsPerRoute = Math.max(1, maxConnections);
+    }
+
+    /**
+     * Sets how long pooled connections are kept open without being used, for the pools created from now on.
+     */
+    public static void setIdleConnectionTimeoutSecs(int timeoutSecs) {
+        idleConnectionTimeoutSecs = Math.max(1, timeoutSecs);
+    }
 }
\ No newline at end of file
@@ -26,6 +26,7 @@
 
 package com.salesforce.dataloader.client;
 
+import java.io.File;
 import java.io.OutputStream;
 import java.io.InputStream;
 import java.io.IOException;
@@ -52,4 +53,16 @@ public interface HttpTransportInterface extends Transport {
     void connect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression,
     		HttpTransportInterface.SupportedHttpMethodType httpMethod, InputStream contentInputStream, String contentEncoding) throws IOException;
 
+    /**
+     * Sends the file as the content of the request, gzipped on the fly if compression is enabled and
+     * uploads are configured to be compressed.
+     */
+    void connect(String endpoint, HashMap<String, String> httpHeaders, boolean enableCompression,
+            HttpTransportInterface.SupportedHttpMethodType httpMethod, File contentFile, String contentType) throws IOException;
+
+    /**
+     * @return the number of bytes sent for the file or stream content of the last request
+     */
+    long getRequestBytesSent();
+
 }
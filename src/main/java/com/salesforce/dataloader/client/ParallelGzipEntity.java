@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+
+import com.salesforce.dataloader.util.NamedThreadFactory;
+
+/**
+ * Request entity that gzips its content while it is sent. The content is read in blocks that are deflated
+ * in parallel. Every block but the last one ends with a sync flush, so the deflated blocks are sent in order
+ * as one gzip stream that any gzip decoder reads.
+ */
+class ParallelGzipEntity extends AbstractHttpEntity {
+
+    static final int BLOCK_SIZE = 1024 * 1024;
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte)0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte)0xff };
+
+    private final InputStream content;
+    private final int threads;
+
+    ParallelGzipEntity(InputStream content, ContentType contentType, int threads) {
+        this.content = content;
+        this.threads = Math.max(1, threads);
+        setContentType(contentType.toString());
+        setContentEncoding("gzip");
+        setChunked(true);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    @Override
+    public InputStream getContent() {
+        throw new UnsupportedOperationException("The compressed content is only available through writeTo()");
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return true;
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        final ExecutorService executor = Executors.newFixedThreadPool(this.threads, new NamedThreadFactory("gzipUpload"));
+        final Deque<Future<byte[]>> pending = new ArrayDeque<Future<byte[]>>();
+        final CRC32 crc = new CRC32();
+        long size = 0;
+        try {
+            out.write(GZIP_HEADER);
+            byte[] block = readBlock();
+            do {
+                final byte[] next = block == null ? null : readBlock();
+                final byte[] uncompressed = block == null ? new byte[0] : block;
+                final boolean last = next == null;
+                pending.add(executor.submit(() -> deflate(uncompressed, last)));
+                crc.update(uncompressed);
+                size += uncompressed.length;
+                // keep every thread busy without reading far ahead of the connection
+                if (pending.size() >= 2 * this.threads) {
+                    out.write(take(pending.poll()));
+                }
+                block = next;
+            } while (block != null);
+            while (!pending.isEmpty()) {
+                out.write(take(pending.poll()));
+            }
+            writeIntLE(out, (int)crc.getValue());
+            writeIntLE(out, (int)size);
+        } finally {
+            executor.shutdownNow();
+            this.content.close();
+        }
+    }
+
+    private byte[] readBlock() throws IOException {
+        final byte[] block = new byte[BLOCK_SIZE];
+        final int length = IOUtils.read(this.content, block);
+        if (length == 0) {
+            return null;
+        }
+        return length < BLOCK_SIZE ? Arrays.copyOf(block, length) : block;
+    }
+
+    /**
+     * @return the raw deflated block, ending the deflate stream if it is the last block
+     */
+    static byte[] deflate(byte[] block, boolean last) {
+        final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            final ByteArrayOutputStream deflated = new ByteArrayOutputStream(block.length / 4 + 64);
+            final byte[] buffer = new byte[64 * 1024];
+            deflater.setInput(block);
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflated.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    deflated.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+            return deflated.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    private static byte[] take(Future<byte[]> compressed) throws IOException {
+        try {
+            return compressed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -68,21 +68,35 @@ import org.apache.commons.beanutils.DynaBean;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static com.salesforce.dataloader.ui.UIUtils.validateHttpsUrlAndThrow;
 
 public class PartnerClient extends ClientBase<PartnerConnection> {
 
     private static Logger LOG = LogManager.getLogger(PartnerClient.class);
+    private static final String DEFAULT_SESSION_CACHE_FILE = "sessionCache.properties";
+    private static final String DEFAULT_DESCRIBE_CACHE_DIR = "describeCache";
+    // limit of the describeSObjects call
+    private static final int MAX_SOBJECTS_PER_DESCRIBE = 100;
+    private static final int MAX_PARALLEL_DESCRIBES = 4;
 
     PartnerConnection client;
     private ConnectorConfig connectorConfig = null;
+    private SessionCache sessionCache;
 
     private static interface ClientOperation<RESULT, ARG> {
         String getName();
@@ -223,27 +237,26 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
         }
     };
 
+    private final ClientOperation<DescribeSObjectResult[], String[]> DESCRIBE_SOBJECTS_OPERATION = new ClientOperation<DescribeSObjectResult[], String[]>() {
+        @Override
+        public String getName() {
+            return "describeSObjects";
+        }
+
+        @Override
+        public DescribeSObjectResult[] run(String[] entities) throws ConnectionException {
+            return getClient().describeSObjects(entities);
+        }
+    };
+
     private DescribeGlobalResult describeGlobalResults;
     private final ReferenceEntitiesDescribeMap referenceEntitiesDescribesMap = new ReferenceEntitiesDescribeMap();
     private final Map<String, DescribeGlobalSObjectResult> describeGlobalResultsMap = new HashMap<String, DescribeGlobalSObjectResult>();
     private final Map<String, DescribeSObjectResult> entityFieldDescribesMap = new HashMap<String, DescribeSObjectResult>();
-
-    private final boolean enableRetries;
-    private final int maxRetries;
+    private DescribeCache describeCache;
 
     public PartnerClient(Controller controller) {
         super(controller, LOG);
-        int retries = -1;
-        this.enableRetries = config.getBoolean(Config.ENABLE_RETRIES);
-        if (this.enableRetries) {
-            try {
-                // limit the number of max retries in case limit is exceeded
-                retries = Math.min(Config.MAX_RETRIES_LIMIT, config.getInt(Config.MAX_RETRIES));
-            } catch (ParameterLoadException e) {
-                retries = Config.DEFAULT_MAX_RETRIES;
-            }
-        }
-        this.maxRetries = retries;
     }
 
     public boolean connect() throws ConnectionException {
@@ -257,15 +270,7 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
 
         getClient().setCallOptions(ClientBase.getClientName(this.config), null);
         // query header
-        int querySize;
-        try {
-            querySize = config.getInt(Config.EXTRACT_REQUEST_SIZE);
-        } catch (ParameterLoadException e) {
-            querySize = Config.DEFAULT_EXTRACT_REQUEST_SIZE;
-        }
-        if (querySize > 0) {
-            getClient().setQueryOptions(querySize);
-        }
+        resetQueryBatchSize();
 
         // assignment rule for update
         if (config.getString(Config.ASSIGNMENT_RULE).length() > 14) {
@@ -366,9 +371,10 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
         if (op != this.LOGIN_OPERATION && !isSessionValid()) {
             connect();
         }
-        int totalAttempts = 1 + (this.enableRetries ? this.maxRetries : 0);
-        ConnectionException connectionException = null;
-        for (int tryNum = 0; tryNum < totalAttempts; tryNum++) {
+        // a create, delete or undelete sent again after the server processed it would be applied twice
+        final boolean idempotent = op != this.INSERT_OPERATION && op != this.DELETE_OPERATION
+                && op != this.UNDELETE_OPERATION;
+        return this.controller.getRetryPolicy().execute(op.getName(), idempotent, () -> {
             try {
                 R result = op.run(arg);
                 if (result == null)
@@ -387,12 +393,9 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
                                     "Client.operationError", new String[]{op.getName(), faultMessage}), fault); //$NON-NLS-1$
 
                 }
-                // check retries
-                if (!checkConnectionException(ex, op.getName(), tryNum)) throw ex;
-                connectionException = ex;
+                throw ex;
             }
-        }
-        throw connectionException;
+        });
     }
 
     /**
@@ -453,6 +456,35 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
         return result;
     }
 
+    /**
+     * @return batch size configured for query calls
+     */
+    public int getConfiguredQueryBatchSize() {
+        try {
+            return config.getInt(Config.EXTRACT_REQUEST_SIZE);
+        } catch (ParameterLoadException e) {
+            return Config.DEFAULT_EXTRACT_REQUEST_SIZE;
+        }
+    }
+
+    /**
+     * Sets the batch size of subsequent query, queryAll and queryMore calls
+     *
+     * @param batchSize
+     */
+    public void setQueryBatchSize(int batchSize) {
+        if (batchSize > 0) {
+            getClient().setQueryOptions(batchSize);
+        }
+    }
+
+    /**
+     * Sets the batch size of subsequent query calls back to the configured batch size
+     */
+    public void resetQueryBatchSize() {
+        setQueryBatchSize(getConfiguredQueryBatchSize());
+    }
+
     /**
      * Query next batch of records using the query cursor
      *
@@ -528,11 +560,18 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
     public Map<String, DescribeGlobalSObjectResult> getDescribeGlobalResults() {
         if (this.describeGlobalResults == null || !config.getBoolean(Config.CACHE_DESCRIBE_GLOBAL_RESULTS)) {
             this.describeGlobalResultsMap.clear();
-            try {
-                this.describeGlobalResults = runOperation(DESCRIBE_GLOBAL_OPERATION, null);
-            } catch (ConnectionException e) {
-                logger.error("Failed to get description of sobjects", e.getMessage());
-                return null;
+            final DescribeCache diskCache = getDescribeCache();
+            this.describeGlobalResults = diskCache == null ? null : diskCache.getDescribeGlobal();
+            if (this.describeGlobalResults == null) {
+                try {
+                    this.describeGlobalResults = runOperation(DESCRIBE_GLOBAL_OPERATION, null);
+                } catch (ConnectionException e) {
+                    logger.error("Failed to get description of sobjects", e.getMessage());
+                    return null;
+                }
+                if (diskCache != null && this.describeGlobalResults != null) {
+                    diskCache.putDescribeGlobal(this.describeGlobalResults);
+                }
             }
         }
         
@@ -639,7 +678,9 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
                 conn = setConfiguredSessionId(conn, config.getString(Config.SFDC_INTERNAL_SESSION_ID), null);
             } else {
                 setSessionRenewer(conn);
-                loginInternal(conn);
+                if (!loginWithCachedSession(conn)) {
+                    loginInternal(conn);
+                }
             }
         } catch (Exception ex) {
             throw ex;
@@ -676,6 +717,66 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
         return conn;
     }
 
+    /**
+     * Reuses the session saved by an earlier login with the same username and endpoint.
+     * 
+     * @return true if the saved session is still valid
+     */
+    private boolean loginWithCachedSession(PartnerConnection conn) {
+        final SessionCache cache = getSessionCache();
+        if (cache == null) {
+            return false;
+        }
+        final ConnectorConfig cc = conn.getConfig();
+        final SessionCache.CachedSession session = cache.get(cc.getUsername(), cc.getAuthEndpoint());
+        if (session == null) {
+            return false;
+        }
+        final String savedServiceEndpoint = cc.getServiceEndpoint();
+        try {
+            if (config.getBoolean(Config.RESET_URL_ON_LOGIN)) {
+                cc.setServiceEndpoint(session.getServerUrl());
+            }
+            conn.setSessionHeader(session.getSessionId());
+            final GetUserInfoResult userInfo = conn.getUserInfo(); // check that the session is still valid
+            logger.info(Messages.getMessage(getClass(), "cachedSessionLogin", cc.getAuthEndpoint(), cc.getUsername()));
+            loginSuccess(conn, getServerUrl(session.getServerUrl()), userInfo);
+            cache.put(cc.getUsername(), cc.getAuthEndpoint(), session.getSessionId(), session.getServerUrl(),
+                    userInfo.getSessionSecondsValid());
+            return true;
+        } catch (ConnectionException | RuntimeException e) {
+            if (e instanceof ApiFault && ((ApiFault)e).getExceptionCode() == ExceptionCode.INVALID_SESSION_ID) {
+                logger.info(Messages.getMessage(getClass(), "cachedSessionExpired", cc.getUsername()));
+                cache.remove(cc.getUsername(), cc.getAuthEndpoint());
+            } else {
+                logger.warn(Messages.getMessage(getClass(), "cachedSessionError", cc.getUsername(), e.getMessage()));
+            }
+            cc.setServiceEndpoint(savedServiceEndpoint);
+            conn.clearSessionHeader();
+            return false;
+        }
+    }
+
+    /**
+     * @return the cache of sessions shared with other processes, null if sessions are not cached
+     */
+    private synchronized SessionCache getSessionCache() {
+        if (this.sessionCache == null && config.getBoolean(Config.CACHE_SESSION)) {
+            String cacheFile = config.getString(Config.SESSION_CACHE_FILE);
+            if (cacheFile == null || cacheFile.isBlank()) {
+                cacheFile = Paths.get(System.getProperty("user.home"), ".dataloader", DEFAULT_SESSION_CACHE_FILE)
+                        .toString();
+            }
+            try {
+                this.sessionCache = new SessionCache(new File(cacheFile), config.getString(Config.ENCRYPTION_KEY_FILE));
+            } catch (GeneralSecurityException e) {
+                logger.warn(Messages.getMessage(getClass(), "cachedSessionError", config.getString(Config.USERNAME),
+                        e.getMessage()));
+            }
+        }
+        return this.sessionCache;
+    }
+
     private void loginInternal(final PartnerConnection conn) throws ConnectionException, PasswordExpiredException {
         final ConnectorConfig cc = conn.getConfig();
         cc.setRequestHeader("client_id", config.getString(Config.OAUTH_CLIENTID));
@@ -695,6 +796,11 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
                 cc.setServiceEndpoint(serverUrl);
             }
             loginSuccess(conn, server, loginResult.getUserInfo());
+            final SessionCache cache = getSessionCache();
+            if (cache != null) {
+                cache.put(cc.getUsername(), cc.getAuthEndpoint(), loginResult.getSessionId(), serverUrl,
+                        loginResult.getUserInfo().getSessionSecondsValid());
+            }
         } catch (ConnectionException ex) {
             logger.error(Messages.getMessage(getClass(), "loginError", cc.getAuthEndpoint(), ex.getMessage()), ex);
             throw ex;
@@ -726,7 +832,13 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
     public boolean logout() {
         try {
             PartnerConnection pc = getClient();
-            if (pc != null) pc.logout();
+            if (pc != null) {
+                final SessionCache cache = getSessionCache();
+                if (cache != null) {
+                    cache.remove(pc.getConfig().getUsername(), pc.getConfig().getAuthEndpoint());
+                }
+                pc.logout();
+            }
             
         } catch (ConnectionException e) {
             // ignore
@@ -744,27 +856,6 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
         this.client = null;
     }
 
-    /**
-     * @param operationName
-     */
-    private void retrySleep(String operationName, int retryNum) {
-        int sleepSecs;
-        try {
-            sleepSecs = config.getInt(Config.MIN_RETRY_SLEEP_SECS);
-        } catch (ParameterLoadException e1) {
-            sleepSecs = Config.DEFAULT_MIN_RETRY_SECS;
-        }
-        // sleep between retries is based on the retry attempt #. Sleep for longer periods with each retry
-        sleepSecs = sleepSecs + (retryNum * 10); // sleep for MIN_RETRY_SLEEP_SECS + 10, 20, 30, etc.
-
-        logger.info(Messages.getFormattedString("Client.retryOperation", new String[]{Integer.toString(retryNum + 1),
-                operationName, Integer.toString(sleepSecs)}));
-        try {
-            Thread.sleep(sleepSecs * 1000);
-        } catch (InterruptedException e) { // ignore
-        }
-    }
-
     /**
      * Set the map of references to object external id info for current entity
      *
@@ -777,6 +868,8 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
         }
         if (getDescribeGlobalResults() != null) {
             Field[] entityFields = getFieldTypes().getFields();
+            List<Field> lookupFields = new ArrayList<Field>();
+            Set<String> parentObjectNamesToDescribe = new LinkedHashSet<String>();
 
             for (Field childObjectField : entityFields) {
                 // upsert on references (aka foreign keys) is supported only
@@ -793,25 +886,38 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
                     continue;
                 }
 
-                boolean haSingleParentObject = parentObjectNames.length == 1;
                 if (parentObjectNames.length >= DescribeRefObject.MAX_PARENT_OBJECTS_IN_REFERENCING_FIELD) {
                     childObjectField.setLabel(childObjectField.getLabel() + " (Id)");
                 } else {
-                    processParentObjectArrayForLookupReferences(parentObjectNames, childObjectField, haSingleParentObject);
+                    lookupFields.add(childObjectField);
+                    parentObjectNamesToDescribe.addAll(Arrays.asList(parentObjectNames));
                 }
             }
+
+            // describe all parent objects up front instead of one round trip per lookup field
+            Map<String, DescribeSObjectResult> parentDescribes = describeSObjects(parentObjectNamesToDescribe);
+            for (Field childObjectField : lookupFields) {
+                String[] parentObjectNames = childObjectField.getReferenceTo();
+                processParentObjectArrayForLookupReferences(parentObjectNames, childObjectField, parentObjectNames.length == 1,
+                        parentDescribes);
+            }
         }
     }
     
-    private void processParentObjectArrayForLookupReferences(String[] parentObjectNames, Field childObjectField, boolean haSingleParentObject) throws ConnectionException {
+    private void processParentObjectArrayForLookupReferences(String[] parentObjectNames, Field childObjectField, boolean haSingleParentObject,
+            Map<String, DescribeSObjectResult> parentDescribes) throws ConnectionException {
         for (int parentObjectIndex = 0; parentObjectIndex < parentObjectNames.length; parentObjectIndex++ ) {
             String parentObjectName = parentObjectNames[parentObjectIndex];
-            processParentObjectForLookupReferences(parentObjectName, childObjectField, haSingleParentObject, parentObjectIndex, parentObjectNames.length);
+            DescribeSObjectResult parentDescribe = parentDescribes.get(parentObjectName);
+            if (parentDescribe == null) {
+                parentDescribe = describeSObject(parentObjectName);
+            }
+            processParentObjectForLookupReferences(parentDescribe, parentObjectName, childObjectField, haSingleParentObject, parentObjectIndex, parentObjectNames.length);
         }
     }
     
-    private void processParentObjectForLookupReferences(String parentObjectName, Field childObjectField, boolean haSingleParentObject, int parentObjectIndex, int totalParentObjects) throws ConnectionException {
-        Field[] parentObjectFields = describeSObject(parentObjectName).getFields();
+    private void processParentObjectForLookupReferences(DescribeSObjectResult parentDescribe, String parentObjectName, Field childObjectField, boolean haSingleParentObject, int parentObjectIndex, int totalParentObjects) {
+        Field[] parentObjectFields = parentDescribe.getFields();
         Map<String, Field> parentIdLookupFieldMap = new HashMap<String, Field>();
         for (Field parentField : parentObjectFields) {
             processParentFieldForLookupReference(parentField, childObjectField, haSingleParentObject, parentObjectIndex, totalParentObjects, parentIdLookupFieldMap);
@@ -905,35 +1011,102 @@ public class PartnerClient extends ClientBase<PartnerConnection> {
 
     public DescribeSObjectResult describeSObject(String entity) throws ConnectionException {
         DescribeSObjectResult result = null;
+        final DescribeCache diskCache = getDescribeCache();
         if (config.getBoolean(Config.CACHE_DESCRIBE_GLOBAL_RESULTS)) {
             result = getCachedEntityDescribeMap().get(entity);
         }
         if (result == null) {
             result = runOperation(DESCRIBE_SOBJECT_OPERATION, entity);
             if (result != null) {
-                getCachedEntityDescribeMap().put(result.getName(), result);
+                cacheDescribe(result, diskCache);
             }
         }
         return result;
     }
 
     /**
-     * Checks whether retry makes sense for the given exception and given the number of current vs. max retries. If
-     * retry makes sense, then before returning, this method will put current thread to sleep before allowing another
-     * retry.
+     * Describes the given sobjects, up to {@value #MAX_SOBJECTS_PER_DESCRIBE} per describeSObjects
+     * call and several calls at a time. Sobjects described earlier are taken from the cache.
      *
-     * @param ex
-     * @param operationName
-     * @return true if retry should be executed for operation. false if there's no retry.
+     * @return the describes by sobject name
+     * @throws ConnectionException
      */
-    private boolean checkConnectionException(ConnectionException ex, String operationName, int retryNum) {
-        if (!this.enableRetries) return false;
-        final String msg = ex.getMessage();
-        if (msg != null && msg.toLowerCase().indexOf("connection reset") >= 0) {
-            retrySleep(operationName, retryNum);
-            return true;
+    public Map<String, DescribeSObjectResult> describeSObjects(Collection<String> entities) throws ConnectionException {
+        final Map<String, DescribeSObjectResult> results = new HashMap<String, DescribeSObjectResult>();
+        final DescribeCache diskCache = getDescribeCache();
+        final List<String> toDescribe = new ArrayList<String>();
+        for (String entity : entities) {
+            DescribeSObjectResult result = null;
+            if (config.getBoolean(Config.CACHE_DESCRIBE_GLOBAL_RESULTS)) {
+                result = getCachedEntityDescribeMap().get(entity);
+            }
+            if (result == null) {
+                toDescribe.add(entity);
+            } else {
+                results.put(entity, result);
+            }
+        }
+        if (toDescribe.isEmpty()) {
+            return results;
+        }
+        // log in once here rather than from each of the parallel calls
+        if (!isSessionValid()) {
+            connect();
+        }
+        final SObjectDescriber describer = new SObjectDescriber(MAX_SOBJECTS_PER_DESCRIBE, MAX_PARALLEL_DESCRIBES,
+                names -> runOperation(DESCRIBE_SOBJECTS_OPERATION, names),
+                name -> runOperation(DESCRIBE_SOBJECT_OPERATION, name));
+        for (DescribeSObjectResult result : describer.describe(toDescribe)) {
+            if (result != null) {
+                cacheDescribe(result, diskCache);
+                results.put(result.getName(), result);
+            }
+        }
+        return results;
+    }
+
+    private void cacheDescribe(DescribeSObjectResult result, DescribeCache diskCache) {
+        getCachedEntityDescribeMap().put(result.getName(), result);
+        if (diskCache != null) {
+            diskCache.put(result);
+        }
+    }
+
+    /**
+     * Loads the describes saved on disk for the org, user and API version of the session the first
+     * time it is called for them.
+     * 
+     * @return the describes saved on disk for the session, null if describes are not saved
+     */
+    private synchronized DescribeCache getDescribeCache() {
+        if (!config.getBoolean(Config.CACHE_DESCRIBE_GLOBAL_RESULTS) || !config.getBoolean(Config.PERSIST_DESCRIBES)) {
+            return null;
+        }
+        final GetUserInfoResult userInfo = getSession().getUserInfoResult();
+        if (userInfo == null || userInfo.getOrganizationId() == null || userInfo.getUserId() == null) {
+            return null;
+        }
+        final String orgId = userInfo.getOrganizationId();
+        final String userId = userInfo.getUserId();
+        final String apiVersion = getAPIVersion();
+        if (this.describeCache == null || !this.describeCache.isFor(orgId, userId, apiVersion)) {
+            String cacheDir = config.getString(Config.DESCRIBE_CACHE_DIR);
+            if (cacheDir == null || cacheDir.isBlank()) {
+                cacheDir = Paths.get(System.getProperty("user.home"), ".dataloader", DEFAULT_DESCRIBE_CACHE_DIR)
+                        .toString();
+            }
+            long ttlMillis;
+            try {
+                ttlMillis = config.getLong(Config.DESCRIBE_CACHE_TTL_SECS) * 1000;
+            } catch (ParameterLoadException e) {
+                ttlMillis = Config.DEFAULT_DESCRIBE_CACHE_TTL_SECS * 1000L;
+            }
+            this.describeCache = new DescribeCache(new File(cacheDir), orgId, userId, apiVersion, ttlMillis);
+            for (DescribeSObjectResult result : this.describeCache.loadAll(Runtime.getRuntime().availableProcessors()).values()) {
+                getCachedEntityDescribeMap().putIfAbsent(result.getName(), result);
+            }
         }
-        return false;
+        return this.describeCache;
     }
 
     private final Map<String, Field> fieldsByName = new HashMap<String, Field>();
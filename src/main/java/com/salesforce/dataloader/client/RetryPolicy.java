@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.net.ConnectException;
+import java.net.NoRouteToHostException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.NoHttpResponseException;
+import org.apache.http.client.utils.DateUtils;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.exception.ParameterLoadException;
+import com.salesforce.dataloader.exception.ServiceUnavailableException;
+
+/**
+ * Retries operations that failed for a transient reason. The wait between retries grows with decorrelated jitter,
+ * is never shorter than what the server asked for in a Retry-After header, and all operations sharing a policy
+ * pause together while its circuit breaker is open.
+ */
+public class RetryPolicy {
+
+    /**
+     * One attempt of an operation.
+     */
+    public interface Attempt<R, E extends Exception> {
+        R run() throws E;
+    }
+
+    public static final RetryPolicy NO_RETRIES = new RetryPolicy(0, 0, 0, new CircuitBreaker(0, 0));
+
+    // ignore Retry-After values that would stall the operation for good
+    private static final long MAX_RETRY_AFTER_MILLIS = 10 * 60 * 1000L;
+    private static Logger logger = LogManager.getLogger(RetryPolicy.class);
+
+    private final int maxRetries;
+    private final long minSleepMillis;
+    private final long maxSleepMillis;
+    private final CircuitBreaker breaker;
+
+    public RetryPolicy(int maxRetries, long minSleepMillis, long maxSleepMillis, CircuitBreaker breaker) {
+        this.maxRetries = Math.max(0, maxRetries);
+        this.minSleepMillis = Math.max(0, minSleepMillis);
+        this.maxSleepMillis = Math.max(this.minSleepMillis, maxSleepMillis);
+        this.breaker = breaker;
+    }
+
+    public RetryPolicy(Config config) {
+        this(config.getBoolean(Config.ENABLE_RETRIES)
+                // limit the number of max retries in case limit is exceeded
+                ? Math.min(Config.MAX_RETRIES_LIMIT, getInt(config, Config.MAX_RETRIES, Config.DEFAULT_MAX_RETRIES))
+                : 0,
+                getInt(config, Config.MIN_RETRY_SLEEP_SECS, Config.DEFAULT_MIN_RETRY_SECS) * 1000L,
+                getInt(config, Config.MAX_RETRY_SLEEP_SECS, Config.DEFAULT_MAX_RETRY_SLEEP_SECS) * 1000L,
+                new CircuitBreaker(getInt(config, Config.RETRY_BREAKER_FAILURES, Config.DEFAULT_RETRY_BREAKER_FAILURES),
+                        getInt(config, Config.RETRY_BREAKER_PAUSE_SECS, Config.DEFAULT_RETRY_BREAKER_PAUSE_SECS) * 1000L));
+    }
+
+    private static int getInt(Config config, String name, int defaultValue) {
+        try {
+            return config.getInt(name);
+        } catch (ParameterLoadException e) {
+            return defaultValue;
+        }
+    }
+
+    public int getMaxRetries() {
+        return this.maxRetries;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return this.breaker;
+    }
+
+    /**
+     * Runs the operation, retrying it when it fails for a transient reason.
+     *
+     * @param idempotent whether the operation may be sent again after the server may have processed it. Operations
+     *                   that are not are only retried when the request was not processed.
+     */
+    public <R, E extends Exception> R execute(String operationName, boolean idempotent, Attempt<R, E> attempt)
+            throws E {
+        return execute(operationName, t -> isTransient(t, idempotent), attempt);
+    }
+
+    /**
+     * Runs the operation, retrying it when it fails with an exception accepted by the given predicate.
+     */
+    public <R, E extends Exception> R execute(String operationName, Predicate<Throwable> retryable,
+            Attempt<R, E> attempt) throws E {
+        long sleepMillis = this.minSleepMillis;
+        for (int retryNum = 0;; retryNum++) {
+            awaitBreaker();
+            try {
+                final R result = attempt.run();
+                this.breaker.recordSuccess();
+                return result;
+            } catch (Exception e) {
+                if (!retryable.test(e)) {
+                    throw e;
+                }
+                if (this.breaker.recordFailure()) {
+                    logger.warn(Messages.getMessage(getClass(), "breakerOpen", operationName,
+                            (this.breaker.getRemainingPauseMillis() + 999) / 1000));
+                }
+                if (retryNum >= this.maxRetries) {
+                    throw e;
+                }
+                sleepMillis = nextSleepMillis(sleepMillis);
+                final long waitMillis = Math.max(sleepMillis, getRetryAfterMillis(e));
+                logger.info(Messages.getFormattedString("Client.retryOperation", new String[] {
+                        Integer.toString(retryNum + 1), operationName, Long.toString((waitMillis + 999) / 1000) }));
+                try {
+                    Thread.sleep(waitMillis);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private void awaitBreaker() {
+        if (!this.breaker.isOpen()) {
+            return;
+        }
+        logger.info(Messages.getMessage(getClass(), "breakerWait", (this.breaker.getRemainingPauseMillis() + 999) / 1000));
+        try {
+            this.breaker.awaitClosed();
+        } catch (InterruptedException e) {
+            // let the attempt run and the caller see the interrupt
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Decorrelated jitter: a random wait between the minimum and three times the previous wait, capped at the
+     * maximum.
+     */
+    long nextSleepMillis(long previousSleepMillis) {
+        final long bound = Math.max(this.minSleepMillis, previousSleepMillis) * 3;
+        final long sleep = bound > this.minSleepMillis
+                ? ThreadLocalRandom.current().nextLong(this.minSleepMillis, bound + 1) : this.minSleepMillis;
+        return Math.min(this.maxSleepMillis, sleep);
+    }
+
+    private static long getRetryAfterMillis(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof ServiceUnavailableException) {
+                return Math.min(MAX_RETRY_AFTER_MILLIS, ((ServiceUnavailableException)cause).getRetryAfterMillis());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param idempotent whether the failed operation may be sent again after the server may have processed it
+     * @return true if the failure, or one of its causes, is worth a retry
+     */
+    public static boolean isTransient(Throwable t, boolean idempotent) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            // the request was not processed
+            if (cause instanceof ServiceUnavailableException
+                    || cause instanceof ConnectException
+                    || cause instanceof NoRouteToHostException
+                    || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+            // the request may have been processed before the connection failed
+            if (idempotent && (cause instanceof SocketException
+                    || cause instanceof SocketTimeoutException
+                    || cause instanceof NoHttpResponseException
+                    || cause instanceof ConnectionClosedException
+                    || (cause.getMessage() != null
+                            && cause.getMessage().toLowerCase().contains("connection reset")))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param value value of a Retry-After header, either a number of seconds or an HTTP date
+     * @return the wait asked for in milliseconds, -1 if there is none
+     */
+    public static long parseRetryAfterMillis(String value) {
+        if (value == null || value.isBlank()) {
+            return -1;
+        }
+        value = value.trim();
+        try {
+            return Math.max(0, Long.parseLong(value)) * 1000;
+        } catch (NumberFormatException e) {
+            final Date date = DateUtils.parseDate(value);
+            return date == null ? -1 : Math.max(0, date.getTime() - System.currentTimeMillis());
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.salesforce.dataloader.util.NamedThreadFactory;
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.soap.partner.fault.ApiFault;
+import com.sforce.soap.partner.fault.ExceptionCode;
+import com.sforce.soap.partner.fault.InvalidSObjectFault;
+import com.sforce.ws.ConnectionException;
+
+/**
+ * Describes sobjects several at a time with describeSObjects calls, a few calls at a time.
+ * A call naming an sobject that cannot be described fails as a whole, the sobjects of that call
+ * are then described one by one so that the error is about the sobject concerned.
+ */
+class SObjectDescriber {
+
+    interface DescribeOperation<A, R> {
+        R run(A arg) throws ConnectionException;
+    }
+
+    private final int chunkSize;
+    private final int maxParallelCalls;
+    private final DescribeOperation<String[], DescribeSObjectResult[]> describeSObjects;
+    private final DescribeOperation<String, DescribeSObjectResult> describeSObject;
+
+    SObjectDescriber(int chunkSize, int maxParallelCalls,
+            DescribeOperation<String[], DescribeSObjectResult[]> describeSObjects,
+            DescribeOperation<String, DescribeSObjectResult> describeSObject) {
+        this.chunkSize = chunkSize;
+        this.maxParallelCalls = maxParallelCalls;
+        this.describeSObjects = describeSObjects;
+        this.describeSObject = describeSObject;
+    }
+
+    /**
+     * @return the describes returned for the sobjects, in the order of the calls
+     */
+    List<DescribeSObjectResult> describe(List<String> entities) throws ConnectionException {
+        final List<List<String>> chunks = new ArrayList<List<String>>();
+        for (int i = 0; i < entities.size(); i += this.chunkSize) {
+            chunks.add(entities.subList(i, Math.min(i + this.chunkSize, entities.size())));
+        }
+        final List<DescribeSObjectResult> results = new ArrayList<DescribeSObjectResult>();
+        if (chunks.size() == 1) {
+            addAll(results, describeChunk(chunks.get(0)));
+            return results;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(Math.min(chunks.size(), this.maxParallelCalls),
+                new NamedThreadFactory("describeSObjects"));
+        try {
+            final List<Future<DescribeSObjectResult[]>> futures = new ArrayList<Future<DescribeSObjectResult[]>>();
+            for (final List<String> chunk : chunks) {
+                futures.add(executor.submit(() -> describeChunk(chunk)));
+            }
+            for (Future<DescribeSObjectResult[]> future : futures) {
+                addAll(results, future.get());
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ConnectionException) {
+                throw (ConnectionException)e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new ConnectionException(e.getCause().getMessage(), e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectionException(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+        return results;
+    }
+
+    private DescribeSObjectResult[] describeChunk(List<String> entities) throws ConnectionException {
+        try {
+            return this.describeSObjects.run(entities.toArray(new String[entities.size()]));
+        } catch (ApiFault e) {
+            // any other fault would fail the calls for single sobjects as well
+            if (!isInvalidType(e)) {
+                throw e;
+            }
+            final DescribeSObjectResult[] results = new DescribeSObjectResult[entities.size()];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = this.describeSObject.run(entities.get(i));
+            }
+            return results;
+        }
+    }
+
+    static boolean isInvalidType(ApiFault fault) {
+        return fault instanceof InvalidSObjectFault || fault.getExceptionCode() == ExceptionCode.INVALID_TYPE;
+    }
+
+    private static void addAll(List<DescribeSObjectResult> results, DescribeSObjectResult[] chunkResults) {
+        if (chunkResults != null) {
+            for (DescribeSObjectResult result : chunkResults) {
+                results.add(result);
+            }
+        }
+    }
+}
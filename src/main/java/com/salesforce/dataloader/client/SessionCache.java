@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.security.EncryptionAesUtil;
+import com.salesforce.dataloader.security.EncryptionUtil;
+
+/**
+ * Keeps the sessions of username/password logins in a file, so that processes started one after
+ * the other reuse a session instead of logging in again. Entries are keyed by a hash of the
+ * username and the login endpoint, which includes the API version, and their values are
+ * encrypted with the key file used for encrypted passwords.
+ */
+class SessionCache {
+    private static final Logger logger = LogManager.getLogger(SessionCache.class);
+    private static final String SEPARATOR = "\n";
+
+    static class CachedSession {
+        private final String sessionId;
+        private final String serverUrl;
+
+        private CachedSession(String sessionId, String serverUrl) {
+            this.sessionId = sessionId;
+            this.serverUrl = serverUrl;
+        }
+
+        String getSessionId() {
+            return this.sessionId;
+        }
+
+        /**
+         * @return the server URL returned by the login call
+         */
+        String getServerUrl() {
+            return this.serverUrl;
+        }
+    }
+
+    private final Path file;
+    private final EncryptionAesUtil encrypter;
+
+    /**
+     * @param file file holding the sessions, created when the first session is saved
+     * @param keyFile key file to encrypt the sessions with, the default key file of the user if empty
+     */
+    SessionCache(File file, String keyFile) throws GeneralSecurityException {
+        this.file = file.toPath();
+        this.encrypter = new EncryptionAesUtil();
+        if (keyFile != null && !keyFile.isBlank()) {
+            this.encrypter.setCipherKeyFromFilePath(keyFile);
+        }
+    }
+
+    /**
+     * @return the saved session, null if there is none or it has expired
+     */
+    CachedSession get(String username, String authEndpoint) {
+        try {
+            final String value = load().getProperty(getKey(username, authEndpoint));
+            if (value == null) {
+                return null;
+            }
+            final String[] fields = this.encrypter.decryptMsg(value).split(SEPARATOR, -1);
+            if (fields.length != 3 || Long.parseLong(fields[2]) <= System.currentTimeMillis()) {
+                return null;
+            }
+            return new CachedSession(fields[0], fields[1]);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            logger.warn("Unable to read saved session from " + this.file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @param secondsValid how long the session stays valid without activity
+     */
+    void put(String username, String authEndpoint, String sessionId, String serverUrl,
+            int secondsValid) {
+        final long expiresAt = System.currentTimeMillis() + secondsValid * 1000L;
+        try {
+            final String value = this.encrypter.encryptMsg(sessionId + SEPARATOR + serverUrl + SEPARATOR + expiresAt);
+            update(getKey(username, authEndpoint), value);
+        } catch (IOException | GeneralSecurityException e) {
+            logger.warn("Unable to save session to " + this.file + ": " + e.getMessage());
+        }
+    }
+
+    void remove(String username, String authEndpoint) {
+        try {
+            update(getKey(username, authEndpoint), null);
+        } catch (IOException e) {
+            logger.warn("Unable to remove saved session from " + this.file + ": " + e.getMessage());
+        }
+    }
+
+    private Properties load() throws IOException {
+        final Properties sessions = new Properties();
+        if (Files.exists(this.file)) {
+            try (InputStream in = Files.newInputStream(this.file)) {
+                sessions.load(in);
+            }
+        }
+        return sessions;
+    }
+
+    /**
+     * Sets or removes one entry. Processes updating the file at the same time take turns through
+     * a lock file, and readers never see a partly written file.
+     */
+    private void update(String key, String value) throws IOException {
+        final Path dir = this.file.toAbsolutePath().getParent();
+        Files.createDirectories(dir);
+        final Path lockFile = dir.resolve(this.file.getFileName() + ".lock");
+        try (FileChannel lockChannel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                FileLock lock = lockChannel.lock()) {
+            final Properties sessions = load();
+            if (value == null) {
+                if (sessions.remove(key) == null) {
+                    return;
+                }
+            } else {
+                sessions.setProperty(key, value);
+            }
+            final Path tempFile = Files.createTempFile(dir, this.file.getFileName().toString(), ".tmp");
+            try {
+                restrictToOwner(tempFile);
+                try (OutputStream out = Files.newOutputStream(tempFile)) {
+                    sessions.store(out, null);
+                }
+                try {
+                    Files.move(tempFile, this.file, StandardCopyOption.ATOMIC_MOVE);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(tempFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+
+    private static void restrictToOwner(Path path) throws IOException {
+        try {
+            Files.setPosixFilePermissions(path, PosixFilePermissions.fromString("rw-------"));
+        } catch (UnsupportedOperationException e) {
+            // not a POSIX file system, files in the user profile are private already on Windows
+        }
+    }
+
+    private static String getKey(String username, String authEndpoint) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            final String id = username + SEPARATOR + authEndpoint;
+            return EncryptionUtil.bytesToText(digest.digest(id.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -129,8 +129,14 @@ public class Config {
     public static final int DEFAULT_MIN_RETRY_SECS = 2;
     public static final int DEFAULT_MAX_RETRIES = 3;
     public static final int MAX_RETRIES_LIMIT = 10;
+    public static final int DEFAULT_MAX_RETRY_SLEEP_SECS = 60;
+    public static final int DEFAULT_RETRY_BREAKER_FAILURES = 5;
+    public static final int DEFAULT_RETRY_BREAKER_PAUSE_SECS = 30;
     public static final int DEFAULT_CONNECTION_TIMEOUT_SECS = 60;
     public static final int DEFAULT_TIMEOUT_SECS = 540;
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 10;
+    public static final int DEFAULT_IDLE_CONNECTION_TIMEOUT_SECS = 30;
+    public static final int DEFAULT_DESCRIBE_CACHE_TTL_SECS = 3600;
     public static final int DEFAULT_LOAD_BATCH_SIZE = 200;
     public static final int DEFAULT_DAO_WRITE_BATCH_SIZE = 500;
     public static final int DEFAULT_DAO_READ_BATCH_SIZE = 200;
@@ -143,6 +149,12 @@ public class Config {
     public static final int MAX_BULKV2_API_JOB_SIZE = 150000000;
     public static final int DEFAULT_BULK_API_BATCH_SIZE = 2000;
     public static final long DEFAULT_BULK_API_CHECK_STATUS_INTERVAL = 5000L;
+    public static final long DEFAULT_BULK_API_MIN_CHECK_STATUS_INTERVAL = 500L;
+    public static final long DEFAULT_BULK_API_MAX_CHECK_STATUS_INTERVAL = 30000L;
+    public static final int DEFAULT_BULKV2_QUERY_MAX_PARALLEL_RESULT_FETCHES = 2;
+    public static final int MAX_BULKV2_QUERY_MAX_PARALLEL_RESULT_FETCHES = 8;
+    public static final int BULKV2_QUERY_RESULTS_PAGE_IN_MEMORY_BYTES = 16 * 1024 * 1024;
+    public static final int MAX_BULKV2_QUERY_ID_RANGE_PARTITIONS = 16;
     public static final String DEFAULT_ENDPOINT_URL = "https://login.salesforce.com";
     public static final String LIGHTNING_ENDPOINT_URL_PART_VAL = "lightning.force.com";
     public static final String MYSF_ENDPOINT_URL_PART_VAL = "mysalesforce.com";
@@ -160,6 +172,9 @@ public class Config {
     
     public static final int DEFAULT_BULK_QUERY_PK_CHUNK_SIZE = 100000;
     public static final int MAX_BULK_QUERY_PK_CHUNK_SIZE = 250000;
+    public static final int DEFAULT_BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS = 4;
+    public static final int MAX_BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS = 16;
+    public static final int DEFAULT_LOAD_FILE_CONTENT_CACHE_SIZE_MB = 64;
 
     /*
      * Issue #59 - Dataloader will not read all the database rows to get a total count
@@ -176,6 +191,16 @@ public class Config {
     public static final String ERROR_COLUMN_NAME = "ERROR"; //$NON-NLS-1$
     public static final String STATUS_COLUMN_NAME = "STATUS"; //$NON-NLS-1$
     public static final String STATUS_COLUMN_NAME_IN_BULKV2 = "sf__Created"; //$NON-NLS-1$
+    public static final String ROW_NUMBER_COLUMN_NAME = "ROW_NUMBER"; //$NON-NLS-1$
+    public static final String OUTPUT_SUCCESS_LEVEL_FULL = "full"; //$NON-NLS-1$
+    public static final String OUTPUT_SUCCESS_LEVEL_IDS = "ids"; //$NON-NLS-1$
+    public static final String OUTPUT_SUCCESS_LEVEL_COUNTS = "counts"; //$NON-NLS-1$
+    public static final String LOAD_DUPLICATE_EXTERNAL_IDS_ALLOW = "allow"; //$NON-NLS-1$
+    public static final String LOAD_DUPLICATE_EXTERNAL_IDS_REJECT = "reject"; //$NON-NLS-1$
+    public static final String LOAD_DUPLICATE_EXTERNAL_IDS_LAST_WINS = "lastWins"; //$NON-NLS-1$
+    public static final String DAO_TOTAL_COUNT_MODE_COUNT = "count"; //$NON-NLS-1$
+    public static final String DAO_TOTAL_COUNT_MODE_CONCURRENT = "concurrent"; //$NON-NLS-1$
+    public static final String DAO_TOTAL_COUNT_MODE_ESTIMATE = "estimate"; //$NON-NLS-1$
 
     /**
      * The mapping from preference name to preference value (represented as strings).
@@ -213,6 +238,9 @@ public class Config {
     public static final String CSV_DELIMITER_FOR_QUERY_RESULTS = "loader.query.delimiter";
     public static final String BUFFER_UNPROCESSED_BULK_QUERY_RESULTS = "loader.bufferUnprocessedBulkQueryResults";
     public static final String CACHE_DESCRIBE_GLOBAL_RESULTS = "loader.cacheSObjectNamesAndFields";
+    public static final String PERSIST_DESCRIBES = "loader.persistSObjectDescribes";
+    public static final String DESCRIBE_CACHE_DIR = "loader.describeCacheDir";
+    public static final String DESCRIBE_CACHE_TTL_SECS = "loader.describeCacheTtlSecs";
     
     //Special Internal Configs
     public static final String SFDC_INTERNAL = "sfdcInternal"; //$NON-NLS-1$
@@ -234,15 +262,30 @@ public class Config {
     public static final String ENABLE_RETRIES = "sfdc.enableRetries"; //$NON-NLS-1$
     public static final String MAX_RETRIES = "sfdc.maxRetries"; //$NON-NLS-1$
     public static final String MIN_RETRY_SLEEP_SECS = "sfdc.minRetrySleepSecs"; //$NON-NLS-1$
+    public static final String MAX_RETRY_SLEEP_SECS = "sfdc.maxRetrySleepSecs"; //$NON-NLS-1$
+    public static final String RETRY_BREAKER_FAILURES = "sfdc.retryBreakerFailures"; //$NON-NLS-1$
+    public static final String RETRY_BREAKER_PAUSE_SECS = "sfdc.retryBreakerPauseSecs"; //$NON-NLS-1$
     public static final String DEBUG_MESSAGES = "sfdc.debugMessages"; //$NON-NLS-1$
     public static final String DEBUG_MESSAGES_FILE = "sfdc.debugMessagesFile"; //$NON-NLS-1$
     public static final String RESET_URL_ON_LOGIN = "sfdc.resetUrlOnLogin"; //$NON-NLS-1$
+    public static final String CACHE_SESSION = "sfdc.cacheSession"; //$NON-NLS-1$
+    public static final String SESSION_CACHE_FILE = "sfdc.sessionCacheFile"; //$NON-NLS-1$
     public static final String TRUNCATE_FIELDS = "sfdc.truncateFields";//$NON-NLS-1$
     public static final String FORMAT_PHONE_FIELDS = "sfdc.formatPhoneFields";//$NON-NLS-1$
     public static final String BULK_API_ENABLED = "sfdc.useBulkApi";
     public static final String BULK_API_SERIAL_MODE = "sfdc.bulkApiSerialMode";
     public static final String BULK_API_CHECK_STATUS_INTERVAL = "sfdc.bulkApiCheckStatusInterval";
+    public static final String BULK_API_ADAPTIVE_CHECK_STATUS = "sfdc.bulkApiAdaptiveCheckStatus"; //$NON-NLS-1$
+    public static final String BULK_API_MIN_CHECK_STATUS_INTERVAL = "sfdc.bulkApiMinCheckStatusInterval"; //$NON-NLS-1$
+    public static final String BULK_API_MAX_CHECK_STATUS_INTERVAL = "sfdc.bulkApiMaxCheckStatusInterval"; //$NON-NLS-1$
     public static final String BULK_API_ZIP_CONTENT = "sfdc.bulkApiZipContent";
+    public static final String BULKV2_QUERY_MAX_RECORDS_PER_PAGE = "sfdc.bulkV2QueryMaxRecordsPerPage";
+    public static final String BULKV2_QUERY_MAX_PARALLEL_RESULT_FETCHES = "sfdc.bulkV2QueryMaxParallelResultFetches";
+    public static final String BULK_QUERY_RESULTS_PASSTHROUGH = "sfdc.bulkQueryResultsPassthrough";
+    public static final String BULKV2_QUERY_ID_RANGE_PARTITIONS = "sfdc.bulkV2QueryIdRangePartitions";
+    public static final String BULKV2_QUERY_OUTPUT_FILE_PER_PARTITION = "sfdc.bulkV2QueryOutputFilePerPartition";
+    public static final String BULKV2_LOAD_PASSTHROUGH = "sfdc.bulkV2LoadPassthrough";
+    public static final String LOAD_PREFLIGHT_VALIDATION = "sfdc.loadPreflightValidation";
     public static final String WIRE_OUTPUT = "sfdc.wireOutput";
     public static final String TIMEZONE = "sfdc.timezone";
 
@@ -266,6 +309,10 @@ public class Config {
     public static final String OAUTH_REDIRECTURI = OAUTH_PREFIX + OAUTH_PARTIAL_REDIRECTURI;
     public static final String OAUTH_LOGIN_FROM_BROWSER = OAUTH_PREFIX + "loginfrombrowser";
     public static final String REUSE_CLIENT_CONNECTION = "sfdc.reuseClientConnection";
+    public static final String MAX_CONNECTIONS_PER_ROUTE = "sfdc.maxConnectionsPerRoute"; //$NON-NLS-1$
+    public static final String IDLE_CONNECTION_TIMEOUT_SECS = "sfdc.idleConnectionTimeoutSecs"; //$NON-NLS-1$
+    public static final String RESPONSE_SPILL_THRESHOLD_BYTES = "sfdc.responseSpillThresholdBytes"; //$NON-NLS-1$
+    public static final String COMPRESS_UPLOADS = "sfdc.compressUploads"; //$NON-NLS-1$
     public static final String RICH_TEXT_FIELD_REGEX = "sfdx.richtext.regex";
     
     // salesforce operation parameters
@@ -275,9 +322,13 @@ public class Config {
     public static final String ASSIGNMENT_RULE = "sfdc.assignmentRule"; //$NON-NLS-1$
     public static final String EXTERNAL_ID_FIELD = "sfdc.externalIdField"; //$NON-NLS-1$
     public static final String EXTRACT_REQUEST_SIZE = "sfdc.extractionRequestSize"; //$NON-NLS-1$
+    public static final String EXTRACT_REQUEST_SIZE_ADAPTIVE = "sfdc.extractionRequestSizeAdaptive"; //$NON-NLS-1$
+    public static final String EXTRACT_DELTA_FIELD = "sfdc.extractionDeltaField"; //$NON-NLS-1$
+    public static final String EXTRACT_DELTA_OVERLAP_SECONDS = "sfdc.extractionDeltaOverlapSeconds"; //$NON-NLS-1$
     public static final String EXTRACT_SOQL = "sfdc.extractionSOQL"; //$NON-NLS-1$
     public static final String SORT_EXTRACT_FIELDS = "sfdc.sortExtractionFields"; //$NON-NLS-1$
     public static final String LOAD_PRESERVE_WHITESPACE_IN_RICH_TEXT = "sfdc.load.preserveWhitespaceInRichText";
+    public static final String LOAD_FILE_CONTENT_CACHE_SIZE_MB = "sfdc.load.fileContentCacheSizeMB";
 
     //
     // process configuration (action parameters)
@@ -292,12 +343,15 @@ public class Config {
     // process configuration
     public static final String OUTPUT_STATUS_DIR = "process.statusOutputDirectory"; //$NON-NLS-1$
     public static final String OUTPUT_SUCCESS = "process.outputSuccess"; //$NON-NLS-1$
+    public static final String OUTPUT_SUCCESS_LEVEL = "process.outputSuccessLevel"; //$NON-NLS-1$
     public static final String ENABLE_EXTRACT_STATUS_OUTPUT = "process.enableExtractStatusOutput"; //$NON-NLS-1$
     public static final String ENABLE_LAST_RUN_OUTPUT = "process.enableLastRunOutput"; //$NON-NLS-1$
     public static final String LAST_RUN_OUTPUT_DIR = "process.lastRunOutputDirectory"; //$NON-NLS-1$
     public static final String OUTPUT_ERROR = "process.outputError"; //$NON-NLS-1$
     public static final String OUTPUT_UNPROCESSED_RECORDS = "process.unprocessedRecords"; //$NON-NLS-1$
     public static final String LOAD_ROW_TO_START_AT = "process.loadRowToStartAt"; //$NON-NLS-1$
+    public static final String LOAD_FINGERPRINT_FILE = "process.loadFingerprintFile"; //$NON-NLS-1$
+    public static final String LOAD_DUPLICATE_EXTERNAL_IDS = "process.loadDuplicateExternalIds"; //$NON-NLS-1$
     public static final String INITIAL_LAST_RUN_DATE = "process.initialLastRunDate";
     public static final String ENCRYPTION_KEY_FILE = "process.encryptionKeyFile"; //$NON-NLS-1$
     public static final String PROCESS_THREAD_NAME = "process.thread.name";
@@ -308,7 +362,14 @@ public class Config {
     public static final String DAO_TYPE = "dataAccess.type"; //$NON-NLS-1$
     public static final String DAO_NAME = "dataAccess.name"; //$NON-NLS-1$
     public static final String DAO_READ_BATCH_SIZE = "dataAccess.readBatchSize";
+    public static final String DAO_READ_FETCH_SIZE = "dataAccess.readFetchSize";
+    public static final String DAO_READ_PARTITIONS = "dataAccess.readPartitions";
+    public static final String DAO_READ_PARTITION_EXPRESSION = "dataAccess.readPartitionExpression";
     public static final String DAO_WRITE_BATCH_SIZE = "dataAccess.writeBatchSize";
+    public static final String DAO_TOTAL_COUNT_MODE = "dataAccess.totalCountMode";
+    public static final String DAO_TOTAL_COUNT_ESTIMATE_SQL = "dataAccess.totalCountEstimateSql";
+    public static final String DAO_WRITE_COMMIT_INTERVAL = "dataAccess.writeCommitInterval";
+    public static final String DAO_WRITE_CONNECTIONS = "dataAccess.writeConnections";
     public static final String DAO_SKIP_TOTAL_COUNT = "dataAccess.skipTotalCount";
     public static final String DAO_READ_PREPROCESSOR_SCRIPT = "dataAccess.read.preProcessorScript";
     public static final String DAO_WRITE_POSTPROCESSOR_SCRIPT = "dataAccess.write.postProcessorScript";
@@ -338,11 +399,10 @@ public class Config {
      */
     public static final String PILOT_PROPERTY_PREFIX = "pilot.";
     
-    /*
     public static final String ENABLE_BULK_QUERY_PK_CHUNKING = PILOT_PROPERTY_PREFIX + "sfdc.enableBulkQueryPKChunking";
     public static final String BULK_QUERY_PK_CHUNK_SIZE =  PILOT_PROPERTY_PREFIX + "sfdc.bulkQueryPKChunkSize";
     public static final String BULK_QUERY_PK_CHUNK_START_ROW = PILOT_PROPERTY_PREFIX + "sfdc.bulkQueryChunkStartRow";
-    */
+    public static final String BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS = PILOT_PROPERTY_PREFIX + "sfdc.bulkQueryPKChunkMaxParallelDownloads";
     public static final String DUPLICATE_RULE_ALLOW_SAVE = PILOT_PROPERTY_PREFIX + "sfdc.duplicateRule.allowSave"; //$NON-NLS-1$
     public static final String DUPLICATE_RULE_INCLUDE_RECORD_DETAILS = PILOT_PROPERTY_PREFIX + "sfdc.duplicateRule.includeRecordDetails"; //$NON-NLS-1$
     public static final String DUPLICATE_RULE_RUN_AS_CURRENT_USER = PILOT_PROPERTY_PREFIX + "sfdc.duplicateRule.runAsCurrentUser"; //$NON-NLS-1$
@@ -543,15 +603,33 @@ public class Config {
         setDefaultValue(ENABLE_RETRIES, true);
         setDefaultValue(MAX_RETRIES, DEFAULT_MAX_RETRIES);
         setDefaultValue(MIN_RETRY_SLEEP_SECS, DEFAULT_MIN_RETRY_SECS);
+        setDefaultValue(MAX_RETRY_SLEEP_SECS, DEFAULT_MAX_RETRY_SLEEP_SECS);
+        setDefaultValue(RETRY_BREAKER_FAILURES, DEFAULT_RETRY_BREAKER_FAILURES);
+        setDefaultValue(RETRY_BREAKER_PAUSE_SECS, DEFAULT_RETRY_BREAKER_PAUSE_SECS);
         setDefaultValue(ASSIGNMENT_RULE, ""); //$NON-NLS-1$
         setDefaultValue(INSERT_NULLS, false);
         setDefaultValue(ENABLE_EXTRACT_STATUS_OUTPUT, false);
+        setDefaultValue(OUTPUT_SUCCESS_LEVEL, OUTPUT_SUCCESS_LEVEL_FULL);
+        setDefaultValue(LOAD_FINGERPRINT_FILE, "");
+        setDefaultValue(LOAD_DUPLICATE_EXTERNAL_IDS, LOAD_DUPLICATE_EXTERNAL_IDS_ALLOW);
         setDefaultValue(ENABLE_LAST_RUN_OUTPUT, true);
         setDefaultValue(RESET_URL_ON_LOGIN, true);
+        setDefaultValue(CACHE_SESSION, false);
+        setDefaultValue(SESSION_CACHE_FILE, ""); //$NON-NLS-1$
         setDefaultValue(EXTRACT_REQUEST_SIZE, DEFAULT_EXTRACT_REQUEST_SIZE);
+        setDefaultValue(EXTRACT_REQUEST_SIZE_ADAPTIVE, false);
+        setDefaultValue(EXTRACT_DELTA_FIELD, "");
+        setDefaultValue(EXTRACT_DELTA_OVERLAP_SECONDS, 0);
         setDefaultValue(SORT_EXTRACT_FIELDS, true);
         setDefaultValue(DAO_WRITE_BATCH_SIZE, DEFAULT_DAO_WRITE_BATCH_SIZE);
         setDefaultValue(DAO_READ_BATCH_SIZE, DEFAULT_DAO_READ_BATCH_SIZE);
+        setDefaultValue(DAO_READ_FETCH_SIZE, 0);
+        setDefaultValue(DAO_READ_PARTITIONS, 1);
+        setDefaultValue(DAO_READ_PARTITION_EXPRESSION, "");
+        setDefaultValue(DAO_TOTAL_COUNT_MODE, DAO_TOTAL_COUNT_MODE_COUNT);
+        setDefaultValue(DAO_TOTAL_COUNT_ESTIMATE_SQL, "");
+        setDefaultValue(DAO_WRITE_COMMIT_INTERVAL, 0);
+        setDefaultValue(DAO_WRITE_CONNECTIONS, 1);
         setDefaultValue(TRUNCATE_FIELDS, true);
         setDefaultValue(FORMAT_PHONE_FIELDS, false);
         // TODO: When we're ready, make Bulk API turned on by default.
@@ -559,6 +637,16 @@ public class Config {
         setDefaultValue(BULK_API_SERIAL_MODE, false);
         setDefaultValue(BULK_API_ZIP_CONTENT, false);
         setDefaultValue(BULK_API_CHECK_STATUS_INTERVAL, DEFAULT_BULK_API_CHECK_STATUS_INTERVAL);
+        setDefaultValue(BULK_API_ADAPTIVE_CHECK_STATUS, false);
+        setDefaultValue(BULK_API_MIN_CHECK_STATUS_INTERVAL, DEFAULT_BULK_API_MIN_CHECK_STATUS_INTERVAL);
+        setDefaultValue(BULK_API_MAX_CHECK_STATUS_INTERVAL, DEFAULT_BULK_API_MAX_CHECK_STATUS_INTERVAL);
+        setDefaultValue(BULKV2_QUERY_MAX_RECORDS_PER_PAGE, 0);
+        setDefaultValue(BULKV2_QUERY_MAX_PARALLEL_RESULT_FETCHES, DEFAULT_BULKV2_QUERY_MAX_PARALLEL_RESULT_FETCHES);
+        setDefaultValue(BULK_QUERY_RESULTS_PASSTHROUGH, false);
+        setDefaultValue(BULKV2_QUERY_ID_RANGE_PARTITIONS, 1);
+        setDefaultValue(BULKV2_QUERY_OUTPUT_FILE_PER_PARTITION, false);
+        setDefaultValue(BULKV2_LOAD_PASSTHROUGH, false);
+        setDefaultValue(LOAD_PREFLIGHT_VALIDATION, false);
         setDefaultValue(WIRE_OUTPUT, false);
         setDefaultValue(DEBUG_MESSAGES, false);
         setDefaultValue(TIMEZONE, TimeZone.getDefault().getID());
@@ -587,11 +675,14 @@ public class Config {
         setDefaultValue(OAUTH_PREFIX + OAUTH_SB_ENVIRONMENT_VAL + "." + OAUTH_PARTIAL_SERVER, OAUTH_SB_SERVER_VAL);
         setDefaultValue(OAUTH_PREFIX + OAUTH_SB_ENVIRONMENT_VAL + "." + OAUTH_PARTIAL_REDIRECTURI, OAUTH_SB_REDIRECTURI_VAL);
         setDefaultValue(REUSE_CLIENT_CONNECTION, true);
-        /*
+        setDefaultValue(MAX_CONNECTIONS_PER_ROUTE, DEFAULT_MAX_CONNECTIONS_PER_ROUTE);
+        setDefaultValue(IDLE_CONNECTION_TIMEOUT_SECS, DEFAULT_IDLE_CONNECTION_TIMEOUT_SECS);
+        setDefaultValue(RESPONSE_SPILL_THRESHOLD_BYTES, 0);
+        setDefaultValue(COMPRESS_UPLOADS, false);
         setDefaultValue(ENABLE_BULK_QUERY_PK_CHUNKING, false);
         setDefaultValue(BULK_QUERY_PK_CHUNK_SIZE, DEFAULT_BULK_QUERY_PK_CHUNK_SIZE);
         setDefaultValue(BULK_QUERY_PK_CHUNK_START_ROW, "");
-        */
+        setDefaultValue(BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS, DEFAULT_BULK_QUERY_PK_CHUNK_MAX_PARALLEL_DOWNLOADS);
         setDefaultValue(DUPLICATE_RULE_ALLOW_SAVE, false);
         setDefaultValue(DUPLICATE_RULE_INCLUDE_RECORD_DETAILS, false);
         setDefaultValue(DUPLICATE_RULE_RUN_AS_CURRENT_USER, false);
@@ -599,6 +690,7 @@ public class Config {
         setDefaultValue(BULKV2_API_ENABLED, false);
         setDefaultValue(OAUTH_LOGIN_FROM_BROWSER, true);
         setDefaultValue(LOAD_PRESERVE_WHITESPACE_IN_RICH_TEXT, true);
+        setDefaultValue(LOAD_FILE_CONTENT_CACHE_SIZE_MB, DEFAULT_LOAD_FILE_CONTENT_CACHE_SIZE_MB);
         setDefaultValue(Config.CLI_OPTION_RUN_MODE, Config.RUN_MODE_UI_VAL);
         setDefaultValue(SAVE_BULK_SERVER_LOAD_AND_RAW_RESULTS_IN_CSV, false);
         setDefaultValue(PROCESS_BULK_CACHE_DATA_FROM_DAO, false);
@@ -610,6 +702,9 @@ public class Config {
         setDefaultValue(LIMIT_OUTPUT_TO_QUERY_FIELDS, true);
         setDefaultValue(WIZARD_CLOSE_ON_FINISH, true);
         setDefaultValue(CACHE_DESCRIBE_GLOBAL_RESULTS, true);
+        setDefaultValue(PERSIST_DESCRIBES, false);
+        setDefaultValue(DESCRIBE_CACHE_DIR, "");
+        setDefaultValue(DESCRIBE_CACHE_TTL_SECS, DEFAULT_DESCRIBE_CACHE_TTL_SECS);
         setDefaultValue(PROCESS_EXIT_WITH_ERROR_ON_FAILED_ROWS_BATCH_MODE, false);
     }
 
@@ -48,6 +48,7 @@ public class LastRun extends Properties {
     // last run statistics
     public static final String LAST_LOAD_BATCH_ROW = "process.lastLoadBatchRow"; //$NON-NLS-1$
     public static final String LAST_RUN_DATE = "process.lastRunDate"; //$NON-NLS-1$
+    public static final String LAST_EXTRACT_WATERMARK = "process.lastExtractWatermark"; //$NON-NLS-1$
 
     private static Map<String,String> paramNames = new HashMap<String,String>();
 
@@ -66,6 +67,7 @@ public class LastRun extends Properties {
 
         paramNames.put(LAST_RUN_DATE,"");
         paramNames.put(LAST_LOAD_BATCH_ROW,"");
+        paramNames.put(LAST_EXTRACT_WATERMARK,"");
     }
 
     public String getFullPath() {
@@ -35,6 +35,7 @@ import com.salesforce.dataloader.client.DescribeRefObject;
 import com.salesforce.dataloader.client.HttpClientTransport;
 import com.salesforce.dataloader.client.PartnerClient;
 import com.salesforce.dataloader.client.ReferenceEntitiesDescribeMap;
+import com.salesforce.dataloader.client.RetryPolicy;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.dao.DataAccessObject;
@@ -102,6 +103,7 @@ public class Controller {
     private BulkV1Client bulkV1Client;
     private BulkV2Client bulkV2Client;
     private PartnerClient partnerClient;
+    private RetryPolicy retryPolicy;
     private LoaderWindow loaderWindow;
     private boolean lastOperationSuccessful = true;
 
@@ -133,6 +135,14 @@ public class Controller {
             daoFactory = new DataAccessObjectFactory();
         }
         HttpClientTransport.setReuseConnection(config.getBoolean(Config.REUSE_CLIENT_CONNECTION));
+        HttpClientTransport.setCompressUploads(config.getBoolean(Config.COMPRESS_UPLOADS));
+        try {
+            HttpClientTransport.setMaxConnectionsPerRoute(config.getInt(Config.MAX_CONNECTIONS_PER_ROUTE));
+            HttpClientTransport.setIdleConnectionTimeoutSecs(config.getInt(Config.IDLE_CONNECTION_TIMEOUT_SECS));
+            HttpClientTransport.setResponseSpillThresholdBytes(config.getLong(Config.RESPONSE_SPILL_THRESHOLD_BYTES));
+        } catch (ParameterLoadException e) {
+            logger.warn(e.getMessage());
+        }
     }
 
     public synchronized void executeAction(ILoaderProgress monitor) throws DataAccessObjectException, OperationException {
@@ -327,6 +337,14 @@ public class Controller {
         return this.partnerClient;
     }
 
+    /**
+     * @return the retry policy shared by all clients, so that they all pause when the server keeps failing
+     */
+    public synchronized RetryPolicy getRetryPolicy() {
+        if (this.retryPolicy == null) this.retryPolicy = new RetryPolicy(this.config);
+        return this.retryPolicy;
+    }
+
     private ClientBase<?> getClient() {
         return this.config.useBulkAPIForCurrentOperation() ? getBulkV1Client() : getPartnerClient();
     }
@@ -30,7 +30,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -38,6 +42,7 @@ import java.util.List;
 import org.apache.commons.io.ByteOrderMark;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.ReaderInputStream;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
@@ -60,6 +65,7 @@ import com.sforce.async.CSVReader;
 public class CSVFileReader implements DataReader {
 
     private static final Logger LOGGER = LogManager.getLogger(CSVFileReader.class);
+    private static final int TRANSFER_BUFFER_SIZE = 64 * 1024;
     private final Object lock = new Object();
     private File file;
     private FileInputStream input;
@@ -201,6 +207,7 @@ public class CSVFileReader implements DataReader {
             row.put(headerRow.get(i), value);
         }
         currentRowNumber++;
+        row.setRowNumber(currentRowNumber);
         return row;
     }
 
@@ -234,6 +241,136 @@ public class CSVFileReader implements DataReader {
         return currentRowNumber;
     }
 
+    /**
+     * @return true if the records can be copied by {@link #transferRecords(OutputStream)}. Values are
+     * copied as they are, so a comma must already separate values rather than be part of them.
+     */
+    public boolean canTransferRecords() {
+        boolean commaDelimited = false;
+        for (char delimiter : csvDelimiters) {
+            if (delimiter >= 0x80 || delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+                return false;
+            }
+            commaDelimited |= delimiter == ',';
+        }
+        return commaDelimited;
+    }
+
+    /**
+     * Copies the records of the file, without the header row, to the stream as comma delimited
+     * UTF-8 content with line feed line endings. Values are not parsed, every record is only
+     * checked to have as many columns as the header row. Copying stops at the first empty line,
+     * like reading rows does.
+     * 
+     * @return the number of records copied
+     */
+    public long transferRecords(OutputStream out) throws DataAccessObjectException {
+        if (!isOpen) {
+            open();
+        }
+        final int columnCount = headerRow.size();
+        final boolean[] isDelimiter = new boolean[0x80];
+        for (char delimiter : csvDelimiters) {
+            isDelimiter[delimiter] = true;
+        }
+        final byte[] inBuffer = new byte[TRANSFER_BUFFER_SIZE];
+        // one more byte for a carriage return held back from the previous buffer
+        final byte[] outBuffer = new byte[TRANSFER_BUFFER_SIZE + 1];
+        boolean inHeader = true;
+        boolean inQuotes = false;
+        boolean pendingCarriageReturn = false;
+        boolean endOfData = false;
+        int recordLength = 0;
+        int recordColumns = 1;
+        long recordCount = 0;
+        try (InputStream content = openUTF8Content()) {
+            int bytesRead;
+            while (!endOfData && (bytesRead = content.read(inBuffer)) != -1) {
+                int outLength = 0;
+                for (int i = 0; i < bytesRead && !endOfData; i++) {
+                    final byte b = inBuffer[i];
+                    if (pendingCarriageReturn) {
+                        pendingCarriageReturn = false;
+                        if (b != '\n' && !inHeader) {
+                            outBuffer[outLength++] = '\r';
+                            recordLength++;
+                        }
+                    }
+                    if (b == '"') {
+                        // an escaped quote toggles twice
+                        inQuotes = !inQuotes;
+                    } else if (!inQuotes && b == '\r') {
+                        // drop the carriage return of a CRLF line ending
+                        pendingCarriageReturn = true;
+                        continue;
+                    } else if (!inQuotes && b == '\n') {
+                        if (inHeader) {
+                            inHeader = false;
+                        } else if (recordLength == 0) {
+                            endOfData = true;
+                        } else {
+                            checkTransferredRecord(recordCount, recordColumns, columnCount);
+                            outBuffer[outLength++] = b;
+                            recordCount++;
+                        }
+                        recordLength = 0;
+                        recordColumns = 1;
+                        continue;
+                    } else if (!inQuotes && b >= 0 && isDelimiter[b]) {
+                        recordColumns++;
+                        recordLength++;
+                        if (!inHeader) {
+                            outBuffer[outLength++] = ',';
+                        }
+                        continue;
+                    }
+                    recordLength++;
+                    if (!inHeader) {
+                        outBuffer[outLength++] = b;
+                    }
+                }
+                out.write(outBuffer, 0, outLength);
+            }
+            if (inQuotes) {
+                throw new DataAccessRowException(Messages.getFormattedString("CSVFileDAO.errorUnterminatedQuote",
+                        String.valueOf(recordCount)));
+            }
+            if (!inHeader && !endOfData && recordLength > 0) {
+                // terminate the last record
+                checkTransferredRecord(recordCount, recordColumns, columnCount);
+                out.write('\n');
+                recordCount++;
+            }
+            return recordCount;
+        } catch (IOException e) {
+            throw new DataAccessObjectException(e);
+        }
+    }
+
+    private static void checkTransferredRecord(long recordNumber, int recordColumns, int columnCount)
+            throws DataAccessRowException {
+        if (recordColumns > columnCount) {
+            throw new DataAccessRowException(Messages.getFormattedString("CSVFileDAO.errorRowTooLarge", new String[]{
+                    String.valueOf(recordNumber), String.valueOf(recordColumns), String.valueOf(columnCount)}));
+        } else if (recordColumns < columnCount) {
+            throw new DataAccessRowException(Messages.getFormattedString("CSVFileDAO.errorRowTooSmall", new String[]{
+                    String.valueOf(recordNumber), String.valueOf(recordColumns), String.valueOf(columnCount)}));
+        }
+    }
+
+    private InputStream openUTF8Content() throws IOException {
+        // a byte order mark is part of the header row, which is not copied
+        final InputStream fileContent = new FileInputStream(file);
+        final Charset charset = Charset.forName(this.config.getCsvEncoding(false));
+        if (StandardCharsets.UTF_8.equals(charset) || StandardCharsets.US_ASCII.equals(charset)) {
+            return fileContent;
+        }
+        return ReaderInputStream.builder()
+                .setReader(new InputStreamReader(fileContent, charset))
+                .setCharset(StandardCharsets.UTF_8)
+                .get();
+    }
+
     private void readHeaderRow() throws DataAccessObjectInitializationException {
         try {
             synchronized (lock) {
@@ -28,9 +28,12 @@ package com.salesforce.dataloader.dao.csv;
 
 import java.io.BufferedWriter;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -59,6 +62,7 @@ public class CSVFileWriter implements DataWriter {
 
     private final String fileName;
     private BufferedWriter fileOut;
+    private FileOutputStream fileOutStream;
     private List<String> columnNames = new ArrayList<String>();
     private int currentRowNumber = 0;
     private boolean isHeaderRowWritten = false;
@@ -78,6 +82,7 @@ public class CSVFileWriter implements DataWriter {
      */
     private final boolean capitalizedHeadings;
     private final char columnDelimiter;
+    private static final int RAW_RECORDS_BUFFER_SIZE = 64 * 1024;
         
     public CSVFileWriter(String fileName, Config config, String columnDelimiterStr) {
 
@@ -108,10 +113,11 @@ public class CSVFileWriter implements DataWriter {
     @Override
     public void open() throws DataAccessObjectInitializationException {
         try {
+            fileOutStream = new FileOutputStream(this.fileName);
             if (this.encoding != null) {
-                fileOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.fileName), this.encoding));
+                fileOut = new BufferedWriter(new OutputStreamWriter(fileOutStream, this.encoding));
             } else {
-                fileOut = new BufferedWriter(new FileWriter(this.fileName));
+                fileOut = new BufferedWriter(new OutputStreamWriter(fileOutStream));
             }
             currentRowNumber = 0;
             setOpen(true);
@@ -141,6 +147,7 @@ public class CSVFileWriter implements DataWriter {
                 this.isHeaderRowWritten = false;
                 fileOut.close();
                 fileOut = null;
+                fileOutStream = null;
             } catch (IOException e) {
                 logger.error(Messages.getString("CSVWriter.errorClosing"), e); //$NON-NLS-1$
             }
@@ -199,6 +206,53 @@ public class CSVFileWriter implements DataWriter {
         return new ArrayList<String>(fieldNameSet);    
     }
 
+    /**
+     * @return true if CSV content in the given format can be passed to {@link #writeRawRecords(InputStream)}
+     */
+    public boolean acceptsRawRecords(char contentColumnDelimiter, Charset contentCharset) {
+        final Charset charset = this.encoding != null ? Charset.forName(this.encoding) : Charset.defaultCharset();
+        return isOpen()
+                && this.columnDelimiter == contentColumnDelimiter
+                && charset.equals(contentCharset)
+                // records end with a line feed
+                && "\n".equals(System.lineSeparator());
+    }
+
+    /**
+     * Copies CSV records, without a header row, to the file as they are. The content has to be
+     * in a format accepted by {@link #acceptsRawRecords(char, Charset)}. Closes the stream.
+     * 
+     * @return the number of records written
+     */
+    public long writeRawRecords(InputStream in) throws DataAccessObjectException {
+        try (InputStream content = in) {
+            writeHeaderRow();
+            fileOut.flush();
+            final FileChannel channel = fileOutStream.getChannel();
+            final CSVRecordScanner scanner = new CSVRecordScanner();
+            final byte[] buffer = new byte[RAW_RECORDS_BUFFER_SIZE];
+            int bytesRead;
+            while ((bytesRead = content.read(buffer)) != -1) {
+                scanner.scan(buffer, 0, bytesRead);
+                final ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, bytesRead);
+                while (bytes.hasRemaining()) {
+                    channel.write(bytes);
+                }
+            }
+            long recordCount = scanner.getRecordCount();
+            if (!scanner.isAtRecordStart()) {
+                // terminate the last record
+                fileOut.newLine();
+                recordCount++;
+            }
+            currentRowNumber += recordCount;
+            return recordCount;
+        } catch (IOException e) {
+            logger.error(Messages.getString("CSVWriter.errorWriting"), e); //$NON-NLS-1$
+            throw new DataAccessObjectException(Messages.getString("CSVWriter.errorWriting"), e); //$NON-NLS-1$
+        }
+    }
+
     /*
      * (non-Javadoc)
      * @see com.salesforce.dataloader.dao.csv.Writer#writeRowList(java.util.List)
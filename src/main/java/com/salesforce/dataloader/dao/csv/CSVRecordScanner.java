@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.csv;
+
+/**
+ * Finds record boundaries in CSV content without decoding it. A record ends at a line feed
+ * outside of a quoted value. Works on any ASCII compatible encoding, such as UTF-8.
+ */
+public class CSVRecordScanner {
+
+    private static final byte QUOTE = '"';
+    private static final byte LINE_FEED = '\n';
+
+    private boolean inQuotes = false;
+    private boolean atRecordStart = true;
+    private long recordCount = 0;
+
+    /**
+     * Scans the bytes for record boundaries.
+     * 
+     * @return offset just past the first record end found, or -1 if the bytes do not end a record
+     */
+    public int scan(byte[] bytes, int offset, int length) {
+        int firstRecordEnd = -1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            final byte b = bytes[i];
+            if (b == QUOTE) {
+                // an escaped quote toggles twice
+                this.inQuotes = !this.inQuotes;
+                this.atRecordStart = false;
+            } else if (b == LINE_FEED && !this.inQuotes) {
+                this.recordCount++;
+                this.atRecordStart = true;
+                if (firstRecordEnd < 0) {
+                    firstRecordEnd = i + 1;
+                }
+            } else {
+                this.atRecordStart = false;
+            }
+        }
+        return firstRecordEnd;
+    }
+
+    /**
+     * @return number of records ended so far
+     */
+    public long getRecordCount() {
+        return this.recordCount;
+    }
+
+    /**
+     * @return true if the bytes scanned so far end with a complete record
+     */
+    public boolean isAtRecordStart() {
+        return this.atRecordStart;
+    }
+}
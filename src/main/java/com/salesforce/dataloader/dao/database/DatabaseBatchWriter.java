@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.database;
+
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
+import com.salesforce.dataloader.exception.ParameterLoadException;
+import com.salesforce.dataloader.model.Row;
+
+/**
+ * Writes lists of rows as JDBC batches on one connection of the data source.
+ * <p>
+ * The transaction is committed once commitInterval rows have been written since the last commit,
+ * or after every list if the interval is 0. Each batch is written after a savepoint, so that a
+ * batch that fails can be undone without losing the uncommitted rows of earlier batches. Rows that
+ * fail are left out and the rest of the batch is written again, so that the rows reported as
+ * written are the ones in the database. If a commit fails, the transaction is rolled back and the
+ * next commit reports that the rows written before it were lost.
+ */
+class DatabaseBatchWriter {
+
+    private static final Logger logger = LogManager.getLogger(DatabaseBatchWriter.class);
+
+    private final DatabaseContext context;
+    private final SqlConfig sqlConfig;
+    private final Config config;
+    private final int commitInterval;
+    private int uncommittedRows = 0;
+    // rows written since the last commit were rolled back and have not been reported yet
+    private boolean rolledBack = false;
+
+    DatabaseBatchWriter(DataSource dataSource, SqlConfig sqlConfig, Config config, String dbConfigName,
+            int commitInterval) throws DataAccessObjectInitializationException {
+        this.context = new DatabaseContext(dbConfigName);
+        this.sqlConfig = sqlConfig;
+        this.config = config;
+        this.context.initConnection(dataSource);
+        this.context.replaceSqlParams(sqlConfig.getSqlString());
+        this.context.prepareStatement();
+        try {
+            this.context.compileSqlParams(sqlConfig, config);
+        } catch (ParameterLoadException e) {
+            this.context.close();
+            throw new DataAccessObjectInitializationException(e.getMessage(), e);
+        }
+        this.commitInterval = commitInterval > 0 && !supportsSavepoints() ? 0 : commitInterval;
+        if (this.commitInterval != commitInterval) {
+            logger.warn(Messages.getFormattedString("DatabaseDAO.savepointsNotSupported", dbConfigName));
+        }
+    }
+
+    private boolean supportsSavepoints() {
+        try {
+            return this.context.getDataConnection().getMetaData().supportsSavepoints();
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return error message of each row that was not written, by the index of the row in the list
+     */
+    Map<Integer, String> write(List<Row> rows) throws SQLException, ParameterLoadException {
+        final Map<Integer, String> rowErrors = new TreeMap<Integer, String>();
+        final boolean earlierRowsUncommitted = this.uncommittedRows > 0;
+        List<Integer> pending = new ArrayList<Integer>(rows.size());
+        for (int i = 0; i < rows.size(); i++) {
+            pending.add(i);
+        }
+        while (!pending.isEmpty()) {
+            final Savepoint savepoint = this.commitInterval > 0 ? getConnection().setSavepoint() : null;
+            try {
+                execute(rows, pending);
+                releaseSavepoint(savepoint);
+                break;
+            } catch (BatchUpdateException e) {
+                rollback(savepoint);
+                pending = removeFailedRows(e, pending, rowErrors);
+            } catch (SQLException e) {
+                rollback(savepoint);
+                if (pending.size() > 1) {
+                    throw e;
+                }
+                rowErrors.put(pending.get(0), e.getMessage());
+                pending = new ArrayList<Integer>();
+            }
+        }
+        this.uncommittedRows += rows.size() - rowErrors.size();
+        if (this.commitInterval <= 0 || this.uncommittedRows >= this.commitInterval) {
+            try {
+                commitTransaction();
+            } catch (SQLException e) {
+                // the error reports the rows of this list, the next commit reports the earlier ones
+                rollbackTransaction();
+                this.rolledBack |= earlierRowsUncommitted;
+                throw e;
+            }
+        }
+        return rowErrors;
+    }
+
+    private void execute(List<Row> rows, List<Integer> indexes) throws SQLException, ParameterLoadException {
+        final PreparedStatement statement = this.context.getDataStatement();
+        //for batchsize = 1, don't do batching, this provides much better error output
+        if (indexes.size() == 1) {
+            this.context.setSqlParamValues(this.sqlConfig, this.config, rows.get(indexes.get(0)));
+            statement.executeUpdate();
+            return;
+        }
+        statement.clearBatch();
+        for (int index : indexes) {
+            this.context.setSqlParamValues(this.sqlConfig, this.config, rows.get(index));
+            statement.addBatch();
+        }
+        statement.executeBatch();
+    }
+
+    /**
+     * @return the rows of the batch that have to be written again
+     */
+    private static List<Integer> removeFailedRows(BatchUpdateException e, List<Integer> batch,
+            Map<Integer, String> rowErrors) throws BatchUpdateException {
+        final int[] updateCounts = e.getUpdateCounts() == null ? new int[0] : e.getUpdateCounts();
+        final List<Integer> remaining = new ArrayList<Integer>(batch.size());
+        int failures = 0;
+        for (int i = 0; i < batch.size(); i++) {
+            // drivers that stop at the first failure return the counts of the rows before it
+            final boolean failed = i < updateCounts.length ? updateCounts[i] == Statement.EXECUTE_FAILED
+                    : i == updateCounts.length;
+            if (failed) {
+                rowErrors.put(batch.get(i), getRowMessage(e, failures++));
+            } else {
+                remaining.add(batch.get(i));
+            }
+        }
+        if (remaining.size() == batch.size()) {
+            // the failed row is not known
+            throw e;
+        }
+        return remaining;
+    }
+
+    private static String getRowMessage(BatchUpdateException e, int failureNumber) {
+        // some drivers chain an exception for each failed row
+        SQLException rowException = e.getNextException();
+        for (int i = 0; rowException != null && i < failureNumber; i++) {
+            rowException = rowException.getNextException();
+        }
+        return rowException != null ? rowException.getMessage() : e.getMessage();
+    }
+
+    private Connection getConnection() {
+        return this.context.getDataConnection();
+    }
+
+    private void releaseSavepoint(Savepoint savepoint) {
+        if (savepoint != null) {
+            try {
+                getConnection().releaseSavepoint(savepoint);
+            } catch (SQLException e) {
+                // released when the transaction ends
+            }
+        }
+    }
+
+    private void rollback(Savepoint savepoint) throws SQLException {
+        if (savepoint != null) {
+            getConnection().rollback(savepoint);
+        } else {
+            getConnection().rollback();
+        }
+    }
+
+    /**
+     * @return true if rows written by earlier calls are not committed yet
+     */
+    boolean hasUncommittedRows() {
+        return this.uncommittedRows > 0 || this.rolledBack;
+    }
+
+    /**
+     * Commits the rows written since the last commit.
+     *
+     * @throws SQLException if the commit fails, or if the rows written since the last commit were
+     * rolled back by a commit that failed during a write
+     */
+    void commit() throws SQLException {
+        if (this.rolledBack) {
+            this.rolledBack = false;
+            throw new SQLException(Messages.getFormattedString("DatabaseDAO.errorRolledBack",
+                    this.context.getDbConfigName()));
+        }
+        try {
+            commitTransaction();
+        } catch (SQLException e) {
+            rollbackTransaction();
+            throw e;
+        }
+    }
+
+    private void commitTransaction() throws SQLException {
+        if (this.uncommittedRows > 0 || this.commitInterval <= 0) {
+            getConnection().commit();
+        }
+        this.uncommittedRows = 0;
+    }
+
+    private void rollbackTransaction() {
+        this.uncommittedRows = 0;
+        try {
+            getConnection().rollback();
+        } catch (SQLException e) {
+            logger.warn(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Commits the rows written since the last commit and closes the connection.
+     *
+     * @throws SQLException if the rows written since the last commit are not in the database
+     */
+    void close() throws SQLException {
+        try {
+            if (getConnection() != null && !getConnection().isClosed()) {
+                commit();
+            }
+        } finally {
+            this.context.close();
+        }
+    }
+}
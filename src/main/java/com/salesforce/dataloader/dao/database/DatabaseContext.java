@@ -55,6 +55,8 @@ public class DatabaseContext {
     private List<String> currentSqlParamNames;
     private String currentSqlString;
     private boolean open = false;
+    private ParamBinder[] paramBinders;
+    private TimeZone timeZone;
     public static final String DEFAULT_CONFIG_FILENAME = "database-conf.xml";
 
     // logger
@@ -112,98 +114,166 @@ public class DatabaseContext {
      */
     public void replaceSqlParams(String sqlString) {
         List<String> paramNames = new ArrayList<String>();
+        StringBuilder sqlStringReplace = new StringBuilder(sqlString.length());
 
-        boolean moreParams = false;
+        // All params have format "@paramname@", replace each of them with the '?' char in one pass
+        int copied = 0;
         int start = sqlString.indexOf("@");
-        if (start > 0) moreParams = true;
-
-        // Find all the params and add them to the List to be replaced. All params have format "@paramname@"
-        while (moreParams) {
+        while (start > 0) {
             int end = sqlString.indexOf("@", start + 1);
             if (end < 0) break;
 
-            String paramName = sqlString.substring(start + 1, end);
-            paramNames.add(paramName);
+            paramNames.add(sqlString.substring(start + 1, end));
+            sqlStringReplace.append(sqlString, copied, start).append('?');
+            copied = end + 1;
 
             start = sqlString.indexOf("@", end + 1);
-            if (start < 0) moreParams = false;
-        }
-
-        // Replace set the params of form "@param@" with the '?' char and save for prepare statement
-        String sqlStringReplace = new String(sqlString);
-        for (String param : paramNames) {
-            sqlStringReplace = sqlStringReplace.replaceFirst("@" + param + "@", "?");
         }
+        sqlStringReplace.append(sqlString, copied, sqlString.length());
 
         // save the output
-        currentSqlString = sqlStringReplace;
+        currentSqlString = sqlStringReplace.toString();
         currentSqlParamNames = paramNames;
+        paramBinders = null;
+    }
+
+    /**
+     * Binds one parameter of the prepared statement. The conversion of its values and its value from
+     * the config are worked out once for the statement instead of for every row.
+     */
+    private static final class ParamBinder {
+        final int index;
+        final String name;
+        final String type;
+        final Integer sqlType;
+        final ParamConversion conversion;
+        final boolean hasConfigValue;
+        final Object configValue;
+
+        ParamBinder(int index, String name, String type, ParamConversion conversion, boolean hasConfigValue,
+                Object configValue) {
+            this.index = index;
+            this.name = name;
+            this.type = type;
+            this.sqlType = getSqlType(type);
+            this.conversion = conversion;
+            this.hasConfigValue = hasConfigValue;
+            this.configValue = configValue;
+        }
+    }
+
+    private enum ParamConversion {
+        NONE, DATE, TIMESTAMP, TIME;
+
+        static ParamConversion forType(String type) {
+            if (java.sql.Date.class.getName().equals(type)) {
+                return DATE;
+            } else if (Timestamp.class.getName().equals(type)) {
+                return TIMESTAMP;
+            } else if (Time.class.getName().equals(type)) {
+                return TIME;
+            }
+            return NONE;
+        }
+    }
+
+    /**
+     * Compiles the parameters of the current Sql string into binders, in the order of their '?' in the statement.
+     * Values of parameters that are not passed in are taken from the config here, once per statement.
+     *
+     * @throws ParameterLoadException
+     */
+    public void compileSqlParams(SqlConfig sqlConfig, Config config) throws ParameterLoadException {
+        if (sqlConfig.getSqlParams() == null) {
+            // detect if there're no parameters to set
+            paramBinders = new ParamBinder[0];
+            return;
+        }
+        final ParamBinder[] binders = new ParamBinder[currentSqlParamNames.size()];
+        for (int i = 0; i < binders.length; i++) {
+            final String paramName = currentSqlParamNames.get(i);
+            final String type = sqlConfig.getSqlParams().get(paramName);
+            Object configValue = null;
+            final boolean hasConfigValue = type != null && config.contains(paramName);
+            if (hasConfigValue) {
+                configValue = mapParamToDbType(config, getConfigValue(config, paramName, type), type);
+                logger.info(Messages.getFormattedString("DatabaseDAO.sqlParamInfo", new String[] { paramName,
+                        String.valueOf(configValue) }));
+            }
+            binders[i] = new ParamBinder(i + 1, paramName, type, ParamConversion.forType(type), hasConfigValue,
+                    configValue);
+        }
+        timeZone = config.getTimeZone();
+        paramBinders = binders;
     }
 
     /**
-     * Private helper method to replace the params in the query with the values passed in from the Map. It sets the
-     * parameters with the param values.
+     * Sets the parameters of the prepared statement to the values passed in. A parameter without a value passed in
+     * is set to its value in the config.
      * 
      * @param paramValues
-     *            Values for the parameter replacement
+     *            Values for the parameter replacement, by parameter name
      * @throws ParameterLoadException
      */
     public void setSqlParamValues(SqlConfig sqlConfig, Config config, Map<String, Object> paramValues)
             throws ParameterLoadException {
-        // detect if there're no parameters to set
-        if (sqlConfig.getSqlParams() == null) { return; }
-
-        if (paramValues == null) {
-            paramValues = new HashMap<String, Object>();
+        if (paramBinders == null) {
+            compileSqlParams(sqlConfig, config);
         }
-
-        for (String paramName : sqlConfig.getSqlParams().keySet()) {
-            String type = sqlConfig.getSqlParams().get(paramName);
-            if (paramValues.containsKey(paramName)) {
-                Object sqlValue = mapParamToDbType(config, paramValues.get(paramName), type);
-                paramValues.put(paramName, sqlValue);
+        for (ParamBinder binder : paramBinders) {
+            Object sqlValue;
+            if (paramValues != null && paramValues.containsKey(binder.name)) {
+                sqlValue = convertParamValue(binder, paramValues.get(binder.name));
+            } else if (binder.hasConfigValue) {
+                sqlValue = binder.configValue;
             } else {
-                // look in the config if the parameter value is not passed in
-                if (config.contains(paramName)) {
-                    Object configValue = getConfigValue(config, paramName, type);
-                    Object sqlValue = mapParamToDbType(config, configValue, type);
-                    logger.info(Messages.getFormattedString("DatabaseDAO.sqlParamInfo", new String[] { paramName,
-                            sqlValue.toString() }));
-                    paramValues.put(paramName, sqlValue);
-                } else {
-                    String errMsg = Messages.getFormattedString("DatabaseDAO.errorParamMissing", new String[] {
-                            paramName, dbConfigName });
-                    logger.fatal(errMsg);
-                    throw new ParameterLoadException(errMsg);
-                }
+                String errMsg = Messages.getFormattedString("DatabaseDAO.errorParamMissing", new String[] {
+                        binder.name, dbConfigName });
+                logger.fatal(errMsg);
+                throw new ParameterLoadException(errMsg);
             }
-        }
-
-        // Set the parameters for all the replaced params
-        // Set the params in the Map
-        int index = 1;
-        for (String paramName : currentSqlParamNames) {
-            Object sqlValue = paramValues.get(paramName);
             try {
                 if (sqlValue != null)
-                    dataStatement.setObject(index, sqlValue);
-                else {
-                    dataStatement.setNull(index, getSqlType(sqlConfig.getSqlParams().get(paramName)));
+                    dataStatement.setObject(binder.index, sqlValue);
+                else if (binder.sqlType != null) {
+                    dataStatement.setNull(binder.index, binder.sqlType);
+                } else {
+                    throw new UnsupportedOperationException("Type not supported: " + binder.type);
                 }
             } catch (SQLException sqe) {
                 String valueString = String.valueOf(sqlValue);
                 String valueClass = String.valueOf(sqlValue == null ? null : sqlValue.getClass());
                 String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionParamReplace", new String[] {
-                        this.dbConfigName, paramName, valueString, valueClass, sqe.getMessage() });
+                        this.dbConfigName, binder.name, valueString, valueClass, sqe.getMessage() });
                 logger.error(errMsg, sqe);
                 throw new ParameterLoadException(errMsg, sqe);
             }
-            index++;
         }
+    }
 
+    private Object convertParamValue(ParamBinder binder, Object paramValue) throws ParameterLoadException {
+        if (paramValue == null || binder.conversion == ParamConversion.NONE) {
+            return paramValue;
+        }
+        try {
+            switch (binder.conversion) {
+            case DATE:
+                return new java.sql.Date(getTimeInMillis(timeZone, paramValue));
+            case TIMESTAMP:
+                return new Timestamp(getTimeInMillis(timeZone, paramValue));
+            default:
+                return new Time(getTimeInMillis(timeZone, paramValue));
+            }
+        } catch(Exception e) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.errorParamMapping", new String[] {
+                    paramValue.toString(), paramValue.getClass().getName(), binder.type, e.getMessage() });
+            logger.error(errMsg, e);
+            throw new ParameterLoadException(errMsg, e);
+        }
     }
 
-    private int getSqlType(String type) {
+    private static Integer getSqlType(String type) {
+        if (type == null) return null;
         try {
             final Class<?> cls = Class.forName(type);
             if (java.sql.Timestamp.class.isAssignableFrom(cls)) {
@@ -217,7 +287,7 @@ public class DatabaseContext {
                 return Types.NUMERIC;
             } else if (String.class.isAssignableFrom(cls)) { return Types.VARCHAR; }
         } catch (ClassNotFoundException e) {}
-        throw new UnsupportedOperationException("Type not supported: " + type);
+        return null;
     }
 
     private Object getConfigValue(Config config, String paramName, String type) throws ParameterLoadException {
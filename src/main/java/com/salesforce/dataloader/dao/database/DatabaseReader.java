@@ -27,18 +27,25 @@ package com.salesforce.dataloader.dao.database;
 
 import java.io.File;
 import java.sql.*;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.salesforce.dataloader.model.Row;
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
+import com.salesforce.dataloader.action.OperationInfo;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
 import com.salesforce.dataloader.dao.DataReader;
 import com.salesforce.dataloader.exception.*;
 import com.salesforce.dataloader.util.DAORowUtil;
+import com.salesforce.dataloader.util.NamedThreadFactory;
 
 /**
  * Data Access Object (DAO) that connects to database to update and retrieve the data This is a generic data access
@@ -52,14 +59,20 @@ public class DatabaseReader implements DataReader {
 
     // logger
     private static Logger logger = LogManager.getLogger(DatabaseReader.class);
+    private static final Duration PARTITION_CONNECTION_MAX_WAIT = Duration.ofMinutes(1);
 
     private final BasicDataSource dataSource;
     private final Config config;
     private List<String> columnNames = new ArrayList<String>();
     private int totalRows = 0;
+    private boolean totalRowsKnown = false;
+    private Future<Integer> totalRowsCount;
+    private Map<String,Object> params;
     private int currentRowNumber = 0;
     private final SqlConfig sqlConfig;
     private final DatabaseContext dbContext;
+    private int[] columnIndexes;
+    private PartitionedResultReader partitionedReader;
 
     /**
      * Get an instance of database reader for the data access object name from configuration
@@ -108,8 +121,13 @@ public class DatabaseReader implements DataReader {
      */
     public void open(Map<String,Object> params) throws DataAccessObjectInitializationException {
         currentRowNumber = 0;
+        this.params = params;
         try {
-            setupQuery(params);
+            if (getPartitionCount() > 1) {
+                setupPartitionedQuery(params);
+            } else {
+                setupQuery(params);
+            }
         } catch (DataAccessObjectInitializationException e) {
             throw e;
         } catch (Exception e) {
@@ -128,22 +146,11 @@ public class DatabaseReader implements DataReader {
             dbContext.setSqlParamValues(sqlConfig, config, params);
 
             // set the query fetch size
-            int fetchSize;
-            try {
-                fetchSize = config.getInt(Config.DAO_READ_BATCH_SIZE);
-                if(fetchSize > Config.MAX_DAO_READ_BATCH_SIZE) {
-                    fetchSize = Config.MAX_DAO_READ_BATCH_SIZE;
-                }
-            } catch (ParameterLoadException e) {
-                // warn about getting batch size parameter, otherwise continue w/ default
-                logger.warn(Messages.getFormattedString("DatabaseDAO.errorGettingBatchSize", new String[] {
-                        String.valueOf(Config.DEFAULT_DAO_READ_BATCH_SIZE), e.getMessage() }));
-                fetchSize = Config.DEFAULT_DAO_READ_BATCH_SIZE;
-            }
-            statement.setFetchSize(fetchSize);
+            statement.setFetchSize(getFetchSize());
 
             // execute the query and save the result set
             dbContext.setDataResultSet(statement.executeQuery());
+            columnIndexes = findColumns(dbContext.getDataResultSet(), columnNames);
         } catch (SQLException sqe) {
             String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionSetup", new String[] {dbContext.getDbConfigName(), sqe.getMessage()});
             logger.error(errMsg, sqe);
@@ -152,6 +159,107 @@ public class DatabaseReader implements DataReader {
         }
     }
 
+    private void setupPartitionedQuery(Map<String,Object> params) throws DataAccessObjectInitializationException {
+        final String partitionExpression = config.getString(Config.DAO_READ_PARTITION_EXPRESSION);
+        if (partitionExpression == null || partitionExpression.isBlank()) {
+            throw new DataAccessObjectInitializationException(Messages.getFormattedString(
+                    "DatabaseDAO.errorPartitionExpressionMissing", dbContext.getDbConfigName()));
+        }
+        // a load that resumes at a row or keeps the last row of each external id reads the rows in
+        // the same order twice, which the partitions do not guarantee
+        final String orderedSetting = getRowOrderSetting();
+        if (orderedSetting != null) {
+            throw new DataAccessObjectInitializationException(Messages.getFormattedString(
+                    "DatabaseDAO.errorPartitionedRowOrder", new String[] {dbContext.getDbConfigName(), orderedSetting}));
+        }
+        // Bulk API results are matched to the rows by reading them again unless they are cached
+        if (config.isBulkAPIEnabled() && !config.isBulkV2APIEnabled()
+                && !config.getBoolean(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO)) {
+            throw new DataAccessObjectInitializationException(Messages.getFormattedString(
+                    "DatabaseDAO.errorPartitionedBulkReread", dbContext.getDbConfigName()));
+        }
+        if (partitionedReader != null) {
+            partitionedReader.close();
+        }
+        final int partitionCount = getPartitionCount();
+        // each partition query holds a connection until its rows have been read, one more is left
+        // for the count query
+        if (dataSource.getMaxTotal() >= 0 && dataSource.getMaxTotal() <= partitionCount) {
+            dataSource.setMaxTotal(partitionCount + 1);
+        }
+        // a partition that cannot get a connection fails instead of waiting forever
+        if (dataSource.getMaxWaitDuration().isNegative()) {
+            dataSource.setMaxWait(PARTITION_CONNECTION_MAX_WAIT);
+        }
+        partitionedReader = new PartitionedResultReader(dataSource, sqlConfig, config, dbContext.getDbConfigName(),
+                params, partitionExpression, partitionCount, getFetchSize());
+    }
+
+    /**
+     * @return the setting that needs the rows in the same order on every read, or null if none is set
+     */
+    private String getRowOrderSetting() {
+        try {
+            if (config.getInt(Config.LOAD_ROW_TO_START_AT) > 0) {
+                return Config.LOAD_ROW_TO_START_AT;
+            }
+        } catch (ParameterLoadException e) {
+            // not resuming
+        }
+        if (OperationInfo.upsert.name().equals(config.getString(Config.OPERATION))
+                && Config.LOAD_DUPLICATE_EXTERNAL_IDS_LAST_WINS.equalsIgnoreCase(config.getString(Config.LOAD_DUPLICATE_EXTERNAL_IDS))) {
+            return Config.LOAD_DUPLICATE_EXTERNAL_IDS;
+        }
+        return null;
+    }
+
+    private int getPartitionCount() {
+        try {
+            return config.getInt(Config.DAO_READ_PARTITIONS);
+        } catch (ParameterLoadException e) {
+            return 1;
+        }
+    }
+
+    private int getFetchSize() {
+        int fetchSize;
+        try {
+            fetchSize = config.getInt(Config.DAO_READ_FETCH_SIZE);
+            if (fetchSize > 0) {
+                return fetchSize;
+            }
+            fetchSize = config.getInt(Config.DAO_READ_BATCH_SIZE);
+            if(fetchSize > Config.MAX_DAO_READ_BATCH_SIZE) {
+                fetchSize = Config.MAX_DAO_READ_BATCH_SIZE;
+            }
+        } catch (ParameterLoadException e) {
+            // warn about getting batch size parameter, otherwise continue w/ default
+            logger.warn(Messages.getFormattedString("DatabaseDAO.errorGettingBatchSize", new String[] {
+                    String.valueOf(Config.DEFAULT_DAO_READ_BATCH_SIZE), e.getMessage() }));
+            fetchSize = Config.DEFAULT_DAO_READ_BATCH_SIZE;
+        }
+        return fetchSize;
+    }
+
+    /**
+     * @return position of each column in the result set, looked up once instead of for every row
+     */
+    static int[] findColumns(ResultSet rs, List<String> columnNames) throws SQLException {
+        final int[] indexes = new int[columnNames.size()];
+        for (int i = 0; i < indexes.length; i++) {
+            indexes[i] = rs.findColumn(columnNames.get(i));
+        }
+        return indexes;
+    }
+
+    static Row getRow(ResultSet rs, List<String> columnNames, int[] columnIndexes) throws SQLException {
+        final Row row = new Row(columnNames.size());
+        for (int i = 0; i < columnIndexes.length; i++) {
+            row.put(columnNames.get(i), rs.getObject(columnIndexes[i]));
+        }
+        return row;
+    }
+
     /*
      * (non-Javadoc)
      * @see com.salesforce.dataloader.dao.DataReader#readRowList(int)
@@ -182,16 +290,25 @@ public class DatabaseReader implements DataReader {
 
         String currentColumnName = "";
         try {
+            if (partitionedReader != null) {
+                row = partitionedReader.nextRow();
+                if (row != null) {
+                    currentRowNumber++;
+                    row.setRowNumber(currentRowNumber);
+                }
+                return row;
+            }
             ResultSet rs = dbContext.getDataResultSet();
             if (rs != null && rs.next()) {
                 row = new Row(columnNames.size());
 
-                for (String columnName : columnNames) {
-                    currentColumnName = columnName;
-                    Object value = rs.getObject(columnName);
-                    row.put(columnName, value);
+                for (int i = 0; i < columnIndexes.length; i++) {
+                    currentColumnName = columnNames.get(i);
+                    Object value = rs.getObject(columnIndexes[i]);
+                    row.put(currentColumnName, value);
                 }
                 currentRowNumber++;
+                row.setRowNumber(currentRowNumber);
             }
             return row;
         } catch (SQLException sqe) {
@@ -219,13 +336,86 @@ public class DatabaseReader implements DataReader {
     	if (skipRowCount == true)
     		return 0;
 
-    	if (totalRows == 0) {
-    		totalRows = DAORowUtil.calculateTotalRows(this);
+    	if (!totalRowsKnown) {
+    		calculateTotalRows();
     	}
 
     	return totalRows;
     }
 
+    /**
+     * Counts the rows of the query with a COUNT(*) query, in the background if configured, or
+     * takes the estimate of the configured statistics query.
+     */
+    private void calculateTotalRows() throws DataAccessObjectException {
+        final String mode = config.getString(Config.DAO_TOTAL_COUNT_MODE);
+        final String estimateSql = config.getString(Config.DAO_TOTAL_COUNT_ESTIMATE_SQL);
+        if (Config.DAO_TOTAL_COUNT_MODE_ESTIMATE.equalsIgnoreCase(mode) && estimateSql != null && !estimateSql.isBlank()) {
+            totalRows = queryCount(estimateSql);
+            totalRowsKnown = true;
+        } else if (Config.DAO_TOTAL_COUNT_MODE_CONCURRENT.equalsIgnoreCase(mode)) {
+            if (totalRowsCount == null) {
+                // the total is 0 until the count query finishes next to the query of the rows
+                final ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("databaseCount"));
+                totalRowsCount = executor.submit(() -> queryCount(getCountSql(sqlConfig.getSqlString())));
+                executor.shutdown();
+            } else if (totalRowsCount.isDone()) {
+                try {
+                    totalRows = totalRowsCount.get();
+                } catch (ExecutionException e) {
+                    logger.warn(Messages.getFormattedString("DatabaseDAO.errorCountingRows", new String[] {
+                            dbContext.getDbConfigName(), e.getCause().getMessage() }));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                totalRowsKnown = true;
+            }
+        } else {
+            try {
+                totalRows = queryCount(getCountSql(sqlConfig.getSqlString()));
+            } catch (DataAccessObjectException e) {
+                // the query cannot be wrapped, read all of its rows instead
+                logger.warn(Messages.getFormattedString("DatabaseDAO.errorCountingRows", new String[] {
+                        dbContext.getDbConfigName(), e.getMessage() }));
+                totalRows = DAORowUtil.calculateTotalRows(this);
+            }
+            totalRowsKnown = true;
+        }
+    }
+
+    private int queryCount(String sql) throws DataAccessObjectException {
+        final DatabaseContext countContext = new DatabaseContext(dbContext.getDbConfigName());
+        try {
+            countContext.initConnection(dataSource);
+            countContext.replaceSqlParams(sql);
+            final PreparedStatement statement = countContext.prepareStatement();
+            countContext.setSqlParamValues(sqlConfig, config, params);
+            final ResultSet rs = statement.executeQuery();
+            countContext.setDataResultSet(rs);
+            return rs.next() ? (int)Math.min(rs.getLong(1), Integer.MAX_VALUE) : 0;
+        } catch (SQLException | ParameterLoadException e) {
+            throw new DataAccessObjectException(e.getMessage(), e);
+        } finally {
+            countContext.close();
+        }
+    }
+
+    static String getCountSql(String sql) {
+        return "SELECT COUNT(*) FROM (" + trimStatement(sql) + ") dl_count";
+    }
+
+    /**
+     * @return the statement without surrounding whitespace and a terminating semicolon, so that
+     * it can be used as a subquery
+     */
+    static String trimStatement(String sql) {
+        String statement = sql.trim();
+        while (statement.endsWith(";")) {
+            statement = statement.substring(0, statement.length() - 1).trim();
+        }
+        return statement;
+    }
+
     @Override
     public int getCurrentRowNumber() {
         return currentRowNumber;
@@ -251,6 +441,10 @@ public class DatabaseReader implements DataReader {
      */
     @Override
     public void close() {
+        if (partitionedReader != null) {
+            partitionedReader.close();
+            partitionedReader = null;
+        }
         dbContext.close();
     }
 }
@@ -28,15 +28,21 @@ package com.salesforce.dataloader.dao.database;
 import java.io.File;
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.util.NamedThreadFactory;
+
 import org.apache.commons.dbcp2.BasicDataSource;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.config.Messages;
-import com.salesforce.dataloader.dao.DataWriter;
+import com.salesforce.dataloader.dao.TransactionalDataWriter;
 import com.salesforce.dataloader.exception.*;
 
 /**
@@ -45,16 +51,21 @@ import com.salesforce.dataloader.exception.*;
  * @author Alex Warshavsky
  * @since 8.0
  */
-public class DatabaseWriter implements DataWriter {
+public class DatabaseWriter implements TransactionalDataWriter {
 
     // logger
     private static Logger logger = LogManager.getLogger(DatabaseReader.class);
 
+    // smaller lists are not split between connections
+    private static final int MIN_ROWS_PER_CONNECTION = 50;
+
     private final BasicDataSource dataSource;
     private final Config config;
     private int currentRowNumber = 0;
     private final SqlConfig sqlConfig;
     private final DatabaseContext dbContext;
+    private final List<DatabaseBatchWriter> batchWriters = new ArrayList<DatabaseBatchWriter>();
+    private ExecutorService writeExecutor;
 
     public DatabaseWriter(Config config) throws DataAccessObjectInitializationException {
         this(config, config.getString(Config.DAO_NAME));
@@ -111,13 +122,97 @@ public class DatabaseWriter implements DataWriter {
      */
     @Override
     public void close() {
+        if (writeExecutor != null) {
+            writeExecutor.shutdownNow();
+            writeExecutor = null;
+        }
+        // commits the rows written since the last commit
+        SQLException commitError = null;
+        for (DatabaseBatchWriter batchWriter : batchWriters) {
+            try {
+                batchWriter.close();
+            } catch (SQLException e) {
+                if (commitError == null) {
+                    commitError = e;
+                }
+            }
+        }
+        batchWriters.clear();
         dbContext.close();
+        if (commitError != null) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionCommit", new String[] {
+                    dbContext.getDbConfigName(), commitError.getMessage() });
+            logger.error(errMsg, commitError);
+            throw new IllegalStateException(errMsg, commitError);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.salesforce.dataloader.dao.TransactionalDataWriter#hasUncommittedRows()
+     */
+    @Override
+    public boolean hasUncommittedRows() {
+        for (DatabaseBatchWriter batchWriter : batchWriters) {
+            if (batchWriter.hasUncommittedRows()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     * @see com.salesforce.dataloader.dao.TransactionalDataWriter#commit()
+     */
+    @Override
+    public void commit() throws DataAccessObjectException {
+        // every connection is committed, even if the commit of an earlier one fails
+        SQLException commitError = null;
+        for (DatabaseBatchWriter batchWriter : batchWriters) {
+            try {
+                batchWriter.commit();
+            } catch (SQLException e) {
+                if (commitError == null) {
+                    commitError = e;
+                }
+            }
+        }
+        if (commitError != null) {
+            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionCommit", new String[] {
+                    dbContext.getDbConfigName(), commitError.getMessage() });
+            logger.error(errMsg, commitError);
+            throw new DataAccessObjectException(errMsg, commitError);
+        }
     }
 
     private void setupUpdate() throws DataAccessObjectInitializationException {
-        dbContext.initConnection(dataSource);
-        dbContext.replaceSqlParams(sqlConfig.getSqlString());
-        dbContext.prepareStatement();
+        close();
+        final int connections = Math.max(getIntConfig(Config.DAO_WRITE_CONNECTIONS, 1), 1);
+        final int commitInterval = getIntConfig(Config.DAO_WRITE_COMMIT_INTERVAL, 0);
+        if (connections > 1 && dataSource.getMaxTotal() >= 0 && dataSource.getMaxTotal() < connections) {
+            dataSource.setMaxTotal(connections);
+        }
+        try {
+            for (int i = 0; i < connections; i++) {
+                batchWriters.add(new DatabaseBatchWriter(dataSource, sqlConfig, config, dbContext.getDbConfigName(),
+                        commitInterval));
+            }
+        } catch (DataAccessObjectInitializationException e) {
+            close();
+            throw e;
+        }
+        if (connections > 1) {
+            writeExecutor = Executors.newFixedThreadPool(connections, new NamedThreadFactory("databaseWrite"));
+        }
+    }
+
+    private int getIntConfig(String name, int defaultValue) {
+        try {
+            return config.getInt(name);
+        } catch (ParameterLoadException e) {
+            return defaultValue;
+        }
     }
 
     /*
@@ -131,99 +226,92 @@ public class DatabaseWriter implements DataWriter {
         if (!dbContext.isOpen()) { throw new DataAccessObjectInitializationException(Messages
                 .getString("DatabaseDAO.errorUpdateNotOpen")); }
 
-        boolean success = true;
         int startingRowNumber = currentRowNumber;
+        currentRowNumber += inputRowList.size();
+        final Map<Integer, String> rowErrors = new TreeMap<Integer, String>();
 
         try {
-            //for batchsize = 1, don't do batching, this provides much better error output
-            if(inputRowList.size() == 1) {
-                dbContext.setSqlParamValues(sqlConfig, config, inputRowList.get(0));
-                currentRowNumber++;
+            final int slices = Math.min(batchWriters.size(), Math.max(inputRowList.size() / MIN_ROWS_PER_CONNECTION, 1));
+            if (slices == 1) {
+                rowErrors.putAll(batchWriters.get(0).write(inputRowList));
             } else {
-                // for each row set the Sql params in the prepared statement
-                dbContext.getDataStatement().clearBatch();
-                for (Row inputRow : inputRowList) {
-                    dbContext.setSqlParamValues(sqlConfig, config, inputRow);
-                    dbContext.getDataStatement().addBatch();
-                    currentRowNumber++;
+                // write a slice of the list on each connection
+                final int sliceSize = (inputRowList.size() + slices - 1) / slices;
+                final List<Future<Map<Integer, String>>> sliceResults = new ArrayList<Future<Map<Integer, String>>>();
+                for (int i = 0; i < slices; i++) {
+                    final DatabaseBatchWriter batchWriter = batchWriters.get(i);
+                    final List<Row> slice = inputRowList.subList(Math.min(i * sliceSize, inputRowList.size()),
+                            Math.min((i + 1) * sliceSize, inputRowList.size()));
+                    sliceResults.add(writeExecutor.submit(() -> batchWriter.write(slice)));
                 }
-            }
-        } catch (ParameterLoadException e) {
-            throw new DataAccessObjectException(e.getMessage(), e);
-        } catch (SQLException sqe) {
-            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionPrepareRow", new String[] {
-                    String.valueOf(currentRowNumber + 1), String.valueOf(startingRowNumber + 1),
-                    String.valueOf(startingRowNumber + inputRowList.size() + 1), dbContext.getDbConfigName(),
-                    sqe.getMessage() });
-            logger.error(errMsg, sqe);
-            // batch failed: set current row number to the end of the batch
-            currentRowNumber = startingRowNumber + inputRowList.size();
-            throw new DataAccessObjectException(errMsg, sqe);
-        } catch (Exception e) {
-            String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionPrepareRow", new String[] {
-                    String.valueOf(currentRowNumber + 1), String.valueOf(startingRowNumber + 1),
-                    String.valueOf(startingRowNumber + inputRowList.size() + 1), dbContext.getDbConfigName(),
-                    e.getMessage() });
-            logger.error(errMsg, e);
-            // batch failed: set current row number to the end of the batch
-            currentRowNumber = startingRowNumber + inputRowList.size();
-            throw new DataAccessObjectException(errMsg, e);
-        }
-
-        try {
-            //for batchsize = 1, don't do batching, this provides much better error output
-            int totalSuccessRows = 0;
-            if(inputRowList.size() == 1) {
-                // non-batch update returns exception, so it's always success unless exception is returned
-                dbContext.getDataStatement().executeUpdate();
-                success = true;
-                totalSuccessRows = 1;
-            } else {
-                // execute the update SQL in batch
-                int[] rowsUpdatedArray = dbContext.getDataStatement().executeBatch();
-                for (int rowsUpdated : rowsUpdatedArray) {
-                    if (rowsUpdated == PreparedStatement.SUCCESS_NO_INFO) {
-                        totalSuccessRows = rowsUpdatedArray.length;
-                        success = true;
-                        break;
+                for (int i = 0; i < slices; i++) {
+                    final int sliceStart = Math.min(i * sliceSize, inputRowList.size());
+                    final int sliceEnd = Math.min((i + 1) * sliceSize, inputRowList.size());
+                    try {
+                        for (Map.Entry<Integer, String> rowError : getSliceResult(sliceResults.get(i)).entrySet()) {
+                            rowErrors.put(sliceStart + rowError.getKey(), rowError.getValue());
+                        }
+                    } catch (SQLException | ParameterLoadException | IllegalStateException e) {
+                        // the slice is rolled back, the other slices are written on their own connections
+                        logger.error(Messages.getFormattedString("DatabaseDAO.exceptionWriteRow", new String[] {
+                                String.valueOf(startingRowNumber + sliceStart + 1), String.valueOf(startingRowNumber + sliceEnd),
+                                dbContext.getDbConfigName(), e.getMessage() }), e);
+                        for (int row = sliceStart; row < sliceEnd; row++) {
+                            rowErrors.put(row, e.getMessage());
+                        }
                     }
                 }
             }
             logger.debug(Messages.getFormattedString("DatabaseDAO.updatedStatus", new String[] {
-                    String.valueOf(totalSuccessRows), String.valueOf(currentRowNumber) }));
-
-            // commit the change
-            dbContext.getDataConnection().commit();
-
+                    String.valueOf(inputRowList.size() - rowErrors.size()), String.valueOf(currentRowNumber) }));
         } catch (SQLException sqe) {
-            if (sqe instanceof BatchUpdateException) {
-                int[] updateCountArray = ((BatchUpdateException)sqe).getUpdateCounts();
-                for (int i = 0; i < updateCountArray.length; i++) {
-                    if (updateCountArray[i] == PreparedStatement.EXECUTE_FAILED) {
-                        // FIXME all results are the same, return
-                        success = false;
-                        break;
-                    }
-                }
-            }
             String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionWriteRow", new String[] {
-                    String.valueOf(currentRowNumber + 1 - inputRowList.size()), String.valueOf(currentRowNumber + 1),
+                    String.valueOf(startingRowNumber + 1), String.valueOf(currentRowNumber + 1),
                     dbContext.getDbConfigName(), sqe.getMessage() });
             logger.error(errMsg, sqe);
-
-            endException(inputRowList.size());
             throw new DataAccessObjectException(errMsg, sqe);
+        } catch (ParameterLoadException e) {
+            throw new DataAccessObjectException(e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionWriteRow", new String[] {
+                    String.valueOf(startingRowNumber + 1), String.valueOf(currentRowNumber + 1),
+                    dbContext.getDbConfigName(), e.getMessage() });
+            logger.error(errMsg, e);
+            throw new DataAccessObjectException(errMsg, e);
         } catch (Exception e) {
             String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionWriteRow", new String[] {
-                    String.valueOf(currentRowNumber + 1 - inputRowList.size()), String.valueOf(currentRowNumber + 1),
+                    String.valueOf(startingRowNumber + 1), String.valueOf(currentRowNumber + 1),
                     dbContext.getDbConfigName(), e.getMessage() });
             logger.error(errMsg, e);
-
-            endException(inputRowList.size());
             throw new DataAccessObjectException(errMsg, e);
         }
 
-        return success;
+        if (!rowErrors.isEmpty()) {
+            final Map.Entry<Integer, String> firstError = rowErrors.entrySet().iterator().next();
+            String errMsg = Messages.getFormattedString("DatabaseDAO.sqlExceptionWriteRows", new String[] {
+                    String.valueOf(rowErrors.size()), String.valueOf(startingRowNumber + 1),
+                    String.valueOf(currentRowNumber), dbContext.getDbConfigName(),
+                    String.valueOf(startingRowNumber + firstError.getKey() + 1), firstError.getValue() });
+            logger.error(errMsg);
+            throw new DataAccessBatchException(errMsg, rowErrors);
+        }
+        return true;
+    }
+
+    private static Map<Integer, String> getSliceResult(Future<Map<Integer, String>> sliceResult)
+            throws SQLException, ParameterLoadException, InterruptedException {
+        try {
+            return sliceResult.get();
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException)cause;
+            } else if (cause instanceof ParameterLoadException) {
+                throw (ParameterLoadException)cause;
+            }
+            throw new IllegalStateException(cause.getMessage(), cause);
+        }
     }
 
     /**
@@ -239,20 +327,6 @@ public class DatabaseWriter implements DataWriter {
         return writeRowList(inputRowList);
     }
 
-    /**
-     * @param sqe
-     */
-    private void endException(int batchSize) {
-        // Rollback if dbContext.getAutoCommit() is false
-        try {
-            dbContext.getDataConnection().rollback();
-        } catch (SQLException sqe) {
-            logger.error(Messages.getFormattedString("DatabaseDAO.sqlExceptionRollback", new String[] {
-                    String.valueOf(currentRowNumber + 1 - batchSize),
-                    String.valueOf(currentRowNumber + 1), dbContext.getDbConfigName(), sqe.getMessage() }), sqe);
-        }
-    }
-
     /*
      * (non-Javadoc)
      * @see com.salesforce.dataloader.dao.DataAccessObject#getColumnNames()
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dao.database;
+
+import java.io.Closeable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.config.Messages;
+import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.util.NamedThreadFactory;
+
+/**
+ * Reads the results of a query split into partitions that are queried in parallel, each on its
+ * own connection from the data source. A row belongs to the partition given by the partition
+ * expression modulo the number of partitions. Rows are handed over in chunks through a bounded
+ * queue, so a slow consumer holds back the partition queries instead of filling the heap. Rows of
+ * different partitions are returned in no particular order.
+ */
+class PartitionedResultReader implements Closeable {
+
+    private static final Logger logger = LogManager.getLogger(PartitionedResultReader.class);
+    // marks the end of the rows of a partition in the queue
+    private static final List<Row> END_OF_PARTITION = Collections.emptyList();
+    private static final long OFFER_TIMEOUT_MILLIS = 500;
+
+    private final String dbConfigName;
+    private final int partitionCount;
+    private final int fetchSize;
+    private final List<String> columnNames;
+    private final BlockingQueue<List<Row>> chunks;
+    private final ExecutorService executor;
+    private volatile boolean closed = false;
+    private volatile Exception failure = null;
+    private int finishedPartitions = 0;
+    private List<Row> currentChunk = Collections.emptyList();
+    private int currentChunkIndex = 0;
+
+    PartitionedResultReader(DataSource dataSource, SqlConfig sqlConfig, Config config, String dbConfigName,
+            Map<String, Object> params, String partitionExpression, int partitionCount, int fetchSize) {
+        this.dbConfigName = dbConfigName;
+        this.partitionCount = partitionCount;
+        this.fetchSize = fetchSize;
+        this.columnNames = sqlConfig.getColumnNames();
+        // two chunks per partition let each partition query read ahead while its last chunk is consumed
+        this.chunks = new ArrayBlockingQueue<List<Row>>(2 * partitionCount);
+        this.executor = Executors.newFixedThreadPool(partitionCount, new NamedThreadFactory("databaseRead"));
+        for (int partition = 0; partition < partitionCount; partition++) {
+            final String sql = getPartitionSql(sqlConfig.getSqlString(), partitionExpression, partitionCount, partition);
+            final Map<String, Object> partitionParams = params == null ? null : new HashMap<String, Object>(params);
+            final int partitionIndex = partition;
+            this.executor.execute(() -> readPartition(dataSource, sqlConfig, config, sql, partitionParams, partitionIndex));
+        }
+        this.executor.shutdown();
+    }
+
+    /**
+     * @return the query of the partition, which filters the results of the configured query. Rows
+     * where the partition expression is null belong to the first partition.
+     */
+    static String getPartitionSql(String sql, String partitionExpression, int partitionCount, int partition) {
+        return "SELECT * FROM (" + DatabaseReader.trimStatement(sql) + ") dl_partition WHERE MOD(ABS(" + partitionExpression + "), "
+                + partitionCount + ") = " + partition
+                + (partition == 0 ? " OR (" + partitionExpression + ") IS NULL" : "");
+    }
+
+    /**
+     * @return the next row of any partition, or null when all partitions have been read
+     */
+    Row nextRow() throws DataAccessObjectException {
+        while (this.currentChunkIndex >= this.currentChunk.size()) {
+            if (this.finishedPartitions == this.partitionCount) {
+                return null;
+            }
+            final List<Row> chunk;
+            try {
+                chunk = this.chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataAccessObjectException(e.getMessage(), e);
+            }
+            if (chunk == END_OF_PARTITION) {
+                this.finishedPartitions++;
+                if (this.failure != null) {
+                    throw new DataAccessObjectException(this.failure.getMessage(), this.failure);
+                }
+            }
+            this.currentChunk = chunk;
+            this.currentChunkIndex = 0;
+        }
+        return this.currentChunk.get(this.currentChunkIndex++);
+    }
+
+    private void readPartition(DataSource dataSource, SqlConfig sqlConfig, Config config, String sql,
+            Map<String, Object> params, int partition) {
+        final DatabaseContext context = new DatabaseContext(this.dbConfigName);
+        try {
+            context.initConnection(dataSource);
+            context.replaceSqlParams(sql);
+            final PreparedStatement statement = context.prepareStatement();
+            context.setSqlParamValues(sqlConfig, config, params);
+            statement.setFetchSize(this.fetchSize);
+            final ResultSet rs = statement.executeQuery();
+            context.setDataResultSet(rs);
+            final int[] columnIndexes = DatabaseReader.findColumns(rs, this.columnNames);
+            List<Row> chunk = new ArrayList<Row>(this.fetchSize);
+            while (!this.closed && rs.next()) {
+                chunk.add(DatabaseReader.getRow(rs, this.columnNames, columnIndexes));
+                if (chunk.size() == this.fetchSize) {
+                    put(chunk);
+                    chunk = new ArrayList<Row>(this.fetchSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                put(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            final String errMsg = Messages.getFormattedString("DatabaseDAO.exceptionReadPartition", new String[] {
+                    String.valueOf(partition), String.valueOf(this.partitionCount), this.dbConfigName, e.getMessage() });
+            logger.error(errMsg, e);
+            if (this.failure == null) {
+                this.failure = new DataAccessObjectException(errMsg, e);
+            }
+        } finally {
+            context.close();
+            try {
+                put(END_OF_PARTITION);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void put(List<Row> chunk) throws InterruptedException {
+        // gives up when the reader is closed before all rows have been consumed
+        while (!this.closed && !this.chunks.offer(chunk, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public void close() {
+        this.closed = true;
+        this.chunks.clear();
+        try {
+            this.executor.awaitTermination(OFFER_TIMEOUT_MILLIS * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        this.executor.shutdownNow();
+        this.chunks.clear();
+    }
+}
@@ -66,6 +66,11 @@ public final class FileByteArrayConverter implements Converter {
 
     }
 
+    public FileByteArrayConverter(FileContentCache contentCache) {
+        this();
+        this.contentCache = contentCache;
+    }
+
     // ----------------------------------------------------- Instance Variables
 
     /**
@@ -78,6 +83,11 @@ public final class FileByteArrayConverter implements Converter {
      */
     private boolean useDefault = true;
 
+    /**
+     * Cache of already converted file contents, if any.
+     */
+    private FileContentCache contentCache = null;
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -97,32 +107,16 @@ public final class FileByteArrayConverter implements Converter {
         if (value == null || String.valueOf(value).length() == 0) { return null; }
         final String absolutePath = new File(String.valueOf(value.toString())).getAbsolutePath();
         try {
-            final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
             // just in case the file is not found we want to display the absolute file name to the user
             File file = new File(absolutePath);
-            if (!file.canRead()) {
-                logger.debug("Attempting to enable readable flag on file " + absolutePath);
-                file.setReadable(true);
-            }
-            FileUtil.copy(new FileInputStream(absolutePath), byteStream);
-            Path pathToValueFile = Path.of(absolutePath);
-            String mimeType = Files.probeContentType(pathToValueFile);
-            Config config = Config.getCurrentConfig();
-            if (mimeType.equalsIgnoreCase("text/plain")
-                    && config != null
-                    && config.getBoolean(Config.LOAD_PRESERVE_WHITESPACE_IN_RICH_TEXT)
-                    && AppUtil.isContentSObject(config.getString(Config.ENTITY))) {
-                // Preserve the formatting only if the content is of type plain text
-                // AND the flag to preserve whitespace characters in RichText fields is enabled
-                // AND the content is for ContentNote sobject. 
-                //     See https://help.salesforce.com/s/articleView?id=000387816&type=1 for how
-                //     data loader processes ContentNote.
-                String content = byteStream.toString();
-                String formattedContent = DAOLoadVisitor.convertToHTMLFormatting(content, DAOLoadVisitor.DEFAULT_RICHTEXT_REGEX);
-                return formattedContent.getBytes();
-            } else {
-                return byteStream.toByteArray();
+            if (this.contentCache != null) {
+                byte[] cachedContent = this.contentCache.get(file);
+                if (cachedContent != null) {
+                    return cachedContent;
+                }
             }
+            byte[] content = readContent(file);
+            return this.contentCache == null ? content : this.contentCache.put(file, content);
         } catch (Exception e) {
             if (e instanceof java.io.FileNotFoundException) {
                 if (AppUtil.getOSType() == AppUtil.OSType.MACOSX 
@@ -141,4 +135,31 @@ public final class FileByteArrayConverter implements Converter {
         }
     }
 
+    private byte[] readContent(File file) throws IOException {
+        final String absolutePath = file.getAbsolutePath();
+        final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+        if (!file.canRead()) {
+            logger.debug("Attempting to enable readable flag on file " + absolutePath);
+            file.setReadable(true);
+        }
+        FileUtil.copy(new FileInputStream(absolutePath), byteStream);
+        Path pathToValueFile = Path.of(absolutePath);
+        String mimeType = Files.probeContentType(pathToValueFile);
+        Config config = Config.getCurrentConfig();
+        if (mimeType.equalsIgnoreCase("text/plain")
+                && config != null
+                && config.getBoolean(Config.LOAD_PRESERVE_WHITESPACE_IN_RICH_TEXT)
+                && AppUtil.isContentSObject(config.getString(Config.ENTITY))) {
+            // Preserve the formatting only if the content is of type plain text
+            // AND the flag to preserve whitespace characters in RichText fields is enabled
+            // AND the content is for ContentNote sobject. 
+            //     See https://help.salesforce.com/s/articleView?id=000387816&type=1 for how
+            //     data loader processes ContentNote.
+            String content = byteStream.toString();
+            String formattedContent = DAOLoadVisitor.convertToHTMLFormatting(content, DAOLoadVisitor.DEFAULT_RICHTEXT_REGEX);
+            return formattedContent.getBytes();
+        } else {
+            return byteStream.toByteArray();
+        }
+    }
 }
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.dyna;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+/**
+ * Content-addressed cache of files referenced by base64 fields such as Attachment.Body
+ * or ContentVersion.VersionData.
+ * 
+ * Entries are keyed by canonical path and last modified time of the file so that a
+ * file referenced by many rows is read and hashed only once per job. Files with identical
+ * content share the same byte array, which allows the bulk API visitor to send one zip entry
+ * for all the rows of a batch referencing that content. Least recently used entries are
+ * evicted once the total size of cached content exceeds the memory budget.
+ */
+public class FileContentCache {
+    private static final Logger logger = LogManager.getLogger(FileContentCache.class);
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private final long maxCachedBytes;
+    private long cachedBytes = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+
+    // access-ordered so that the first entry is always the least recently used one
+    private final LinkedHashMap<String, CachedContent> contentByFileKey = new LinkedHashMap<String, CachedContent>(16, 0.75f, true);
+    private final Map<String, CachedContent> contentByDigest = new HashMap<String, CachedContent>();
+
+    private static class CachedContent {
+        final byte[] content;
+        final String digest;
+        int fileKeyCount = 0;
+
+        CachedContent(byte[] content, String digest) {
+            this.content = content;
+            this.digest = digest;
+        }
+    }
+
+    public FileContentCache(long maxCachedBytes) {
+        this.maxCachedBytes = maxCachedBytes;
+    }
+
+    /**
+     * @return cached content of the file, or null if the file is not cached or
+     * has been modified since it was cached
+     */
+    public synchronized byte[] get(File file) {
+        String fileKey = getFileKey(file);
+        CachedContent cached = fileKey == null ? null : this.contentByFileKey.get(fileKey);
+        if (cached == null) {
+            this.missCount++;
+            return null;
+        }
+        this.hitCount++;
+        return cached.content;
+    }
+
+    /**
+     * Caches the content read from the file.
+     * 
+     * @return content to use for the file. It is the byte array of an already cached file
+     * if the contents of both files are identical.
+     */
+    public synchronized byte[] put(File file, byte[] content) {
+        if (content == null || content.length > this.maxCachedBytes) {
+            return content;
+        }
+        String fileKey = getFileKey(file);
+        if (fileKey == null) {
+            return content;
+        }
+        String digest = getDigest(content);
+        if (digest == null) {
+            return content;
+        }
+        CachedContent cached = this.contentByDigest.get(digest);
+        if (cached == null) {
+            cached = new CachedContent(content, digest);
+            this.contentByDigest.put(digest, cached);
+            this.cachedBytes += content.length;
+        }
+        CachedContent replaced = this.contentByFileKey.put(fileKey, cached);
+        cached.fileKeyCount++;
+        if (replaced != null) {
+            release(replaced);
+        }
+        evictLeastRecentlyUsed();
+        return cached.content;
+    }
+
+    public synchronized long getHitCount() {
+        return this.hitCount;
+    }
+
+    public synchronized long getMissCount() {
+        return this.missCount;
+    }
+
+    public synchronized long getCachedBytes() {
+        return this.cachedBytes;
+    }
+
+    private void evictLeastRecentlyUsed() {
+        Iterator<CachedContent> lruIterator = this.contentByFileKey.values().iterator();
+        while (this.cachedBytes > this.maxCachedBytes && lruIterator.hasNext()) {
+            CachedContent evicted = lruIterator.next();
+            lruIterator.remove();
+            release(evicted);
+        }
+    }
+
+    private void release(CachedContent cached) {
+        cached.fileKeyCount--;
+        if (cached.fileKeyCount <= 0) {
+            this.contentByDigest.remove(cached.digest);
+            this.cachedBytes -= cached.content.length;
+        }
+    }
+
+    private static String getFileKey(File file) {
+        try {
+            return file.getCanonicalPath() + "|" + file.lastModified() + "|" + file.length();
+        } catch (IOException e) {
+            logger.debug("Unable to get canonical path of " + file.getAbsolutePath() + ", not caching its content");
+            return null;
+        }
+    }
+
+    private static String getDigest(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance(DIGEST_ALGORITHM).digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            logger.warn(DIGEST_ALGORITHM + " is not available, not caching file content");
+            return null;
+        }
+    }
+}
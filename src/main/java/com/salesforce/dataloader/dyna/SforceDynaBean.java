@@ -324,8 +324,25 @@ public class SforceDynaBean {
         ConvertUtils.register(new IntegerConverter(null), Integer.class);
         ConvertUtils.register(new BooleanConverter(), Boolean.class);
         ConvertUtils.register(new StringConverter(), String.class);
-        ConvertUtils.register(new FileByteArrayConverter(), byte[].class);
+        ConvertUtils.register(new FileByteArrayConverter(createFileContentCache(cfg)), byte[].class);
         ConvertUtils.register(new SObjectReferenceConverter(), SObjectReference.class);
     }
 
+    /**
+     * Creates a new cache of file contents for the job being started
+     * @return the cache, or null if caching of file contents is disabled
+     */
+    private static FileContentCache createFileContentCache(Config cfg) {
+        int cacheSizeMB = Config.DEFAULT_LOAD_FILE_CONTENT_CACHE_SIZE_MB;
+        try {
+            cacheSizeMB = cfg.getInt(Config.LOAD_FILE_CONTENT_CACHE_SIZE_MB);
+        } catch (ParameterLoadException e) {
+            logger.warn("Invalid value for " + Config.LOAD_FILE_CONTENT_CACHE_SIZE_MB + ", using the default value "
+                    + Config.DEFAULT_LOAD_FILE_CONTENT_CACHE_SIZE_MB);
+        }
+        if (cacheSizeMB <= 0) {
+            return null;
+        }
+        return new FileContentCache(cacheSizeMB * 1024L * 1024L);
+    }
 }
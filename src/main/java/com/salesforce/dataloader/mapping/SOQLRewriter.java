@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.mapping;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Rewrites top-level clauses of a soql expression. Only the outermost query is
+ * considered: parenthesized sub-expressions and quoted literals are skipped.
+ */
+public class SOQLRewriter {
+
+    private static final String ID_ALPHABET =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final BigInteger ID_RADIX = BigInteger.valueOf(ID_ALPHABET.length());
+    private static final int ID_LENGTH = 15;
+
+    // clauses that may follow WHERE, in the order soql allows them
+    private static final String[] CLAUSES_AFTER_WHERE = {
+        "WITH", "GROUP BY", "ORDER BY", "LIMIT", "OFFSET", "FOR"
+    };
+    private static final String[] CLAUSES_AFTER_FILTER = {
+        "GROUP BY", "ORDER BY", "LIMIT", "OFFSET", "FOR"
+    };
+
+    private SOQLRewriter() {
+        // static utility
+    }
+
+    /**
+     * @return true if the outermost query has the given clause, for example "ORDER BY"
+     */
+    public static boolean hasClause(String soql, String clause) {
+        return indexOfClause(soql, clause) >= 0;
+    }
+
+    /**
+     * @return true if the query can be split into id ranges without changing its result set
+     */
+    public static boolean isIdRangePartitionable(String soql) {
+        return indexOfClause(soql, "FROM") >= 0
+                && !hasClause(soql, "GROUP BY")
+                && !hasClause(soql, "ORDER BY")
+                && !hasClause(soql, "LIMIT")
+                && !hasClause(soql, "OFFSET");
+    }
+
+    /**
+     * ANDs the condition into the WHERE clause of the query, adding the clause if needed.
+     */
+    public static String addFilterCondition(String soql, String condition) {
+        soql = soql.trim();
+        int whereIdx = indexOfClause(soql, "WHERE");
+        int endIdx = firstIndexOfClauses(soql, CLAUSES_AFTER_WHERE, Math.max(whereIdx, 0));
+        String head = soql.substring(0, endIdx).trim();
+        String tail = soql.substring(endIdx).trim();
+        StringBuilder rewritten = new StringBuilder();
+        if (whereIdx < 0) {
+            rewritten.append(head).append(" WHERE ").append(condition);
+        } else {
+            String existing = head.substring(whereIdx + "WHERE".length()).trim();
+            rewritten.append(head, 0, whereIdx).append("WHERE (").append(existing)
+                    .append(") AND (").append(condition).append(")");
+        }
+        if (!tail.isEmpty()) {
+            rewritten.append(' ').append(tail);
+        }
+        return rewritten.toString();
+    }
+
+    /**
+     * Adds the field to the SELECT list of the query unless it is already selected.
+     */
+    public static String addSelectField(String soql, String fieldName) {
+        soql = soql.trim();
+        int fromIdx = indexOfClause(soql, "FROM");
+        int selectEndIdx = indexOfClause(soql, "SELECT") + "SELECT".length();
+        if (fromIdx < 0 || selectEndIdx > fromIdx) {
+            throw new IllegalArgumentException("Cannot add field to query: " + soql);
+        }
+        for (String selectedField : soql.substring(selectEndIdx, fromIdx).split(",")) {
+            if (selectedField.trim().equalsIgnoreCase(fieldName)) {
+                return soql;
+            }
+        }
+        return soql.substring(0, fromIdx).trim() + ", " + fieldName + " " + soql.substring(fromIdx);
+    }
+
+    /**
+     * Builds the query returning the lowest (ascending) or highest Id matched by the
+     * given query.
+     */
+    public static String getIdBoundaryQuery(String soql, boolean ascending) {
+        soql = soql.trim();
+        int fromIdx = indexOfClause(soql, "FROM");
+        if (fromIdx < 0 || !isIdRangePartitionable(soql)) {
+            throw new IllegalArgumentException("Cannot determine id boundaries for query: " + soql);
+        }
+        int endIdx = firstIndexOfClauses(soql, CLAUSES_AFTER_FILTER, fromIdx);
+        String tail = soql.substring(endIdx).trim();
+        return "SELECT Id " + soql.substring(fromIdx, endIdx).trim()
+                + " ORDER BY Id " + (ascending ? "ASC" : "DESC") + " LIMIT 1"
+                + (tail.isEmpty() ? "" : " " + tail);
+    }
+
+    /**
+     * Splits the query into at most the given number of queries over contiguous,
+     * non-overlapping Id ranges that together cover all ids matched by the query.
+     * Range boundaries are interpolated between the lowest and highest Id.
+     */
+    public static List<String> getIdRangeQueries(String soql, String minId, String maxId, int numPartitions) {
+        List<String> boundaries = getIdRangeBoundaries(minId, maxId, numPartitions);
+        List<String> queries = new ArrayList<String>();
+        if (boundaries.isEmpty()) {
+            queries.add(soql.trim());
+            return queries;
+        }
+        queries.add(addFilterCondition(soql, "Id < '" + boundaries.get(0) + "'"));
+        for (int i = 1; i < boundaries.size(); i++) {
+            queries.add(addFilterCondition(soql, "Id >= '" + boundaries.get(i - 1)
+                    + "' AND Id < '" + boundaries.get(i) + "'"));
+        }
+        queries.add(addFilterCondition(soql, "Id >= '" + boundaries.get(boundaries.size() - 1) + "'"));
+        return queries;
+    }
+
+    static List<String> getIdRangeBoundaries(String minId, String maxId, int numPartitions) {
+        List<String> boundaries = new ArrayList<String>();
+        if (minId == null || maxId == null || numPartitions < 2) {
+            return boundaries;
+        }
+        BigInteger min = idToNumber(minId);
+        BigInteger max = idToNumber(maxId);
+        BigInteger range = max.subtract(min);
+        BigInteger partitions = BigInteger.valueOf(numPartitions);
+        String previous = null;
+        for (int i = 1; i < numPartitions; i++) {
+            BigInteger offset = range.multiply(BigInteger.valueOf(i)).divide(partitions);
+            if (offset.signum() <= 0) {
+                continue;
+            }
+            String boundary = numberToId(min.add(offset));
+            if (!boundary.equals(previous)) {
+                boundaries.add(boundary);
+                previous = boundary;
+            }
+        }
+        return boundaries;
+    }
+
+    private static BigInteger idToNumber(String id) {
+        if (id.length() < ID_LENGTH) {
+            throw new IllegalArgumentException("Invalid id: " + id);
+        }
+        BigInteger value = BigInteger.ZERO;
+        for (int i = 0; i < ID_LENGTH; i++) {
+            int digit = ID_ALPHABET.indexOf(id.charAt(i));
+            if (digit < 0) {
+                throw new IllegalArgumentException("Invalid id: " + id);
+            }
+            value = value.multiply(ID_RADIX).add(BigInteger.valueOf(digit));
+        }
+        return value;
+    }
+
+    private static String numberToId(BigInteger value) {
+        char[] id = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            BigInteger[] qr = value.divideAndRemainder(ID_RADIX);
+            id[i] = ID_ALPHABET.charAt(qr[1].intValue());
+            value = qr[0];
+        }
+        return new String(id);
+    }
+
+    private static int firstIndexOfClauses(String soql, String[] clauses, int fromIdx) {
+        int endIdx = soql.length();
+        for (String clause : clauses) {
+            int idx = indexOfClause(soql, clause, fromIdx);
+            if (idx >= 0 && idx < endIdx) {
+                endIdx = idx;
+            }
+        }
+        return endIdx;
+    }
+
+    private static int indexOfClause(String soql, String clause) {
+        return indexOfClause(soql, clause, 0);
+    }
+
+    /**
+     * @return start index of the clause in the outermost query at or after fromIdx, or -1
+     */
+    private static int indexOfClause(String soql, String clause, int fromIdx) {
+        String[] words = clause.trim().split("\\s+");
+        int depth = 0;
+        boolean inQuote = false;
+        int i = 0;
+        while (i < soql.length()) {
+            char c = soql.charAt(i);
+            if (inQuote) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == '\'') {
+                    inQuote = false;
+                }
+                i++;
+            } else if (c == '\'') {
+                inQuote = true;
+                i++;
+            } else if (c == '(') {
+                depth++;
+                i++;
+            } else if (c == ')') {
+                depth--;
+                i++;
+            } else if (isWordChar(c)) {
+                int wordEnd = endOfWord(soql, i);
+                if (depth == 0 && i >= fromIdx && matchesWords(soql, i, words)) {
+                    return i;
+                }
+                i = wordEnd;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean matchesWords(String soql, int start, String[] words) {
+        int pos = start;
+        for (int w = 0; w < words.length; w++) {
+            if (w > 0) {
+                int wsStart = pos;
+                while (pos < soql.length() && Character.isWhitespace(soql.charAt(pos))) {
+                    pos++;
+                }
+                if (pos == wsStart) {
+                    return false;
+                }
+            }
+            int wordEnd = endOfWord(soql, pos);
+            if (!soql.substring(pos, wordEnd).equalsIgnoreCase(words[w])) {
+                return false;
+            }
+            pos = wordEnd;
+        }
+        return true;
+    }
+
+    private static int endOfWord(String soql, int start) {
+        int end = start;
+        while (end < soql.length() && isWordChar(soql.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.' || c == ':';
+    }
+}
@@ -44,6 +44,7 @@ public class Row implements Map<String, Object> {
 
     private static final int DEFAULT_COLUMN_COUNT = 16; // same as HashMap
     private final Map<String, Object> internalMap;
+    private int rowNumber = 0;
 
     public Row() {
         this(DEFAULT_COLUMN_COUNT);
@@ -66,6 +67,17 @@ public class Row implements Map<String, Object> {
         return new Row(Collections.singletonMap(key, value));
     }
 
+    /**
+     * @return 1-based number of the row in its data source, or 0 if the row was not read from one
+     */
+    public int getRowNumber() {
+        return rowNumber;
+    }
+
+    public void setRowNumber(int rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
     @Override
     public int size() {
         return internalMap.size();
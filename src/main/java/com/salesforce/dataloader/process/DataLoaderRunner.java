@@ -76,6 +76,8 @@ public class DataLoaderRunner extends Thread {
         } finally {
             if (logger != null) {
                 logger.debug("Number of server API invocations = " + HttpClientTransport.getServerInvocationCount());
+                logger.debug("Number of connections opened = " + HttpClientTransport.getConnectionsOpened()
+                        + ", reused = " + HttpClientTransport.getConnectionsReused());
             }
         }
         System.exit(exitCode);
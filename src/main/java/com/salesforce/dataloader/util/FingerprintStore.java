@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.util;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent map from 64-bit key hashes to 64-bit fingerprints, stored in a memory-mapped file so
+ * that heap usage does not grow with the number of keys.
+ * <p>
+ * The file holds a header followed by open addressing hash tables ("levels"). Each level has
+ * twice the slots of the previous one and a new level is appended when the newest one fills up,
+ * so existing mappings never have to be moved or remapped.
+ */
+public class FingerprintStore implements Closeable {
+
+    private static final long MAGIC = 0x53444c4650524e54L;
+    private static final int MAX_LEVELS = 32;
+    // magic, initial capacity, level count, then the entry count of each level
+    private static final int HEADER_BYTES = 512;
+    private static final int SLOT_BYTES = 16;
+    private static final long SEGMENT_BYTES = 1L << 30;
+    private static final double MAX_LOAD_FACTOR = 0.7;
+    static final int DEFAULT_INITIAL_CAPACITY = 1 << 16;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final char VALUE_SEPARATOR = 0x1e;
+    private static final char NAME_SEPARATOR = 0x1f;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final long initialCapacity;
+    private final List<MappedByteBuffer[]> levels = new ArrayList<MappedByteBuffer[]>();
+
+    public FingerprintStore(File file) throws IOException {
+        this(file, DEFAULT_INITIAL_CAPACITY);
+    }
+
+    FingerprintStore(File file, int initialCapacity) throws IOException {
+        if (Integer.bitCount(initialCapacity) != 1) {
+            throw new IllegalArgumentException("initial capacity has to be a power of 2: " + initialCapacity);
+        }
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        final boolean isNew = this.channel.size() == 0;
+        this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+        if (isNew) {
+            this.header.putLong(0, MAGIC);
+            this.header.putLong(8, initialCapacity);
+            this.header.putLong(16, 0);
+        } else if (this.header.getLong(0) != MAGIC) {
+            this.channel.close();
+            throw new IOException("Not a fingerprint file: " + file.getAbsolutePath());
+        }
+        this.initialCapacity = this.header.getLong(8);
+        final int levelCount = (int)this.header.getLong(16);
+        for (int level = 0; level < levelCount; level++) {
+            mapLevel(level);
+        }
+        if (levelCount == 0) {
+            addLevel();
+        }
+    }
+
+    /**
+     * @return the fingerprint stored for the key, or 0 if there is none
+     */
+    public synchronized long get(long key) {
+        key = nonZero(key);
+        for (int level = this.levels.size() - 1; level >= 0; level--) {
+            final long slot = findSlot(level, key);
+            final long slotKey = getSlotLong(level, slot, 0);
+            if (slotKey == key) {
+                return getSlotLong(level, slot, 8);
+            }
+        }
+        return 0;
+    }
+
+    public synchronized void put(long key, long fingerprint) throws IOException {
+        key = nonZero(key);
+        fingerprint = nonZero(fingerprint);
+        for (int level = this.levels.size() - 1; level >= 0; level--) {
+            final long slot = findSlot(level, key);
+            if (getSlotLong(level, slot, 0) == key) {
+                putSlotLong(level, slot, 8, fingerprint);
+                return;
+            }
+        }
+        int level = this.levels.size() - 1;
+        if (getLevelSize(level) + 1 > getLevelCapacity(level) * MAX_LOAD_FACTOR) {
+            level = addLevel();
+        }
+        final long slot = findSlot(level, key);
+        putSlotLong(level, slot, 0, key);
+        putSlotLong(level, slot, 8, fingerprint);
+        this.header.putLong(24 + 8 * level, getLevelSize(level) + 1);
+    }
+
+    /**
+     * @return number of keys in the store
+     */
+    public synchronized long size() {
+        long size = 0;
+        for (int level = 0; level < this.levels.size(); level++) {
+            size += getLevelSize(level);
+        }
+        return size;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        this.header.force();
+        for (MappedByteBuffer[] segments : this.levels) {
+            for (MappedByteBuffer segment : segments) {
+                segment.force();
+            }
+        }
+        this.channel.close();
+    }
+
+    /**
+     * @return non-zero 64-bit hash of the string
+     */
+    public static long hash(String value) {
+        return nonZero(mix(addToHash(FNV_OFFSET_BASIS, value)));
+    }
+
+    /**
+     * @return non-zero 64-bit hash of the names and values of a row, in the iteration order of the map
+     */
+    public static long fingerprint(Map<String, Object> values) {
+        long hash = FNV_OFFSET_BASIS;
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            hash = addToHash(hash, entry.getKey().toLowerCase());
+            hash = addToHash(hash, NAME_SEPARATOR);
+            if (entry.getValue() != null) {
+                hash = addToHash(hash, entry.getValue().toString());
+            }
+            hash = addToHash(hash, VALUE_SEPARATOR);
+        }
+        return nonZero(mix(hash));
+    }
+
+    private static long addToHash(long hash, String value) {
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long addToHash(long hash, char separator) {
+        return (hash ^ separator) * FNV_PRIME;
+    }
+
+    // final avalanche of MurmurHash3, spreads FNV-1a hashes over the table index bits
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    // 0 marks an empty slot
+    private static long nonZero(long value) {
+        return value == 0 ? 1 : value;
+    }
+
+    /**
+     * @return the slot holding the key, or the empty slot where it would be inserted
+     */
+    private long findSlot(int level, long key) {
+        final long mask = getLevelCapacity(level) - 1;
+        long slot = key & mask;
+        while (true) {
+            final long slotKey = getSlotLong(level, slot, 0);
+            if (slotKey == 0 || slotKey == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private long getSlotLong(int level, long slot, int offset) {
+        final long position = slot * SLOT_BYTES + offset;
+        return this.levels.get(level)[(int)(position / SEGMENT_BYTES)].getLong((int)(position % SEGMENT_BYTES));
+    }
+
+    private void putSlotLong(int level, long slot, int offset, long value) {
+        final long position = slot * SLOT_BYTES + offset;
+        this.levels.get(level)[(int)(position / SEGMENT_BYTES)].putLong((int)(position % SEGMENT_BYTES), value);
+    }
+
+    private long getLevelCapacity(int level) {
+        return this.initialCapacity << level;
+    }
+
+    private long getLevelSize(int level) {
+        return this.header.getLong(24 + 8 * level);
+    }
+
+    private int addLevel() throws IOException {
+        final int level = this.levels.size();
+        if (level >= MAX_LEVELS) {
+            throw new IOException("Fingerprint store is full");
+        }
+        this.header.putLong(24 + 8 * level, 0);
+        mapLevel(level);
+        this.header.putLong(16, level + 1);
+        return level;
+    }
+
+    private void mapLevel(int level) throws IOException {
+        // levels before this one hold initialCapacity * (2^level - 1) slots
+        final long levelStart = HEADER_BYTES + SLOT_BYTES * this.initialCapacity * ((1L << level) - 1);
+        final long levelBytes = SLOT_BYTES * getLevelCapacity(level);
+        final int segmentCount = (int)((levelBytes + SEGMENT_BYTES - 1) / SEGMENT_BYTES);
+        final MappedByteBuffer[] segments = new MappedByteBuffer[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            final long segmentStart = i * SEGMENT_BYTES;
+            segments[i] = this.channel.map(FileChannel.MapMode.READ_WRITE, levelStart + segmentStart,
+                    Math.min(SEGMENT_BYTES, levelBytes - segmentStart));
+        }
+        this.levels.add(segments);
+    }
+}
@@ -55,6 +55,17 @@ public class LoadRateCalculator {
         }
     }
 
+    /**
+     * Replaces the total number of records, which was estimated or not known at the start.
+     */
+    public synchronized void setTotalRecords(long numRecords) {
+        this.totalRecordsInJob = numRecords;
+    }
+
+    public synchronized long getTotalRecords() {
+        return this.totalRecordsInJob;
+    }
+
     public String calculateSubTask(long processedRecordsInJob, long numErrorsInJob) {
 
         final Date currentLoadTime = new Date();
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Tests delta extract soql and watermark tracking
+ */
+public class ExtractWatermarkTest {
+
+    @Test
+    public void testFirstDeltaExtractIsNotNarrowed() {
+        assertEquals("SELECT Id, SystemModstamp FROM Account",
+                ExtractWatermark.getDeltaSoql("SELECT Id FROM Account", "SystemModstamp", null, 0, false));
+        assertEquals("SELECT Id, SystemModstamp FROM Account",
+                ExtractWatermark.getDeltaSoql("SELECT Id FROM Account", "SystemModstamp", "", 0, false));
+    }
+
+    @Test
+    public void testDeltaSoqlSelectsWatermarkField() {
+        assertEquals("SELECT Id, Name, LastModifiedDate FROM Account",
+                ExtractWatermark.getDeltaSoql("SELECT Id, Name FROM Account", "LastModifiedDate", null, 0, false));
+        assertEquals("SELECT Id, systemmodstamp FROM Account",
+                ExtractWatermark.getDeltaSoql("SELECT Id, systemmodstamp FROM Account", "SystemModstamp", null, 0, false));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedWatermarkRejected() {
+        ExtractWatermark.getDeltaSoql("SELECT Id FROM Account", "SystemModstamp", "yesterday", 0, false);
+    }
+
+    @Test
+    public void testDeltaSoqlStartsAtWatermarkMinusOverlap() {
+        assertEquals("SELECT Id, SystemModstamp FROM Account WHERE (Type = 'x') AND (SystemModstamp >= 2024-05-01T09:59:30Z)",
+                ExtractWatermark.getDeltaSoql("SELECT Id FROM Account WHERE Type = 'x'", "SystemModstamp",
+                        "2024-05-01T10:00:00.750Z", 30, false));
+        assertEquals("SELECT Id, LastModifiedDate FROM Account WHERE LastModifiedDate >= 2024-05-01T10:00:00Z ORDER BY Id",
+                ExtractWatermark.getDeltaSoql("SELECT Id FROM Account ORDER BY Id", "LastModifiedDate",
+                        "2024-05-01T10:00:00.000Z", 0, false));
+    }
+
+    @Test
+    public void testDeltaSoqlSelectsIsDeletedForQueryAll() {
+        assertEquals("SELECT Id, SystemModstamp, IsDeleted FROM Account WHERE SystemModstamp >= 2024-05-01T10:00:00Z",
+                ExtractWatermark.getDeltaSoql("SELECT Id FROM Account", "SystemModstamp",
+                        "2024-05-01T10:00:00.000Z", 0, true));
+        assertEquals("SELECT Id, isdeleted, SystemModstamp FROM Account",
+                ExtractWatermark.getDeltaSoql("SELECT Id, isdeleted FROM Account", "SystemModstamp", null, 0, true));
+    }
+
+    @Test
+    public void testHighWatermark() {
+        ExtractWatermark watermark = new ExtractWatermark();
+        assertNull(watermark.getHighWatermark());
+        watermark.update("2024-05-01T10:00:00.000Z");
+        watermark.update("2024-05-01T12:00:00.000+0200");
+        watermark.update("not a date");
+        watermark.update(null);
+        assertEquals("2024-05-01T10:00:00Z", watermark.getHighWatermark());
+        watermark.update("2024-05-01T10:00:01.500Z");
+        assertEquals("2024-05-01T10:00:01.500Z", watermark.getHighWatermark());
+    }
+
+    @Test
+    public void testWatermarkHeldBackToFailedBatch() {
+        ExtractWatermark watermark = new ExtractWatermark();
+        // a first batch is written, a second one fails, a third one is written
+        watermark.update("2024-05-01T10:00:00.000Z");
+        watermark.rowFailed("2024-05-01T10:05:00.000Z");
+        watermark.rowFailed("2024-05-01T10:06:00.000Z");
+        watermark.update("2024-05-01T10:10:00.000Z");
+        // the next extract starts at the first row that was not written
+        assertEquals("2024-05-01T10:05:00Z", watermark.getHighWatermark());
+
+        watermark.rowFailed("2024-05-01T11:00:00.000Z");
+        assertEquals("2024-05-01T10:05:00Z", watermark.getHighWatermark());
+    }
+
+    @Test
+    public void testWatermarkNotSavedForFailedRowWithoutValue() {
+        ExtractWatermark watermark = new ExtractWatermark();
+        watermark.update("2024-05-01T10:00:00.000Z");
+        watermark.rowFailed("2024-05-01T11:00:00.000Z");
+        assertEquals("2024-05-01T10:00:00Z", watermark.getHighWatermark());
+        watermark.rowFailed(null);
+        assertNull(watermark.getHighWatermark());
+    }
+}
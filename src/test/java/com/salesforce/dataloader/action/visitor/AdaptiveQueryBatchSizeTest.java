@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests picking the batch size of queryMore calls
+ */
+public class AdaptiveQueryBatchSizeTest {
+
+    @Test
+    public void testInitialBatchSizeIsClamped() {
+        assertEquals(AdaptiveQueryBatchSize.MIN_BATCH_SIZE, new AdaptiveQueryBatchSize(0).getBatchSize());
+        assertEquals(500, new AdaptiveQueryBatchSize(500).getBatchSize());
+        assertEquals(AdaptiveQueryBatchSize.MAX_BATCH_SIZE, new AdaptiveQueryBatchSize(5000).getBatchSize());
+    }
+
+    @Test
+    public void testFastPagesGrowBatchSize() {
+        AdaptiveQueryBatchSize batchSize = new AdaptiveQueryBatchSize(500);
+        assertEquals(1000, batchSize.pageReceived(500, 500, 100, false));
+        assertEquals(2000, batchSize.pageReceived(1000, 1000, 100, false));
+        assertEquals(2000, batchSize.pageReceived(2000, 2000, 100, false));
+    }
+
+    @Test
+    public void testSlowPagesShrinkBatchSize() {
+        AdaptiveQueryBatchSize batchSize = new AdaptiveQueryBatchSize(1000);
+        assertEquals(1000, batchSize.pageReceived(1000, 1000, 1000, false));
+        assertEquals(500, batchSize.pageReceived(1000, 1000, 5000, false));
+        assertEquals(250, batchSize.pageReceived(500, 500, 5000, false));
+        assertEquals(200, batchSize.pageReceived(250, 250, 5000, false));
+    }
+
+    @Test
+    public void testFollowsRecordsReturnedByServer() {
+        AdaptiveQueryBatchSize batchSize = new AdaptiveQueryBatchSize(2000);
+        assertEquals(750, batchSize.pageReceived(2000, 750, 100, false));
+        // the last page is short because the results ran out
+        assertEquals(750, batchSize.pageReceived(750, 10, 100, true));
+    }
+}
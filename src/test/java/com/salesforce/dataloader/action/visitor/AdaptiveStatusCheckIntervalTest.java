@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests picking the interval between status checks of bulk jobs
+ */
+public class AdaptiveStatusCheckIntervalTest {
+
+    @Test
+    public void testFirstCheckIsQuick() {
+        assertEquals(500, new AdaptiveStatusCheckInterval(500, 30000).getInterval());
+        assertEquals(5000, new AdaptiveStatusCheckInterval(5000, 1000).getInterval());
+    }
+
+    @Test
+    public void testQueuedJobBacksOff() {
+        AdaptiveStatusCheckInterval interval = new AdaptiveStatusCheckInterval(500, 5000);
+        assertEquals(1000, interval.statusReceived(0, 1000, 500));
+        assertEquals(2000, interval.statusReceived(0, 1000, 1500));
+        assertEquals(4000, interval.statusReceived(0, 1000, 3500));
+        assertEquals(5000, interval.statusReceived(0, 1000, 7500));
+        assertEquals(5000, interval.statusReceived(0, 1000, 12500));
+    }
+
+    @Test
+    public void testCheckScheduledAtPredictedCompletion() {
+        AdaptiveStatusCheckInterval interval = new AdaptiveStatusCheckInterval(500, 30000);
+        interval.statusReceived(0, 10000, 0);
+        interval.statusReceived(0, 10000, 1000);
+        // 1000 records per second, 8000 records left: keep backing off
+        assertEquals(4000, interval.statusReceived(2000, 10000, 3000));
+        // 4000 records left: check when they should be done
+        assertEquals(4000, interval.statusReceived(6000, 10000, 7000));
+        // the rate drops to 875 records per second on average, 1000 records left
+        assertEquals(1143, interval.statusReceived(9000, 10000, 11000));
+    }
+
+    @Test
+    public void testUnknownTotalBacksOff() {
+        AdaptiveStatusCheckInterval interval = new AdaptiveStatusCheckInterval(500, 30000);
+        assertEquals(1000, interval.statusReceived(100, 0, 0));
+        assertEquals(2000, interval.statusReceived(200, 0, 1000));
+        assertEquals(4000, interval.statusReceived(400, 0, 3000));
+    }
+
+    @Test
+    public void testIntervalNotShorterThanMinimum() {
+        AdaptiveStatusCheckInterval interval = new AdaptiveStatusCheckInterval(500, 30000);
+        interval.statusReceived(0, 1000, 0);
+        assertEquals(500, interval.statusReceived(990, 1000, 1000));
+        assertEquals(500, interval.statusReceived(1000, 1000, 1500));
+    }
+}
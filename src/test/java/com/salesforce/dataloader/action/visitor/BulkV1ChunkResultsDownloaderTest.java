@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.BatchInfo;
+import com.sforce.async.BatchInfoList;
+import com.sforce.async.BatchStateEnum;
+import com.sforce.async.BulkConnection;
+import com.sforce.async.QueryResultList;
+import com.sforce.ws.ConnectorConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests downloading the results of PK chunked Bulk V1 query jobs while the job runs
+ */
+public class BulkV1ChunkResultsDownloaderTest {
+
+    @Rule
+    public TemporaryFolder spoolDir = new TemporaryFolder();
+
+    /**
+     * Serves completed batches whose results have the content "<resultId>".
+     */
+    private static class StubConnection extends BulkConnection {
+        final Map<String, String[]> resultIdsByBatchId = new LinkedHashMap<String, String[]>();
+        final AtomicInteger resultListRequests = new AtomicInteger();
+        final Set<String> runningBatchIds = ConcurrentHashMap.newKeySet();
+        volatile String failingResultId;
+
+        StubConnection() throws AsyncApiException {
+            super(newConfig());
+        }
+
+        private static ConnectorConfig newConfig() {
+            ConnectorConfig config = new ConnectorConfig();
+            config.setRestEndpoint("https://localhost/services/async/59.0");
+            config.setSessionId("session");
+            return config;
+        }
+
+        BatchInfo addBatch(String batchId, String... resultIds) {
+            this.resultIdsByBatchId.put(batchId, resultIds);
+            return newBatch(batchId);
+        }
+
+        @Override
+        public BatchInfoList getBatchInfoList(String jobId) {
+            List<BatchInfo> batches = new ArrayList<BatchInfo>();
+            for (String batchId : this.resultIdsByBatchId.keySet()) {
+                BatchInfo batch = newBatch(batchId);
+                if (this.runningBatchIds.contains(batchId)) {
+                    batch.setState(BatchStateEnum.InProgress);
+                }
+                batches.add(batch);
+            }
+            BatchInfoList list = new BatchInfoList();
+            list.setBatchInfo(batches.toArray(new BatchInfo[batches.size()]));
+            return list;
+        }
+
+        @Override
+        public QueryResultList getQueryResultList(String jobId, String batchId) {
+            this.resultListRequests.incrementAndGet();
+            QueryResultList list = new QueryResultList();
+            list.setResult(this.resultIdsByBatchId.get(batchId));
+            return list;
+        }
+
+        @Override
+        public InputStream getQueryResultStream(String jobId, String batchId, String resultId) {
+            final boolean failing = resultId.equals(this.failingResultId);
+            return new ByteArrayInputStream(resultId.getBytes(StandardCharsets.UTF_8)) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    int read = super.read(b, off, len);
+                    if (failing && read == -1) {
+                        throw new IllegalStateException("connection reset");
+                    }
+                    return read;
+                }
+            };
+        }
+
+        private static BatchInfo newBatch(String batchId) {
+            BatchInfo batch = new BatchInfo();
+            batch.setId(batchId);
+            batch.setState(BatchStateEnum.Completed);
+            return batch;
+        }
+    }
+
+    private static List<String> readAll(List<InputStream> resultStreams) throws IOException {
+        List<String> results = new ArrayList<String>();
+        for (InputStream resultStream : resultStreams) {
+            try {
+                results.add(IOUtils.toString(resultStream, StandardCharsets.UTF_8));
+            } finally {
+                resultStream.close();
+            }
+        }
+        return results;
+    }
+
+    private int countSpoolFiles() {
+        return this.spoolDir.getRoot().list().length;
+    }
+
+    private static void waitFor(AtomicInteger counter, int expected) throws InterruptedException {
+        for (int i = 0; i < 100 && counter.get() < expected; i++) {
+            Thread.sleep(20);
+        }
+    }
+
+    private BulkV1ChunkResultsDownloader newDownloader(StubConnection connection, long pollInterval) {
+        return new BulkV1ChunkResultsDownloader(connection, "job", 2,
+                new AdaptiveStatusCheckInterval(pollInterval, pollInterval), this.spoolDir.getRoot());
+    }
+
+    @Test
+    public void testResultsOfEachBatchInServerOrder() throws Exception {
+        StubConnection connection = new StubConnection();
+        BatchInfo first = connection.addBatch("b0", "r0a", "r0b", "r0c");
+        BatchInfo second = connection.addBatch("b1", "r1a");
+        try (BulkV1ChunkResultsDownloader downloader = newDownloader(connection, 60000)) {
+            assertEquals(List.of("r1a"), readAll(downloader.getResultStreams(second)));
+            assertEquals(List.of("r0a", "r0b", "r0c"), readAll(downloader.getResultStreams(first)));
+        }
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    public void testDownloadsBoundedAheadOfProcessing() throws Exception {
+        StubConnection connection = new StubConnection();
+        List<BatchInfo> batches = new ArrayList<BatchInfo>();
+        for (int i = 0; i < 6; i++) {
+            batches.add(connection.addBatch("b" + i, "r" + i));
+        }
+        try (BulkV1ChunkResultsDownloader downloader = newDownloader(connection, 10)) {
+            waitFor(connection.resultListRequests, 2);
+            Thread.sleep(200);
+            assertEquals("only as many batches as parallel downloads run ahead", 2, connection.resultListRequests.get());
+            assertEquals(2, countSpoolFiles());
+
+            assertEquals(List.of("r0"), readAll(downloader.getResultStreams(batches.get(0))));
+            waitFor(connection.resultListRequests, 3);
+            Thread.sleep(100);
+            assertEquals(3, connection.resultListRequests.get());
+
+            for (int i = 1; i < batches.size(); i++) {
+                assertEquals(List.of("r" + i), readAll(downloader.getResultStreams(batches.get(i))));
+                assertTrue(countSpoolFiles() <= 2);
+            }
+            assertEquals(6, connection.resultListRequests.get());
+        }
+        assertEquals("results are deleted once written", 0, countSpoolFiles());
+    }
+
+    @Test
+    public void testBatchesHandedOutWhileJobRuns() throws Exception {
+        StubConnection connection = new StubConnection();
+        connection.runningBatchIds.add("b5");
+        for (int i = 0; i < 6; i++) {
+            connection.addBatch("b" + i, "r" + i);
+        }
+        try (BulkV1ChunkResultsDownloader downloader = newDownloader(connection, 10)) {
+            // more batches than the downloads may run ahead are written while the last one runs
+            List<String> results = new ArrayList<String>();
+            for (int i = 0; i < 5; i++) {
+                BatchInfo batch = downloader.awaitDownloadedBatch(5000);
+                assertNotNull("a completed batch should be handed out while the job runs", batch);
+                results.addAll(readAll(downloader.getResultStreams(batch)));
+                assertTrue(countSpoolFiles() <= 2);
+            }
+            assertEquals(List.of("r0", "r1", "r2", "r3", "r4"), results.stream().sorted().toList());
+            assertNull(downloader.awaitDownloadedBatch(100));
+
+            connection.runningBatchIds.clear();
+            BatchInfo last = downloader.awaitDownloadedBatch(5000);
+            assertEquals("b5", last.getId());
+            assertEquals(List.of("r5"), readAll(downloader.getResultStreams(last)));
+        }
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    public void testFailedDownloadCleanedUp() throws Exception {
+        StubConnection connection = new StubConnection();
+        BatchInfo batch = connection.addBatch("b0", "r0a", "r0b");
+        connection.failingResultId = "r0b";
+        try (BulkV1ChunkResultsDownloader downloader = newDownloader(connection, 60000)) {
+            downloader.getResultStreams(batch);
+            fail("the failure of the download should be thrown");
+        } catch (AsyncApiException e) {
+            assertEquals("connection reset", e.getCause().getMessage());
+        }
+        assertEquals(0, countSpoolFiles());
+    }
+
+    @Test
+    public void testCloseDeletesUnprocessedResults() throws Exception {
+        StubConnection connection = new StubConnection();
+        BatchInfo batch = connection.addBatch("b0", "r0a", "r0b");
+        connection.addBatch("b1", "r1a");
+        BulkV1ChunkResultsDownloader downloader = newDownloader(connection, 10);
+        waitFor(connection.resultListRequests, 2);
+        // handed out but never read
+        List<InputStream> resultStreams = downloader.getResultStreams(batch);
+        assertEquals(2, resultStreams.size());
+        downloader.close();
+        for (InputStream resultStream : resultStreams) {
+            resultStream.close();
+        }
+        assertEquals(0, countSpoolFiles());
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import com.sforce.async.AsyncApiException;
+import com.sforce.async.AsyncExceptionCode;
+import com.sforce.ws.ConnectorConfig;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests downloading pages of Bulk V2 query results ahead of the page being processed
+ */
+public class BulkV2QueryResultsPrefetcherTest {
+
+    /**
+     * Serves pages "page0" to "page<n-1>", page i having locator i + 1 except for the last page.
+     * Earlier pages are slower to download so that later pages complete first.
+     */
+    private static class StubConnection extends BulkV2Connection {
+        final AtomicInteger fetches = new AtomicInteger();
+        private final int pageCount;
+        private final int failingPage;
+
+        StubConnection(int pageCount, int failingPage) throws AsyncApiException {
+            super(new ConnectorConfig());
+            this.pageCount = pageCount;
+            this.failingPage = failingPage;
+        }
+
+        @Override
+        QueryResultPage getQueryResultPage(String jobId, String locator, int maxRecords) throws AsyncApiException {
+            fetches.incrementAndGet();
+            final int page = locator.isEmpty() ? 0 : Integer.parseInt(locator);
+            if (page == this.failingPage) {
+                throw new AsyncApiException("page " + page + " failed", AsyncExceptionCode.InvalidJob);
+            }
+            final String next = page == this.pageCount - 1 ? "null" : String.valueOf(page + 1);
+            final byte[] content = ("page" + page).getBytes(StandardCharsets.UTF_8);
+            final long delay = Math.max(0, 50 - 10 * page);
+            InputStream slowStream = new ByteArrayInputStream(content) {
+                @Override
+                public synchronized int read(byte[] b, int off, int len) {
+                    try {
+                        Thread.sleep(delay);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.read(b, off, len);
+                }
+            };
+            return new QueryResultPage(slowStream, next, 1);
+        }
+    }
+
+    private static String read(InputStream page) throws IOException {
+        try {
+            return IOUtils.toString(page, StandardCharsets.UTF_8);
+        } finally {
+            page.close();
+        }
+    }
+
+    @Test
+    public void testPagesReturnedInOrder() throws Exception {
+        StubConnection connection = new StubConnection(6, -1);
+        try (BulkV2QueryResultsPrefetcher prefetcher = new BulkV2QueryResultsPrefetcher(connection, "job", 0, 3, 1024)) {
+            for (int i = 0; i < 6; i++) {
+                InputStream page = prefetcher.nextPage();
+                assertEquals("page" + i, read(page));
+            }
+            assertNull(prefetcher.nextPage());
+            assertNull(prefetcher.nextPage());
+        }
+        assertEquals(6, connection.fetches.get());
+    }
+
+    @Test
+    public void testPagesSpilledToFiles() throws Exception {
+        StubConnection connection = new StubConnection(3, -1);
+        try (BulkV2QueryResultsPrefetcher prefetcher = new BulkV2QueryResultsPrefetcher(connection, "job", 0, 2, 0)) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("page" + i, read(prefetcher.nextPage()));
+            }
+            assertNull(prefetcher.nextPage());
+        }
+    }
+
+    @Test
+    public void testCloseStopsFetching() throws Exception {
+        StubConnection connection = new StubConnection(1000, -1);
+        BulkV2QueryResultsPrefetcher prefetcher = new BulkV2QueryResultsPrefetcher(connection, "job", 0, 2, 1024);
+        assertEquals("page0", read(prefetcher.nextPage()));
+        // keep the next pages unprocessed so that the fetches wait for a permit
+        prefetcher.nextPage();
+        prefetcher.close();
+        Thread.sleep(200);
+        final int fetches = connection.fetches.get();
+        assertTrue("fetches should be bounded by the pages ahead, got " + fetches, fetches <= 4);
+        Thread.sleep(200);
+        assertEquals(fetches, connection.fetches.get());
+    }
+
+    @Test
+    public void testFetchErrorPropagated() throws Exception {
+        StubConnection connection = new StubConnection(5, 2);
+        try (BulkV2QueryResultsPrefetcher prefetcher = new BulkV2QueryResultsPrefetcher(connection, "job", 0, 3, 1024)) {
+            assertEquals("page0", read(prefetcher.nextPage()));
+            assertEquals("page1", read(prefetcher.nextPage()));
+            try {
+                prefetcher.nextPage();
+                fail("the error of the failed fetch should be thrown");
+            } catch (AsyncApiException e) {
+                assertSame(AsyncExceptionCode.InvalidJob, e.getExceptionCode());
+                assertEquals("page 2 failed", e.getExceptionMessage());
+            }
+        }
+    }
+}
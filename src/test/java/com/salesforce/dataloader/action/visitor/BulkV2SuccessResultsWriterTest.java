@@ -0,0 +1,213 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.Config;
+import com.salesforce.dataloader.dao.csv.CSVFileWriter;
+import com.salesforce.dataloader.model.Row;
+import com.salesforce.dataloader.util.AppUtil;
+import com.sforce.async.CSVReader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests writing the success results of a Bulk V2 load job to the success file
+ */
+public class BulkV2SuccessResultsWriterTest extends ConfigTestBase {
+
+    private static final String RESULTS = "\"sf__Id\",\"sf__Created\",Id,Name,Website\n"
+            + "\"001000000000002AAA\",\"false\",\"001000000000002AAA\",\"Acme, Inc.\",\"http://acme.com\"\n"
+            + "\"001000000000003AAA\",\"false\",\"001000000000003AAA\",\"Globex\",\"http://globex.com\"\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testResultsFollowSkippedRows() throws Exception {
+        final File successFile = folder.newFile("success.csv");
+        final CSVFileWriter successWriter = openSuccessWriter(successFile,
+                Config.ID_COLUMN_NAME, Config.STATUS_COLUMN_NAME_IN_BULKV2, "ACCOUNT_ID", "ACCOUNT_NAME", "WEBSITE");
+        final Row skipped = new Row();
+        skipped.put(Config.ID_COLUMN_NAME, "001000000000001AAA");
+        skipped.put("ACCOUNT_ID", "001000000000001AAA");
+        skipped.put("ACCOUNT_NAME", "Initech");
+        skipped.put("WEBSITE", "http://initech.com");
+        successWriter.writeRow(skipped);
+
+        final File storeFile = new File(folder.getRoot(), "fingerprints.dat");
+        final Row changed = new Row();
+        changed.put("Id", "001000000000002AAA");
+        changed.put("Name", "Acme, Inc.");
+        try (LoadFingerprintTracker fingerprints = new LoadFingerprintTracker(storeFile, "Id")) {
+            assertFalse(fingerprints.isUnchanged(changed));
+            final long count = new BulkV2SuccessResultsWriter(successWriter, Config.OUTPUT_SUCCESS_LEVEL_FULL,
+                    getDaoColumnsByField()).write(toStream(RESULTS), fingerprints);
+            assertEquals(2, count);
+        } finally {
+            successWriter.close();
+        }
+
+        final List<List<String>> records = readRecords(successFile);
+        assertEquals(Arrays.asList("ID", "SF__CREATED", "ACCOUNT_ID", "ACCOUNT_NAME", "WEBSITE"), records.get(0));
+        assertEquals(4, records.size());
+        assertEquals(Arrays.asList("001000000000001AAA", null, "001000000000001AAA", "Initech", "http://initech.com"),
+                records.get(1));
+        assertEquals(Arrays.asList("001000000000002AAA", "false", "001000000000002AAA", "Acme, Inc.",
+                "http://acme.com"), records.get(2));
+        assertEquals("001000000000003AAA", records.get(3).get(0));
+
+        // the fingerprint of the loaded row is saved
+        try (LoadFingerprintTracker fingerprints = new LoadFingerprintTracker(storeFile, "Id")) {
+            assertTrue(fingerprints.isUnchanged(changed));
+        }
+    }
+
+    @Test
+    public void testFullLevel() throws Exception {
+        final File successFile = folder.newFile("success.csv");
+        final CSVFileWriter successWriter = openSuccessWriter(successFile,
+                Config.ID_COLUMN_NAME, Config.STATUS_COLUMN_NAME_IN_BULKV2, "ACCOUNT_NAME", "WEBSITE");
+        try {
+            assertEquals(2, new BulkV2SuccessResultsWriter(successWriter, Config.OUTPUT_SUCCESS_LEVEL_FULL,
+                    getDaoColumnsByField()).write(toStream(RESULTS), null));
+        } finally {
+            successWriter.close();
+        }
+        final List<List<String>> records = readRecords(successFile);
+        assertEquals(3, records.size());
+        assertEquals(Arrays.asList("001000000000002AAA", "false", "Acme, Inc.", "http://acme.com"), records.get(1));
+        assertEquals(Arrays.asList("001000000000003AAA", "false", "Globex", "http://globex.com"), records.get(2));
+    }
+
+    @Test
+    public void testIdsLevel() throws Exception {
+        final File successFile = folder.newFile("success.csv");
+        final CSVFileWriter successWriter = openSuccessWriter(successFile,
+                Config.ID_COLUMN_NAME, Config.ROW_NUMBER_COLUMN_NAME);
+        try {
+            assertEquals(2, new BulkV2SuccessResultsWriter(successWriter, Config.OUTPUT_SUCCESS_LEVEL_IDS,
+                    getDaoColumnsByField()).write(toStream(RESULTS), null));
+        } finally {
+            successWriter.close();
+        }
+        final List<List<String>> records = readRecords(successFile);
+        assertEquals(Arrays.asList(Config.ID_COLUMN_NAME, Config.ROW_NUMBER_COLUMN_NAME), records.get(0));
+        assertEquals(3, records.size());
+        assertEquals(Arrays.asList("001000000000002AAA", "1"), records.get(1));
+        assertEquals(Arrays.asList("001000000000003AAA", "2"), records.get(2));
+    }
+
+    @Test
+    public void testCountsLevel() throws Exception {
+        final File successFile = folder.newFile("success.csv");
+        final CSVFileWriter successWriter = openSuccessWriter(successFile,
+                Config.ID_COLUMN_NAME, Config.ROW_NUMBER_COLUMN_NAME);
+        final File storeFile = new File(folder.getRoot(), "fingerprints.dat");
+        final Row changed = new Row();
+        changed.put("Id", "001000000000003AAA");
+        changed.put("Name", "Globex");
+        try (LoadFingerprintTracker fingerprints = new LoadFingerprintTracker(storeFile, "Id")) {
+            assertFalse(fingerprints.isUnchanged(changed));
+            assertEquals(2, new BulkV2SuccessResultsWriter(successWriter, Config.OUTPUT_SUCCESS_LEVEL_COUNTS,
+                    getDaoColumnsByField()).write(toStream(RESULTS), fingerprints));
+        } finally {
+            successWriter.close();
+        }
+        final List<List<String>> records = readRecords(successFile);
+        assertEquals(1, records.size());
+        // the loaded rows are recorded even though they are not written
+        try (LoadFingerprintTracker fingerprints = new LoadFingerprintTracker(storeFile, "Id")) {
+            assertTrue(fingerprints.isUnchanged(changed));
+        }
+    }
+
+    @Test
+    public void testEmptyResults() throws Exception {
+        final File successFile = folder.newFile("success.csv");
+        final CSVFileWriter successWriter = openSuccessWriter(successFile,
+                Config.ID_COLUMN_NAME, Config.STATUS_COLUMN_NAME_IN_BULKV2, "ACCOUNT_NAME");
+        try {
+            assertEquals(0, new BulkV2SuccessResultsWriter(successWriter, Config.OUTPUT_SUCCESS_LEVEL_FULL,
+                    getDaoColumnsByField()).write(toStream(""), null));
+        } finally {
+            successWriter.close();
+        }
+        final List<List<String>> records = readRecords(successFile);
+        assertEquals(1, records.size());
+        assertEquals(Arrays.asList("ID", "SF__CREATED", "ACCOUNT_NAME"), records.get(0));
+    }
+
+    private CSVFileWriter openSuccessWriter(File successFile, String... columns) throws Exception {
+        final CSVFileWriter writer = new CSVFileWriter(successFile.getAbsolutePath(), getController().getConfig(),
+                AppUtil.COMMA);
+        writer.open();
+        writer.setColumnNames(new ArrayList<String>(Arrays.asList(columns)));
+        return writer;
+    }
+
+    private static Map<String, List<String>> getDaoColumnsByField() {
+        final Map<String, List<String>> daoColumnsByField = new HashMap<String, List<String>>();
+        daoColumnsByField.put("id", Collections.singletonList("ACCOUNT_ID"));
+        daoColumnsByField.put("name", Collections.singletonList("ACCOUNT_NAME"));
+        daoColumnsByField.put("website", Collections.singletonList("WEBSITE"));
+        return daoColumnsByField;
+    }
+
+    private static InputStream toStream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static List<List<String>> readRecords(File file) throws Exception {
+        final List<List<String>> records = new ArrayList<List<String>>();
+        try (InputStream in = new FileInputStream(file)) {
+            final CSVReader reader = new CSVReader(in, StandardCharsets.UTF_8.name());
+            for (List<String> record = reader.nextRecord(); record != null; record = reader.nextRecord()) {
+                records.add(record);
+            }
+        }
+        return records;
+    }
+}
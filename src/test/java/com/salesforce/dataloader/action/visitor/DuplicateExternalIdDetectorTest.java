@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor;
+
+import org.junit.Test;
+
+import com.salesforce.dataloader.model.Row;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests finding upsert rows with the same external id
+ */
+public class DuplicateExternalIdDetectorTest {
+
+    @Test
+    public void testRecordsRowNumberByExternalId() throws Exception {
+        try (DuplicateExternalIdDetector detector = new DuplicateExternalIdDetector("Code__c", false)) {
+            assertEquals(0, detector.getRecordedRow(row("A-1")));
+            detector.record(row("A-1"), 1);
+            detector.record(row("B-2"), 2);
+            assertEquals(1, detector.getRecordedRow(row("A-1")));
+            // external ids match regardless of case
+            assertEquals(1, detector.getRecordedRow(row("a-1")));
+            detector.record(row("a-1"), 3);
+            assertEquals(3, detector.getRecordedRow(row("A-1")));
+            assertEquals(2, detector.getRecordedRow(row("B-2")));
+        }
+    }
+
+    @Test
+    public void testCaseSensitiveExternalIds() throws Exception {
+        try (DuplicateExternalIdDetector detector = new DuplicateExternalIdDetector("Code__c", true)) {
+            detector.record(row("A-1"), 1);
+            assertEquals(1, detector.getRecordedRow(row("A-1")));
+            assertEquals(0, detector.getRecordedRow(row("a-1")));
+        }
+    }
+
+    @Test
+    public void testRowsWithoutExternalIdAreIgnored() throws Exception {
+        try (DuplicateExternalIdDetector detector = new DuplicateExternalIdDetector("Code__c", false)) {
+            detector.record(row(" "), 1);
+            assertNull(detector.getExternalId(row(" ")));
+            assertEquals(0, detector.getRecordedRow(row(" ")));
+            assertEquals(0, detector.getRecordedRow(new Row()));
+        }
+    }
+
+    @Test
+    public void testLastRowRecognizedByValues() throws Exception {
+        try (DuplicateExternalIdDetector detector = new DuplicateExternalIdDetector("Code__c", false)) {
+            assertFalse(detector.takeLast(row("A-1")));
+            detector.recordLast(row("A-1", "Acme 1"), 1);
+            detector.recordLast(row("A-1", "Acme 2"), 2);
+            assertEquals(2, detector.getRecordedRow(row("A-1")));
+            // the values have to match, not only the external id
+            assertFalse(detector.takeLast(row("a-1", "Acme 2")));
+            // the rows may come in another order when they are read again
+            assertTrue(detector.takeLast(row("A-1", "Acme 2")));
+            assertFalse(detector.takeLast(row("A-1", "Acme 1")));
+            // a later row with the same values is a duplicate of the one taken
+            assertFalse(detector.takeLast(row("A-1", "Acme 2")));
+        }
+    }
+
+    private static Row row(String externalId) {
+        return row(externalId, "Acme");
+    }
+
+    private static Row row(String externalId, String name) {
+        Row row = new Row();
+        row.put("Name", name);
+        row.put("code__c", externalId);
+        return row;
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.dataloader.model.Row;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests skipping rows that have not changed since they were last loaded
+ */
+public class LoadFingerprintTrackerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testUnchangedRowsSkippedOnReload() throws Exception {
+        final File storeFile = new File(folder.getRoot(), "fingerprints.dat");
+        // first load: every row is sent, the server reports all but one as loaded
+        try (LoadFingerprintTracker fingerprints = new LoadFingerprintTracker(storeFile, "Code__c")) {
+            assertFalse(fingerprints.isUnchanged(row("A-1", "Acme")));
+            assertFalse(fingerprints.isUnchanged(row("B-2", "Globex")));
+            assertFalse(fingerprints.isUnchanged(row("C-3", "Initech")));
+            fingerprints.loaded(row("A-1", "Acme"));
+            fingerprints.loaded("B-2");
+        }
+
+        // second load of the same file with one row changed
+        try (LoadFingerprintTracker fingerprints = new LoadFingerprintTracker(storeFile, "Code__c")) {
+            assertTrue("a loaded row should be skipped", fingerprints.isUnchanged(row("A-1", "Acme")));
+            assertTrue("a row loaded from the results should be skipped", fingerprints.isUnchanged(row("B-2", "Globex")));
+            assertFalse("a row that failed should be sent again", fingerprints.isUnchanged(row("C-3", "Initech")));
+            assertFalse("a changed row should be sent", fingerprints.isUnchanged(row("B-2", "Globex Corp")));
+            assertFalse("a row without key should be sent", fingerprints.isUnchanged(row(null, "Acme")));
+        }
+
+        // the changed row was not loaded, its previous fingerprint is kept
+        try (LoadFingerprintTracker fingerprints = new LoadFingerprintTracker(storeFile, "Code__c")) {
+            assertTrue(fingerprints.isUnchanged(row("B-2", "Globex")));
+            assertFalse(fingerprints.isUnchanged(row("B-2", "Globex Corp")));
+        }
+    }
+
+    private static Row row(String code, String name) {
+        final Row row = new Row();
+        row.put("Code__c", code);
+        row.put("Name", name);
+        return row;
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.action.visitor;
+
+import org.apache.commons.beanutils.BasicDynaBean;
+import org.apache.commons.beanutils.BasicDynaClass;
+import org.apache.commons.beanutils.DynaBean;
+import org.apache.commons.beanutils.DynaProperty;
+import org.junit.Test;
+
+import com.salesforce.dataloader.action.OperationInfo;
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+import com.sforce.soap.partner.PicklistEntry;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests checking rows against describe metadata before they are loaded
+ */
+public class PreflightRowValidatorTest {
+
+    private static final Field[] FIELDS = new Field[] {
+            field("Id", FieldType.id, false, true),
+            field("Name", FieldType.string, true, true),
+            field("Rating", FieldType.picklist, true, true),
+            field("AnnualRevenue", FieldType.currency, true, true),
+            field("CreatedDate", FieldType.datetime, false, false),
+    };
+
+    static {
+        FIELDS[1].setLength(10);
+        FIELDS[1].setNillable(false);
+        FIELDS[2].setRestrictedPicklist(true);
+        FIELDS[2].setPicklistValues(new PicklistEntry[] {picklistEntry("Hot", true), picklistEntry("Cold", false)});
+        FIELDS[3].setPrecision(5);
+        FIELDS[3].setScale(2);
+    }
+
+    @Test
+    public void testValidRowPasses() {
+        PreflightRowValidator validator = new PreflightRowValidator(FIELDS, OperationInfo.insert, true, 200);
+        assertNull(validator.validate(row("Name", "Acme", "Rating", "hot", "AnnualRevenue", 999.99)));
+        assertEquals(0, validator.getRejectedRows());
+    }
+
+    @Test
+    public void testInvalidRowsAreRejected() {
+        PreflightRowValidator validator = new PreflightRowValidator(FIELDS, OperationInfo.insert, true, 200);
+        assertTrue(validator.validate(row("Name", "Acme Corporation")).startsWith("STRING_TOO_LONG"));
+        assertTrue(validator.validate(row("Rating", "Hot")).startsWith("REQUIRED_FIELD_MISSING"));
+        assertTrue(validator.validate(row("Name", "Acme", "Rating", "Cold"))
+                .startsWith("INVALID_OR_NULL_FOR_RESTRICTED_PICKLIST"));
+        assertTrue(validator.validate(row("Name", "Acme", "AnnualRevenue", 1000.0))
+                .startsWith("NUMBER_OUTSIDE_VALID_RANGE"));
+        assertTrue(validator.validate(row("Name", "Acme", "CreatedDate", "2020-01-01"))
+                .startsWith("INVALID_FIELD_FOR_INSERT_UPDATE"));
+        assertEquals(5, validator.getRejectedRows());
+        assertEquals(1, validator.getSavedRequests());
+        // checking a row without validating it does not count it
+        assertTrue(validator.getError(row("Name", "Acme Corporation")).startsWith("STRING_TOO_LONG"));
+        assertEquals(5, validator.getRejectedRows());
+    }
+
+    @Test
+    public void testRequiredFieldsAreOnlyCheckedOnInsert() {
+        PreflightRowValidator validator = new PreflightRowValidator(FIELDS, OperationInfo.update, false, 200);
+        assertNull(validator.validate(row("Id", "001000000000001", "Rating", "Hot")));
+        // lengths are not checked when the values get truncated
+        assertNull(validator.validate(row("Id", "001000000000001", "Name", "Acme Corporation")));
+    }
+
+    private static Field field(String name, FieldType type, boolean createable, boolean updateable) {
+        Field field = new Field();
+        field.setName(name);
+        field.setType(type);
+        field.setCreateable(createable);
+        field.setUpdateable(updateable);
+        field.setNillable(true);
+        return field;
+    }
+
+    private static PicklistEntry picklistEntry(String value, boolean active) {
+        PicklistEntry entry = new PicklistEntry();
+        entry.setValue(value);
+        entry.setActive(active);
+        return entry;
+    }
+
+    private static DynaBean row(Object... namesAndValues) {
+        DynaProperty[] props = new DynaProperty[FIELDS.length];
+        for (int i = 0; i < FIELDS.length; i++) {
+            props[i] = new DynaProperty(FIELDS[i].getName(), Object.class);
+        }
+        DynaBean bean = new BasicDynaBean(new BasicDynaClass("Account", BasicDynaBean.class, props));
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            bean.set((String)namesAndValues[i], namesAndValues[i + 1]);
+        }
+        return bean;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.action.visitor;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import com.salesforce.dataloader.client.PartnerClient;
+import com.sforce.soap.partner.QueryResult;
+import com.sforce.soap.partner.sobject.SObject;
+import com.sforce.ws.ConnectionException;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests requesting the next page of SOAP query results ahead of time
+ */
+public class QueryMorePrefetcherTest {
+
+    @Test
+    public void testPagesReturnedInOrder() throws Exception {
+        PartnerClient client = mock(PartnerClient.class);
+        QueryResult first = newPage("locator1", false);
+        QueryResult second = newPage("locator2", false);
+        QueryResult third = newPage(null, true);
+        when(client.queryMore("locator1")).thenReturn(second);
+        when(client.queryMore("locator2")).thenReturn(third);
+
+        try (QueryMorePrefetcher prefetcher = new QueryMorePrefetcher(client, first,
+                new AdaptiveQueryBatchSize(500))) {
+            assertSame(first, prefetcher.nextPage());
+            assertSame(second, prefetcher.nextPage());
+            assertSame(third, prefetcher.nextPage());
+            assertNull(prefetcher.nextPage());
+        }
+        verify(client).resetQueryBatchSize();
+    }
+
+    @Test
+    public void testLateQueryMoreDoesNotUndoBatchSizeReset() throws Exception {
+        PartnerClient client = mock(PartnerClient.class);
+        final CountDownLatch fetchStarted = new CountDownLatch(1);
+        final CountDownLatch closed = new CountDownLatch(1);
+        // holds the fetch back until the prefetcher is closed
+        AdaptiveQueryBatchSize batchSize = new AdaptiveQueryBatchSize(500) {
+            @Override
+            int getBatchSize() {
+                fetchStarted.countDown();
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        closed.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getBatchSize();
+            }
+        };
+
+        QueryMorePrefetcher prefetcher = new QueryMorePrefetcher(client, newPage("locator1", false), batchSize);
+        prefetcher.nextPage();
+        fetchStarted.await();
+        prefetcher.close();
+        closed.countDown();
+        try {
+            prefetcher.nextPage();
+            fail("a fetch that runs after close should fail");
+        } catch (ConnectionException expected) {
+        }
+        verify(client).resetQueryBatchSize();
+        verify(client, never()).setQueryBatchSize(anyInt());
+        verify(client, never()).queryMore("locator1");
+    }
+
+    private static QueryResult newPage(String locator, boolean done) {
+        QueryResult page = new QueryResult();
+        page.setQueryLocator(locator);
+        page.setDone(done);
+        page.setRecords(new SObject[] { new SObject() });
+        return page;
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.sforce.soap.partner.DescribeGlobalResult;
+import com.sforce.soap.partner.DescribeGlobalSObjectResult;
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.soap.partner.Field;
+import com.sforce.soap.partner.FieldType;
+import com.sforce.soap.partner.PicklistEntry;
+
+public class DescribeCacheTest {
+
+    private static final String ORG_ID = "00D000000000001";
+    private static final String USER_ID = "005000000000001";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static DescribeSObjectResult newDescribe(String name) {
+        Field id = new Field();
+        id.setName("Id");
+        id.setType(FieldType.id);
+        id.setIdLookup(true);
+        Field parent = new Field();
+        parent.setName("ParentId");
+        parent.setType(FieldType.reference);
+        parent.setReferenceTo(new String[] { "Account", "Contact" });
+        parent.setRelationshipName("Parent");
+        parent.setCreateable(true);
+        PicklistEntry entry = new PicklistEntry();
+        entry.setValue("Open");
+        entry.setActive(true);
+        Field status = new Field();
+        status.setName("Status__c");
+        status.setType(FieldType.picklist);
+        status.setLength(255);
+        status.setPicklistValues(new PicklistEntry[] { entry });
+
+        DescribeSObjectResult result = new DescribeSObjectResult();
+        result.setName(name);
+        result.setLabel(name + " label");
+        result.setCreateable(true);
+        result.setFields(new Field[] { id, parent, status });
+        return result;
+    }
+
+    @Test
+    public void testDescribesSharedBetweenInstances() throws Exception {
+        new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "59.0", 60000).put(newDescribe("Account"));
+        new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "59.0", 60000).put(newDescribe("My_Object__c"));
+
+        Map<String, DescribeSObjectResult> describes = new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "59.0", 60000).loadAll(4);
+        Assert.assertEquals(2, describes.size());
+        DescribeSObjectResult result = describes.get("My_Object__c");
+        Assert.assertEquals("My_Object__c label", result.getLabel());
+        Assert.assertTrue(result.isCreateable());
+        Assert.assertEquals(3, result.getFields().length);
+        Field parent = result.getFields()[1];
+        Assert.assertEquals(FieldType.reference, parent.getType());
+        Assert.assertArrayEquals(new String[] { "Account", "Contact" }, parent.getReferenceTo());
+        Assert.assertEquals("Parent", parent.getRelationshipName());
+        Assert.assertTrue(parent.isCreateable());
+        Assert.assertFalse(parent.isIdLookup());
+        Field status = result.getFields()[2];
+        Assert.assertEquals(255, status.getLength());
+        Assert.assertEquals("Open", status.getPicklistValues()[0].getValue());
+        Assert.assertTrue(result.getFields()[0].isIdLookup());
+    }
+
+    @Test
+    public void testDescribesKeyedByOrgUserAndApiVersion() throws Exception {
+        new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "59.0", 60000).put(newDescribe("Account"));
+
+        Assert.assertTrue(new DescribeCache(folder.getRoot(), "00D000000000002", USER_ID, "59.0", 60000).loadAll(4).isEmpty());
+        Assert.assertTrue(new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "58.0", 60000).loadAll(4).isEmpty());
+        Assert.assertTrue(new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "58.0", 60000).isFor(ORG_ID, USER_ID, "58.0"));
+        Assert.assertFalse(new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "58.0", 60000).isFor(ORG_ID, USER_ID, "59.0"));
+        Assert.assertTrue(new DescribeCache(folder.getRoot(), ORG_ID, "005000000000002", "59.0", 60000).loadAll(4).isEmpty());
+        Assert.assertFalse(new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "59.0", 60000)
+                .isFor(ORG_ID, "005000000000002", "59.0"));
+    }
+
+    @Test
+    public void testExpiredAndUnreadableDescribesIgnored() throws Exception {
+        DescribeCache cache = new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "59.0", 60000);
+        cache.put(newDescribe("Account"));
+        cache.put(newDescribe("Contact"));
+        File dir = new File(folder.getRoot(), "v2/" + ORG_ID + "/" + USER_ID + "/59.0");
+        Assert.assertTrue(new File(dir, "Account.xml").setLastModified(System.currentTimeMillis() - 120000));
+        Files.write(new File(dir, "Broken.xml").toPath(), "<result".getBytes());
+
+        Map<String, DescribeSObjectResult> describes = cache.loadAll(4);
+        Assert.assertEquals(1, describes.size());
+        Assert.assertNotNull(describes.get("Contact"));
+    }
+
+    @Test
+    public void testDescribeGlobalSaved() throws Exception {
+        DescribeGlobalSObjectResult account = new DescribeGlobalSObjectResult();
+        account.setName("Account");
+        account.setLabel("Account label");
+        account.setQueryable(true);
+        DescribeGlobalResult describeGlobal = new DescribeGlobalResult();
+        describeGlobal.setEncoding("UTF-8");
+        describeGlobal.setMaxBatchSize(200);
+        describeGlobal.setSobjects(new DescribeGlobalSObjectResult[] { account });
+        DescribeCache cache = new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "59.0", 60000);
+        Assert.assertNull(cache.getDescribeGlobal());
+        cache.put(newDescribe("Contact"));
+        cache.putDescribeGlobal(describeGlobal);
+
+        DescribeGlobalResult result = new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "59.0", 60000).getDescribeGlobal();
+        Assert.assertNotNull(result);
+        Assert.assertEquals(200, result.getMaxBatchSize());
+        Assert.assertEquals(1, result.getSobjects().length);
+        Assert.assertEquals("Account", result.getSobjects()[0].getName());
+        Assert.assertEquals("Account label", result.getSobjects()[0].getLabel());
+        Assert.assertTrue(result.getSobjects()[0].isQueryable());
+        // not taken for an sobject describe
+        Assert.assertEquals(1, cache.loadAll(4).size());
+        Assert.assertNull(new DescribeCache(folder.getRoot(), ORG_ID, "005000000000002", "59.0", 60000).getDescribeGlobal());
+        Assert.assertNull(new DescribeCache(folder.getRoot(), ORG_ID, USER_ID, "58.0", 60000).getDescribeGlobal());
+
+        File dir = new File(folder.getRoot(), "v2/" + ORG_ID + "/" + USER_ID + "/59.0");
+        Assert.assertTrue(new File(dir, "_describeGlobal.xml").setLastModified(System.currentTimeMillis() - 120000));
+        Assert.assertNull(cache.getDescribeGlobal());
+    }
+}
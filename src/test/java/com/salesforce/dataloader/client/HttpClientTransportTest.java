@@ -25,6 +25,18 @@
  */
 package com.salesforce.dataloader.client;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
@@ -35,6 +47,9 @@ import org.junit.Assert;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import com.sforce.ws.ConnectorConfig;
+import com.sun.net.httpserver.HttpServer;
+
 /**
  * @author xbian
  */
@@ -49,4 +64,135 @@ public class HttpClientTransportTest {
         String responseStr = EntityUtils.toString(responseEntity);
         Assert.assertTrue("The httpclient should include SNI", responseStr.contains("ClientHello") && responseStr.contains("Great!") );
     }
+
+    @Test
+    public void testPooledConnectionReused() throws Exception {
+        HttpServer server = startServer("ok".getBytes(StandardCharsets.UTF_8));
+        try {
+            ConnectorConfig cc = new ConnectorConfig();
+            long opened = HttpClientTransport.getConnectionsOpened();
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals("ok", new String(post(server, cc), StandardCharsets.UTF_8));
+            }
+            Assert.assertEquals("requests of one config should share a connection",
+                    1, HttpClientTransport.getConnectionsOpened() - opened);
+        } finally {
+            HttpClientTransport.closeConnections();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testPooledConnectionSharedAcrossConfigs() throws Exception {
+        HttpServer server = startServer("ok".getBytes(StandardCharsets.UTF_8));
+        try {
+            long opened = HttpClientTransport.getConnectionsOpened();
+            for (int i = 0; i < 3; i++) {
+                Assert.assertEquals("ok", new String(post(server, new ConnectorConfig()), StandardCharsets.UTF_8));
+            }
+            Assert.assertEquals("configs with the same proxy settings should share a pool",
+                    1, HttpClientTransport.getConnectionsOpened() - opened);
+        } finally {
+            HttpClientTransport.closeConnections();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testLargeResponseStreamed() throws Exception {
+        byte[] body = new byte[1024 * 1024];
+        for (int i = 0; i < body.length; i++) {
+            body[i] = (byte)i;
+        }
+        HttpServer server = startServer(body);
+        try {
+            ConnectorConfig cc = new ConnectorConfig();
+            long opened = HttpClientTransport.getConnectionsOpened();
+            Assert.assertArrayEquals(body, post(server, cc));
+            HttpClientTransport.setResponseSpillThresholdBytes(1024);
+            Assert.assertArrayEquals(body, post(server, cc));
+            Assert.assertEquals("closing the streamed response should release its connection",
+                    1, HttpClientTransport.getConnectionsOpened() - opened);
+        } finally {
+            HttpClientTransport.setResponseSpillThresholdBytes(0);
+            HttpClientTransport.closeConnections();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testFileUploadedByteExact() throws Exception {
+        File file = File.createTempFile("upload", ".csv");
+        file.deleteOnExit();
+        StringBuilder csv = new StringBuilder("Id,Name\n");
+        for (int i = 0; csv.length() < 3 * ParallelGzipEntity.BLOCK_SIZE + 1000; i++) {
+            csv.append(i).append(",Account ").append(Integer.toHexString(i * 31)).append('\n');
+        }
+        byte[] content = csv.toString().getBytes(StandardCharsets.UTF_8);
+        Files.write(file.toPath(), content);
+
+        AtomicReference<byte[]> received = new AtomicReference<byte[]>();
+        AtomicReference<String> encoding = new AtomicReference<String>();
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            encoding.set(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+            InputStream in = exchange.getRequestBody();
+            if ("gzip".equals(encoding.get())) {
+                in = new GZIPInputStream(in);
+            }
+            received.set(IOUtils.toByteArray(in));
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/";
+            ConnectorConfig cc = new ConnectorConfig();
+            for (boolean compress : new boolean[] { false, true }) {
+                HttpClientTransport.setCompressUploads(compress);
+                HttpClientTransport transport = new HttpClientTransport(cc);
+                transport.connect(url, new HashMap<String, String>(), true,
+                        HttpTransportInterface.SupportedHttpMethodType.PUT, file, "text/csv");
+                transport.getContent().close();
+                Assert.assertTrue(transport.isSuccessful());
+                Assert.assertEquals(compress ? "gzip" : null, encoding.get());
+                Assert.assertArrayEquals(content, received.get());
+                if (compress) {
+                    Assert.assertTrue("compressed upload should be smaller",
+                            transport.getRequestBytesSent() < content.length);
+                } else {
+                    Assert.assertEquals(content.length, transport.getRequestBytesSent());
+                }
+            }
+        } finally {
+            HttpClientTransport.setCompressUploads(false);
+            HttpClientTransport.closeConnections();
+            server.stop(0);
+        }
+    }
+
+    private static HttpServer startServer(byte[] body) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            IOUtils.toByteArray(exchange.getRequestBody());
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static byte[] post(HttpServer server, ConnectorConfig cc) throws IOException {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/";
+        HttpClientTransport transport = new HttpClientTransport(cc);
+        try (OutputStream out = transport.connect(url, new HashMap<String, String>(), false)) {
+            out.write("request".getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream in = transport.getContent()) {
+            Assert.assertTrue(transport.isSuccessful());
+            return IOUtils.toByteArray(in);
+        }
+    }
 }
@@ -30,6 +30,7 @@ import com.salesforce.dataloader.dyna.RelationshipField;
 import com.salesforce.dataloader.dyna.SforceDynaBean;
 import com.salesforce.dataloader.process.ProcessTestBase;
 import com.sforce.soap.partner.DeleteResult;
+import com.sforce.soap.partner.DescribeGlobalSObjectResult;
 import com.sforce.soap.partner.DescribeSObjectResult;
 import com.sforce.soap.partner.Field;
 import com.sforce.soap.partner.QueryResult;
@@ -227,6 +228,25 @@ public class PartnerClientTest extends ProcessTestBase {
         }
     }
 
+    @Test
+    public void testDescribeSObjectsInChunks() throws Exception {
+        PartnerClient client = new PartnerClient(getController());
+
+        // more objects than fit in one describeSObjects call
+        List<String> objectTypes = new ArrayList<String>();
+        for (DescribeGlobalSObjectResult globalResult : client.getDescribeGlobalResults().values()) {
+            if (globalResult.isCreateable() && globalResult.isQueryable() && objectTypes.size() < 250) {
+                objectTypes.add(globalResult.getName());
+            }
+        }
+        Map<String, DescribeSObjectResult> describeResults = client.describeSObjects(objectTypes);
+        for (String objectType : objectTypes) {
+            assertNotNull("no describe for " + objectType, describeResults.get(objectType));
+        }
+        // described objects are taken from the cache the next time
+        assertTrue(client.describeSObjects(objectTypes).get(objectTypes.get(0)) == describeResults.get(objectTypes.get(0)));
+    }
+
     @Test
     public void testSetFieldTypes() throws Exception {
         PartnerClient client = new PartnerClient(getController());
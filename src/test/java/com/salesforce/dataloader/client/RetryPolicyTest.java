@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.http.client.utils.DateUtils;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesforce.dataloader.exception.ServiceUnavailableException;
+import com.sforce.ws.ConnectionException;
+import com.sforce.ws.ConnectorConfig;
+import com.sun.net.httpserver.HttpServer;
+
+public class RetryPolicyTest {
+
+    @Test
+    public void testRetryAfterHonored() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(requests, 2, "1");
+        try {
+            RetryPolicy policy = new RetryPolicy(3, 10, 50, new CircuitBreaker(0, 0));
+            long start = System.currentTimeMillis();
+            Assert.assertEquals("ok", policy.execute("post", false, () -> post(server)));
+            Assert.assertEquals(3, requests.get());
+            Assert.assertTrue("each retry should wait as long as the server asked",
+                    System.currentTimeMillis() - start >= 2000);
+        } finally {
+            HttpClientTransport.closeConnections();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testRetriesExhausted() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(requests, Integer.MAX_VALUE, null);
+        try {
+            RetryPolicy policy = new RetryPolicy(2, 10, 50, new CircuitBreaker(0, 0));
+            try {
+                policy.execute("post", true, () -> post(server));
+                Assert.fail("the last failure should be thrown");
+            } catch (ServiceUnavailableException e) {
+                Assert.assertEquals(503, e.getStatusCode());
+                Assert.assertEquals(-1, e.getRetryAfterMillis());
+            }
+            Assert.assertEquals(3, requests.get());
+        } finally {
+            HttpClientTransport.closeConnections();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testBreakerPausesCallers() throws Exception {
+        AtomicInteger requests = new AtomicInteger();
+        HttpServer server = startServer(requests, 2, null);
+        try {
+            CircuitBreaker breaker = new CircuitBreaker(2, 500);
+            RetryPolicy policy = new RetryPolicy(0, 10, 50, breaker);
+            for (int i = 0; i < 2; i++) {
+                try {
+                    policy.execute("post", true, () -> post(server));
+                    Assert.fail("retries are disabled");
+                } catch (ServiceUnavailableException e) {
+                    // expected
+                }
+            }
+            Assert.assertTrue(breaker.isOpen());
+            long start = System.currentTimeMillis();
+            Assert.assertEquals("ok", policy.execute("post", true, () -> post(server)));
+            Assert.assertTrue("the request should wait for the breaker to close",
+                    System.currentTimeMillis() - start >= 400);
+            Assert.assertFalse(breaker.isOpen());
+        } finally {
+            HttpClientTransport.closeConnections();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void testNonTransientNotRetried() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        RetryPolicy policy = new RetryPolicy(3, 10, 50, new CircuitBreaker(0, 0));
+        try {
+            policy.execute("fail", true, () -> {
+                attempts.incrementAndGet();
+                throw new IOException("bad request");
+            });
+            Assert.fail("the failure should be thrown");
+        } catch (IOException e) {
+            Assert.assertEquals("bad request", e.getMessage());
+        }
+        Assert.assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void testIsTransient() {
+        ConnectionException reset = new ConnectionException("Failed to send request", new SocketException("Connection reset"));
+        Assert.assertTrue(RetryPolicy.isTransient(reset, true));
+        Assert.assertFalse("a request that may have been processed should not be sent again",
+                RetryPolicy.isTransient(reset, false));
+        ConnectionException refused = new ConnectionException("Failed to send request", new ConnectException("Connection refused"));
+        Assert.assertTrue(RetryPolicy.isTransient(refused, false));
+        Assert.assertFalse(RetryPolicy.isTransient(new ConnectionException("INVALID_FIELD"), true));
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        Assert.assertEquals(120000, RetryPolicy.parseRetryAfterMillis("120"));
+        Assert.assertEquals(-1, RetryPolicy.parseRetryAfterMillis(null));
+        Assert.assertEquals(-1, RetryPolicy.parseRetryAfterMillis("soon"));
+        long millis = RetryPolicy.parseRetryAfterMillis(
+                DateUtils.formatDate(new Date(System.currentTimeMillis() + 60000)));
+        Assert.assertTrue(millis > 55000 && millis <= 60000);
+    }
+
+    @Test
+    public void testBackoffBounded() {
+        RetryPolicy policy = new RetryPolicy(3, 100, 1000, new CircuitBreaker(0, 0));
+        long sleep = 100;
+        for (int i = 0; i < 20; i++) {
+            sleep = policy.nextSleepMillis(sleep);
+            Assert.assertTrue(sleep >= 100 && sleep <= 1000);
+        }
+    }
+
+    /**
+     * Starts a server that answers the first failures requests with 503 and the others with "ok".
+     */
+    private static HttpServer startServer(AtomicInteger requests, int failures, String retryAfter) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            IOUtils.toByteArray(exchange.getRequestBody());
+            if (requests.incrementAndGet() <= failures) {
+                if (retryAfter != null) {
+                    exchange.getResponseHeaders().add("Retry-After", retryAfter);
+                }
+                exchange.sendResponseHeaders(503, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static String post(HttpServer server) throws IOException {
+        String url = "http://localhost:" + server.getAddress().getPort() + "/";
+        HttpClientTransport transport = new HttpClientTransport(new ConnectorConfig());
+        try (OutputStream out = transport.connect(url, new HashMap<String, String>(), false)) {
+            out.write("request".getBytes(StandardCharsets.UTF_8));
+        }
+        try (InputStream in = transport.getContent()) {
+            return IOUtils.toString(in, StandardCharsets.UTF_8);
+        }
+    }
+}
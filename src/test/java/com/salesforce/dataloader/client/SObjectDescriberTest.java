@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.sforce.soap.partner.DescribeSObjectResult;
+import com.sforce.soap.partner.fault.ExceptionCode;
+import com.sforce.soap.partner.fault.InvalidSObjectFault;
+import com.sforce.soap.partner.fault.UnexpectedErrorFault;
+
+public class SObjectDescriberTest {
+
+    private static List<String> names(int count) {
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            names.add("Object" + i + "__c");
+        }
+        return names;
+    }
+
+    private static DescribeSObjectResult describe(String name) {
+        DescribeSObjectResult result = new DescribeSObjectResult();
+        result.setName(name);
+        return result;
+    }
+
+    private static DescribeSObjectResult[] describeAll(String[] names) {
+        DescribeSObjectResult[] results = new DescribeSObjectResult[names.length];
+        for (int i = 0; i < names.length; i++) {
+            results[i] = describe(names[i]);
+        }
+        return results;
+    }
+
+    @Test
+    public void testSObjectsDescribedInChunks() throws Exception {
+        final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<Integer>());
+        SObjectDescriber describer = new SObjectDescriber(100, 4, names -> {
+            chunkSizes.add(names.length);
+            return describeAll(names);
+        }, name -> {
+            throw new AssertionError("no sobject should be described alone");
+        });
+
+        List<DescribeSObjectResult> results = describer.describe(names(250));
+        Assert.assertEquals(250, results.size());
+        Assert.assertEquals("Object0__c", results.get(0).getName());
+        Assert.assertEquals("Object249__c", results.get(249).getName());
+        Collections.sort(chunkSizes);
+        Assert.assertEquals(Arrays.asList(50, 100, 100), chunkSizes);
+    }
+
+    @Test
+    public void testInvalidTypeDescribedOneByOne() throws Exception {
+        final AtomicInteger singleCalls = new AtomicInteger();
+        SObjectDescriber describer = new SObjectDescriber(2, 4, names -> {
+            if (Arrays.asList(names).contains("Bad__c")) {
+                InvalidSObjectFault fault = new InvalidSObjectFault();
+                fault.setExceptionCode(ExceptionCode.INVALID_TYPE);
+                throw fault;
+            }
+            return describeAll(names);
+        }, name -> {
+            singleCalls.incrementAndGet();
+            return "Bad__c".equals(name) ? null : describe(name);
+        });
+
+        List<DescribeSObjectResult> results = describer.describe(Arrays.asList("Account", "Contact", "Bad__c", "Lead"));
+        Assert.assertEquals("only the sobjects of the failed call should be described alone", 2, singleCalls.get());
+        Assert.assertEquals(4, results.size());
+        Assert.assertEquals("Account", results.get(0).getName());
+        Assert.assertNull(results.get(2));
+        Assert.assertEquals("Lead", results.get(3).getName());
+    }
+
+    @Test
+    public void testOtherFaultsNotRetriedOneByOne() throws Exception {
+        SObjectDescriber describer = new SObjectDescriber(100, 4, names -> {
+            UnexpectedErrorFault fault = new UnexpectedErrorFault();
+            fault.setExceptionCode(ExceptionCode.REQUEST_LIMIT_EXCEEDED);
+            throw fault;
+        }, name -> {
+            throw new AssertionError("no sobject should be described alone");
+        });
+
+        try {
+            describer.describe(names(250));
+            Assert.fail("the fault should be thrown");
+        } catch (UnexpectedErrorFault e) {
+            Assert.assertEquals(ExceptionCode.REQUEST_LIMIT_EXCEEDED, e.getExceptionCode());
+        }
+    }
+}
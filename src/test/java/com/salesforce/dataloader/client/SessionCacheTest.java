@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.salesforce.dataloader.client;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesforce.dataloader.security.EncryptionAesUtil;
+
+public class SessionCacheTest {
+
+    private static final String USER = "user@example.com";
+    private static final String ENDPOINT = "https://login.salesforce.com/services/Soap/u/59.0";
+    private static final String SERVER_URL = "https://example.my.salesforce.com/services/Soap/u/59.0/00D";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private SessionCache newCache(File file) throws Exception {
+        File keyFile = new File(folder.getRoot(), "test.key");
+        new EncryptionAesUtil().createKeyFileIfNotExisting(keyFile.getAbsolutePath());
+        return new SessionCache(file, keyFile.getAbsolutePath());
+    }
+
+    @Test
+    public void testSessionSharedBetweenInstances() throws Exception {
+        File file = new File(folder.getRoot(), "sessions.properties");
+        newCache(file).put(USER, ENDPOINT, "00Dsession", SERVER_URL, 7200);
+
+        SessionCache.CachedSession session = newCache(file).get(USER, ENDPOINT);
+        Assert.assertNotNull(session);
+        Assert.assertEquals("00Dsession", session.getSessionId());
+        Assert.assertEquals(SERVER_URL, session.getServerUrl());
+        Assert.assertFalse("session id must not be stored in clear text",
+                new String(Files.readAllBytes(file.toPath())).contains("00Dsession"));
+    }
+
+    @Test
+    public void testSessionKeyedByUserAndEndpoint() throws Exception {
+        SessionCache cache = newCache(new File(folder.getRoot(), "sessions.properties"));
+        cache.put(USER, ENDPOINT, "00Dsession", SERVER_URL, 7200);
+
+        Assert.assertNull(cache.get("other@example.com", ENDPOINT));
+        Assert.assertNull(cache.get(USER, "https://login.salesforce.com/services/Soap/u/58.0"));
+        Assert.assertNotNull(cache.get(USER, ENDPOINT));
+    }
+
+    @Test
+    public void testExpiredAndRemovedSessionsIgnored() throws Exception {
+        SessionCache cache = newCache(new File(folder.getRoot(), "sessions.properties"));
+        cache.put(USER, ENDPOINT, "00Dsession", SERVER_URL, 0);
+        Assert.assertNull(cache.get(USER, ENDPOINT));
+
+        cache.put(USER, ENDPOINT, "00Dsession", SERVER_URL, 7200);
+        cache.remove(USER, ENDPOINT);
+        Assert.assertNull(cache.get(USER, ENDPOINT));
+    }
+
+    @Test
+    public void testSessionFromOtherKeyIgnored() throws Exception {
+        File file = new File(folder.getRoot(), "sessions.properties");
+        newCache(file).put(USER, ENDPOINT, "00Dsession", SERVER_URL, 7200);
+
+        File otherKeyFile = folder.newFile("other.key");
+        otherKeyFile.delete();
+        new EncryptionAesUtil().createKeyFileIfNotExisting(otherKeyFile.getAbsolutePath());
+        Assert.assertNull(new SessionCache(file, otherKeyFile.getAbsolutePath()).get(USER, ENDPOINT));
+    }
+}
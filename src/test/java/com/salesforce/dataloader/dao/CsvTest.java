@@ -25,10 +25,15 @@
  */
 package com.salesforce.dataloader.dao;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -36,10 +41,13 @@ import com.salesforce.dataloader.ConfigTestBase;
 import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.dao.csv.CSVFileReader;
 import com.salesforce.dataloader.dao.csv.CSVFileWriter;
+import com.salesforce.dataloader.dao.csv.CSVRecordScanner;
+import com.salesforce.dataloader.exception.DataAccessRowException;
 import com.salesforce.dataloader.model.Row;
 import com.salesforce.dataloader.util.AppUtil;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class CsvTest extends ConfigTestBase {
@@ -109,11 +117,13 @@ public class CsvTest extends ConfigTestBase {
         assertEquals("row1-1", firstRow.get(COLUMN_1_NAME));
         assertEquals("row1-2", firstRow.get(COLUMN_2_NAME));
         assertEquals("row1-3", firstRow.get(COLUMN_3_NAME));
+        assertEquals(1, firstRow.getRowNumber());
 
         Row secondRow = csv.readRow();
         assertEquals("row2-1", secondRow.get(COLUMN_1_NAME));
         assertEquals("row2-2", secondRow.get(COLUMN_2_NAME));
         assertEquals("row2-3", secondRow.get(COLUMN_3_NAME));
+        assertEquals(2, secondRow.getRowNumber());
 
         csv.close();
     }
@@ -160,6 +170,102 @@ public class CsvTest extends ConfigTestBase {
         f.delete();
     }
     
+    @Test
+    public void testCSVRecordScanner() throws Exception {
+        byte[] content = "\"a\",\"b\"\n\"multi\nline\",\"quoted \"\"x\"\"\"\n\"last\"".getBytes(StandardCharsets.UTF_8);
+        CSVRecordScanner scanner = new CSVRecordScanner();
+        assertEquals(8, scanner.scan(content, 0, content.length));
+        assertEquals(2, scanner.getRecordCount());
+        assertFalse(scanner.isAtRecordStart());
+        scanner.scan("\r\n".getBytes(StandardCharsets.UTF_8), 0, 2);
+        assertEquals(3, scanner.getRecordCount());
+        assertTrue(scanner.isAtRecordStart());
+    }
+
+    @Test
+    public void testCSVWriteRawRecords() throws Exception {
+        File f = new File(getTestDataDir(), "csvtestRawTemp.csv");
+        String path = f.getAbsolutePath();
+        getController().getConfig().setValue(Config.WRITE_UTF8, true);
+        CSVFileWriter writer = new CSVFileWriter(path, getController().getConfig(), AppUtil.COMMA);
+        writer.open();
+        writer.setColumnNames(writeHeader);
+        assertTrue(writer.acceptsRawRecords(',', StandardCharsets.UTF_8) == "\n".equals(System.lineSeparator()));
+        assertFalse(writer.acceptsRawRecords('\t', StandardCharsets.UTF_8));
+        writer.writeRow(row1);
+        String rawRecords = "\"raw1col1\",\"multi\nline\",\"raw1col3\"\n\"raw2col1\",\"\"\"q\"\"\",\"raw2col3\"";
+        assertEquals(2, writer.writeRawRecords(new ByteArrayInputStream(rawRecords.getBytes(StandardCharsets.UTF_8))));
+        writer.writeRow(row2);
+        assertEquals(4, writer.getCurrentRowNumber());
+        writer.close();
+        getController().getConfig().setValue(Config.WRITE_UTF8, false);
+
+        CSVFileReader csv = new CSVFileReader(f, getController().getConfig(), true, true);
+        csv.open();
+        assertEquals("row1col1", csv.readRow().get("COL1"));
+        Row raw1 = csv.readRow();
+        assertEquals("multi\nline", raw1.get("COL2"));
+        assertEquals("raw1col3", raw1.get("COL3"));
+        assertEquals("\"q\"", csv.readRow().get("COL2"));
+        assertEquals("row2col3", csv.readRow().get("COL3"));
+        csv.close();
+        f.delete();
+    }
+
+    @Test
+    public void testCSVTransferRecords() throws Exception {
+        File f = new File(getTestDataDir(), "csvtestTransferTemp.csv");
+        String content = "\uFEFFcol1,col2\r\n\"r\u00e9sum\u00e9\",\"multi\r\nline\"\r\nplain\t\"a,b\"\r\n\r\nignored,row\r\n";
+        Files.write(f.toPath(), content.getBytes("UTF-16LE"));
+        getController().getConfig().setValue(Config.READ_CHARSET, "UTF-16LE");
+        CSVFileReader csv = new CSVFileReader(f, getController().getConfig(), false, false);
+        csv.open();
+        assertTrue(csv.canTransferRecords());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, csv.transferRecords(out));
+        assertEquals("\"r\u00e9sum\u00e9\",\"multi\r\nline\"\nplain,\"a,b\"\n",
+                new String(out.toByteArray(), StandardCharsets.UTF_8));
+        csv.close();
+
+        Files.write(f.toPath(), "col1,col2\nv1,v2\nv1,v2,v3".getBytes(StandardCharsets.UTF_16LE));
+        csv = new CSVFileReader(f, getController().getConfig(), false, false);
+        csv.open();
+        try {
+            csv.transferRecords(new ByteArrayOutputStream());
+            Assert.fail("record with too many columns was transferred");
+        } catch (DataAccessRowException e) {
+            // expected
+        } finally {
+            csv.close();
+            getController().getConfig().setValue(Config.READ_CHARSET, "");
+            f.delete();
+        }
+    }
+
+    @Test
+    public void testCSVTransferRecordsNeedsCommaDelimiter() throws Exception {
+        File f = new File(getTestDataDir(), "csvtestTransferTemp.csv");
+        Files.write(f.toPath(), "col1;col2\nv1,x;v2\n".getBytes(StandardCharsets.UTF_8));
+        Config config = getController().getConfig();
+        config.setValue(Config.CSV_DELIMITER_COMMA, false);
+        config.setValue(Config.CSV_DELIMITER_TAB, false);
+        config.setValue(Config.CSV_DELIMITER_OTHER, true);
+        config.setValue(Config.CSV_DELIMITER_OTHER_VALUE, ";");
+        CSVFileReader csv = new CSVFileReader(f, config, false, false);
+        try {
+            csv.open();
+            // the comma in the first value would separate columns once the delimiters are rewritten
+            assertFalse(csv.canTransferRecords());
+        } finally {
+            csv.close();
+            config.setValue(Config.CSV_DELIMITER_COMMA, true);
+            config.setValue(Config.CSV_DELIMITER_TAB, true);
+            config.setValue(Config.CSV_DELIMITER_OTHER, false);
+            config.setValue(Config.CSV_DELIMITER_OTHER_VALUE, "-");
+            f.delete();
+        }
+    }
+
     @Test
     public void testReadingSeparatedValues () throws Exception {
         File f = new File(getTestDataDir(), "csvSeparator.csv");
@@ -26,24 +26,31 @@
 package com.salesforce.dataloader.dao.database;
 
 import com.salesforce.dataloader.ConfigTestBase;
+import com.salesforce.dataloader.config.Config;
 import com.salesforce.dataloader.controller.Controller;
+import com.salesforce.dataloader.exception.DataAccessBatchException;
 import com.salesforce.dataloader.exception.DataAccessObjectException;
+import com.salesforce.dataloader.exception.DataAccessObjectInitializationException;
 import com.salesforce.dataloader.model.Row;
 import com.salesforce.dataloader.util.AccountRowComparator;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.LogManager;
 
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 
@@ -97,6 +104,274 @@ public class DatabaseTest extends ConfigTestBase {
         verifyDbInsertOrUpdate(getController(), false, true);
     }
 
+    @Test
+    public void testDatabasePartitionedQuery() throws Exception {
+        // insert some data
+        DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, NUM_ROWS, false);
+
+        Config config = getController().getConfig();
+        try {
+            config.setValue(Config.DAO_READ_PARTITIONS, "3");
+            config.setValue(Config.DAO_READ_PARTITION_EXPRESSION, "CAST(ANNUAL_REVENUE / 1000 AS INT)");
+            config.setValue(Config.DAO_READ_FETCH_SIZE, "4");
+            // rows of all partitions are read, in any order
+            verifyDbInsertOrUpdate(getController(), true, true);
+            DatabaseReader reader = new DatabaseReader(config, "queryAccountAll");
+            try {
+                reader.open();
+                assertEquals(NUM_ROWS, reader.readRowList(1000).size());
+                assertEquals(NUM_ROWS, reader.getCurrentRowNumber());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            config.setValue(Config.DAO_READ_PARTITIONS, "1");
+            config.setValue(Config.DAO_READ_PARTITION_EXPRESSION, "");
+            config.setValue(Config.DAO_READ_FETCH_SIZE, "0");
+        }
+    }
+
+    @Test
+    public void testDatabasePartitionedQueryNullExpression() throws Exception {
+        List<Row> rows = new ArrayList<Row>();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows.add(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, i, DatabaseTestUtil.DateType.CALENDAR));
+        }
+        // the partition expression is null for these rows
+        rows.get(2).put(DatabaseTestUtil.REVENUE_COL, null);
+        rows.get(5).put(DatabaseTestUtil.REVENUE_COL, null);
+        Config config = getController().getConfig();
+        DatabaseWriter writer = new DatabaseWriter(config, "insertAccount");
+        try {
+            writer.open();
+            writer.writeRowList(rows);
+        } finally {
+            writer.close();
+        }
+        try {
+            config.setValue(Config.DAO_READ_PARTITIONS, "3");
+            config.setValue(Config.DAO_READ_PARTITION_EXPRESSION, "CAST(ANNUAL_REVENUE / 1000 AS INT)");
+            assertEquals(NUM_ROWS, countAccountsDb());
+        } finally {
+            config.setValue(Config.DAO_READ_PARTITIONS, "1");
+            config.setValue(Config.DAO_READ_PARTITION_EXPRESSION, "");
+        }
+    }
+
+    @Test
+    public void testDatabasePartitionedQueryNotResumed() throws Exception {
+        Config config = getController().getConfig();
+        DatabaseReader reader = new DatabaseReader(config, "queryAccountAll");
+        try {
+            config.setValue(Config.DAO_READ_PARTITIONS, "3");
+            config.setValue(Config.DAO_READ_PARTITION_EXPRESSION, "CAST(ANNUAL_REVENUE / 1000 AS INT)");
+            config.setValue(Config.LOAD_ROW_TO_START_AT, "5");
+            // the rows of the partitions are not in the same order on every read
+            reader.open();
+            Assert.fail("a partitioned query should not be resumed at a row");
+        } catch (DataAccessObjectInitializationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(Config.LOAD_ROW_TO_START_AT));
+        } finally {
+            reader.close();
+            config.setValue(Config.DAO_READ_PARTITIONS, "1");
+            config.setValue(Config.DAO_READ_PARTITION_EXPRESSION, "");
+            config.setValue(Config.LOAD_ROW_TO_START_AT, "0");
+        }
+    }
+
+    @Test
+    public void testDatabasePartitionedQueryNotReadAgainForBulkResults() throws Exception {
+        Config config = getController().getConfig();
+        final boolean bulkApi = config.getBoolean(Config.BULK_API_ENABLED);
+        final boolean bulkV2Api = config.getBoolean(Config.BULKV2_API_ENABLED);
+        DatabaseReader reader = new DatabaseReader(config, "queryAccountAll");
+        try {
+            config.setValue(Config.DAO_READ_PARTITIONS, "3");
+            config.setValue(Config.DAO_READ_PARTITION_EXPRESSION, "CAST(ANNUAL_REVENUE / 1000 AS INT)");
+            config.setValue(Config.BULK_API_ENABLED, true);
+            config.setValue(Config.BULKV2_API_ENABLED, false);
+            config.setValue(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO, false);
+            // the rows are read again to match them with the results of their batches
+            reader.open();
+            Assert.fail("a partitioned query should not be read again for Bulk API results");
+        } catch (DataAccessObjectInitializationException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO));
+        } finally {
+            reader.close();
+        }
+        reader = new DatabaseReader(config, "queryAccountAll");
+        try {
+            config.setValue(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO, true);
+            reader.open();
+            assertEquals(countAccountsDb(), reader.getTotalRows());
+        } finally {
+            reader.close();
+            config.setValue(Config.DAO_READ_PARTITIONS, "1");
+            config.setValue(Config.DAO_READ_PARTITION_EXPRESSION, "");
+            config.setValue(Config.BULK_API_ENABLED, bulkApi);
+            config.setValue(Config.BULKV2_API_ENABLED, bulkV2Api);
+            config.setValue(Config.PROCESS_BULK_CACHE_DATA_FROM_DAO, false);
+        }
+    }
+
+    @Test
+    public void testDatabaseParallelWrite() throws Exception {
+        Config config = getController().getConfig();
+        try {
+            config.setValue(Config.DAO_WRITE_CONNECTIONS, "3");
+            config.setValue(Config.DAO_WRITE_COMMIT_INTERVAL, "100");
+            // the list is written in slices on 3 connections, committed every 100 rows and on close
+            DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, 500, false);
+        } finally {
+            config.setValue(Config.DAO_WRITE_CONNECTIONS, "1");
+            config.setValue(Config.DAO_WRITE_COMMIT_INTERVAL, "0");
+        }
+        assertEquals(500, countAccountsDb());
+        verifyDbInsertOrUpdate(getController(), true, true);
+    }
+
+    @Test
+    public void testDatabaseParallelWriteSliceFailure() throws Exception {
+        List<Row> rows = new ArrayList<Row>();
+        for (int i = 0; i < 150; i++) {
+            rows.add(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, i, DatabaseTestUtil.DateType.CALENDAR));
+        }
+        // the first slice of 50 rows fails as a whole
+        rows.get(10).remove(DatabaseTestUtil.ACCOUNT_NUMBER_COL);
+        Config config = getController().getConfig();
+        DatabaseWriter writer = new DatabaseWriter(config, "insertAccount");
+        try {
+            config.setValue(Config.DAO_WRITE_CONNECTIONS, "3");
+            writer.open();
+            writer.writeRowList(rows);
+            Assert.fail("the rows of the failed slice should be reported");
+        } catch (DataAccessBatchException e) {
+            assertEquals(50, e.getRowErrors().size());
+            assertTrue(e.getRowErrors().containsKey(0));
+            assertTrue(e.getRowErrors().containsKey(49));
+        } finally {
+            writer.close();
+            config.setValue(Config.DAO_WRITE_CONNECTIONS, "1");
+        }
+        // the other slices are written
+        assertEquals(100, countAccountsDb());
+    }
+
+    @Test
+    public void testDatabaseWriteRowFailures() throws Exception {
+        List<Row> rows = new ArrayList<Row>();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows.add(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, i, DatabaseTestUtil.DateType.CALENDAR));
+        }
+        // too long for the column
+        rows.get(3).put(DatabaseTestUtil.ACCOUNT_NUMBER_COL, "ACCT-000003-0000000000000");
+        rows.get(7).put(DatabaseTestUtil.ACCOUNT_NUMBER_COL, "ACCT-000007-0000000000000");
+        Config config = getController().getConfig();
+        DatabaseWriter writer = new DatabaseWriter(config, "insertAccount");
+        try {
+            config.setValue(Config.DAO_WRITE_COMMIT_INTERVAL, "1000");
+            writer.open();
+            writer.writeRowList(rows);
+            Assert.fail("rows that are too long should not be written");
+        } catch (DataAccessBatchException e) {
+            assertEquals(new HashSet<Integer>(Arrays.asList(3, 7)), e.getRowErrors().keySet());
+        } finally {
+            writer.close();
+            config.setValue(Config.DAO_WRITE_COMMIT_INTERVAL, "0");
+        }
+        // the other rows are written and committed on close
+        assertEquals(NUM_ROWS - 2, countAccountsDb());
+    }
+
+    @Test
+    public void testDatabaseWriteCommitInterval() throws Exception {
+        List<Row> rows = new ArrayList<Row>();
+        for (int i = 0; i < NUM_ROWS; i++) {
+            rows.add(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, i, DatabaseTestUtil.DateType.CALENDAR));
+        }
+        Config config = getController().getConfig();
+        DatabaseWriter writer = new DatabaseWriter(config, "insertAccount");
+        try {
+            config.setValue(Config.DAO_WRITE_COMMIT_INTERVAL, String.valueOf(NUM_ROWS));
+            writer.open();
+            writer.writeRowList(rows.subList(0, NUM_ROWS / 2));
+            // the rows are left for a later commit
+            assertTrue(writer.hasUncommittedRows());
+            writer.writeRowList(rows.subList(NUM_ROWS / 2, NUM_ROWS));
+            // the interval is reached
+            assertFalse(writer.hasUncommittedRows());
+            assertEquals(NUM_ROWS, countAccountsDb());
+
+            writer.writeRow(DatabaseTestUtil.getInsertOrUpdateAccountRow(true, NUM_ROWS,
+                    DatabaseTestUtil.DateType.CALENDAR));
+            assertTrue(writer.hasUncommittedRows());
+            writer.commit();
+            assertFalse(writer.hasUncommittedRows());
+            assertEquals(NUM_ROWS + 1, countAccountsDb());
+        } finally {
+            writer.close();
+            config.setValue(Config.DAO_WRITE_COMMIT_INTERVAL, "0");
+        }
+    }
+
+    @Test
+    public void testDatabaseTotalRows() throws Exception {
+        DatabaseTestUtil.insertOrUpdateAccountsDb(getController(), true/* insert */, NUM_ROWS, false);
+
+        Config config = getController().getConfig();
+        try {
+            config.setValue(Config.DAO_SKIP_TOTAL_COUNT, "false");
+            DatabaseReader reader = new DatabaseReader(config, "queryAccountAll");
+            try {
+                reader.open();
+                assertEquals(NUM_ROWS, reader.getTotalRows());
+                // counting does not consume the rows of the query
+                assertEquals(NUM_ROWS, reader.readRowList(1000).size());
+            } finally {
+                reader.close();
+            }
+
+            config.setValue(Config.DAO_TOTAL_COUNT_MODE, Config.DAO_TOTAL_COUNT_MODE_CONCURRENT);
+            reader = new DatabaseReader(config, "queryAccountAll");
+            try {
+                reader.open();
+                // the total is not known until the count query finishes
+                int totalRows = reader.getTotalRows();
+                for (int i = 0; i < 100 && totalRows == 0; i++) {
+                    Thread.sleep(50);
+                    totalRows = reader.getTotalRows();
+                }
+                assertEquals(NUM_ROWS, totalRows);
+            } finally {
+                reader.close();
+            }
+
+            config.setValue(Config.DAO_TOTAL_COUNT_MODE, Config.DAO_TOTAL_COUNT_MODE_ESTIMATE);
+            config.setValue(Config.DAO_TOTAL_COUNT_ESTIMATE_SQL, "SELECT 7");
+            reader = new DatabaseReader(config, "queryAccountAll");
+            try {
+                reader.open();
+                assertEquals(7, reader.getTotalRows());
+            } finally {
+                reader.close();
+            }
+        } finally {
+            config.setValue(Config.DAO_SKIP_TOTAL_COUNT, "true");
+            config.setValue(Config.DAO_TOTAL_COUNT_MODE, Config.DAO_TOTAL_COUNT_MODE_COUNT);
+            config.setValue(Config.DAO_TOTAL_COUNT_ESTIMATE_SQL, "");
+        }
+    }
+
+    private int countAccountsDb() throws DataAccessObjectException {
+        DatabaseReader reader = new DatabaseReader(getController().getConfig(), "queryAccountAll");
+        try {
+            reader.open();
+            return reader.readRowList(1000).size();
+        } finally {
+            reader.close();
+        }
+    }
+
     @Test
     public void testDatabaseDateMappingDate() throws Exception {
         doTestDatabaseDateMapping(DatabaseTestUtil.DateType.DATE, true);
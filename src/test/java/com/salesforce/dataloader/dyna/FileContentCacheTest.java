@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.dyna;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class FileContentCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testCachedContentIsReturnedForSameFile() throws IOException {
+        FileContentCache cache = new FileContentCache(1024);
+        File file = createFile("logo.txt", "logo");
+        assertNull(cache.get(file));
+        byte[] content = cache.put(file, "logo".getBytes(StandardCharsets.UTF_8));
+        assertSame(content, cache.get(file));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void testIdenticalContentIsShared() throws IOException {
+        FileContentCache cache = new FileContentCache(1024);
+        File file1 = createFile("contract1.txt", "standard contract");
+        File file2 = createFile("contract2.txt", "standard contract");
+        byte[] content1 = cache.put(file1, Files.readAllBytes(file1.toPath()));
+        byte[] content2 = cache.put(file2, Files.readAllBytes(file2.toPath()));
+        assertSame(content1, content2);
+        assertEquals("standard contract".length(), cache.getCachedBytes());
+    }
+
+    @Test
+    public void testModifiedFileIsNotServedFromCache() throws IOException {
+        FileContentCache cache = new FileContentCache(1024);
+        File file = createFile("logo.txt", "logo");
+        cache.put(file, Files.readAllBytes(file.toPath()));
+        Files.writeString(file.toPath(), "new logo");
+        file.setLastModified(file.lastModified() + 2000);
+        assertNull(cache.get(file));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedContentIsEvicted() throws IOException {
+        FileContentCache cache = new FileContentCache(10);
+        File file1 = createFile("file1.txt", "12345");
+        File file2 = createFile("file2.txt", "abcde");
+        File file3 = createFile("file3.txt", "vwxyz");
+        cache.put(file1, Files.readAllBytes(file1.toPath()));
+        cache.put(file2, Files.readAllBytes(file2.toPath()));
+        // access file1 so that file2 becomes the least recently used entry
+        cache.get(file1);
+        cache.put(file3, Files.readAllBytes(file3.toPath()));
+        assertNull(cache.get(file2));
+        assertArrayEquals("12345".getBytes(StandardCharsets.UTF_8), cache.get(file1));
+        assertArrayEquals("vwxyz".getBytes(StandardCharsets.UTF_8), cache.get(file3));
+        assertEquals(10, cache.getCachedBytes());
+    }
+
+    @Test
+    public void testContentLargerThanBudgetIsNotCached() throws IOException {
+        FileContentCache cache = new FileContentCache(3);
+        File file = createFile("large.txt", "too large");
+        byte[] content = Files.readAllBytes(file.toPath());
+        assertSame(content, cache.put(file, content));
+        assertNull(cache.get(file));
+        assertEquals(0, cache.getCachedBytes());
+    }
+
+    @Test
+    public void testConverterReadsFileOnce() throws IOException {
+        FileContentCache cache = new FileContentCache(1024);
+        FileByteArrayConverter converter = new FileByteArrayConverter(cache);
+        File file = createFile("body.txt", "attachment body");
+        byte[] first = (byte[])converter.convert(byte[].class, file.getAbsolutePath());
+        byte[] second = (byte[])converter.convert(byte[].class, file.getAbsolutePath());
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+
+        byte[] uncached = (byte[])new FileByteArrayConverter().convert(byte[].class, file.getAbsolutePath());
+        assertNotSame(first, uncached);
+        assertArrayEquals(first, uncached);
+    }
+
+    private File createFile(String name, String content) throws IOException {
+        File file = tempFolder.newFile(name);
+        Files.writeString(file.toPath(), content);
+        return file;
+    }
+}
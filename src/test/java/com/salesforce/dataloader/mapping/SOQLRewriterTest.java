@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.mapping;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests rewriting soql clauses
+ */
+public class SOQLRewriterTest {
+
+    @Test
+    public void testAddFilterConditionWithoutWhere() {
+        assertEquals("Select Id From Account WHERE Id >= '001'",
+                SOQLRewriter.addFilterCondition("Select Id From Account", "Id >= '001'"));
+        assertEquals("SELECT Id FROM Account USING SCOPE Mine WHERE Id >= '001' WITH SECURITY_ENFORCED",
+                SOQLRewriter.addFilterCondition("SELECT Id FROM Account USING SCOPE Mine WITH SECURITY_ENFORCED",
+                        "Id >= '001'"));
+    }
+
+    @Test
+    public void testAddFilterConditionWithWhere() {
+        assertEquals("select id from account WHERE (name = 'a or b' OR (type = 'x')) AND (Id < '001') order by name",
+                SOQLRewriter.addFilterCondition(
+                        "select id from account where name = 'a or b' OR (type = 'x') order by name", "Id < '001'"));
+    }
+
+    @Test
+    public void testIgnoresKeywordsInLiteralsAndSubqueries() {
+        String soql = "SELECT Id, (SELECT Id FROM Contacts ORDER BY Name LIMIT 5) FROM Account WHERE Name = 'limit order by'";
+        assertFalse(SOQLRewriter.hasClause(soql, "ORDER BY"));
+        assertFalse(SOQLRewriter.hasClause(soql, "LIMIT"));
+        assertTrue(SOQLRewriter.isIdRangePartitionable(soql));
+        assertFalse(SOQLRewriter.isIdRangePartitionable("SELECT Id FROM Account LIMIT 10"));
+        assertFalse(SOQLRewriter.isIdRangePartitionable("SELECT count(Id), Type FROM Account GROUP  BY Type"));
+    }
+
+    @Test
+    public void testGetIdBoundaryQuery() {
+        assertEquals("SELECT Id from Account a where a.Name != null ORDER BY Id DESC LIMIT 1",
+                SOQLRewriter.getIdBoundaryQuery("select a.Id, a.Name from Account a where a.Name != null", false));
+        assertEquals("SELECT Id from Account ORDER BY Id ASC LIMIT 1 FOR VIEW",
+                SOQLRewriter.getIdBoundaryQuery("select Name from Account FOR VIEW", true));
+    }
+
+    @Test
+    public void testGetIdRangeQueries() {
+        List<String> queries = SOQLRewriter.getIdRangeQueries("SELECT Name FROM Account",
+                "001000000000000AAA", "001000000000040", 4);
+        assertEquals(4, queries.size());
+        assertEquals("SELECT Name FROM Account WHERE Id < '001000000000010'", queries.get(0));
+        assertEquals("SELECT Name FROM Account WHERE Id >= '001000000000010' AND Id < '001000000000020'",
+                queries.get(1));
+        assertEquals("SELECT Name FROM Account WHERE Id >= '001000000000020' AND Id < '001000000000030'",
+                queries.get(2));
+        assertEquals("SELECT Name FROM Account WHERE Id >= '001000000000030'", queries.get(3));
+    }
+
+    @Test
+    public void testGetIdRangeQueriesForNarrowRange() {
+        List<String> boundaries = SOQLRewriter.getIdRangeBoundaries("001000000000001", "001000000000004", 8);
+        assertEquals(2, boundaries.size());
+        assertEquals("001000000000002", boundaries.get(0));
+        assertEquals("001000000000003", boundaries.get(1));
+        assertEquals(1, SOQLRewriter.getIdRangeQueries("SELECT Id FROM Account",
+                "001000000000001", "001000000000001", 4).size());
+    }
+}
@@ -53,6 +53,7 @@ import com.sforce.soap.partner.sobject.SObject;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test for dataloader batch interface, also known as "integration framework"
@@ -99,6 +100,66 @@ public class CsvProcessTest extends ProcessTestBase {
         runProcess(getUpdateTestConfig(false, null, 100), 100);
     }
 
+    /**
+     * Updates the same accounts twice with a fingerprint file. Rows that did not change since the
+     * first update are skipped and reported in the success file with the rows updated again.
+     */
+    @Test
+    public void testUpdateSkipsUnchangedRows() throws Exception {
+        final NameChangingTemplateListener listener = new NameChangingTemplateListener(100);
+        final String updateFileName = convertTemplateToInput("updateAccountCsvTemplate.csv", baseName + ".csv",
+                listener);
+        final Map<String, String> argMap = getTestConfig(OperationInfo.update, updateFileName,
+                new File(getTestDataDir(), "updateAccountCsvMap.sdl").getAbsolutePath(), false);
+        argMap.put(Config.LOAD_FINGERPRINT_FILE,
+                new File(getTestStatusDir(), baseName + "Fingerprints.dat").getAbsolutePath());
+        new File(argMap.get(Config.LOAD_FINGERPRINT_FILE)).delete();
+        runProcess(argMap, 100);
+
+        listener.changeEvenRows = true;
+        convertTemplateToInput("updateAccountCsvTemplate.csv", baseName + ".csv", listener);
+        final IProcess runner = runBatchProcess(argMap);
+        assertTrue("Process failed: " + runner.getMonitor().getMessage(), runner.getMonitor().isSuccess());
+        final Config config = runner.getController().getConfig();
+        final boolean isBulkV2 = config.isBulkV2APIEnabled();
+        final CSVFileReader successRdr = new CSVFileReader(new File(config.getString(Config.OUTPUT_SUCCESS)),
+                getController().getConfig(), true, false);
+        int rows = 0;
+        int updated = 0;
+        try {
+            successRdr.open();
+            assertEquals(Config.ID_COLUMN_NAME, successRdr.getColumnNames().get(0));
+            for (Row row = successRdr.readRow(); row != null; row = successRdr.readRow()) {
+                rows++;
+                assertValidId((String)row.get(Config.ID_COLUMN_NAME));
+                final Object status = row.get(isBulkV2 ? Config.STATUS_COLUMN_NAME_IN_BULKV2 : Config.STATUS_COLUMN_NAME);
+                if (isBulkV2 ? status != null && !status.toString().isEmpty() : "Item Updated".equals(status)) {
+                    updated++;
+                }
+            }
+        } finally {
+            successRdr.close();
+        }
+        assertEquals("Wrong number of rows in the success file", 100, rows);
+        assertEquals("Wrong number of updated rows in the success file", 50, updated);
+    }
+
+    private class NameChangingTemplateListener extends AccountIdTemplateListener {
+        boolean changeEvenRows = false;
+
+        public NameChangingTemplateListener(int numAccounts) {
+            super(numAccounts);
+        }
+
+        @Override
+        public void updateRow(int idx, Row row) {
+            super.updateRow(idx, row);
+            if (changeEvenRows && idx % 2 == 0) {
+                row.put("NAME", row.get("NAME") + " changed");
+            }
+        }
+    }
+
     /**
      * Upsert the records from CSV file
      */
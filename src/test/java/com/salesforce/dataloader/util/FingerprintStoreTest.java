@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2015, salesforce.com, inc.
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided
+ * that the following conditions are met:
+ *
+ *    Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *    following disclaimer.
+ *
+ *    Redistributions in binary form must reproduce the above copyright notice, this list of conditions and
+ *    the following disclaimer in the documentation and/or other materials provided with the distribution.
+ *
+ *    Neither the name of salesforce.com, inc. nor the names of its contributors may be used to endorse or
+ *    promote products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+ * WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A
+ * PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE FOR
+ * ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED
+ * TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION)
+ * HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.salesforce.dataloader.util;
+
+import java.io.File;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesforce.dataloader.model.Row;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class FingerprintStoreTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws Exception {
+        file = File.createTempFile("fingerprintStoreTest", ".dat");
+        file.delete();
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void testPutAndGetAcrossLevels() throws Exception {
+        try (FingerprintStore store = new FingerprintStore(file, 16)) {
+            for (int i = 0; i < 1000; i++) {
+                store.put(FingerprintStore.hash("key" + i), i + 100);
+            }
+            store.put(FingerprintStore.hash("key7"), 7);
+            assertEquals(1000, store.size());
+            assertEquals(7, store.get(FingerprintStore.hash("key7")));
+            assertEquals(999 + 100, store.get(FingerprintStore.hash("key999")));
+            assertEquals(0, store.get(FingerprintStore.hash("missing")));
+        }
+    }
+
+    @Test
+    public void testReopen() throws Exception {
+        try (FingerprintStore store = new FingerprintStore(file, 16)) {
+            for (int i = 0; i < 100; i++) {
+                store.put(FingerprintStore.hash("key" + i), i + 1);
+            }
+        }
+        try (FingerprintStore store = new FingerprintStore(file)) {
+            assertEquals(100, store.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i + 1, store.get(FingerprintStore.hash("key" + i)));
+            }
+        }
+    }
+
+    @Test
+    public void testFingerprint() {
+        Row row = new Row();
+        row.put("Name", "Acme");
+        row.put("External_Id__c", "A-1");
+        Row sameRow = new Row();
+        sameRow.put("external_id__c", "A-1");
+        sameRow.put("NAME", "Acme");
+        assertEquals(FingerprintStore.fingerprint(row), FingerprintStore.fingerprint(sameRow));
+
+        sameRow.put("Name", "Acme Inc");
+        assertNotEquals(FingerprintStore.fingerprint(row), FingerprintStore.fingerprint(sameRow));
+        long fingerprint = FingerprintStore.fingerprint(row);
+        row.put("Phone", null);
+        assertNotEquals(fingerprint, FingerprintStore.fingerprint(row));
+    }
+}